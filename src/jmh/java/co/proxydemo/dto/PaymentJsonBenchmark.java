@@ -0,0 +1,55 @@
+package co.proxydemo.dto;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * JSON mapping of the payment DTOs, with an ObjectMapper configured the way Spring Boot configures its own.
+ */
+@State(Scope.Benchmark)
+public class PaymentJsonBenchmark {
+
+    private ObjectMapper objectMapper;
+    private PaymentRequest request;
+    private PaymentResponse response;
+    private String requestJson;
+    private String responseJson;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        request = new PaymentRequest(125.50, "4242424242424242", "123", "12/30", "idem-0001",
+                Map.of("productId", "prod_42", "description", "Annual plan"), null);
+        response = new PaymentResponse(true, "txn_0001", "Payment processed", null, LocalDateTime.now());
+        requestJson = objectMapper.writeValueAsString(request);
+        responseJson = objectMapper.writeValueAsString(response);
+    }
+
+    @Benchmark
+    public String serializeRequest() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(request);
+    }
+
+    @Benchmark
+    public PaymentRequest deserializeRequest() throws JsonProcessingException {
+        return objectMapper.readValue(requestJson, PaymentRequest.class);
+    }
+
+    @Benchmark
+    public String serializeResponse() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(response);
+    }
+
+    @Benchmark
+    public PaymentResponse deserializeResponse() throws JsonProcessingException {
+        return objectMapper.readValue(responseJson, PaymentResponse.class);
+    }
+}
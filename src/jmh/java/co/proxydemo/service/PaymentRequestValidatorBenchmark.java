@@ -0,0 +1,43 @@
+package co.proxydemo.service;
+
+import co.proxydemo.dto.PaymentRequest;
+import co.proxydemo.dto.ValidationResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Request validation on its own. With the gc profiler, {@code gc.alloc.rate.norm} should stay at about 0 B/op for
+ * every shape, valid or not.
+ */
+@State(Scope.Benchmark)
+public class PaymentRequestValidatorBenchmark {
+
+    @Param({"valid", "bad_checksum", "bad_expiry", "expired"})
+    public String requestShape;
+
+    private PaymentRequestValidator validator;
+    private PaymentRequest request;
+
+    @Setup
+    public void setUp() {
+        validator = new PaymentRequestValidator(999999, true);
+        request = new PaymentRequest();
+        request.setAmount(125.50);
+        request.setCardNumber("bad_checksum".equals(requestShape) ? "4242424242424241" : "4242424242424242");
+        request.setCvv("123");
+        request.setExpiryDate(switch (requestShape) {
+            case "bad_expiry" -> "1230";
+            case "expired" -> "01/20";
+            default -> "12/30";
+        });
+        request.setIdempotencyKey("idem-0001");
+    }
+
+    @Benchmark
+    public ValidationResult validate() {
+        return validator.validate(request);
+    }
+}
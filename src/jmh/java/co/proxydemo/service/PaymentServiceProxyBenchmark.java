@@ -0,0 +1,72 @@
+package co.proxydemo.service;
+
+import co.proxydemo.dto.PaymentRequest;
+import co.proxydemo.dto.PaymentResponse;
+import co.proxydemo.dto.ValidationResult;
+import co.proxydemo.dto.WebhookEvent;
+import co.proxydemo.entity.Client;
+import co.proxydemo.entity.Transaction;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.tracing.Tracer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * The CPU-only helpers on the proxy's request path. The proxy is built without repositories, so only methods that do
+ * not touch the database are measured.
+ */
+@State(Scope.Benchmark)
+public class PaymentServiceProxyBenchmark {
+
+    @Param({"valid", "bad_expiry"})
+    public String requestShape;
+
+    private PaymentServiceProxy proxy;
+    private PaymentRequest request;
+    private PaymentResponse response;
+    private Client client;
+
+    @Setup
+    public void setUp() {
+        PaymentMetrics metrics = new PaymentMetrics(new SimpleMeterRegistry(), ObservationRegistry.NOOP);
+        proxy = new PaymentServiceProxy(null, null, null, null, null, null, null, null, null, null, new PaymentRequestValidator(999999, true),
+                metrics, Tracer.NOOP, Runnable::run, 500, 32);
+        String expiry = "valid".equals(requestShape) ? "12/30" : "1230";
+        request = new PaymentRequest(125.50, "4242424242424242", "123", expiry, "idem-0001",
+                Map.of("productId", "prod_42", "description", "Annual plan"), null);
+        response = new PaymentResponse(true, "txn_0001", "Payment processed", null, LocalDateTime.now());
+        client = new Client();
+    }
+
+    @Benchmark
+    public ValidationResult validateRequest() {
+        return proxy.checkRequest(request);
+    }
+
+    @Benchmark
+    public String maskCardNumber() {
+        return proxy.maskCardNumber(request.getCardNumber());
+    }
+
+    @Benchmark
+    public String extractCardLast4() {
+        return proxy.extractCardLast4(request.getCardNumber());
+    }
+
+    @Benchmark
+    public Transaction buildTransaction() {
+        return proxy.buildTransaction(request, response, client, request.getIdempotencyKey());
+    }
+
+    @Benchmark
+    public WebhookEvent buildWebhookEvent() {
+        return proxy.buildWebhookEvent(response, request);
+    }
+}
@@ -0,0 +1,76 @@
+package co.proxydemo.service;
+
+import co.proxydemo.dto.PaymentRequest;
+import co.proxydemo.entity.ProviderRoutingRule;
+import co.proxydemo.repository.ProviderRoutingRuleRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Provider selection (BIN trie lookup plus failover) and the providers' expiry check.
+ */
+@State(Scope.Benchmark)
+public class ProviderSelectionBenchmark {
+
+    @Param({"4111111111111111", "5555555555554444", "6011000990139424"})
+    public String cardNumber;
+
+    private PaymentProviderRegistry registry;
+    private VisaPaymentService visa;
+    private PaymentRequest request;
+    private ScheduledExecutorService scheduler;
+
+    @Setup
+    public void setUp() {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        visa = new VisaPaymentService(scheduler, Duration.ofMillis(600), Duration.ZERO);
+        StripePaymentService stripe = new StripePaymentService(scheduler, Duration.ofMillis(800), Duration.ZERO);
+
+        ProviderRoutingRuleRepository rules = mock(ProviderRoutingRuleRepository.class);
+        when(rules.findByActiveTrue()).thenReturn(List.of(rule("4111", "visa"), rule("510000-559999", "stripe")));
+        ProviderHealthTracker healthTracker = new ProviderHealthTracker(new SimpleMeterRegistry(), 0.2, 0.25, 20, 0.05,
+                Duration.ofSeconds(60));
+        registry = new PaymentProviderRegistry(List.of(visa, stripe), rules, healthTracker, "stripe", false, List.of(),
+                List.of("stripe:visa", "visa:stripe"));
+        registry.reload();
+
+        request = new PaymentRequest();
+        request.setCardNumber(cardNumber);
+        request.setExpiryDate("12/30");
+    }
+
+    @TearDown
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Benchmark
+    public PaymentProviderRegistry.ProviderRoute selectPaymentService() {
+        return registry.route(request);
+    }
+
+    @Benchmark
+    public boolean isCardValid() {
+        return visa.isCardValid(request.getExpiryDate());
+    }
+
+    private static ProviderRoutingRule rule(String binRule, String providerKey) {
+        ProviderRoutingRule rule = new ProviderRoutingRule();
+        rule.setBinRule(binRule);
+        rule.setProviderKey(providerKey);
+        return rule;
+    }
+}
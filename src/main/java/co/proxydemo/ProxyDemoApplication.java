@@ -13,6 +13,9 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 @SpringBootApplication
 public class ProxyDemoApplication implements CommandLineRunner {
 
+    private static final String TEST_CLIENT_ID = "test-client-id2";
+    private static final String TEST_CLIENT_SECRET = "test-client-secret2";
+
     private PaymentService paymentService;
     private ClientRepository clientRepository;
 
@@ -38,7 +41,7 @@ public class ProxyDemoApplication implements CommandLineRunner {
                 "description", "Ferrari car figure",
                 "quantity", "1"
         ));
-        paymentService.processPayment(req1, testClient.getClientId(), testClient.getClientSecret());
+        paymentService.processPayment(req1, testClient.getClientId(), TEST_CLIENT_SECRET);
 
         System.out.println("\nTEST 2: Card Declined");
 
@@ -53,7 +56,7 @@ public class ProxyDemoApplication implements CommandLineRunner {
                 "description", "Phone",
                 "quantity", "1"
         ));
-        paymentService.processPayment(req2, testClient.getClientId(), testClient.getClientSecret());
+        paymentService.processPayment(req2, testClient.getClientId(), TEST_CLIENT_SECRET);
 
         System.out.println("\nTEST 3: Idempotent Request (duplicate)");
 
@@ -68,13 +71,13 @@ public class ProxyDemoApplication implements CommandLineRunner {
                 "description", "Ferrari car figure",
                 "quantity", "1"
         ));
-        paymentService.processPayment(req3, testClient.getClientId(), testClient.getClientSecret());
+        paymentService.processPayment(req3, testClient.getClientId(), TEST_CLIENT_SECRET);
     }
 
     private Client initializeTestClient() {
         System.out.println("Initializing test client...");
 
-        Client existingClient = clientRepository.findByClientId("test-client-id")
+        Client existingClient = clientRepository.findByClientId(TEST_CLIENT_ID)
                 .orElse(null);
 
         if (existingClient != null) {
@@ -83,8 +86,8 @@ public class ProxyDemoApplication implements CommandLineRunner {
         }
 
         Client testClient2 = new Client();
-        testClient2.setClientId("test-client-id2");
-        testClient2.setClientSecret("test-client-secret2");
+        testClient2.setClientId(TEST_CLIENT_ID);
+        testClient2.setClientSecret(TEST_CLIENT_SECRET);
         testClient2.setName("Test Client2");
         testClient2.setDescription("Test client for payment proxy demonstration");
         testClient2.setActive(true);
@@ -0,0 +1,52 @@
+package co.proxydemo.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+
+@Configuration
+public class AsyncConfig {
+
+    @Bean(name = "providerScheduler", destroyMethod = "shutdown")
+    public ScheduledExecutorService providerScheduler(
+            @Value("${payment.async.provider-timer-threads:2}") int threads
+    ) {
+        ScheduledThreadPoolExecutor scheduler =
+                new ScheduledThreadPoolExecutor(threads, new CustomizableThreadFactory("provider-timer-"));
+        scheduler.setRemoveOnCancelPolicy(true);
+        return scheduler;
+    }
+
+    @Bean(name = "paymentCompletionExecutor")
+    @ConditionalOnThreading(Threading.PLATFORM)
+    public ThreadPoolTaskExecutor paymentCompletionExecutor(
+            @Value("${payment.async.completion-threads:16}") int threads,
+            @Value("${payment.async.completion-queue-capacity:10000}") int queueCapacity
+    ) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("payment-completion-");
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+
+    @Bean(name = "paymentCompletionExecutor")
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public SimpleAsyncTaskExecutor virtualPaymentCompletionExecutor() {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("payment-completion-");
+        executor.setVirtualThreads(true);
+        executor.setTaskTerminationTimeout(30_000);
+        return executor;
+    }
+}
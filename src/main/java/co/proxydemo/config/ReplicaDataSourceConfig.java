@@ -0,0 +1,77 @@
+package co.proxydemo.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.jdbc.JdbcConnectionDetails;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * With {@code payment.datasource.replica.enabled=true}, replaces the auto-configured pool with a primary pool
+ * ({@code spring.datasource.*}), a replica pool ({@code payment.datasource.replica.*}) and a routing data source in
+ * front of both. Flyway, JPA and JdbcTemplate all use the routing one; only read-only transactions reach the replica.
+ */
+@Configuration
+@ConditionalOnProperty(name = "payment.datasource.replica.enabled", havingValue = "true")
+public class ReplicaDataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(
+            DataSourceProperties properties,
+            ObjectProvider<JdbcConnectionDetails> connectionDetails
+    ) {
+        JdbcConnectionDetails details = connectionDetails.getIfAvailable();
+        if (details == null) {
+            return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        }
+        return DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .url(details.getJdbcUrl())
+                .username(details.getUsername())
+                .password(details.getPassword())
+                .driverClassName(details.getDriverClassName())
+                .build();
+    }
+
+    @Bean
+    @ConfigurationProperties("payment.datasource.replica.hikari")
+    public HikariDataSource replicaDataSource(
+            DataSourceProperties primary,
+            @Value("${payment.datasource.replica.url}") String url,
+            @Value("${payment.datasource.replica.username:${spring.datasource.username:}}") String username,
+            @Value("${payment.datasource.replica.password:${spring.datasource.password:}}") String password
+    ) {
+        HikariDataSource replica = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .url(url)
+                .username(username)
+                .password(password)
+                .driverClassName(primary.determineDriverClassName())
+                .build();
+        replica.setPoolName("replica-pool");
+        replica.setReadOnly(true);
+        return replica;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(
+            @Qualifier("primaryDataSource") DataSource primary,
+            @Qualifier("replicaDataSource") DataSource replica
+    ) {
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, replica);
+        routing.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+}
@@ -0,0 +1,34 @@
+package co.proxydemo.config;
+
+import co.proxydemo.service.ReplicaReadRouting;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Sends connections for {@code @Transactional(readOnly = true)} work to the replica and everything else to the
+ * primary. The read-only flag is only known once the transaction has started, so this must sit behind a
+ * {@code LazyConnectionDataSourceProxy}, which defers the lookup to the first statement.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    public enum Target {
+        PRIMARY,
+        REPLICA
+    }
+
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica) {
+        setTargetDataSources(Map.of(Target.PRIMARY, primary, Target.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly() && !ReplicaReadRouting.isPrimaryForced()) {
+            return Target.REPLICA;
+        }
+        return Target.PRIMARY;
+    }
+}
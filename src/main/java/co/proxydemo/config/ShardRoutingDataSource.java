@@ -0,0 +1,48 @@
+package co.proxydemo.config;
+
+import co.proxydemo.service.ShardRouter;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hands out connections from the shard selected by {@code ShardRouter.onShard} on the current thread, or from the
+ * home shard. Closing it closes the shard pools.
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+
+    private final List<DataSource> shards;
+
+    public ShardRoutingDataSource(List<DataSource> shards) {
+        this.shards = List.copyOf(shards);
+        Map<Object, Object> targets = new HashMap<>();
+        for (int shard = 0; shard < shards.size(); shard++) {
+            targets.put(shard, shards.get(shard));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(shards.get(ShardRouter.HOME_SHARD));
+        setLenientFallback(false);
+    }
+
+    public List<DataSource> shards() {
+        return shards;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return ShardRouter.currentShard();
+    }
+
+    @Override
+    public void close() {
+        for (DataSource shard : shards) {
+            if (shard instanceof HikariDataSource pool) {
+                pool.close();
+            }
+        }
+    }
+}
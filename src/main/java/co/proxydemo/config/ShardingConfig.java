@@ -0,0 +1,90 @@
+package co.proxydemo.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.flywaydb.core.Flyway;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * With {@code payment.sharding.enabled=true}, replaces the auto-configured pool with one pool per
+ * {@code payment.sharding.urls} entry (credentials and {@code spring.datasource.hikari.*} settings shared) and a
+ * routing data source in front of them. Flyway migrates every shard.
+ * <p>
+ * Transaction and webhook event ids come from per-shard pooled sequences, and the id generator may use a block
+ * fetched from one shard for rows on another. Each shard's sequences therefore start at {@code shard << 40}, which
+ * keeps ids unique across shards, so rows can move between shards without renumbering.
+ */
+@Configuration
+@ConditionalOnProperty(name = "payment.sharding.enabled", havingValue = "true")
+public class ShardingConfig {
+
+    static final int SHARD_ID_BITS = 40;
+
+    private static final List<String> SHARDED_SEQUENCES = List.of("transactions_seq", "webhook_events_seq");
+
+    @Bean
+    public ShardRoutingDataSource shardRoutingDataSource(
+            DataSourceProperties properties,
+            Environment environment,
+            @Value("${payment.sharding.urls}") List<String> urls
+    ) {
+        Binder binder = Binder.get(environment);
+        List<DataSource> shards = new ArrayList<>(urls.size());
+        for (int shard = 0; shard < urls.size(); shard++) {
+            HikariDataSource pool = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .url(urls.get(shard).trim())
+                    .username(properties.determineUsername())
+                    .password(properties.determinePassword())
+                    .driverClassName(properties.determineDriverClassName())
+                    .build();
+            binder.bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+            pool.setPoolName("shard-" + shard + "-pool");
+            shards.add(pool);
+        }
+        return new ShardRoutingDataSource(shards);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ShardRoutingDataSource shardRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(shardRoutingDataSource);
+    }
+
+    @Bean
+    public FlywayMigrationStrategy shardedFlywayMigration(ShardRoutingDataSource shardRoutingDataSource) {
+        return flyway -> {
+            List<DataSource> shards = shardRoutingDataSource.shards();
+            for (int shard = 0; shard < shards.size(); shard++) {
+                Flyway.configure(flyway.getConfiguration().getClassLoader())
+                        .configuration(flyway.getConfiguration())
+                        .dataSource(shards.get(shard))
+                        .load()
+                        .migrate();
+                offsetSequences(shards.get(shard), shard);
+            }
+        };
+    }
+
+    static void offsetSequences(DataSource shard, int index) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(shard);
+        for (String sequence : SHARDED_SEQUENCES) {
+            jdbcTemplate.update("UPDATE " + sequence + " SET next_val = GREATEST(next_val, ?)", (long) index << SHARD_ID_BITS);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package co.proxydemo.config;
+
+import co.proxydemo.tracing.NdjsonFileSpanExporter;
+import co.proxydemo.tracing.TailSamplingSpanExporter;
+import io.opentelemetry.exporter.otlp.http.trace.OtlpHttpSpanExporter;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+
+@Configuration
+public class TracingConfig {
+
+    @Bean(destroyMethod = "")
+    public SpanExporter paymentSpanExporter(
+            @Value("${payment.tracing.exporter:none}") String exporter,
+            @Value("${payment.tracing.otlp.endpoint:http://localhost:4318/v1/traces}") String otlpEndpoint,
+            @Value("${payment.tracing.file.path:build/traces/spans.ndjson}") Path filePath,
+            @Value("${payment.tracing.tail-sampling.enabled:true}") boolean tailSampling,
+            @Value("${payment.tracing.tail-sampling.slow-threshold:2s}") Duration slowThreshold,
+            @Value("${payment.tracing.tail-sampling.sample-ratio:0.1}") double sampleRatio,
+            @Value("${payment.tracing.tail-sampling.max-trace-age:1m}") Duration maxTraceAge,
+            @Value("${payment.tracing.tail-sampling.max-pending-traces:10000}") long maxPendingTraces
+    ) throws IOException {
+        SpanExporter delegate = switch (exporter.trim().toLowerCase(Locale.ROOT)) {
+            case "otlp" -> OtlpHttpSpanExporter.builder().setEndpoint(otlpEndpoint).build();
+            case "file" -> new NdjsonFileSpanExporter(filePath);
+            case "none" -> SpanExporter.composite(List.of());
+            default -> throw new IllegalStateException("Unknown payment.tracing.exporter '" + exporter + "'; use otlp, file or none");
+        };
+        if (!tailSampling) {
+            return delegate;
+        }
+        return new TailSamplingSpanExporter(delegate, slowThreshold, sampleRatio, maxTraceAge, maxPendingTraces);
+    }
+}
@@ -1,48 +1,158 @@
 package co.proxydemo.controller;
 
+import co.proxydemo.dto.BatchPaymentRequest;
+import co.proxydemo.dto.BatchPaymentResponse;
 import co.proxydemo.dto.PaymentRequest;
 import co.proxydemo.dto.PaymentResponse;
-import co.proxydemo.entity.Transaction;
-import co.proxydemo.repository.TransactionRepository;
+import co.proxydemo.dto.TransactionFilter;
+import co.proxydemo.dto.TransactionPage;
+import co.proxydemo.service.PaymentAdmissionControl;
 import co.proxydemo.service.PaymentService;
+import co.proxydemo.service.PaymentServiceProxy;
+import co.proxydemo.service.TransactionQueryService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.List;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @RestController
 @RequestMapping("/api/v1/payments")
 public class PaymentController {
 
+    private static final String ERROR_TIMEOUT = "payment_timeout";
+    private static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
     private final PaymentService paymentService;
-    private final TransactionRepository transactionRepository;
+    private final TransactionQueryService transactionQueryService;
+    private final PaymentAdmissionControl admissionControl;
+    private final boolean virtualThreads;
+    private final Duration paymentTimeout;
 
     @Autowired
     public PaymentController(PaymentService paymentService,
-                             TransactionRepository transactionRepository) {
+                             TransactionQueryService transactionQueryService,
+                             PaymentAdmissionControl admissionControl,
+                             @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+                             @Value("${payment.async.request-timeout:30s}") Duration paymentTimeout) {
         this.paymentService = paymentService;
-        this.transactionRepository = transactionRepository;
+        this.transactionQueryService = transactionQueryService;
+        this.admissionControl = admissionControl;
+        this.virtualThreads = virtualThreads;
+        this.paymentTimeout = paymentTimeout;
     }
 
     @PostMapping
-    public ResponseEntity<PaymentResponse> createPayment(
+    public CompletableFuture<ResponseEntity<PaymentResponse>> createPayment(
             @RequestBody PaymentRequest request,
             @RequestHeader("X-Client-Id") String clientId,
             @RequestHeader("X-Client-Secret") String clientSecret
     ) {
-        PaymentResponse response = paymentService.processPayment(request, clientId, clientSecret);
+        PaymentAdmissionControl.Admission admission = admissionControl.admit(clientId, clientSecret, 1);
+        if (!admission.admitted()) {
+            return CompletableFuture.completedFuture(toRejectedResponse(admission));
+        }
+        if (virtualThreads) {
+            boolean dropped = true;
+            try {
+                PaymentResponse response = paymentService.processPayment(request, clientId, clientSecret, admission.client());
+                dropped = false;
+                return CompletableFuture.completedFuture(toResponseEntity(response));
+            } finally {
+                admissionControl.release(admission, dropped);
+            }
+        }
+        return paymentService.processPaymentAsync(request, clientId, clientSecret, admission.client())
+                .orTimeout(paymentTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                .whenComplete((response, error) -> admissionControl.release(admission, error != null))
+                .handle((response, error) -> error == null ? toResponseEntity(response) : toTimeoutResponse(error));
+    }
+
+    @PostMapping("/batch")
+    public CompletableFuture<ResponseEntity<BatchPaymentResponse>> createPaymentBatch(
+            @RequestBody BatchPaymentRequest request,
+            @RequestHeader("X-Client-Id") String clientId,
+            @RequestHeader("X-Client-Secret") String clientSecret
+    ) {
+        if (request.getPayments() == null || request.getPayments().isEmpty()) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().build());
+        }
+        PaymentAdmissionControl.Admission admission = admissionControl.admit(clientId, clientSecret, request.getPayments().size());
+        if (!admission.admitted()) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(admission.retryAfterSeconds()))
+                    .build());
+        }
+        return paymentService.processBatchAsync(request.getPayments(), clientId, clientSecret, admission.client())
+                .whenComplete((results, error) -> admissionControl.release(admission, error != null))
+                .thenApply(results -> ResponseEntity.ok(BatchPaymentResponse.of(results)));
+    }
+
+    private ResponseEntity<PaymentResponse> toRejectedResponse(PaymentAdmissionControl.Admission admission) {
+        String message = PaymentAdmissionControl.ERROR_RATE_LIMITED.equals(admission.errorCode())
+                ? "Rate limit exceeded"
+                : "Server is busy; retry later";
+        PaymentResponse response = new PaymentResponse(false, null, message, admission.errorCode(), LocalDateTime.now());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(admission.retryAfterSeconds()))
+                .body(response);
+    }
 
+    private ResponseEntity<PaymentResponse> toResponseEntity(PaymentResponse response) {
         if (response.isSuccess()) {
             return ResponseEntity.ok(response);
+        } else if (PaymentServiceProxy.ERROR_CLIENT_MOVING.equals(response.getErrorCode())) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(response);
         } else {
             return ResponseEntity.status(HttpStatus.PAYMENT_REQUIRED).body(response);
         }
     }
 
+    private ResponseEntity<PaymentResponse> toTimeoutResponse(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (!(cause instanceof TimeoutException)) {
+            throw error instanceof CompletionException completion ? completion : new CompletionException(error);
+        }
+        PaymentResponse response = new PaymentResponse(false, null, "Payment is still being processed", ERROR_TIMEOUT, LocalDateTime.now());
+        return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(response);
+    }
+
     @GetMapping("/transactions")
-    public List<Transaction> getAllTransactions() {
-        return transactionRepository.findAll();
+    public TransactionPage getTransactions(
+            @RequestParam(required = false) String clientId,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime afterCreatedAt,
+            @RequestParam(required = false) Long afterId,
+            @RequestParam(defaultValue = "100") int limit
+    ) {
+        TransactionFilter filter = new TransactionFilter(clientId, status, from, to);
+        return transactionQueryService.findPage(filter, afterCreatedAt, afterId, limit);
+    }
+
+    @GetMapping("/transactions/export")
+    public ResponseEntity<StreamingResponseBody> exportTransactions(
+            @RequestParam(required = false) String clientId,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to
+    ) {
+        TransactionFilter filter = new TransactionFilter(clientId, status, from, to);
+        StreamingResponseBody body = out -> transactionQueryService.exportNdjson(filter, out);
+        return ResponseEntity.ok().contentType(APPLICATION_NDJSON).body(body);
     }
 }
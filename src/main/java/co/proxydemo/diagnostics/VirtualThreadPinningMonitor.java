@@ -0,0 +1,91 @@
+package co.proxydemo.diagnostics;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component
+@ConditionalOnThreading(Threading.VIRTUAL)
+@ConditionalOnProperty(name = "payment.virtual-threads.pinning-diagnostics.enabled", havingValue = "true", matchIfMissing = true)
+public class VirtualThreadPinningMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadPinningMonitor.class);
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final int MAX_LOGGED_FRAMES = 8;
+
+    private final Duration threshold;
+    private final AtomicLong pinnedCount = new AtomicLong();
+    private final AtomicLong pinnedNanos = new AtomicLong();
+
+    private RecordingStream recordingStream;
+
+    public VirtualThreadPinningMonitor(
+            @Value("${payment.virtual-threads.pinning-diagnostics.threshold:20ms}") Duration threshold
+    ) {
+        this.threshold = threshold;
+    }
+
+    @PostConstruct
+    public void start() {
+        recordingStream = new RecordingStream();
+        recordingStream.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+        recordingStream.onEvent(PINNED_EVENT, this::onPinned);
+        recordingStream.startAsync();
+        logger.info("Virtual thread pinning diagnostics enabled (threshold: {} ms)", threshold.toMillis());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (recordingStream != null) {
+            recordingStream.close();
+        }
+    }
+
+    public long getPinnedCount() {
+        return pinnedCount.get();
+    }
+
+    public Duration getPinnedTime() {
+        return Duration.ofNanos(pinnedNanos.get());
+    }
+
+    private void onPinned(RecordedEvent event) {
+        pinnedCount.incrementAndGet();
+        pinnedNanos.addAndGet(event.getDuration().toNanos());
+        logger.warn("Virtual thread pinned its carrier for {} ms{}", event.getDuration().toMillis(), formatStackTrace(event.getStackTrace()));
+    }
+
+    private String formatStackTrace(RecordedStackTrace stackTrace) {
+        if (stackTrace == null) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder();
+        List<RecordedFrame> frames = stackTrace.getFrames();
+        for (int i = 0; i < Math.min(frames.size(), MAX_LOGGED_FRAMES); i++) {
+            RecordedFrame frame = frames.get(i);
+            sb.append(System.lineSeparator())
+                    .append("    at ")
+                    .append(frame.getMethod().getType().getName())
+                    .append('.')
+                    .append(frame.getMethod().getName())
+                    .append(':')
+                    .append(frame.getLineNumber());
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,14 @@
+package co.proxydemo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchPaymentRequest {
+    private List<PaymentRequest> payments;
+}
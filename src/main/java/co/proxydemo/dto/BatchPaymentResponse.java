@@ -0,0 +1,22 @@
+package co.proxydemo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchPaymentResponse {
+    private int total;
+    private int succeeded;
+    private int failed;
+    private List<PaymentResponse> results;
+
+    public static BatchPaymentResponse of(List<PaymentResponse> results) {
+        int succeeded = (int) results.stream().filter(PaymentResponse::isSuccess).count();
+        return new BatchPaymentResponse(results.size(), succeeded, results.size() - succeeded, results);
+    }
+}
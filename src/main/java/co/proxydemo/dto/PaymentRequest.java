@@ -10,7 +10,7 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 @NoArgsConstructor
 public class PaymentRequest {
-    private double amount;
+    private Double amount;
     private String cardNumber;
     private String cvv;
     private String expiryDate;
@@ -1,5 +1,6 @@
 package co.proxydemo.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -15,6 +16,10 @@ public class PaymentResponse {
     private String message;
     private String errorCode;
     private LocalDateTime timestamp;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private ValidationError validationError;
 
-
-}
\ No newline at end of file
+    public PaymentResponse(boolean success, String transactionId, String message, String errorCode, LocalDateTime timestamp) {
+        this(success, transactionId, message, errorCode, timestamp, null);
+    }
+}
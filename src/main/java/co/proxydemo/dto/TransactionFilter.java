@@ -0,0 +1,17 @@
+package co.proxydemo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class TransactionFilter {
+    private String clientId;
+    private String status;
+    private LocalDateTime from;
+    private LocalDateTime to;
+}
@@ -0,0 +1,25 @@
+package co.proxydemo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class TransactionPage {
+    private List<TransactionSummary> items;
+    private LocalDateTime nextAfterCreatedAt;
+    private Long nextAfterId;
+
+    public static TransactionPage of(List<TransactionSummary> items, boolean hasMore) {
+        if (!hasMore || items.isEmpty()) {
+            return new TransactionPage(items, null, null);
+        }
+        TransactionSummary last = items.get(items.size() - 1);
+        return new TransactionPage(items, last.getCreatedAt(), last.getId());
+    }
+}
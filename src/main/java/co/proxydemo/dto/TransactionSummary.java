@@ -0,0 +1,21 @@
+package co.proxydemo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class TransactionSummary {
+    private Long id;
+    private String clientId;
+    private Double amount;
+    private String cardLast4;
+    private String status;
+    private String errorMessage;
+    private LocalDateTime createdAt;
+    private String providerTransactionId;
+}
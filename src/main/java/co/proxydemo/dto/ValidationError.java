@@ -0,0 +1,4 @@
+package co.proxydemo.dto;
+
+public record ValidationError(String field, String code) {
+}
@@ -6,6 +6,18 @@ import lombok.Data;
 @Data
 @AllArgsConstructor
 public class ValidationResult {
+
+    public static final ValidationResult VALID = new ValidationResult(true, null);
+
     private final boolean valid;
     private final String error;
-}
\ No newline at end of file
+    private final ValidationError details;
+
+    public ValidationResult(boolean valid, String error) {
+        this(valid, error, null);
+    }
+
+    public static ValidationResult invalid(String field, String code, String error) {
+        return new ValidationResult(false, error, new ValidationError(field, code));
+    }
+}
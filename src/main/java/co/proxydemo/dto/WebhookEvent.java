@@ -17,4 +17,5 @@ public class WebhookEvent {
     private LocalDateTime timestamp;
     private String productId;
     private String description;
+    private String traceId;
 }
\ No newline at end of file
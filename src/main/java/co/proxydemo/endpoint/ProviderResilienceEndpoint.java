@@ -0,0 +1,44 @@
+package co.proxydemo.endpoint;
+
+import co.proxydemo.service.ProviderResilience;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Component
+@Endpoint(id = "providers")
+public class ProviderResilienceEndpoint {
+
+    private final ProviderResilience resilience;
+
+    @Autowired
+    public ProviderResilienceEndpoint(ProviderResilience resilience) {
+        this.resilience = resilience;
+    }
+
+    @ReadOperation
+    public Map<String, ProviderStatus> providers() {
+        Map<String, ProviderStatus> statuses = new LinkedHashMap<>();
+        resilience.getGuards().forEach((providerKey, guard) -> statuses.put(providerKey, new ProviderStatus(
+                guard.breaker().getState().name(),
+                guard.breaker().getFailureRate(),
+                guard.breaker().getSlowCallRate(),
+                guard.breaker().getBufferedCalls(),
+                guard.breaker().getRejectedCount(),
+                guard.bulkhead().getInFlight(),
+                guard.bulkhead().getQueued(),
+                guard.bulkhead().getMaxConcurrent(),
+                guard.bulkhead().getRejectedCount()
+        )));
+        return statuses;
+    }
+
+    public record ProviderStatus(String circuitState, double failureRate, double slowCallRate, int bufferedCalls,
+                                 long circuitRejected, int inFlight, int queued, int maxConcurrent,
+                                 long bulkheadRejected) {
+    }
+}
@@ -0,0 +1,48 @@
+package co.proxydemo.endpoint;
+
+import co.proxydemo.service.PaymentProviderRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.TreeSet;
+
+@Component
+@Endpoint(id = "routing")
+public class ProviderRoutingEndpoint {
+
+    private final PaymentProviderRegistry providerRegistry;
+
+    @Autowired
+    public ProviderRoutingEndpoint(PaymentProviderRegistry providerRegistry) {
+        this.providerRegistry = providerRegistry;
+    }
+
+    @ReadOperation
+    public RoutingSummary routing() {
+        return summarize(providerRegistry.getRoutingTable());
+    }
+
+    @WriteOperation
+    public RoutingSummary reload() {
+        return summarize(providerRegistry.reload());
+    }
+
+    private RoutingSummary summarize(PaymentProviderRegistry.RoutingTable table) {
+        return new RoutingSummary(
+                new TreeSet<>(providerRegistry.getProviderKeys()),
+                providerRegistry.getDefaultProviderKey(),
+                table.bins().ruleCount(),
+                table.skippedRules(),
+                table.loadedAt()
+        );
+    }
+
+    public record RoutingSummary(Set<String> providers, String defaultProvider, int rules, int skippedRules,
+                                 LocalDateTime loadedAt) {
+    }
+}
@@ -0,0 +1,39 @@
+package co.proxydemo.endpoint;
+
+import co.proxydemo.service.ShardRebalancer;
+import co.proxydemo.service.ShardRouter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Component
+@Endpoint(id = "shards")
+public class ShardsEndpoint {
+
+    private final ShardRouter shardRouter;
+    private final ShardRebalancer shardRebalancer;
+
+    @Autowired
+    public ShardsEndpoint(ShardRouter shardRouter, ShardRebalancer shardRebalancer) {
+        this.shardRouter = shardRouter;
+        this.shardRebalancer = shardRebalancer;
+    }
+
+    @ReadOperation
+    public ShardsSummary shards() {
+        return new ShardsSummary(shardRouter.isEnabled(), shardRouter.shardCount(), shardRouter.movingClients(),
+                shardRebalancer.stats());
+    }
+
+    @WriteOperation
+    public ShardRebalancer.RebalanceResult rebalance() {
+        return shardRebalancer.rebalance();
+    }
+
+    public record ShardsSummary(boolean enabled, int shards, int movingClients, List<ShardRebalancer.ShardStats> stats) {
+    }
+}
@@ -1,5 +1,8 @@
 package co.proxydemo.entity;
 
+import co.proxydemo.service.ClientCacheInvalidationListener;
+import co.proxydemo.service.ClientSecretHashingListener;
+import co.proxydemo.service.ShardReferenceListener;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -12,6 +15,7 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @Entity
 @Table(name = "clients")
+@EntityListeners({ClientSecretHashingListener.class, ClientCacheInvalidationListener.class, ShardReferenceListener.class})
 public class Client {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -31,6 +35,10 @@ public class Client {
     @Column(nullable = false)
     private Boolean active = true;
 
+    private Double rateLimitPerSecond;
+
+    private Integer rateLimitBurst;
+
     @Column(nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
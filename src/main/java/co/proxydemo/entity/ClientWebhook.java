@@ -1,5 +1,6 @@
 package co.proxydemo.entity;
 
+import co.proxydemo.service.ShardReferenceListener;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -12,6 +13,7 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @Entity
 @Table(name = "client_webhooks")
+@EntityListeners(ShardReferenceListener.class)
 public class ClientWebhook {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
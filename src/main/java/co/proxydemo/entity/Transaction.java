@@ -1,9 +1,16 @@
 package co.proxydemo.entity;
 
+import co.proxydemo.service.TransactionWriteListener;
+import co.proxydemo.util.MetadataCodec;
 import jakarta.persistence.*;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
 
 import java.time.LocalDateTime;
 import java.util.Map;
@@ -12,10 +19,20 @@ import java.util.Map;
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
-@Table(name = "transactions")
+@Table(
+        name = "transactions",
+        uniqueConstraints = @UniqueConstraint(name = "uk_transactions_client_idempotency_key", columnNames = {"client_id", "idempotency_key"}),
+        indexes = {
+                @Index(name = "idx_transactions_client_created_at", columnList = "client_id, created_at"),
+                @Index(name = "idx_transactions_created_at", columnList = "created_at"),
+                @Index(name = "idx_transactions_provider_transaction_id", columnList = "provider_transaction_id")
+        }
+)
+@EntityListeners(TransactionWriteListener.class)
 public class Transaction {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transactions_seq")
+    @SequenceGenerator(name = "transactions_seq", sequenceName = "transactions_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -29,11 +46,37 @@ public class Transaction {
     private LocalDateTime createdAt;
     private String providerTransactionId;
 
-    @ElementCollection
-    @CollectionTable(name = "transaction_metadata", joinColumns = @JoinColumn(name = "transaction_id"))
-    @MapKeyColumn(name = "metadata_key")
-    @Column(name = "metadata_value")
+    /**
+     * Metadata as one JSON column ({@link MetadataCodec}). It is encoded when set and decoded on first read, so
+     * listings that never touch it never parse it. Replace it with {@link #setMetadata}; the returned map is
+     * read-only.
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @Column(name = "metadata", columnDefinition = "TEXT")
+    private String metadataJson;
+
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     private Map<String, String> metadata;
 
     private String idempotencyKey;
+
+    @Column(columnDefinition = "TEXT")
+    private String responseBody;
+
+    public Map<String, String> getMetadata() {
+        if (metadata == null) {
+            metadata = MetadataCodec.decode(metadataJson);
+        }
+        return metadata;
+    }
+
+    public void setMetadata(Map<String, String> metadata) {
+        this.metadataJson = MetadataCodec.encode(metadata);
+        this.metadata = null;
+    }
 }
@@ -11,10 +11,11 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
-@Table(name = "webhook_events")
+@Table(name = "webhook_events", indexes = @Index(name = "idx_webhook_events_status_next_attempt_at", columnList = "status, next_attempt_at"))
 public class WebhookEvent {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "webhook_events_seq")
+    @SequenceGenerator(name = "webhook_events_seq", sequenceName = "webhook_events_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false, unique = true)
@@ -50,12 +51,22 @@ public class WebhookEvent {
 
     private LocalDateTime sentAt;
 
+    private Integer attempts;
+
+    private LocalDateTime nextAttemptAt;
+
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
         if (status == null) {
             status = "PENDING";
         }
+        if (attempts == null) {
+            attempts = 0;
+        }
+        if (nextAttemptAt == null) {
+            nextAttemptAt = createdAt;
+        }
     }
 }
 
@@ -9,7 +9,5 @@ import java.util.Optional;
 @Repository
 public interface ClientRepository extends JpaRepository<Client, Long> {
     Optional<Client> findByClientId(String clientId);
-
-    Optional<Client> findByClientIdAndClientSecret(String clientId, String clientSecret);
 }
 
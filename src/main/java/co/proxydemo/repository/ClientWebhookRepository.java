@@ -0,0 +1,17 @@
+package co.proxydemo.repository;
+
+import co.proxydemo.entity.ClientWebhook;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ClientWebhookRepository extends JpaRepository<ClientWebhook, Long> {
+
+    @Query("select w from ClientWebhook w where w.client.id = :clientPk and w.active = true "
+            + "and (w.eventType = :eventType or w.eventType = '*')")
+    List<ClientWebhook> findActiveSubscriptions(@Param("clientPk") Long clientPk, @Param("eventType") String eventType);
+}
@@ -0,0 +1,12 @@
+package co.proxydemo.repository;
+
+import co.proxydemo.entity.ProviderRoutingRule;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ProviderRoutingRuleRepository extends JpaRepository<ProviderRoutingRule, Long> {
+    List<ProviderRoutingRule> findByActiveTrue();
+}
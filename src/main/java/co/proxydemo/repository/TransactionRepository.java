@@ -2,12 +2,52 @@ package co.proxydemo.repository;
 
 import co.proxydemo.entity.Transaction;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
-    Optional<Transaction> findByIdempotencyKey(String idempotencyKey);
+    @Transactional(readOnly = true)
+    @Query("select t from Transaction t where t.client.id = :clientPk and t.idempotencyKey = :idempotencyKey")
+    Optional<Transaction> findByClientAndIdempotencyKey(
+            @Param("clientPk") Long clientPk,
+            @Param("idempotencyKey") String idempotencyKey
+    );
 
-}
\ No newline at end of file
+    @Transactional(readOnly = true)
+    @Query("select t from Transaction t where t.client.id = :clientPk and t.idempotencyKey in :idempotencyKeys")
+    List<Transaction> findByClientAndIdempotencyKeyIn(
+            @Param("clientPk") Long clientPk,
+            @Param("idempotencyKeys") Collection<String> idempotencyKeys
+    );
+
+    @Transactional
+    @Modifying
+    @Query("update Transaction t set t.status = :status, t.errorMessage = :errorMessage, "
+            + "t.providerTransactionId = :providerTransactionId, t.responseBody = :responseBody "
+            + "where t.id = :id and t.status in ('PENDING', 'UNKNOWN')")
+    int completePending(
+            @Param("id") Long id,
+            @Param("status") String status,
+            @Param("errorMessage") String errorMessage,
+            @Param("providerTransactionId") String providerTransactionId,
+            @Param("responseBody") String responseBody
+    );
+
+    @Query("select t.id from Transaction t where t.status = 'PENDING' and t.createdAt < :cutoff")
+    List<Long> findPendingIdsCreatedBefore(@Param("cutoff") LocalDateTime cutoff);
+
+    @Transactional
+    @Modifying
+    @Query("update Transaction t set t.status = 'UNKNOWN', t.errorMessage = :errorMessage "
+            + "where t.id in :ids and t.status = 'PENDING'")
+    int markPendingUnknown(@Param("ids") Collection<Long> ids, @Param("errorMessage") String errorMessage);
+}
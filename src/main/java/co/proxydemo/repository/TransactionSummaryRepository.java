@@ -0,0 +1,96 @@
+package co.proxydemo.repository;
+
+import co.proxydemo.dto.TransactionFilter;
+import co.proxydemo.dto.TransactionSummary;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+
+@Repository
+public class TransactionSummaryRepository {
+
+    private static final String SELECT_SUMMARY =
+            "SELECT t.id, c.client_id, t.amount, t.card_last4, t.status, t.error_message, t.created_at, "
+                    + "t.provider_transaction_id FROM transactions t JOIN clients c ON c.id = t.client_id WHERE 1 = 1";
+    private static final String ORDER_BY_KEYSET = " ORDER BY t.created_at, t.id";
+
+    private static final RowMapper<TransactionSummary> SUMMARY_MAPPER = (rs, rowNum) -> new TransactionSummary(
+            rs.getLong("id"),
+            rs.getString("client_id"),
+            rs.getObject("amount", Double.class),
+            rs.getString("card_last4"),
+            rs.getString("status"),
+            rs.getString("error_message"),
+            rs.getObject("created_at", LocalDateTime.class),
+            rs.getString("provider_transaction_id")
+    );
+
+    private final NamedParameterJdbcTemplate pageTemplate;
+    private final NamedParameterJdbcTemplate streamTemplate;
+
+    @Autowired
+    public TransactionSummaryRepository(
+            DataSource dataSource,
+            @Value("${payment.export.fetch-size:500}") int fetchSize
+    ) {
+        this.pageTemplate = new NamedParameterJdbcTemplate(dataSource);
+        JdbcTemplate streaming = new JdbcTemplate(dataSource);
+        streaming.setFetchSize(fetchSize);
+        this.streamTemplate = new NamedParameterJdbcTemplate(streaming);
+    }
+
+    @Transactional(readOnly = true)
+    public List<TransactionSummary> findPage(TransactionFilter filter, LocalDateTime afterCreatedAt, Long afterId, int limit) {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        StringBuilder sql = new StringBuilder(SELECT_SUMMARY);
+        appendFilter(sql, params, filter);
+        if (afterCreatedAt != null && afterId != null) {
+            sql.append(" AND (t.created_at > :afterCreatedAt OR (t.created_at = :afterCreatedAt AND t.id > :afterId))");
+            params.addValue("afterCreatedAt", afterCreatedAt);
+            params.addValue("afterId", afterId);
+        }
+        sql.append(ORDER_BY_KEYSET).append(" LIMIT :limit");
+        params.addValue("limit", limit);
+        return pageTemplate.query(sql.toString(), params, SUMMARY_MAPPER);
+    }
+
+    @Transactional(readOnly = true)
+    public void streamAll(TransactionFilter filter, Consumer<TransactionSummary> sink) {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        StringBuilder sql = new StringBuilder(SELECT_SUMMARY);
+        appendFilter(sql, params, filter);
+        sql.append(ORDER_BY_KEYSET);
+        streamTemplate.query(sql.toString(), params, rs -> {
+            sink.accept(SUMMARY_MAPPER.mapRow(rs, 0));
+        });
+    }
+
+    private void appendFilter(StringBuilder sql, MapSqlParameterSource params, TransactionFilter filter) {
+        if (filter.getClientId() != null) {
+            sql.append(" AND c.client_id = :clientId");
+            params.addValue("clientId", filter.getClientId());
+        }
+        if (filter.getStatus() != null) {
+            sql.append(" AND t.status = :status");
+            params.addValue("status", filter.getStatus());
+        }
+        if (filter.getFrom() != null) {
+            sql.append(" AND t.created_at >= :from");
+            params.addValue("from", filter.getFrom());
+        }
+        if (filter.getTo() != null) {
+            sql.append(" AND t.created_at < :to");
+            params.addValue("to", filter.getTo());
+        }
+    }
+}
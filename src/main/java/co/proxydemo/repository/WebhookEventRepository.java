@@ -0,0 +1,54 @@
+package co.proxydemo.repository;
+
+import co.proxydemo.entity.WebhookEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface WebhookEventRepository extends JpaRepository<WebhookEvent, Long> {
+
+    @Query(value = "SELECT id FROM webhook_events WHERE status IN ('PENDING', 'SENDING') AND next_attempt_at <= :now "
+            + "ORDER BY next_attempt_at LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<Long> lockDueEventIds(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    @Query(value = "SELECT COUNT(*) FROM webhook_events WHERE status IN ('PENDING', 'SENDING') AND next_attempt_at <= :now",
+            nativeQuery = true)
+    long countDue(@Param("now") LocalDateTime now);
+
+    @Query("select e from WebhookEvent e join fetch e.clientWebhook where e.id in :ids")
+    List<WebhookEvent> findWithSubscriptionByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Records a delivery only while the caller still holds the lease it claimed the event with; returns 0 once the
+     * lease expired and another dispatcher claimed the event.
+     */
+    @Transactional
+    @Modifying
+    @Query("update WebhookEvent e set e.status = 'SENT', e.responseCode = :responseCode, e.errorMessage = null, "
+            + "e.sentAt = :sentAt, e.attempts = e.attempts + 1 "
+            + "where e.id = :id and e.status = 'SENDING' and e.nextAttemptAt = :leaseExpiry")
+    int markSent(@Param("id") Long id, @Param("leaseExpiry") LocalDateTime leaseExpiry,
+                 @Param("responseCode") String responseCode, @Param("sentAt") LocalDateTime sentAt);
+
+    @Transactional
+    @Modifying
+    @Query("update WebhookEvent e set e.status = :status, e.responseCode = :responseCode, e.errorMessage = :errorMessage, "
+            + "e.nextAttemptAt = :nextAttemptAt, e.attempts = e.attempts + 1 "
+            + "where e.id = :id and e.status = 'SENDING' and e.nextAttemptAt = :leaseExpiry")
+    int markAttemptFailed(
+            @Param("id") Long id,
+            @Param("leaseExpiry") LocalDateTime leaseExpiry,
+            @Param("status") String status,
+            @Param("responseCode") String responseCode,
+            @Param("errorMessage") String errorMessage,
+            @Param("nextAttemptAt") LocalDateTime nextAttemptAt
+    );
+}
@@ -2,9 +2,16 @@ package co.proxydemo.service;
 
 import co.proxydemo.dto.PaymentRequest;
 import co.proxydemo.dto.PaymentResponse;
+import co.proxydemo.util.CardChecks;
+import co.proxydemo.util.MonthClock;
 
-import java.time.LocalDate;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -21,7 +28,26 @@ public abstract class AbstractCardPaymentService implements PaymentProvider {
     protected static final String ERROR_NETWORK_ERROR = "network_error";
     protected static final String ERROR_INVALID_REQUEST = "invalid_request_error";
 
-    protected abstract int getProcessingDelayMs();
+    private final ScheduledExecutorService providerScheduler;
+    private final long delayNanos;
+    private final long delayJitterNanos;
+
+    protected AbstractCardPaymentService(ScheduledExecutorService providerScheduler, Duration delay, Duration delayJitter) {
+        this.providerScheduler = providerScheduler;
+        this.delayNanos = delay.toNanos();
+        this.delayJitterNanos = delayJitter.toNanos();
+    }
+
+    /**
+     * The simulated provider round trip: the configured delay plus a uniform random jitter of up to
+     * {@code delayJitter}.
+     */
+    protected long processingDelayNanos() {
+        if (delayJitterNanos <= 0) {
+            return delayNanos;
+        }
+        return delayNanos + ThreadLocalRandom.current().nextLong(delayJitterNanos + 1);
+    }
 
     protected abstract PaymentResponse simulateProviderResponse(PaymentRequest request);
 
@@ -29,6 +55,59 @@ public abstract class AbstractCardPaymentService implements PaymentProvider {
     public PaymentResponse processPayment(PaymentRequest request) {
         logger.info("Processing payment for amount: {}", request != null ? request.getAmount() : null);
 
+        PaymentResponse invalid = rejectInvalidRequest(request);
+        if (invalid != null) {
+            return invalid;
+        }
+
+        try {
+            TimeUnit.NANOSECONDS.sleep(processingDelayNanos());
+            return respond(request);
+        } catch (InterruptedException e) {
+            logger.error("Payment processing interrupted", e);
+            Thread.currentThread().interrupt();
+            return new PaymentResponse(
+                    false,
+                    null,
+                    "Payment processing was interrupted",
+                    ERROR_NETWORK_ERROR,
+                    LocalDateTime.now()
+            );
+        }
+    }
+
+    @Override
+    public CompletableFuture<PaymentResponse> processPaymentAsync(PaymentRequest request) {
+        logger.info("Processing payment asynchronously for amount: {}", request != null ? request.getAmount() : null);
+
+        PaymentResponse invalid = rejectInvalidRequest(request);
+        if (invalid != null) {
+            return CompletableFuture.completedFuture(invalid);
+        }
+
+        CompletableFuture<PaymentResponse> result = new CompletableFuture<>();
+        try {
+            providerScheduler.schedule(() -> result.complete(respond(request)), processingDelayNanos(), TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            logger.error("Payment provider scheduler rejected the request", e);
+            result.complete(new PaymentResponse(
+                    false,
+                    null,
+                    "Payment provider is unavailable",
+                    ERROR_NETWORK_ERROR,
+                    LocalDateTime.now()
+            ));
+        }
+        return result;
+    }
+
+    @Override
+    public CompletableFuture<Boolean> voidPaymentAsync(String providerTransactionId) {
+        logger.info("Voiding transaction {}", providerTransactionId);
+        return CompletableFuture.completedFuture(providerTransactionId != null);
+    }
+
+    private PaymentResponse rejectInvalidRequest(PaymentRequest request) {
         if (request == null || request.getCardNumber() == null) {
             logger.warn("Invalid payment request received");
             return new PaymentResponse(
@@ -39,10 +118,11 @@ public abstract class AbstractCardPaymentService implements PaymentProvider {
                     LocalDateTime.now()
             );
         }
+        return null;
+    }
 
+    private PaymentResponse respond(PaymentRequest request) {
         try {
-            Thread.sleep(getProcessingDelayMs());
-
             PaymentResponse response = simulateProviderResponse(request);
 
             if (response.isSuccess()) {
@@ -53,16 +133,6 @@ public abstract class AbstractCardPaymentService implements PaymentProvider {
 
             return response;
 
-        } catch (InterruptedException e) {
-            logger.error("Payment processing interrupted", e);
-            Thread.currentThread().interrupt();
-            return new PaymentResponse(
-                    false,
-                    null,
-                    "Payment processing was interrupted",
-                    ERROR_NETWORK_ERROR,
-                    LocalDateTime.now()
-            );
         } catch (Exception e) {
             logger.error("Unexpected error during payment processing", e);
             return new PaymentResponse(
@@ -76,27 +146,7 @@ public abstract class AbstractCardPaymentService implements PaymentProvider {
     }
 
     protected boolean isCardValid(String expiryDate) {
-        if (expiryDate == null || expiryDate.trim().isEmpty()) {
-            return false;
-        }
-
-        try {
-            String[] parts = expiryDate.split("/");
-            if (parts.length != 2) {
-                return false;
-            }
-
-            int month = Integer.parseInt(parts[0]);
-            int year = 2000 + Integer.parseInt(parts[1]);
-
-            if (month < 1 || month > 12) {
-                return false;
-            }
-
-            LocalDate expiry = LocalDate.of(year, month, 1).plusMonths(1).minusDays(1);
-            return !LocalDate.now().isAfter(expiry);
-        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
-            return false;
-        }
+        int expiryMonth = CardChecks.parseExpiryMonth(expiryDate);
+        return expiryMonth >= 0 && expiryMonth >= MonthClock.system().currentMonth();
     }
 }
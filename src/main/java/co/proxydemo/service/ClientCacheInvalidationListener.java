@@ -0,0 +1,37 @@
+package co.proxydemo.service;
+
+import co.proxydemo.entity.Client;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreRemove;
+import jakarta.persistence.PreUpdate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+@Component
+public class ClientCacheInvalidationListener {
+
+    private final ClientCredentialCache clientCredentialCache;
+
+    @Autowired
+    public ClientCacheInvalidationListener(ClientCredentialCache clientCredentialCache) {
+        this.clientCredentialCache = clientCredentialCache;
+    }
+
+    @PrePersist
+    @PreUpdate
+    @PreRemove
+    public void onClientChanged(Client client) {
+        String clientId = client.getClientId();
+        clientCredentialCache.invalidate(clientId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    clientCredentialCache.invalidate(clientId);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package co.proxydemo.service;
+
+import co.proxydemo.entity.Client;
+import co.proxydemo.repository.ClientRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Optional;
+
+@Component
+public class ClientCredentialCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClientCredentialCache.class);
+
+    private static final String CACHE_NAME = "clientCredentials";
+    private static final String VERIFICATION_CACHE_NAME = "clientSecretVerifications";
+    private static final String REJECTION_CACHE_NAME = "clientSecretRejections";
+
+    private final ClientRepository clientRepository;
+    private final ClientSecretHasher clientSecretHasher;
+    private final Cache<String, CachedClient> cache;
+    private final Cache<String, byte[]> verifiedSecrets;
+    private final Cache<RejectedSecret, Boolean> rejectedSecrets;
+    private final Cache<String, Boolean> unknownClients;
+
+    @Autowired
+    public ClientCredentialCache(
+            ClientRepository clientRepository,
+            ClientSecretHasher clientSecretHasher,
+            MeterRegistry meterRegistry,
+            @Value("${payment.client-cache.maximum-size:10000}") long maximumSize,
+            @Value("${payment.client-cache.ttl:5m}") Duration ttl,
+            @Value("${payment.client-cache.verification-ttl:60s}") Duration verificationTtl,
+            @Value("${payment.client-cache.rejection-ttl:10s}") Duration rejectionTtl
+    ) {
+        this.clientRepository = clientRepository;
+        this.clientSecretHasher = clientSecretHasher;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.verifiedSecrets = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(verificationTtl)
+                .recordStats()
+                .build();
+        this.rejectedSecrets = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(rejectionTtl)
+                .recordStats()
+                .build();
+        this.unknownClients = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(rejectionTtl)
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        CaffeineCacheMetrics.monitor(meterRegistry, verifiedSecrets, VERIFICATION_CACHE_NAME);
+        CaffeineCacheMetrics.monitor(meterRegistry, rejectedSecrets, REJECTION_CACHE_NAME);
+    }
+
+    /**
+     * Returns the client, loading it on a miss. An id with no client row is remembered for
+     * {@code payment.client-cache.rejection-ttl}, so requests for it do not each query the database.
+     */
+    public Optional<CachedClient> get(String clientId) {
+        if (unknownClients.getIfPresent(clientId) != null) {
+            return Optional.empty();
+        }
+        CachedClient client = cache.get(clientId, this::load);
+        if (client == null) {
+            unknownClients.put(clientId, Boolean.TRUE);
+        }
+        return Optional.ofNullable(client);
+    }
+
+    public Optional<Long> findClientPk(String clientId) {
+        CachedClient cached = cache.policy().getIfPresentQuietly(clientId);
+        if (cached != null) {
+            return Optional.of(cached.id());
+        }
+        return get(clientId).map(CachedClient::id);
+    }
+
+    /**
+     * Whether {@code presentedSecret} passed BCrypt for the client within {@code verification-ttl}. Never runs
+     * BCrypt.
+     */
+    public boolean isVerified(String clientId, String presentedSecret) {
+        return isVerified(clientId, sha256(presentedSecret));
+    }
+
+    /**
+     * Checks the secret against the client's BCrypt hash. Both outcomes are remembered as a SHA-256 digest of the
+     * presented secret: a match for {@code verification-ttl}, a mismatch for {@code rejection-ttl}. Either way a
+     * repeated secret skips BCrypt.
+     */
+    public boolean verifySecret(String clientId, CachedClient client, String presentedSecret) {
+        byte[] digest = sha256(presentedSecret);
+        if (isVerified(clientId, digest)) {
+            return true;
+        }
+        RejectedSecret rejected = new RejectedSecret(clientId, ByteBuffer.wrap(digest));
+        if (rejectedSecrets.getIfPresent(rejected) != null) {
+            return false;
+        }
+
+        if (!clientSecretHasher.matches(presentedSecret, client.secretHash())) {
+            rejectedSecrets.put(rejected, Boolean.TRUE);
+            return false;
+        }
+        verifiedSecrets.put(clientId, digest);
+        return true;
+    }
+
+    public void invalidate(String clientId) {
+        if (clientId != null) {
+            cache.invalidate(clientId);
+            verifiedSecrets.invalidate(clientId);
+            unknownClients.invalidate(clientId);
+            rejectedSecrets.asMap().keySet().removeIf(rejected -> rejected.clientId().equals(clientId));
+            logger.debug("Client credentials invalidated for clientId: {}", clientId);
+        }
+    }
+
+    private CachedClient load(String clientId) {
+        Optional<Client> client = clientRepository.findByClientId(clientId);
+        return client
+                .map(c -> new CachedClient(c.getId(), c.getClientSecret(), Boolean.TRUE.equals(c.getActive()),
+                        c.getRateLimitPerSecond(), c.getRateLimitBurst()))
+                .orElse(null);
+    }
+
+    private boolean isVerified(String clientId, byte[] digest) {
+        byte[] verified = verifiedSecrets.getIfPresent(clientId);
+        return verified != null && MessageDigest.isEqual(verified, digest);
+    }
+
+    private static byte[] sha256(String value) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private record RejectedSecret(String clientId, ByteBuffer digest) {
+    }
+
+    public record CachedClient(Long id, String secretHash, boolean active, Double rateLimitPerSecond,
+                               Integer rateLimitBurst) {
+    }
+}
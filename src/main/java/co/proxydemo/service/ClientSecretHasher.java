@@ -0,0 +1,31 @@
+package co.proxydemo.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Component;
+
+@Component
+public class ClientSecretHasher {
+
+    private static final int BCRYPT_HASH_LENGTH = 60;
+
+    private final BCryptPasswordEncoder encoder;
+
+    public ClientSecretHasher(@Value("${payment.client-secret.bcrypt-strength:10}") int strength) {
+        this.encoder = new BCryptPasswordEncoder(strength);
+    }
+
+    public String hash(String rawSecret) {
+        return encoder.encode(rawSecret);
+    }
+
+    public boolean matches(String rawSecret, String hashedSecret) {
+        return hashedSecret != null && isHashed(hashedSecret) && encoder.matches(rawSecret, hashedSecret);
+    }
+
+    public boolean isHashed(String secret) {
+        return secret != null
+                && secret.length() == BCRYPT_HASH_LENGTH
+                && (secret.startsWith("$2a$") || secret.startsWith("$2b$") || secret.startsWith("$2y$"));
+    }
+}
@@ -0,0 +1,27 @@
+package co.proxydemo.service;
+
+import co.proxydemo.entity.Client;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+@Component
+public class ClientSecretHashingListener {
+
+    private final ClientSecretHasher clientSecretHasher;
+
+    @Autowired
+    public ClientSecretHashingListener(ClientSecretHasher clientSecretHasher) {
+        this.clientSecretHasher = clientSecretHasher;
+    }
+
+    @PrePersist
+    @PreUpdate
+    public void hashSecret(Client client) {
+        String secret = client.getClientSecret();
+        if (secret != null && !clientSecretHasher.isHashed(secret)) {
+            client.setClientSecret(clientSecretHasher.hash(secret));
+        }
+    }
+}
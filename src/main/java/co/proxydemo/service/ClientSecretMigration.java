@@ -0,0 +1,77 @@
+package co.proxydemo.service;
+
+import co.proxydemo.entity.Client;
+import co.proxydemo.repository.ClientRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.web.context.WebServerGracefulShutdownLifecycle;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Hashes client secrets still stored as plaintext. Only BCrypt hashes verify, so it runs before the web server starts
+ * taking requests, and before {@link ShardRebalancer} copies the clients table to the other shards.
+ */
+@Component
+public class ClientSecretMigration implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClientSecretMigration.class);
+
+    /**
+     * One step ahead of {@link ShardRebalancer}, which itself starts before the web server.
+     */
+    private static final int PHASE = WebServerGracefulShutdownLifecycle.SMART_LIFECYCLE_PHASE - 3072;
+
+    private final ClientRepository clientRepository;
+    private final ClientSecretHasher clientSecretHasher;
+    private volatile boolean running;
+
+    @Autowired
+    public ClientSecretMigration(ClientRepository clientRepository, ClientSecretHasher clientSecretHasher) {
+        this.clientRepository = clientRepository;
+        this.clientSecretHasher = clientSecretHasher;
+    }
+
+    @Override
+    public void start() {
+        migrate();
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    /**
+     * Returns how many secrets were hashed.
+     */
+    public int migrate() {
+        List<Client> plaintext = clientRepository.findAll().stream()
+                .filter(client -> !clientSecretHasher.isHashed(client.getClientSecret()))
+                .toList();
+        if (plaintext.isEmpty()) {
+            return 0;
+        }
+
+        for (Client client : plaintext) {
+            client.setClientSecret(clientSecretHasher.hash(client.getClientSecret()));
+        }
+        clientRepository.saveAll(plaintext);
+        logger.info("Hashed {} plaintext client secret(s)", plaintext.size());
+        return plaintext.size();
+    }
+}
@@ -0,0 +1,166 @@
+package co.proxydemo.service;
+
+import co.proxydemo.dto.PaymentResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+@Component
+public class IdempotencyStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyStore.class);
+
+    private static final String CACHE_NAME = "idempotencyResponses";
+    private static final String LOOKUP_METER = "idempotency.lookups";
+
+    private final ObjectMapper objectMapper;
+    private final Cache<Key, String> responses;
+    private final ConcurrentMap<Key, CompletableFuture<PaymentResponse>> inFlight = new ConcurrentHashMap<>();
+
+    private final Counter nearCacheHits;
+    private final Counter databaseHits;
+    private final Counter misses;
+    private final Counter coalesced;
+
+    @Autowired
+    public IdempotencyStore(
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${payment.idempotency.near-cache.maximum-size:50000}") long maximumSize,
+            @Value("${payment.idempotency.replay-window:24h}") Duration replayWindow
+    ) {
+        this.objectMapper = objectMapper;
+        this.responses = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(replayWindow)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, responses, CACHE_NAME);
+
+        this.nearCacheHits = Counter.builder(LOOKUP_METER).tag("source", "near_cache").register(meterRegistry);
+        this.databaseHits = Counter.builder(LOOKUP_METER).tag("source", "database").register(meterRegistry);
+        this.misses = Counter.builder(LOOKUP_METER).tag("source", "miss").register(meterRegistry);
+        this.coalesced = Counter.builder("idempotency.coalesced")
+                .description("Duplicate requests that waited on an in-flight request with the same key")
+                .register(meterRegistry);
+        Gauge.builder("idempotency.in_flight", inFlight, ConcurrentMap::size)
+                .description("Idempotency keys currently being processed")
+                .register(meterRegistry);
+    }
+
+    public Optional<PaymentResponse> findCached(Long clientPk, String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return Optional.empty();
+        }
+        String body = responses.getIfPresent(new Key(clientPk, idempotencyKey));
+        if (body == null) {
+            return Optional.empty();
+        }
+        nearCacheHits.increment();
+        return Optional.of(deserialize(body));
+    }
+
+    public Claim claim(Long clientPk, String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return new Claim(null, new CompletableFuture<>(), true);
+        }
+        Key key = new Key(clientPk, idempotencyKey);
+        CompletableFuture<PaymentResponse> future = new CompletableFuture<>();
+        CompletableFuture<PaymentResponse> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            coalesced.increment();
+            logger.info("Coalescing duplicate request with key: {}", idempotencyKey);
+            return new Claim(key, existing, false);
+        }
+        return new Claim(key, future, true);
+    }
+
+    public void recordDatabaseHit() {
+        databaseHits.increment();
+    }
+
+    public void recordMiss() {
+        misses.increment();
+    }
+
+    public void remember(Long clientPk, String idempotencyKey, String responseBody) {
+        if (idempotencyKey != null && responseBody != null) {
+            responses.put(new Key(clientPk, idempotencyKey), responseBody);
+        }
+    }
+
+    public String serialize(PaymentResponse response) {
+        try {
+            return objectMapper.writeValueAsString(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize payment response", e);
+        }
+    }
+
+    public PaymentResponse deserialize(String responseBody) {
+        try {
+            return objectMapper.readValue(responseBody, PaymentResponse.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to deserialize stored payment response", e);
+        }
+    }
+
+    public final class Claim {
+        private final Key key;
+        private final CompletableFuture<PaymentResponse> future;
+        private final boolean owner;
+
+        private Claim(Key key, CompletableFuture<PaymentResponse> future, boolean owner) {
+            this.key = key;
+            this.future = future;
+            this.owner = owner;
+        }
+
+        public boolean isOwner() {
+            return owner;
+        }
+
+        public CompletableFuture<PaymentResponse> response() {
+            return future;
+        }
+
+        public PaymentResponse complete(PaymentResponse response, String responseBody) {
+            if (key != null && responseBody != null) {
+                responses.put(key, responseBody);
+            }
+            release();
+            future.complete(response);
+            return response;
+        }
+
+        public void fail(Throwable error) {
+            release();
+            future.completeExceptionally(error);
+        }
+
+        private void release() {
+            if (owner && key != null) {
+                inFlight.remove(key, future);
+            }
+        }
+    }
+
+    private record Key(Long clientPk, String idempotencyKey) {
+    }
+}
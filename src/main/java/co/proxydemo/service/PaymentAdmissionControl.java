@@ -0,0 +1,190 @@
+package co.proxydemo.service;
+
+import co.proxydemo.util.AdaptiveConcurrencyLimiter;
+import co.proxydemo.util.TokenBucket;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sheds load before a payment reaches the database. Each client has its own token bucket, sized from the client row
+ * or the configured defaults. Tokens are only taken once the presented secret verifies, so a caller cannot drain
+ * another client's bucket by sending its id. Secret checks that the credential cache cannot answer cost a BCrypt
+ * round and draw from a separate, much smaller bucket per client id, so repeated bad credentials are throttled too.
+ * On top of that, a global adaptive concurrency limit follows the observed latency.
+ */
+@Component
+public class PaymentAdmissionControl {
+
+    private static final Logger logger = LoggerFactory.getLogger(PaymentAdmissionControl.class);
+
+    public static final String ERROR_RATE_LIMITED = "rate_limited";
+    public static final String ERROR_OVERLOADED = "overloaded";
+
+    private static final String REJECTED_METRIC = "payment.admission.rejected";
+    private static final String REASON_AUTH_FAILURES = "auth_failures";
+
+    private final ClientCredentialCache clientCredentialCache;
+    private final MeterRegistry meterRegistry;
+    private final boolean rateLimitEnabled;
+    private final double defaultPerSecond;
+    private final int defaultBurst;
+    private final double authFailuresPerSecond;
+    private final int authFailuresBurst;
+    private final int batchMaxConcurrency;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final Cache<String, TokenBucket> buckets;
+    private final Cache<String, TokenBucket> authFailureBuckets;
+
+    @Autowired
+    public PaymentAdmissionControl(
+            ClientCredentialCache clientCredentialCache,
+            MeterRegistry meterRegistry,
+            @Value("${payment.admission.rate-limit.enabled:true}") boolean rateLimitEnabled,
+            @Value("${payment.admission.rate-limit.default-per-second:50}") double defaultPerSecond,
+            @Value("${payment.admission.rate-limit.default-burst:100}") int defaultBurst,
+            @Value("${payment.admission.rate-limit.idle-expiry:10m}") Duration idleExpiry,
+            @Value("${payment.admission.auth-failures.per-second:1}") double authFailuresPerSecond,
+            @Value("${payment.admission.auth-failures.burst:10}") int authFailuresBurst,
+            @Value("${payment.admission.auth-failures.max-tracked:10000}") long authFailuresMaxTracked,
+            @Value("${payment.admission.concurrency.enabled:true}") boolean concurrencyEnabled,
+            @Value("${payment.admission.concurrency.initial-limit:200}") int initialLimit,
+            @Value("${payment.admission.concurrency.min-limit:20}") int minLimit,
+            @Value("${payment.admission.concurrency.max-limit:1000}") int maxLimit,
+            @Value("${payment.admission.concurrency.backoff-ratio:0.9}") double backoffRatio,
+            @Value("${payment.admission.concurrency.latency-threshold:2s}") Duration latencyThreshold,
+            @Value("${payment.batch.max-concurrency:32}") int batchMaxConcurrency
+    ) {
+        this.clientCredentialCache = clientCredentialCache;
+        this.meterRegistry = meterRegistry;
+        this.rateLimitEnabled = rateLimitEnabled;
+        this.defaultPerSecond = defaultPerSecond;
+        this.defaultBurst = defaultBurst;
+        this.authFailuresPerSecond = authFailuresPerSecond;
+        this.authFailuresBurst = Math.max(1, authFailuresBurst);
+        this.batchMaxConcurrency = Math.max(1, batchMaxConcurrency);
+        this.buckets = Caffeine.newBuilder()
+                .expireAfterAccess(idleExpiry)
+                .build();
+        this.authFailureBuckets = Caffeine.newBuilder()
+                .maximumSize(authFailuresMaxTracked)
+                .expireAfterAccess(idleExpiry)
+                .build();
+        this.concurrencyLimiter = concurrencyEnabled
+                ? new AdaptiveConcurrencyLimiter(initialLimit, minLimit, maxLimit, backoffRatio, latencyThreshold.toNanos())
+                : null;
+        if (concurrencyLimiter != null) {
+            Gauge.builder("payment.admission.concurrency.limit", concurrencyLimiter, AdaptiveConcurrencyLimiter::getLimit)
+                    .register(meterRegistry);
+            Gauge.builder("payment.admission.concurrency.in_flight", concurrencyLimiter, AdaptiveConcurrencyLimiter::getInFlight)
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Admits {@code payments} payments for the client, or returns the reason they were shed. An admitted call must be
+     * passed to {@link #release(Admission, boolean)} once it finishes.
+     * <p>
+     * A secret the credential cache has not verified recently takes a token from the client id's auth-failure bucket
+     * before BCrypt runs; once that bucket is empty the request is shed as {@code rate_limited}. A successful check
+     * is cached, so in practice only failures drain it. Other requests whose credentials do not verify are left for
+     * the payment service to reject. The verified client is returned in the admission so the payment service does
+     * not check the secret again.
+     * <p>
+     * A batch holds as many concurrency permits as it runs provider calls at once, capped at
+     * {@code payment.batch.max-concurrency}.
+     */
+    public Admission admit(String clientId, String clientSecret, int payments) {
+        ClientCredentialCache.CachedClient client = null;
+        if (rateLimitEnabled && clientId != null && clientSecret != null && !clientSecret.isBlank()) {
+            long now = System.nanoTime();
+            ClientCredentialCache.CachedClient known = clientCredentialCache.get(clientId)
+                    .filter(ClientCredentialCache.CachedClient::active)
+                    .orElse(null);
+            if (known != null && clientCredentialCache.isVerified(clientId, clientSecret)) {
+                client = known;
+            } else {
+                long waitNanos = tryTakeAuthFailureToken(clientId, now);
+                if (waitNanos > 0) {
+                    meterRegistry.counter(REJECTED_METRIC, "reason", REASON_AUTH_FAILURES).increment();
+                    return Admission.rejected(ERROR_RATE_LIMITED, waitNanos);
+                }
+                if (known != null && clientCredentialCache.verifySecret(clientId, known, clientSecret)) {
+                    client = known;
+                }
+            }
+            long waitNanos = client != null ? tryTakeTokens(clientId, client, payments, now) : 0;
+            if (waitNanos > 0) {
+                meterRegistry.counter(REJECTED_METRIC, "client", clientId, "reason", ERROR_RATE_LIMITED).increment();
+                return Admission.rejected(ERROR_RATE_LIMITED, waitNanos);
+            }
+        }
+        if (concurrencyLimiter == null) {
+            return new Admission(true, null, null, 0, client);
+        }
+        AdaptiveConcurrencyLimiter.Permit permit = concurrencyLimiter.tryAcquire(Math.min(payments, batchMaxConcurrency));
+        if (permit == null) {
+            meterRegistry.counter(REJECTED_METRIC, "reason", ERROR_OVERLOADED).increment();
+            logger.debug("Shedding {} payment(s): {} calls in flight", payments, concurrencyLimiter.getInFlight());
+            return Admission.rejected(ERROR_OVERLOADED, TimeUnit.SECONDS.toNanos(1));
+        }
+        return new Admission(true, permit, null, 0, client);
+    }
+
+    public void release(Admission admission, boolean dropped) {
+        if (admission.permit() != null) {
+            admission.permit().release(dropped);
+        }
+    }
+
+    private long tryTakeAuthFailureToken(String clientId, long now) {
+        if (authFailuresPerSecond <= 0) {
+            return 0;
+        }
+        return authFailureBuckets.get(clientId, key -> new TokenBucket(authFailuresPerSecond, authFailuresBurst, now))
+                .tryAcquire(1, now);
+    }
+
+    private long tryTakeTokens(String clientId, ClientCredentialCache.CachedClient client, int payments, long now) {
+        double perSecond = client.rateLimitPerSecond() != null ? client.rateLimitPerSecond() : defaultPerSecond;
+        int burst = client.rateLimitBurst() != null ? client.rateLimitBurst() : defaultBurst;
+        if (perSecond <= 0) {
+            return 0;
+        }
+        TokenBucket bucket = buckets.getIfPresent(clientId);
+        if (bucket == null || !matches(bucket, perSecond, burst)) {
+            bucket = buckets.asMap().compute(clientId, (key, existing) -> existing != null && matches(existing, perSecond, burst)
+                    ? existing
+                    : new TokenBucket(perSecond, Math.max(1, burst), now));
+        }
+        return bucket.tryAcquire(payments, now);
+    }
+
+    private static boolean matches(TokenBucket bucket, double perSecond, int burst) {
+        return bucket.getPermitsPerSecond() == perSecond && bucket.getBurst() == Math.max(1, burst);
+    }
+
+    /**
+     * {@code client} is the client whose secret admission verified, or null when it was not checked or did not verify.
+     */
+    public record Admission(boolean admitted, AdaptiveConcurrencyLimiter.Permit permit, String errorCode,
+                            long retryAfterNanos, ClientCredentialCache.CachedClient client) {
+
+        private static Admission rejected(String errorCode, long retryAfterNanos) {
+            return new Admission(false, null, errorCode, retryAfterNanos, null);
+        }
+
+        public long retryAfterSeconds() {
+            return Math.max(1, TimeUnit.NANOSECONDS.toSeconds(retryAfterNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+        }
+    }
+}
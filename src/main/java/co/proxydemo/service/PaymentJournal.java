@@ -0,0 +1,260 @@
+package co.proxydemo.service;
+
+import co.proxydemo.dto.PaymentResponse;
+import co.proxydemo.entity.Transaction;
+import co.proxydemo.util.MappedSegmentJournal;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.function.LongConsumer;
+import java.util.function.Predicate;
+
+/**
+ * Local record of every provider outcome, appended before the transaction row is finalized. Records have a fixed
+ * binary layout and go to memory-mapped, checksummed segments ({@link MappedSegmentJournal}); appending one costs a
+ * memory copy, and a background thread forces the segment to disk every {@code sync-interval}.
+ * <p>
+ * {@link PaymentJournalCompactor} applies records to rows still left PENDING (for example after a crash between the
+ * provider call and the finalize) and deletes segments once they are applied. {@link #read} replays the retained
+ * records in order, for recovery or audit.
+ */
+@Component
+public class PaymentJournal {
+
+    private static final Logger logger = LoggerFactory.getLogger(PaymentJournal.class);
+
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final Path directory;
+    private final DataSize segmentSize;
+    private final Duration syncInterval;
+
+    private MappedSegmentJournal journal;
+    private Thread syncer;
+    private volatile boolean running;
+
+    @Autowired
+    public PaymentJournal(
+            MeterRegistry meterRegistry,
+            @Value("${payment.journal.enabled:false}") boolean enabled,
+            @Value("${payment.journal.directory:data/payment-journal}") Path directory,
+            @Value("${payment.journal.segment-size:64MB}") DataSize segmentSize,
+            @Value("${payment.journal.sync-interval:100ms}") Duration syncInterval
+    ) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.syncInterval = syncInterval;
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        journal = new MappedSegmentJournal(directory, Math.toIntExact(segmentSize.toBytes()));
+
+        Gauge.builder("payment.journal.bytes", journal, MappedSegmentJournal::sizeBytes)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("payment.journal.segments", journal, MappedSegmentJournal::segmentCount)
+                .register(meterRegistry);
+
+        running = true;
+        syncer = Thread.ofPlatform().name("payment-journal-sync").daemon().start(this::runSyncer);
+        logger.info("Payment journal enabled at {}, {} record(s) retained from index {}",
+                directory.toAbsolutePath(), journal.nextIndex() - journal.firstIndex(), journal.firstIndex());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Journals the provider outcome for {@code pending}. A journal failure is logged and does not fail the payment.
+     */
+    public void record(Transaction pending, PaymentResponse response) {
+        if (!enabled) {
+            return;
+        }
+        Entry entry = new Entry(
+                pending.getId(),
+                pending.getClient().getId(),
+                System.currentTimeMillis(),
+                pending.getAmount() != null ? pending.getAmount() : Double.NaN,
+                response.isSuccess() ? Entry.STATUS_SUCCESS : Entry.STATUS_FAILED,
+                pending.getCardLast4(),
+                pending.getIdempotencyKey(),
+                response.getTransactionId()
+        );
+        try {
+            journal.append(entry.encode());
+        } catch (IOException | RuntimeException e) {
+            logger.error("Could not journal transaction {}", pending.getId(), e);
+        }
+    }
+
+    /**
+     * Visits retained records from {@code fromIndex} in order until {@code visitor} returns {@code false}, and returns
+     * the index after the last record visited.
+     */
+    public long read(long fromIndex, Predicate<Entry> visitor) throws IOException {
+        return read(fromIndex, visitor, skippedThrough -> {
+        });
+    }
+
+    /**
+     * Like {@link #read(long, Predicate)}, but also passes {@code skippedThrough} the index after each run of records
+     * that failed their checksum. Those records are logged, counted in {@code payment.journal.corrupt} and not
+     * visited; their segment is kept as a {@code .corrupt} copy.
+     */
+    public long read(long fromIndex, Predicate<Entry> visitor, LongConsumer skippedThrough) throws IOException {
+        return journal.read(fromIndex, new MappedSegmentJournal.RecordVisitor() {
+            @Override
+            public boolean visit(long index, ByteBuffer payload) {
+                return visitor.test(Entry.decode(index, payload));
+            }
+
+            @Override
+            public void skipped(long fromIndex, long toIndex) {
+                logger.error("Skipped corrupt payment journal record(s) {} to {}; the segment was copied aside under {}",
+                        fromIndex, toIndex - 1, directory.toAbsolutePath());
+                meterRegistry.counter("payment.journal.corrupt").increment(toIndex - fromIndex);
+                skippedThrough.accept(toIndex);
+            }
+        });
+    }
+
+    public long firstIndex() {
+        return journal.firstIndex();
+    }
+
+    void deleteBefore(long index) throws IOException {
+        int deleted = journal.deleteBefore(index);
+        if (deleted > 0) {
+            logger.debug("Deleted {} compacted journal segment(s) before index {}", deleted, index);
+        }
+    }
+
+    private void runSyncer() {
+        while (running) {
+            try {
+                Thread.sleep(syncInterval);
+                journal.sync();
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                logger.error("Could not sync payment journal", e);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws IOException, InterruptedException {
+        if (journal == null) {
+            return;
+        }
+        running = false;
+        syncer.interrupt();
+        syncer.join();
+        journal.close();
+    }
+
+    /**
+     * One journaled outcome. Layout: transaction id, client pk, recorded-at epoch millis (8 bytes each), amount
+     * (8-byte double, NaN for none), status (1 byte), card last 4 (4 ASCII bytes), then the idempotency key and
+     * provider transaction id as 2-byte length plus UTF-8 (length -1 for null).
+     */
+    public record Entry(long index, long transactionId, long clientPk, long recordedAtMillis, double amount,
+                        byte status, String cardLast4, String idempotencyKey, String providerTransactionId) {
+
+        public static final byte STATUS_SUCCESS = 1;
+        public static final byte STATUS_FAILED = 2;
+
+        private static final int FIXED_BYTES = 4 * Long.BYTES + 1 + 4 + 2 * Short.BYTES;
+
+        Entry(long transactionId, long clientPk, long recordedAtMillis, double amount, byte status, String cardLast4,
+              String idempotencyKey, String providerTransactionId) {
+            this(-1, transactionId, clientPk, recordedAtMillis, amount, status, cardLast4, idempotencyKey, providerTransactionId);
+        }
+
+        public boolean success() {
+            return status == STATUS_SUCCESS;
+        }
+
+        public ByteBuffer encode() {
+            byte[] key = utf8(idempotencyKey);
+            byte[] providerId = utf8(providerTransactionId);
+            ByteBuffer buffer = ByteBuffer.allocate(FIXED_BYTES + length(key) + length(providerId));
+            buffer.putLong(transactionId).putLong(clientPk).putLong(recordedAtMillis).putDouble(amount).put(status);
+            for (int i = 0; i < 4; i++) {
+                buffer.put(cardLast4 != null && i < cardLast4.length() ? (byte) cardLast4.charAt(i) : (byte) '0');
+            }
+            putString(buffer, key);
+            putString(buffer, providerId);
+            return buffer.flip();
+        }
+
+        public static Entry decode(long index, ByteBuffer payload) {
+            ByteBuffer buffer = payload.duplicate();
+            long transactionId = buffer.getLong();
+            long clientPk = buffer.getLong();
+            long recordedAtMillis = buffer.getLong();
+            double amount = buffer.getDouble();
+            byte status = buffer.get();
+            byte[] last4 = new byte[4];
+            buffer.get(last4);
+            String idempotencyKey = getString(buffer);
+            String providerTransactionId = getString(buffer);
+            return new Entry(index, transactionId, clientPk, recordedAtMillis, amount, status,
+                    new String(last4, StandardCharsets.US_ASCII), idempotencyKey, providerTransactionId);
+        }
+
+        private static byte[] utf8(String value) {
+            if (value == null) {
+                return null;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            if (bytes.length > Short.MAX_VALUE) {
+                throw new IllegalArgumentException("Journal field of " + bytes.length + " bytes is too long");
+            }
+            return bytes;
+        }
+
+        private static int length(byte[] value) {
+            return value == null ? 0 : value.length;
+        }
+
+        private static void putString(ByteBuffer buffer, byte[] value) {
+            if (value == null) {
+                buffer.putShort((short) -1);
+            } else {
+                buffer.putShort((short) value.length).put(value);
+            }
+        }
+
+        private static String getString(ByteBuffer buffer) {
+            short length = buffer.getShort();
+            if (length < 0) {
+                return null;
+            }
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
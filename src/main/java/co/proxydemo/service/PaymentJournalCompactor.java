@@ -0,0 +1,103 @@
+package co.proxydemo.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Applies journaled outcomes to the database and deletes the segments that are fully applied. Only records older
+ * than {@code min-age} are applied, so the regular finalize (or the write-behind writer) gets there first and this
+ * only catches rows a crash left PENDING. {@link PendingTransactionReconciler} compacts before marking stale rows
+ * UNKNOWN, so a row with a journaled outcome gets that outcome as long as {@code min-age} is below
+ * {@code payment.reconciliation.stale-after}. Corrupt records are skipped (see {@link PaymentJournal#read}), and
+ * compaction moves past them.
+ */
+@Component
+public class PaymentJournalCompactor {
+
+    private static final Logger logger = LoggerFactory.getLogger(PaymentJournalCompactor.class);
+
+    private final PaymentJournal paymentJournal;
+    private final TransactionFinalizer transactionFinalizer;
+    private final ShardRouter shardRouter;
+    private final Duration minAge;
+    private final int batchSize;
+    private long compactedThrough = -1;
+
+    @Autowired
+    public PaymentJournalCompactor(
+            PaymentJournal paymentJournal,
+            TransactionFinalizer transactionFinalizer,
+            ShardRouter shardRouter,
+            @Value("${payment.journal.compaction.min-age:1m}") Duration minAge,
+            @Value("${payment.journal.compaction.batch-size:1000}") int batchSize
+    ) {
+        this.paymentJournal = paymentJournal;
+        this.transactionFinalizer = transactionFinalizer;
+        this.shardRouter = shardRouter;
+        this.minAge = minAge;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(
+            initialDelayString = "${payment.journal.compaction.initial-delay-ms:0}",
+            fixedDelayString = "${payment.journal.compaction.interval-ms:30000}"
+    )
+    public synchronized void compact() {
+        if (!paymentJournal.isEnabled()) {
+            return;
+        }
+        if (compactedThrough < 0) {
+            compactedThrough = paymentJournal.firstIndex();
+        }
+        long cutoff = System.currentTimeMillis() - minAge.toMillis();
+        int scanned = 0;
+        int recovered = 0;
+        try {
+            while (true) {
+                List<PaymentJournal.Entry> batch = new ArrayList<>(batchSize);
+                long[] skippedThrough = {compactedThrough};
+                paymentJournal.read(compactedThrough, entry -> {
+                    if (entry.recordedAtMillis() > cutoff) {
+                        return false;
+                    }
+                    batch.add(entry);
+                    return batch.size() < batchSize;
+                }, through -> skippedThrough[0] = Math.max(skippedThrough[0], through));
+                if (batch.isEmpty()) {
+                    if (skippedThrough[0] > compactedThrough) {
+                        compactedThrough = skippedThrough[0];
+                        paymentJournal.deleteBefore(compactedThrough);
+                    }
+                    break;
+                }
+                Map<Integer, List<PaymentJournal.Entry>> byShard = shardRouter.groupByShard(batch, PaymentJournal.Entry::clientPk);
+                for (Map.Entry<Integer, List<PaymentJournal.Entry>> group : byShard.entrySet()) {
+                    recovered += shardRouter.onShard(group.getKey(), () -> transactionFinalizer.applyJournalEntries(group.getValue()));
+                }
+                scanned += batch.size();
+                compactedThrough = Math.max(batch.get(batch.size() - 1).index() + 1, skippedThrough[0]);
+                paymentJournal.deleteBefore(compactedThrough);
+                if (batch.size() < batchSize) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (recovered > 0) {
+            logger.warn("Applied {} journaled outcome(s) to transactions left PENDING", recovered);
+        }
+        logger.debug("Compacted {} journal record(s) through index {}", scanned, compactedThrough);
+    }
+}
@@ -0,0 +1,164 @@
+package co.proxydemo.service;
+
+import co.proxydemo.dto.PaymentResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Observations for the payment pipeline. Each observation yields a timer through the meter handler and, when tracing
+ * is on, a span, so one call site feeds both the {@code payment.stage} histograms and the per-stage trace spans.
+ * Result counters are resolved once and cached.
+ */
+@Component
+public class PaymentMetrics {
+
+    public enum Stage {
+        IDEMPOTENCY_CACHE,
+        IDEMPOTENCY_LOOKUP,
+        VALIDATE_CLIENT,
+        VALIDATE_REQUEST,
+        RESERVE_TRANSACTION,
+        SAVE_TRANSACTION,
+        SEND_WEBHOOK;
+
+        private final String tagValue = name().toLowerCase(Locale.ROOT);
+    }
+
+    private static final String PAYMENT_OBSERVATION = "payment.process";
+    private static final String STAGE_OBSERVATION = "payment.stage";
+    private static final String PROVIDER_OBSERVATION = "payment.provider.call";
+    private static final String RESULT_COUNTER = "payment.results";
+    private static final String NO_ERROR = "none";
+    private static final String UNKNOWN_ERROR = "unknown";
+
+    private final MeterRegistry meterRegistry;
+    private final ObservationRegistry observationRegistry;
+    private final ConcurrentMap<String, Counter> failureCounters = new ConcurrentHashMap<>();
+    private final Counter successCounter;
+
+    @Autowired
+    public PaymentMetrics(MeterRegistry meterRegistry, ObservationRegistry observationRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.observationRegistry = observationRegistry;
+        this.successCounter = resultCounter("success", NO_ERROR);
+    }
+
+    public <T> T observe(Stage stage, Supplier<T> work) {
+        return Observation.createNotStarted(STAGE_OBSERVATION, observationRegistry)
+                .contextualName("payment " + stage.tagValue)
+                .lowCardinalityKeyValue("stage", stage.tagValue)
+                .observe(work);
+    }
+
+    public void observe(Stage stage, Runnable work) {
+        observe(stage, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    /**
+     * Starts the observation that spans a whole payment. Finish it with {@link #finishPayment}.
+     */
+    public Observation startPayment() {
+        return Observation.createNotStarted(PAYMENT_OBSERVATION, observationRegistry)
+                .contextualName("payment")
+                .start();
+    }
+
+    public void finishPayment(Observation observation, PaymentResponse response, Throwable error) {
+        if (error != null) {
+            observation.error(error);
+        }
+        tagOutcome(observation, response);
+        observation.stop();
+        recordResult(response);
+    }
+
+    /**
+     * Finishes a batch observation. The batch is tagged as failed, with the first failure's error code, if any item
+     * failed.
+     */
+    public void finishBatch(Observation observation, List<PaymentResponse> responses, Throwable error) {
+        if (error != null) {
+            observation.error(error);
+        }
+        PaymentResponse summary = null;
+        if (responses != null) {
+            for (PaymentResponse response : responses) {
+                recordResult(response);
+                if (summary == null || (summary.isSuccess() && !response.isSuccess())) {
+                    summary = response;
+                }
+            }
+        }
+        tagOutcome(observation, summary);
+        observation.stop();
+    }
+
+    /**
+     * Starts a provider call observation. A null {@code parent} means the current observation, when there is one.
+     */
+    public Observation startProviderCall(String providerKey, Observation parent) {
+        Observation observation = Observation.createNotStarted(PROVIDER_OBSERVATION, observationRegistry)
+                .contextualName("provider " + providerKey)
+                .lowCardinalityKeyValue("provider", providerKey);
+        if (parent != null) {
+            observation.parentObservation(parent);
+        }
+        return observation.start();
+    }
+
+    public void finishProviderCall(Observation observation, PaymentResponse response, Throwable error) {
+        if (error != null) {
+            observation.error(error);
+        }
+        tagOutcome(observation, response);
+        observation.stop();
+    }
+
+    public Observation currentObservation() {
+        return observationRegistry.getCurrentObservation();
+    }
+
+    public void recordResult(PaymentResponse response) {
+        if (response == null) {
+            return;
+        }
+        if (response.isSuccess()) {
+            successCounter.increment();
+            return;
+        }
+        String errorCode = response.getErrorCode() != null ? response.getErrorCode() : UNKNOWN_ERROR;
+        Counter counter = failureCounters.get(errorCode);
+        if (counter == null) {
+            counter = failureCounters.computeIfAbsent(errorCode, code -> resultCounter("failure", code));
+        }
+        counter.increment();
+    }
+
+    private static void tagOutcome(Observation observation, PaymentResponse response) {
+        boolean success = response != null && response.isSuccess();
+        String errorCode = success ? NO_ERROR
+                : response != null && response.getErrorCode() != null ? response.getErrorCode() : UNKNOWN_ERROR;
+        observation.lowCardinalityKeyValue("payment.outcome", success ? "success" : "failure");
+        observation.lowCardinalityKeyValue("payment.error_code", errorCode);
+    }
+
+    private Counter resultCounter(String outcome, String errorCode) {
+        return Counter.builder(RESULT_COUNTER)
+                .tag("outcome", outcome)
+                .tag("error_code", errorCode)
+                .register(meterRegistry);
+    }
+}
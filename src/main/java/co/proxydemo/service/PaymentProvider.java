@@ -1,5 +1,16 @@
 package co.proxydemo.service;
 
+import co.proxydemo.dto.PaymentRequest;
+import co.proxydemo.dto.PaymentResponse;
+
+import java.util.concurrent.CompletableFuture;
+
 public interface PaymentProvider extends PaymentService {
     String getProviderKey();
+
+    CompletableFuture<PaymentResponse> processPaymentAsync(PaymentRequest request);
+
+    default CompletableFuture<Boolean> voidPaymentAsync(String providerTransactionId) {
+        return CompletableFuture.completedFuture(false);
+    }
 }
@@ -0,0 +1,178 @@
+package co.proxydemo.service;
+
+import co.proxydemo.dto.PaymentRequest;
+import co.proxydemo.entity.ProviderRoutingRule;
+import co.proxydemo.repository.ProviderRoutingRuleRepository;
+import co.proxydemo.util.BinPrefixTrie;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+@Component
+public class PaymentProviderRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(PaymentProviderRegistry.class);
+
+    private final ProviderRoutingRuleRepository routingRuleRepository;
+    private final ProviderHealthTracker healthTracker;
+    private final Map<String, PaymentProvider> providersByKey;
+    private final PaymentProvider defaultProvider;
+    private final boolean adaptiveEnabled;
+    private final List<PaymentProvider> adaptivePool;
+    private final Map<String, PaymentProvider> failover;
+
+    private volatile RoutingTable routingTable;
+
+    @Autowired
+    public PaymentProviderRegistry(
+            List<PaymentProvider> providers,
+            ProviderRoutingRuleRepository routingRuleRepository,
+            ProviderHealthTracker healthTracker,
+            @Value("${payment.routing.default-provider:stripe}") String defaultProviderKey,
+            @Value("${payment.routing.adaptive.enabled:false}") boolean adaptiveEnabled,
+            @Value("${payment.routing.adaptive.providers:}") List<String> adaptiveProviderKeys,
+            @Value("${payment.routing.failover:}") List<String> failoverPairs
+    ) {
+        this.routingRuleRepository = routingRuleRepository;
+        this.healthTracker = healthTracker;
+        Map<String, PaymentProvider> byKey = new HashMap<>();
+        for (PaymentProvider provider : providers) {
+            PaymentProvider previous = byKey.put(normalize(provider.getProviderKey()), provider);
+            if (previous != null) {
+                throw new IllegalStateException("Duplicate payment provider key: " + provider.getProviderKey());
+            }
+        }
+        this.providersByKey = Map.copyOf(byKey);
+        this.defaultProvider = providersByKey.get(normalize(defaultProviderKey));
+        if (defaultProvider == null) {
+            throw new IllegalStateException("Default payment provider '" + defaultProviderKey + "' is not registered");
+        }
+        List<PaymentProvider> pool = new ArrayList<>();
+        for (String key : adaptiveProviderKeys) {
+            PaymentProvider provider = providersByKey.get(normalize(key));
+            if (provider == null) {
+                throw new IllegalStateException("Adaptive routing provider '" + key + "' is not registered");
+            }
+            pool.add(provider);
+        }
+        this.adaptivePool = List.copyOf(pool);
+        this.adaptiveEnabled = adaptiveEnabled && adaptivePool.size() > 1;
+        Map<String, PaymentProvider> alternates = new HashMap<>();
+        for (String pair : failoverPairs) {
+            String[] keys = pair.split(":");
+            PaymentProvider alternate = keys.length == 2 ? providersByKey.get(normalize(keys[1])) : null;
+            if (alternate == null || !providersByKey.containsKey(normalize(keys[0]))) {
+                throw new IllegalStateException("Invalid provider failover '" + pair + "'; expected <provider>:<alternate>");
+            }
+            alternates.put(normalize(keys[0]), alternate);
+        }
+        this.failover = Map.copyOf(alternates);
+        this.routingTable = new RoutingTable(BinPrefixTrie.<PaymentProvider>builder().build(), 0, null);
+    }
+
+    @PostConstruct
+    public void init() {
+        reload();
+    }
+
+    @Scheduled(
+            initialDelayString = "${payment.routing.refresh-interval-ms:60000}",
+            fixedDelayString = "${payment.routing.refresh-interval-ms:60000}"
+    )
+    public void refresh() {
+        try {
+            reload();
+        } catch (RuntimeException e) {
+            logger.error("Failed to refresh provider routing rules; keeping the previous table", e);
+        }
+    }
+
+    public RoutingTable reload() {
+        BinPrefixTrie.Builder<PaymentProvider> builder = BinPrefixTrie.builder();
+        int skipped = 0;
+        int conflicts = 0;
+        for (ProviderRoutingRule rule : routingRuleRepository.findByActiveTrue()) {
+            PaymentProvider provider = providersByKey.get(normalize(rule.getProviderKey()));
+            if (provider == null) {
+                logger.warn("Skipping routing rule {} for unknown provider '{}'", rule.getId(), rule.getProviderKey());
+                skipped++;
+                continue;
+            }
+            try {
+                conflicts += builder.put(rule.getBinRule(), provider);
+            } catch (IllegalArgumentException e) {
+                logger.warn("Skipping routing rule {}: {}", rule.getId(), e.getMessage());
+                skipped++;
+            }
+        }
+        if (conflicts > 0) {
+            logger.warn("{} BIN prefix(es) are claimed by more than one provider; the last rule loaded wins", conflicts);
+        }
+
+        RoutingTable table = new RoutingTable(builder.build(), skipped, LocalDateTime.now());
+        routingTable = table;
+        logger.info("Loaded {} provider routing rule(s), skipped {}", table.bins().ruleCount(), skipped);
+        return table;
+    }
+
+    /**
+     * Returns the providers to try, preferred first. An explicitly requested provider is the only candidate. BIN-routed
+     * and default payments may add the configured failover alternate. When adaptive routing is enabled, cards without
+     * a BIN rule are spread over the adaptive pool, fastest healthy provider first.
+     */
+    public ProviderRoute route(PaymentRequest request) {
+        if (request.getProvider() != null) {
+            PaymentProvider explicit = providersByKey.get(normalize(request.getProvider()));
+            if (explicit != null) {
+                return new ProviderRoute(List.of(explicit), false);
+            }
+        }
+        PaymentProvider routed = routingTable.bins().findLongestPrefix(request.getCardNumber());
+        if (routed == null && adaptiveEnabled) {
+            return new ProviderRoute(healthTracker.rank(adaptivePool), true);
+        }
+        return withFailover(routed != null ? routed : defaultProvider);
+    }
+
+    private ProviderRoute withFailover(PaymentProvider provider) {
+        PaymentProvider alternate = failover.get(normalize(provider.getProviderKey()));
+        if (alternate == null || alternate == provider) {
+            return new ProviderRoute(List.of(provider), false);
+        }
+        return new ProviderRoute(List.of(provider, alternate), false);
+    }
+
+    public Set<String> getProviderKeys() {
+        return providersByKey.keySet();
+    }
+
+    public String getDefaultProviderKey() {
+        return defaultProvider.getProviderKey();
+    }
+
+    public RoutingTable getRoutingTable() {
+        return routingTable;
+    }
+
+    private static String normalize(String providerKey) {
+        return providerKey.trim().toLowerCase(Locale.ROOT);
+    }
+
+    public record ProviderRoute(List<PaymentProvider> candidates, boolean adaptive) {
+    }
+
+    public record RoutingTable(BinPrefixTrie<PaymentProvider> bins, int skippedRules, LocalDateTime loadedAt) {
+    }
+}
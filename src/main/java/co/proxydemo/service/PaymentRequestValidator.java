@@ -0,0 +1,103 @@
+package co.proxydemo.service;
+
+import co.proxydemo.dto.PaymentRequest;
+import co.proxydemo.dto.ValidationResult;
+import co.proxydemo.util.CardChecks;
+import co.proxydemo.util.MonthClock;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Single-pass validation of a payment request. Every outcome is a shared constant, so validating a request allocates
+ * nothing on either the success or the failure path.
+ */
+@Component
+public class PaymentRequestValidator {
+
+    private static final ValidationResult REQUEST_MISSING =
+            ValidationResult.invalid("payment", "required", "Payment is required");
+    private static final ValidationResult AMOUNT_MISSING =
+            ValidationResult.invalid("amount", "required", "Amount is required");
+    private static final ValidationResult AMOUNT_NOT_POSITIVE =
+            ValidationResult.invalid("amount", "not_positive", "Amount must be positive");
+    private static final ValidationResult AMOUNT_TOO_LARGE =
+            ValidationResult.invalid("amount", "exceeds_limit", "Amount exceeds limit");
+    private static final ValidationResult CARD_NUMBER_INVALID =
+            ValidationResult.invalid("cardNumber", "invalid_format", "Invalid card number");
+    private static final ValidationResult CARD_NUMBER_CHECKSUM =
+            ValidationResult.invalid("cardNumber", "failed_checksum", "Invalid card number");
+    private static final ValidationResult CVV_INVALID =
+            ValidationResult.invalid("cvv", "invalid_format", "Invalid CVV");
+    private static final ValidationResult EXPIRY_INVALID =
+            ValidationResult.invalid("expiryDate", "invalid_format", "Invalid expiry date format (use MM/YY)");
+    private static final ValidationResult EXPIRY_PASSED =
+            ValidationResult.invalid("expiryDate", "expired", "Card has expired");
+    private static final ValidationResult IDEMPOTENCY_KEY_MISSING =
+            ValidationResult.invalid("idempotencyKey", "required", "Idempotency key is required");
+
+    private static final int MIN_CARD_LENGTH = 13;
+    private static final int MAX_CARD_LENGTH = 19;
+
+    private final MonthClock monthClock;
+    private final double maxAmount;
+    private final boolean luhnCheck;
+
+    @Autowired
+    public PaymentRequestValidator(
+            @Value("${payment.validation.max-amount:999999}") double maxAmount,
+            @Value("${payment.validation.luhn-check:true}") boolean luhnCheck
+    ) {
+        this(MonthClock.system(), maxAmount, luhnCheck);
+    }
+
+    PaymentRequestValidator(MonthClock monthClock, double maxAmount, boolean luhnCheck) {
+        this.monthClock = monthClock;
+        this.maxAmount = maxAmount;
+        this.luhnCheck = luhnCheck;
+    }
+
+    public ValidationResult validate(PaymentRequest request) {
+        if (request == null) {
+            return REQUEST_MISSING;
+        }
+        Double amount = request.getAmount();
+        if (amount == null) {
+            return AMOUNT_MISSING;
+        }
+        if (!(amount > 0)) {
+            return AMOUNT_NOT_POSITIVE;
+        }
+        if (amount > maxAmount) {
+            return AMOUNT_TOO_LARGE;
+        }
+
+        String cardNumber = request.getCardNumber();
+        if (cardNumber == null || cardNumber.length() < MIN_CARD_LENGTH || cardNumber.length() > MAX_CARD_LENGTH
+                || !CardChecks.isDigits(cardNumber)) {
+            return CARD_NUMBER_INVALID;
+        }
+        if (luhnCheck && !CardChecks.isLuhnValid(cardNumber)) {
+            return CARD_NUMBER_CHECKSUM;
+        }
+
+        String cvv = request.getCvv();
+        if (cvv == null || cvv.length() < 3 || cvv.length() > 4 || !CardChecks.isDigits(cvv)) {
+            return CVV_INVALID;
+        }
+
+        int expiryMonth = CardChecks.parseExpiryMonth(request.getExpiryDate());
+        if (expiryMonth < 0) {
+            return EXPIRY_INVALID;
+        }
+        if (expiryMonth < monthClock.currentMonth()) {
+            return EXPIRY_PASSED;
+        }
+
+        String idempotencyKey = request.getIdempotencyKey();
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return IDEMPOTENCY_KEY_MISSING;
+        }
+        return ValidationResult.VALID;
+    }
+}
@@ -3,6 +3,9 @@ package co.proxydemo.service;
 import co.proxydemo.dto.PaymentRequest;
 import co.proxydemo.dto.PaymentResponse;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 public interface PaymentService {
 
     PaymentResponse processPayment(PaymentRequest request);
@@ -10,4 +13,36 @@ public interface PaymentService {
     default PaymentResponse processPayment(PaymentRequest request, String clientId, String clientSecret) {
         return processPayment(request);
     }
+
+    default CompletableFuture<PaymentResponse> processPaymentAsync(PaymentRequest request, String clientId, String clientSecret) {
+        return CompletableFuture.completedFuture(processPayment(request, clientId, clientSecret));
+    }
+
+    default CompletableFuture<List<PaymentResponse>> processBatchAsync(List<PaymentRequest> requests, String clientId, String clientSecret) {
+        List<CompletableFuture<PaymentResponse>> calls = requests.stream()
+                .map(request -> processPaymentAsync(request, clientId, clientSecret))
+                .toList();
+        return CompletableFuture.allOf(calls.toArray(new CompletableFuture[0]))
+                .thenApply(ignored -> calls.stream().map(CompletableFuture::join).toList());
+    }
+
+    /*
+     * The overloads below take the client whose secret PaymentAdmissionControl already verified for this request, or
+     * null when admission did not check it, so an implementation does not have to verify the secret a second time.
+     */
+
+    default PaymentResponse processPayment(PaymentRequest request, String clientId, String clientSecret,
+                                           ClientCredentialCache.CachedClient authenticated) {
+        return processPayment(request, clientId, clientSecret);
+    }
+
+    default CompletableFuture<PaymentResponse> processPaymentAsync(PaymentRequest request, String clientId, String clientSecret,
+                                                                   ClientCredentialCache.CachedClient authenticated) {
+        return processPaymentAsync(request, clientId, clientSecret);
+    }
+
+    default CompletableFuture<List<PaymentResponse>> processBatchAsync(List<PaymentRequest> requests, String clientId, String clientSecret,
+                                                                       ClientCredentialCache.CachedClient authenticated) {
+        return processBatchAsync(requests, clientId, clientSecret);
+    }
 }
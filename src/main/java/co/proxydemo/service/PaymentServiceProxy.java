@@ -8,17 +8,34 @@ import co.proxydemo.entity.Client;
 import co.proxydemo.entity.Transaction;
 import co.proxydemo.repository.ClientRepository;
 import co.proxydemo.repository.TransactionRepository;
-import jakarta.transaction.Transactional;
+import co.proxydemo.util.ConcurrencyLimitedFanOut;
+import io.micrometer.observation.Observation;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Primary;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
 
 @Service
 @Primary
@@ -26,88 +43,594 @@ public class PaymentServiceProxy implements PaymentService {
 
     private static final Logger logger = LoggerFactory.getLogger(PaymentServiceProxy.class);
 
+    public static final String ERROR_CLIENT_MOVING = "client_moving";
+
     private static final String ERROR_CLIENT_VALIDATION = "client_validation_error";
     private static final String ERROR_VALIDATION = "validation_error";
     private static final String ERROR_CACHED = "cached_error";
+    private static final String ERROR_IN_PROGRESS = "payment_in_progress";
+    private static final String ERROR_PROVIDER = "processing_error";
+    private static final String ERROR_UNAVAILABLE = "provider_unavailable";
+    private static final String ERROR_OUTCOME_UNKNOWN = "payment_outcome_unknown";
 
     private static final String STATUS_SUCCESS = "SUCCESS";
     private static final String STATUS_FAILED = "FAILED";
+    private static final String STATUS_PENDING = "PENDING";
+    private static final String STATUS_UNKNOWN = "UNKNOWN";
 
-    private static final String VISA_CARD_PREFIX = "4111";
-
-    private final StripePaymentService stripePaymentService;
-    private final VisaPaymentService visaPaymentService;
+    private final ProviderCallExecutor providerCallExecutor;
     private final TransactionRepository transactionRepository;
     private final ClientRepository clientRepository;
-    private final WebhookService webhookService;
+    private final ClientCredentialCache clientCredentialCache;
+    private final TransactionFinalizer transactionFinalizer;
+    private final TransactionWriteBehind transactionWriteBehind;
+    private final PaymentJournal paymentJournal;
+    private final ReplicaReadRouting replicaReadRouting;
+    private final ShardRouter shardRouter;
+    private final IdempotencyStore idempotencyStore;
+    private final PaymentRequestValidator requestValidator;
+    private final PaymentMetrics paymentMetrics;
+    private final Tracer tracer;
+    private final Executor paymentCompletionExecutor;
+    private final int maxBatchSize;
+    private final int batchMaxConcurrency;
 
     @Autowired
     public PaymentServiceProxy(
-            StripePaymentService stripePaymentService,
-            VisaPaymentService visaPaymentService,
+            ProviderCallExecutor providerCallExecutor,
             TransactionRepository transactionRepository,
             ClientRepository clientRepository,
-            WebhookService webhookService
+            ClientCredentialCache clientCredentialCache,
+            TransactionFinalizer transactionFinalizer,
+            TransactionWriteBehind transactionWriteBehind,
+            PaymentJournal paymentJournal,
+            ReplicaReadRouting replicaReadRouting,
+            ShardRouter shardRouter,
+            IdempotencyStore idempotencyStore,
+            PaymentRequestValidator requestValidator,
+            PaymentMetrics paymentMetrics,
+            Tracer tracer,
+            @Qualifier("paymentCompletionExecutor") Executor paymentCompletionExecutor,
+            @Value("${payment.batch.max-size:500}") int maxBatchSize,
+            @Value("${payment.batch.max-concurrency:32}") int batchMaxConcurrency
     ) {
-        this.stripePaymentService = stripePaymentService;
-        this.visaPaymentService = visaPaymentService;
+        this.providerCallExecutor = providerCallExecutor;
         this.transactionRepository = transactionRepository;
         this.clientRepository = clientRepository;
-        this.webhookService = webhookService;
+        this.clientCredentialCache = clientCredentialCache;
+        this.transactionFinalizer = transactionFinalizer;
+        this.transactionWriteBehind = transactionWriteBehind;
+        this.paymentJournal = paymentJournal;
+        this.replicaReadRouting = replicaReadRouting;
+        this.shardRouter = shardRouter;
+        this.idempotencyStore = idempotencyStore;
+        this.requestValidator = requestValidator;
+        this.paymentMetrics = paymentMetrics;
+        this.tracer = tracer;
+        this.paymentCompletionExecutor = paymentCompletionExecutor;
+        this.maxBatchSize = maxBatchSize;
+        this.batchMaxConcurrency = batchMaxConcurrency;
     }
 
     @Override
-    @Transactional
     public PaymentResponse processPayment(PaymentRequest request) {
         logger.warn("Client credentials must be supplied via headers (X-Client-Id, X-Client-Secret)");
         return new PaymentResponse(false, null, "Client credentials are required in headers", ERROR_CLIENT_VALIDATION, LocalDateTime.now());
     }
 
     @Override
-    @Transactional
     public PaymentResponse processPayment(PaymentRequest request, String clientId, String clientSecret) {
+        return processPayment(request, clientId, clientSecret, null);
+    }
+
+    @Override
+    public PaymentResponse processPayment(PaymentRequest request, String clientId, String clientSecret,
+                                          ClientCredentialCache.CachedClient authenticated) {
+        Observation observation = paymentMetrics.startPayment();
+        PaymentResponse response = null;
+        Throwable failure = null;
+        try (Observation.Scope ignored = observation.openScope()) {
+            response = process(request, clientId, clientSecret, authenticated);
+            return response;
+        } catch (RuntimeException | Error e) {
+            failure = e;
+            throw e;
+        } finally {
+            paymentMetrics.finishPayment(observation, response, failure);
+        }
+    }
+
+    private PaymentResponse process(PaymentRequest request, String clientId, String clientSecret,
+                                    ClientCredentialCache.CachedClient authenticated) {
         logger.info("Payment request received for amount: {}", request.getAmount());
 
-        String idempotencyKey = request.getIdempotencyKey();
-        Optional<Transaction> existing = transactionRepository.findByIdempotencyKey(idempotencyKey);
-        if (existing.isPresent()) {
-            logger.info("Idempotent request detected with key: {}", idempotencyKey);
-            Transaction tx = existing.get();
-            return buildResponseFromTransaction(tx);
+        PaymentResponse rejected = authenticate(clientId, clientSecret, authenticated);
+        if (rejected != null) {
+            return rejected;
+        }
+        Long clientPk = clientPk(clientId);
+        if (shardRouter.isMoving(clientPk)) {
+            return clientMovingResponse(clientId);
+        }
+        return shardRouter.onShard(shardRouter.shardOf(clientId), () -> processOnShard(request, clientId, clientPk));
+    }
+
+    private PaymentResponse processOnShard(PaymentRequest request, String clientId, Long clientPk) {
+        Optional<PaymentResponse> cached = paymentMetrics.observe(PaymentMetrics.Stage.IDEMPOTENCY_CACHE,
+                () -> idempotencyStore.findCached(clientPk, request.getIdempotencyKey()));
+        if (cached.isPresent()) {
+            logger.info("Idempotent request served from near-cache with key: {}", request.getIdempotencyKey());
+            return cached.get();
+        }
+
+        IdempotencyStore.Claim claim = idempotencyStore.claim(clientPk, request.getIdempotencyKey());
+        if (!claim.isOwner()) {
+            return claim.response().join();
+        }
+
+        try {
+            PaymentResponse earlyResponse = resolveEarlyResponse(request, clientPk, claim);
+            if (earlyResponse != null) {
+                return earlyResponse;
+            }
+
+            Transaction pending;
+            try {
+                pending = reservePendingTransaction(request, clientId);
+            } catch (DataIntegrityViolationException e) {
+                return claim.complete(resolveConcurrentDuplicate(request, clientPk), null);
+            }
+
+            PaymentResponse response = providerCallExecutor.call(request);
+
+            return completePayment(pending, request, response, claim);
+        } catch (RuntimeException | Error e) {
+            claim.fail(e);
+            throw e;
+        }
+    }
+
+    @Override
+    public CompletableFuture<PaymentResponse> processPaymentAsync(PaymentRequest request, String clientId, String clientSecret) {
+        return processPaymentAsync(request, clientId, clientSecret, null);
+    }
+
+    @Override
+    public CompletableFuture<PaymentResponse> processPaymentAsync(PaymentRequest request, String clientId, String clientSecret,
+                                                                  ClientCredentialCache.CachedClient authenticated) {
+        Observation observation = paymentMetrics.startPayment();
+        CompletableFuture<PaymentResponse> result;
+        try (Observation.Scope ignored = observation.openScope()) {
+            result = processAsync(request, clientId, clientSecret, authenticated, observation);
+        } catch (RuntimeException | Error e) {
+            paymentMetrics.finishPayment(observation, null, e);
+            throw e;
+        }
+        return result.whenComplete((response, error) -> paymentMetrics.finishPayment(observation, response, error));
+    }
+
+    private CompletableFuture<PaymentResponse> processAsync(PaymentRequest request, String clientId, String clientSecret,
+                                                            ClientCredentialCache.CachedClient authenticated,
+                                                            Observation observation) {
+        logger.info("Async payment request received for amount: {}", request.getAmount());
+
+        PaymentResponse rejected = authenticate(clientId, clientSecret, authenticated);
+        if (rejected != null) {
+            return CompletableFuture.completedFuture(rejected);
+        }
+        Long clientPk = clientPk(clientId);
+        if (shardRouter.isMoving(clientPk)) {
+            return CompletableFuture.completedFuture(clientMovingResponse(clientId));
+        }
+        int shard = shardRouter.shardOf(clientId);
+        return shardRouter.onShard(shard, () -> processAsyncOnShard(request, clientId, clientPk, shard, observation));
+    }
+
+    private CompletableFuture<PaymentResponse> processAsyncOnShard(PaymentRequest request, String clientId, Long clientPk,
+                                                                   int shard, Observation observation) {
+        Optional<PaymentResponse> cached = paymentMetrics.observe(PaymentMetrics.Stage.IDEMPOTENCY_CACHE,
+                () -> idempotencyStore.findCached(clientPk, request.getIdempotencyKey()));
+        if (cached.isPresent()) {
+            logger.info("Idempotent request served from near-cache with key: {}", request.getIdempotencyKey());
+            return CompletableFuture.completedFuture(cached.get());
+        }
+
+        IdempotencyStore.Claim claim = idempotencyStore.claim(clientPk, request.getIdempotencyKey());
+        if (!claim.isOwner()) {
+            return claim.response().copy();
+        }
+
+        try {
+            PaymentResponse earlyResponse = resolveEarlyResponse(request, clientPk, claim);
+            if (earlyResponse != null) {
+                return CompletableFuture.completedFuture(earlyResponse);
+            }
+
+            Transaction pending;
+            try {
+                pending = reservePendingTransaction(request, clientId);
+            } catch (DataIntegrityViolationException e) {
+                return CompletableFuture.completedFuture(claim.complete(resolveConcurrentDuplicate(request, clientPk), null));
+            }
+
+            CompletableFuture<PaymentResponse> call;
+            try {
+                call = providerCallExecutor.callAsync(request);
+            } catch (RejectedExecutionException e) {
+                call = CompletableFuture.failedFuture(e);
+            }
+            return call
+                    .handle((response, error) -> error == null ? response : rejectedCallResponse(pending, error))
+                    .thenCompose(response -> onCompletionExecutor(
+                            () -> observation.scoped(() -> shardRouter.onShard(shard,
+                                    () -> completePayment(pending, request, response, claim))),
+                            () -> deferCompletion(pending, response, claim)))
+                    .whenComplete((response, error) -> {
+                        if (error != null) {
+                            claim.fail(error);
+                        }
+                    });
+        } catch (RuntimeException | Error e) {
+            claim.fail(e);
+            throw e;
+        }
+    }
+
+    @Override
+    public CompletableFuture<List<PaymentResponse>> processBatchAsync(List<PaymentRequest> requests, String clientId, String clientSecret) {
+        return processBatchAsync(requests, clientId, clientSecret, null);
+    }
+
+    @Override
+    public CompletableFuture<List<PaymentResponse>> processBatchAsync(List<PaymentRequest> requests, String clientId, String clientSecret,
+                                                                      ClientCredentialCache.CachedClient authenticated) {
+        Observation observation = paymentMetrics.startPayment();
+        CompletableFuture<List<PaymentResponse>> result;
+        try (Observation.Scope ignored = observation.openScope()) {
+            result = processBatch(requests, clientId, clientSecret, authenticated, observation);
+        } catch (RuntimeException | Error e) {
+            paymentMetrics.finishPayment(observation, null, e);
+            throw e;
+        }
+        return result.whenComplete((results, error) -> paymentMetrics.finishBatch(observation, results, error));
+    }
+
+    private CompletableFuture<List<PaymentResponse>> processBatch(List<PaymentRequest> requests, String clientId,
+                                                                  String clientSecret,
+                                                                  ClientCredentialCache.CachedClient authenticated,
+                                                                  Observation observation) {
+        logger.info("Batch payment request received with {} item(s)", requests.size());
+
+        PaymentResponse[] results = new PaymentResponse[requests.size()];
+        if (requests.size() > maxBatchSize) {
+            logger.warn("Batch rejected: {} items exceeds limit of {}", requests.size(), maxBatchSize);
+            Arrays.fill(results, new PaymentResponse(false, null, "Batch size exceeds limit of " + maxBatchSize, ERROR_VALIDATION, LocalDateTime.now()));
+            return CompletableFuture.completedFuture(Arrays.asList(results));
+        }
+
+        ValidationResult clientValidation = validateClient(clientId, clientSecret, authenticated);
+        if (!clientValidation.isValid()) {
+            logger.warn("Client validation failed: {}", clientValidation.getError());
+            Arrays.fill(results, new PaymentResponse(false, null, clientValidation.getError(), ERROR_CLIENT_VALIDATION, LocalDateTime.now()));
+            return CompletableFuture.completedFuture(Arrays.asList(results));
+        }
+        if (shardRouter.isMoving(clientPk(clientId))) {
+            Arrays.fill(results, clientMovingResponse(clientId));
+            return CompletableFuture.completedFuture(Arrays.asList(results));
+        }
+        int shard = shardRouter.shardOf(clientId);
+        return shardRouter.onShard(shard, () -> processBatchOnShard(requests, clientReference(clientId), shard, results, observation));
+    }
+
+    private CompletableFuture<List<PaymentResponse>> processBatchOnShard(List<PaymentRequest> requests, Client client, int shard,
+                                                                         PaymentResponse[] results, Observation observation) {
+        Long clientPk = client.getId();
+
+        Map<String, PaymentResponse> cached = paymentMetrics.observe(PaymentMetrics.Stage.IDEMPOTENCY_CACHE,
+                () -> findCachedResponses(clientPk, requests));
+        Map<String, Transaction> existing = paymentMetrics.observe(PaymentMetrics.Stage.IDEMPOTENCY_LOOKUP,
+                () -> findExistingByIdempotencyKeys(clientPk, requests, cached.keySet()));
+        Map<String, Integer> firstIndexByKey = new HashMap<>();
+        int[] duplicateOf = new int[requests.size()];
+        Arrays.fill(duplicateOf, -1);
+        List<Transaction> reservations = new ArrayList<>();
+        List<Integer> reservationIndexes = new ArrayList<>();
+        List<Transaction> pending = new ArrayList<>();
+        List<Integer> pendingIndexes = new ArrayList<>();
+
+        for (int i = 0; i < requests.size(); i++) {
+            PaymentRequest request = requests.get(i);
+            if (request == null) {
+                results[i] = toValidationFailure(validateRequest(null));
+                continue;
+            }
+            String idempotencyKey = request.getIdempotencyKey();
+            if (idempotencyKey != null && cached.containsKey(idempotencyKey)) {
+                results[i] = cached.get(idempotencyKey);
+                continue;
+            }
+            if (idempotencyKey != null && existing.containsKey(idempotencyKey)) {
+                idempotencyStore.recordDatabaseHit();
+                results[i] = replayFromTransaction(existing.get(idempotencyKey));
+                continue;
+            }
+            if (idempotencyKey != null) {
+                Integer first = firstIndexByKey.putIfAbsent(idempotencyKey, i);
+                if (first != null) {
+                    duplicateOf[i] = first;
+                    continue;
+                }
+            }
+
+            idempotencyStore.recordMiss();
+            ValidationResult validation = validateRequest(request);
+            Transaction transaction = buildTransaction(request, null, client, idempotencyKey);
+            if (!validation.isValid()) {
+                PaymentResponse response = toValidationFailure(validation);
+                transaction.setStatus(STATUS_FAILED);
+                transaction.setErrorMessage(validation.getError());
+                transaction.setResponseBody(idempotencyStore.serialize(response));
+                results[i] = response;
+            } else {
+                transaction.setStatus(STATUS_PENDING);
+                pending.add(transaction);
+                pendingIndexes.add(i);
+            }
+            reservations.add(transaction);
+            reservationIndexes.add(i);
+        }
+
+        paymentMetrics.observe(PaymentMetrics.Stage.RESERVE_TRANSACTION, () -> {
+            try {
+                transactionRepository.saveAll(reservations);
+                reservations.forEach(this::rememberRejected);
+            } catch (DataIntegrityViolationException e) {
+                logger.warn("Batch reservation hit a concurrent idempotency key; reserving items one by one");
+                reserveIndividually(requests, reservations, reservationIndexes, pending, pendingIndexes, results);
+            }
+        });
+        logger.debug("Reserved {} transaction(s) for batch, {} to forward", reservations.size(), pending.size());
+
+        List<PaymentRequest> forwarded = pendingIndexes.stream().map(requests::get).toList();
+        return ConcurrencyLimitedFanOut.map(
+                        forwarded,
+                        batchMaxConcurrency,
+                        providerCallExecutor::callAsync,
+                        this::buildProviderFailureResponse
+                )
+                .thenCompose(responses -> onCompletionExecutor(() -> observation.scoped(() -> shardRouter.onShard(shard, () -> {
+                    List<WebhookEvent> events = new ArrayList<>(responses.size());
+                    List<String> responseBodies = new ArrayList<>(responses.size());
+                    for (int k = 0; k < responses.size(); k++) {
+                        events.add(buildWebhookEvent(responses.get(k), forwarded.get(k)));
+                        responseBodies.add(idempotencyStore.serialize(responses.get(k)));
+                        results[pendingIndexes.get(k)] = responses.get(k);
+                        paymentJournal.record(pending.get(k), responses.get(k));
+                    }
+                    boolean[] finalized = transactionFinalizer.finalizeBatch(pending, responses, responseBodies, events);
+                    for (int k = 0; k < finalized.length; k++) {
+                        if (finalized[k]) {
+                            idempotencyStore.remember(clientPk, forwarded.get(k).getIdempotencyKey(), responseBodies.get(k));
+                        }
+                    }
+
+                    for (int i = 0; i < results.length; i++) {
+                        if (duplicateOf[i] >= 0) {
+                            results[i] = results[duplicateOf[i]];
+                        }
+                    }
+                    logger.info("Batch payment request completed - {} item(s)", results.length);
+                    return Arrays.asList(results);
+                })), () -> {
+                    for (int k = 0; k < responses.size(); k++) {
+                        results[pendingIndexes.get(k)] = deferCompletion(pending.get(k), responses.get(k), null);
+                    }
+                    for (int i = 0; i < results.length; i++) {
+                        if (duplicateOf[i] >= 0) {
+                            results[i] = results[duplicateOf[i]];
+                        }
+                    }
+                    return Arrays.asList(results);
+                }));
+    }
+
+    /**
+     * Runs a completion on the completion executor. When the executor rejects it, {@code deferred} runs instead: the
+     * calling thread is normally a provider timer thread, and blocking it on the database would stall every other
+     * in-flight provider response and hedge timer.
+     */
+    private <T> CompletableFuture<T> onCompletionExecutor(Supplier<T> completion, Supplier<T> deferred) {
+        try {
+            return CompletableFuture.supplyAsync(completion, paymentCompletionExecutor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(deferred.get());
+        }
+    }
+
+    /**
+     * Journals the provider outcome and leaves the row PENDING, for {@link PaymentJournalCompactor} to apply (or
+     * {@link PendingTransactionReconciler} to mark UNKNOWN when the journal is off). The idempotency claim is failed
+     * so a retry with the same key is not served a cached answer, and the caller is told the payment is still being
+     * processed.
+     */
+    private PaymentResponse deferCompletion(Transaction pending, PaymentResponse response, IdempotencyStore.Claim claim) {
+        logger.error("Payment completion executor rejected transaction {}; leaving it PENDING", pending.getId());
+        paymentJournal.record(pending, response);
+        if (claim != null) {
+            claim.fail(new RejectedExecutionException("Payment completion executor is saturated"));
+        }
+        return new PaymentResponse(false, pending.getId().toString(), "Payment is still being processed",
+                ERROR_IN_PROGRESS, LocalDateTime.now());
+    }
+
+    /**
+     * A provider call the scheduler rejected never reached the provider, so the reservation is finalized as FAILED.
+     * Any other failure is passed on.
+     */
+    private PaymentResponse rejectedCallResponse(Transaction pending, Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (!(cause instanceof RejectedExecutionException)) {
+            throw error instanceof CompletionException completion ? completion : new CompletionException(error);
+        }
+        logger.error("Provider call for transaction {} was rejected; failing its reservation", pending.getId(), cause);
+        return new PaymentResponse(false, null, "Payment provider temporarily unavailable", ERROR_UNAVAILABLE,
+                LocalDateTime.now());
+    }
+
+    private void reserveIndividually(List<PaymentRequest> requests, List<Transaction> reservations,
+                                     List<Integer> reservationIndexes, List<Transaction> pending,
+                                     List<Integer> pendingIndexes, PaymentResponse[] results) {
+        for (int k = 0; k < reservations.size(); k++) {
+            Transaction transaction = reservations.get(k);
+            transaction.setId(null);
+            try {
+                transactionRepository.save(transaction);
+                rememberRejected(transaction);
+            } catch (DataIntegrityViolationException e) {
+                int index = reservationIndexes.get(k);
+                int position = pendingIndexes.indexOf(index);
+                if (position >= 0) {
+                    pending.remove(position);
+                    pendingIndexes.remove(position);
+                    results[index] = resolveConcurrentDuplicate(requests.get(index), transaction.getClient().getId());
+                }
+            }
+        }
+    }
+
+    private void rememberRejected(Transaction transaction) {
+        if (STATUS_FAILED.equals(transaction.getStatus())) {
+            idempotencyStore.remember(transaction.getClient().getId(), transaction.getIdempotencyKey(), transaction.getResponseBody());
+        }
+    }
+
+    private Map<String, PaymentResponse> findCachedResponses(Long clientPk, List<PaymentRequest> requests) {
+        Map<String, PaymentResponse> cached = new HashMap<>();
+        for (PaymentRequest request : requests) {
+            String idempotencyKey = request != null ? request.getIdempotencyKey() : null;
+            if (idempotencyKey != null && !cached.containsKey(idempotencyKey)) {
+                idempotencyStore.findCached(clientPk, idempotencyKey).ifPresent(response -> cached.put(idempotencyKey, response));
+            }
+        }
+        return cached;
+    }
+
+    private Map<String, Transaction> findExistingByIdempotencyKeys(Long clientPk, List<PaymentRequest> requests, Set<String> skip) {
+        Set<String> keys = new HashSet<>();
+        for (PaymentRequest request : requests) {
+            if (request != null && request.getIdempotencyKey() != null && !skip.contains(request.getIdempotencyKey())) {
+                keys.add(request.getIdempotencyKey());
+            }
+        }
+        if (keys.isEmpty()) {
+            return Map.of();
         }
 
-        ValidationResult clientValidation = validateClient(clientId, clientSecret);
+        Map<String, Transaction> existing = new HashMap<>();
+        for (Transaction transaction : replicaReadRouting.read(clientPk,
+                () -> transactionRepository.findByClientAndIdempotencyKeyIn(clientPk, keys))) {
+            existing.putIfAbsent(transaction.getIdempotencyKey(), transaction);
+        }
+        return existing;
+    }
+
+    private PaymentResponse buildProviderFailureResponse(Throwable error) {
+        logger.error("Provider call failed", error);
+        return new PaymentResponse(false, null, "Payment provider call failed", ERROR_PROVIDER, LocalDateTime.now());
+    }
+
+    private PaymentResponse authenticate(String clientId, String clientSecret, ClientCredentialCache.CachedClient authenticated) {
+        ValidationResult clientValidation = validateClient(clientId, clientSecret, authenticated);
         if (!clientValidation.isValid()) {
             logger.warn("Client validation failed: {}", clientValidation.getError());
             return new PaymentResponse(false, null, clientValidation.getError(), ERROR_CLIENT_VALIDATION, LocalDateTime.now());
         }
+        return null;
+    }
+
+    /**
+     * Some of the client's idempotency keys may still be on its previous shard, so nothing is reserved until
+     * {@link ShardRebalancer} has moved them.
+     */
+    private PaymentResponse clientMovingResponse(String clientId) {
+        logger.warn("Payment refused: client {} is being moved to another shard", clientId);
+        return new PaymentResponse(false, null, "Client data is being moved between shards; retry later",
+                ERROR_CLIENT_MOVING, LocalDateTime.now());
+    }
+
+    private PaymentResponse resolveEarlyResponse(PaymentRequest request, Long clientPk, IdempotencyStore.Claim claim) {
+        String idempotencyKey = request.getIdempotencyKey();
+        Optional<Transaction> existing = paymentMetrics.observe(PaymentMetrics.Stage.IDEMPOTENCY_LOOKUP,
+                () -> findExisting(clientPk, idempotencyKey));
+        if (existing.isPresent()) {
+            logger.info("Idempotent request detected with key: {}", idempotencyKey);
+            idempotencyStore.recordDatabaseHit();
+            Transaction tx = existing.get();
+            return claim.complete(replayFromTransaction(tx), tx.getResponseBody());
+        }
+        idempotencyStore.recordMiss();
 
         ValidationResult validation = validateRequest(request);
         if (!validation.isValid()) {
             logger.warn("Request validation failed: {}", validation.getError());
-            saveFailedTransaction(request, validation.getError(), idempotencyKey, clientId);
-            return new PaymentResponse(false, null, validation.getError(), ERROR_VALIDATION, LocalDateTime.now());
+            PaymentResponse response = toValidationFailure(validation);
+            String responseBody = idempotencyStore.serialize(response);
+            boolean saved = saveFailedTransaction(request, validation.getError(), idempotencyKey, clientPk, responseBody);
+            return claim.complete(response, saved ? responseBody : null);
         }
 
         logRequest(request);
+        return null;
+    }
 
-        PaymentService selectedService = selectPaymentService(request);
-        String providerName = getProviderName(selectedService);
-        logger.debug("Forwarding payment to {} service", providerName);
+    private Optional<Transaction> findExisting(Long clientPk, String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return Optional.empty();
+        }
+        return replicaReadRouting.read(clientPk, () -> transactionRepository.findByClientAndIdempotencyKey(clientPk, idempotencyKey));
+    }
 
-        PaymentResponse response = selectedService.processPayment(request);
+    private PaymentResponse resolveConcurrentDuplicate(PaymentRequest request, Long clientPk) {
+        logger.info("Concurrent duplicate detected with key: {}", request.getIdempotencyKey());
+        return replicaReadRouting.onPrimary(() -> findExisting(clientPk, request.getIdempotencyKey()))
+                .map(this::replayFromTransaction)
+                .orElseGet(() -> new PaymentResponse(false, null, "Payment is still being processed", ERROR_IN_PROGRESS, LocalDateTime.now()));
+    }
 
-        saveTransaction(request, response, idempotencyKey, clientId);
+    private PaymentResponse replayFromTransaction(Transaction tx) {
+        if (tx.getResponseBody() != null) {
+            return idempotencyStore.deserialize(tx.getResponseBody());
+        }
+        return buildResponseFromTransaction(tx);
+    }
 
-        sendWebhook(response, request);
+    private PaymentResponse completePayment(Transaction pending, PaymentRequest request, PaymentResponse response,
+                                            IdempotencyStore.Claim claim) {
+        String responseBody = idempotencyStore.serialize(response);
+        WebhookEvent event = buildWebhookEvent(response, request);
+        paymentJournal.record(pending, response);
+        boolean finalized = transactionWriteBehind.isEnabled()
+                ? transactionWriteBehind.submit(pending, response, responseBody, event)
+                : transactionFinalizer.finalizeTransaction(pending, response, responseBody, event);
 
         logResponse(response);
 
         logger.info("Payment request completed - Success: {}", response.isSuccess());
-        return response;
+        return claim.complete(response, finalized ? responseBody : null);
     }
 
-    private ValidationResult validateClient(String clientId, String clientSecret) {
+    /**
+     * {@code authenticated} is the client {@link PaymentAdmissionControl} verified for this request; its secret was
+     * checked moments ago, so it is not checked again.
+     */
+    private ValidationResult validateClient(String clientId, String clientSecret, ClientCredentialCache.CachedClient authenticated) {
+        if (authenticated != null) {
+            return ValidationResult.VALID;
+        }
+        return paymentMetrics.observe(PaymentMetrics.Stage.VALIDATE_CLIENT, () -> checkClientCredentials(clientId, clientSecret));
+    }
+
+    private ValidationResult checkClientCredentials(String clientId, String clientSecret) {
         if (clientId == null || clientId.trim().isEmpty()) {
             return new ValidationResult(false, "Client ID is required");
         }
@@ -115,76 +638,66 @@ public class PaymentServiceProxy implements PaymentService {
             return new ValidationResult(false, "Client secret is required");
         }
 
-        Optional<Client> clientOpt = clientRepository.findByClientIdAndClientSecret(clientId, clientSecret);
+        Optional<ClientCredentialCache.CachedClient> clientOpt = clientCredentialCache.get(clientId);
 
-        if (clientOpt.isEmpty()) {
+        if (clientOpt.isEmpty() || !clientCredentialCache.verifySecret(clientId, clientOpt.get(), clientSecret)) {
             return new ValidationResult(false, "Invalid client credentials");
         }
 
-        Client client = clientOpt.get();
-        if (!client.getActive()) {
+        ClientCredentialCache.CachedClient client = clientOpt.get();
+        if (!client.active()) {
             return new ValidationResult(false, "Client is inactive");
         }
 
-        return new ValidationResult(true, null);
+        return ValidationResult.VALID;
     }
 
     private ValidationResult validateRequest(PaymentRequest request) {
-        if (request.getAmount() <= 0) {
-            return new ValidationResult(false, "Amount must be positive");
-        }
-        if (request.getAmount() > 999999) {
-            return new ValidationResult(false, "Amount exceeds limit");
-        }
-        if (request.getCardNumber() == null || request.getCardNumber().length() < 13) {
-            return new ValidationResult(false, "Invalid card number");
-        }
-        if (request.getCvv() == null || request.getCvv().length() < 3) {
-            return new ValidationResult(false, "Invalid CVV");
-        }
-        if (request.getExpiryDate() == null || !request.getExpiryDate().matches("\\d{2}/\\d{2}")) {
-            return new ValidationResult(false, "Invalid expiry date format (use MM/YY)");
-        }
-        if (request.getIdempotencyKey() == null || request.getIdempotencyKey().trim().isEmpty()) {
-            return new ValidationResult(false, "Idempotency key is required");
-        }
-        return new ValidationResult(true, null);
+        return paymentMetrics.observe(PaymentMetrics.Stage.VALIDATE_REQUEST, () -> checkRequest(request));
     }
 
-    private void saveTransaction(
-            PaymentRequest request,
-            PaymentResponse response,
-            String idempotencyKey,
-            String clientId
-    ) {
-        Client client = clientRepository.findByClientId(clientId)
-                .orElseThrow(() -> new IllegalStateException("Client not found after validation"));
+    ValidationResult checkRequest(PaymentRequest request) {
+        return requestValidator.validate(request);
+    }
 
-        Transaction transaction = buildTransaction(request, response, client, idempotencyKey);
-        transactionRepository.save(transaction);
-        logger.debug("Transaction saved with ID: {}", transaction.getId());
+    private PaymentResponse toValidationFailure(ValidationResult validation) {
+        return new PaymentResponse(false, null, validation.getError(), ERROR_VALIDATION, LocalDateTime.now(),
+                validation.getDetails());
     }
 
-    private void saveFailedTransaction(PaymentRequest request, String error, String idempotencyKey, String clientId) {
-        if (clientId == null) {
-            logger.warn("Cannot save failed transaction: clientId is null");
-            return;
-        }
+    private Transaction reservePendingTransaction(PaymentRequest request, String clientId) {
+        Transaction transaction = buildTransaction(request, null, clientReference(clientId), request.getIdempotencyKey());
+        transaction.setStatus(STATUS_PENDING);
+        paymentMetrics.observe(PaymentMetrics.Stage.RESERVE_TRANSACTION, () -> transactionRepository.save(transaction));
+        logger.debug("Pending transaction reserved with ID: {}", transaction.getId());
+        return transaction;
+    }
 
-        Optional<Client> clientOpt = clientRepository.findByClientId(clientId);
-        if (clientOpt.isEmpty()) {
-            logger.warn("Cannot save failed transaction: client not found for clientId: {}", clientId);
-            return;
-        }
+    private Client clientReference(String clientId) {
+        return clientRepository.getReferenceById(clientPk(clientId));
+    }
+
+    private Long clientPk(String clientId) {
+        return clientCredentialCache.findClientPk(clientId)
+                .orElseThrow(() -> new IllegalStateException("Client not found after validation"));
+    }
 
-        Transaction transaction = buildTransaction(request, null, clientOpt.get(), idempotencyKey);
+    private boolean saveFailedTransaction(PaymentRequest request, String error, String idempotencyKey, Long clientPk, String responseBody) {
+        Transaction transaction = buildTransaction(request, null, clientRepository.getReferenceById(clientPk), idempotencyKey);
         transaction.setStatus(STATUS_FAILED);
         transaction.setErrorMessage(error);
-        transactionRepository.save(transaction);
+        transaction.setResponseBody(responseBody);
+        try {
+            transactionRepository.save(transaction);
+        } catch (DataIntegrityViolationException e) {
+            logger.info("Failed transaction for key {} already recorded", idempotencyKey);
+            return false;
+        }
         logger.debug("Failed transaction saved");
+        return true;
     }
 
-    private Transaction buildTransaction(PaymentRequest request, PaymentResponse response, Client client, String idempotencyKey) {
+    Transaction buildTransaction(PaymentRequest request, PaymentResponse response, Client client, String idempotencyKey) {
         String cardLast4 = extractCardLast4(request.getCardNumber());
 
         Transaction transaction = new Transaction();
@@ -195,7 +708,7 @@ public class PaymentServiceProxy implements PaymentService {
         transaction.setErrorMessage(response != null && !response.isSuccess() ? response.getMessage() : null);
         transaction.setCreatedAt(LocalDateTime.now());
         transaction.setIdempotencyKey(idempotencyKey);
-        transaction.setMetadata(buildMetadata(request));
+        transaction.setMetadata(request.getMetadata());
         if (response != null) {
             transaction.setProviderTransactionId(response.getTransactionId());
         }
@@ -203,21 +716,20 @@ public class PaymentServiceProxy implements PaymentService {
         return transaction;
     }
 
-    private String extractCardLast4(String cardNumber) {
+    String extractCardLast4(String cardNumber) {
         if (cardNumber == null || cardNumber.length() < 4) {
             return "0000";
         }
         return cardNumber.substring(cardNumber.length() - 4);
     }
 
-    private Map<String, String> buildMetadata(PaymentRequest request) {
-        if (request.getMetadata() == null) {
-            return new HashMap<>();
-        }
-        return new HashMap<>(request.getMetadata());
-    }
-
     private PaymentResponse buildResponseFromTransaction(Transaction tx) {
+        if (STATUS_PENDING.equals(tx.getStatus())) {
+            return new PaymentResponse(false, tx.getId().toString(), "Payment is still being processed", ERROR_IN_PROGRESS, LocalDateTime.now());
+        }
+        if (STATUS_UNKNOWN.equals(tx.getStatus())) {
+            return new PaymentResponse(false, tx.getId().toString(), tx.getErrorMessage(), ERROR_OUTCOME_UNKNOWN, LocalDateTime.now());
+        }
         boolean isSuccess = STATUS_SUCCESS.equals(tx.getStatus());
         return new PaymentResponse(
                 isSuccess,
@@ -228,14 +740,9 @@ public class PaymentServiceProxy implements PaymentService {
         );
     }
 
-    private void sendWebhook(PaymentResponse response, PaymentRequest request) {
-        WebhookEvent event = buildWebhookEvent(response, request);
-        webhookService.sendWebhook(event);
-    }
-
-    private WebhookEvent buildWebhookEvent(PaymentResponse response, PaymentRequest request) {
+    WebhookEvent buildWebhookEvent(PaymentResponse response, PaymentRequest request) {
         WebhookEvent event = new WebhookEvent();
-        event.setEventId("evt_" + System.currentTimeMillis());
+        event.setEventId("evt_" + UUID.randomUUID());
         event.setEventType(response.isSuccess() ? "payment.success" : "payment.failed");
         event.setTransactionId(response.getTransactionId());
         event.setAmount(request.getAmount());
@@ -248,6 +755,10 @@ public class PaymentServiceProxy implements PaymentService {
         event.setProductId(productId);
         event.setDescription(description);
         event.setTimestamp(LocalDateTime.now());
+        Span span = tracer.currentSpan();
+        if (span != null && !span.isNoop()) {
+            event.setTraceId(span.context().traceId());
+        }
         return event;
     }
 
@@ -260,34 +771,10 @@ public class PaymentServiceProxy implements PaymentService {
         logger.debug("Payment response - Success: {}, TransactionId: {}", response.isSuccess(), response.getTransactionId());
     }
 
-    private String maskCardNumber(String cardNumber) {
+    String maskCardNumber(String cardNumber) {
         if (cardNumber == null || cardNumber.length() < 4) {
             return "****";
         }
         return "****-****-****-" + cardNumber.substring(cardNumber.length() - 4);
     }
-
-    private PaymentService selectPaymentService(PaymentRequest request) {
-        if (request.getProvider() != null) {
-            String key = request.getProvider().trim().toLowerCase();
-            if ("visa".equals(key)) {
-                return visaPaymentService;
-            }
-            if ("stripe".equals(key)) {
-                return stripePaymentService;
-            }
-        }
-        String cardNumber = request.getCardNumber();
-        if (cardNumber != null && cardNumber.startsWith(VISA_CARD_PREFIX)) {
-            return visaPaymentService;
-        }
-        return stripePaymentService;
-    }
-
-    private String getProviderName(PaymentService service) {
-        if (service instanceof PaymentProvider provider) {
-            return provider.getProviderKey();
-        }
-        return service.getClass().getSimpleName();
-    }
 }
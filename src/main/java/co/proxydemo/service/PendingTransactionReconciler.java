@@ -0,0 +1,78 @@
+package co.proxydemo.service;
+
+import co.proxydemo.repository.TransactionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Moves rows left in PENDING past {@code stale-after} to UNKNOWN. The provider may well have captured the charge, so
+ * such a row is never failed here: it needs review against the provider, and a completion that turns up later (from
+ * the write-behind or the payment journal) still finalizes it. Rows whose completion is still queued in
+ * {@link TransactionWriteBehind} are left alone: a writer backlog is not an unknown outcome.
+ */
+@Component
+public class PendingTransactionReconciler {
+
+    private static final Logger logger = LoggerFactory.getLogger(PendingTransactionReconciler.class);
+
+    private static final String RECONCILED_MESSAGE = "Payment outcome unknown; processing was interrupted and the payment needs review";
+
+    private final TransactionRepository transactionRepository;
+    private final PaymentJournalCompactor paymentJournalCompactor;
+    private final ShardRouter shardRouter;
+    private final TransactionWriteBehind transactionWriteBehind;
+    private final Duration staleAfter;
+
+    @Autowired
+    public PendingTransactionReconciler(
+            TransactionRepository transactionRepository,
+            PaymentJournalCompactor paymentJournalCompactor,
+            ShardRouter shardRouter,
+            TransactionWriteBehind transactionWriteBehind,
+            @Value("${payment.reconciliation.stale-after:5m}") Duration staleAfter
+    ) {
+        this.transactionRepository = transactionRepository;
+        this.paymentJournalCompactor = paymentJournalCompactor;
+        this.shardRouter = shardRouter;
+        this.transactionWriteBehind = transactionWriteBehind;
+        this.staleAfter = staleAfter;
+    }
+
+    @Scheduled(
+            initialDelayString = "${payment.reconciliation.initial-delay-ms:0}",
+            fixedDelayString = "${payment.reconciliation.interval-ms:60000}"
+    )
+    public void reconcile() {
+        try {
+            paymentJournalCompactor.compact();
+        } catch (RuntimeException e) {
+            logger.error("Journal compaction failed; reconciling without it", e);
+        }
+        LocalDateTime cutoff = LocalDateTime.now().minus(staleAfter);
+        for (int shard = 0; shard < shardRouter.shardCount(); shard++) {
+            int reconciled = shardRouter.onShard(shard, () -> markUnknown(cutoff));
+            if (reconciled > 0) {
+                logger.warn("Marked {} transaction(s) on shard {} left in PENDING since before {} as UNKNOWN; they need review",
+                        reconciled, shard, cutoff);
+            }
+        }
+    }
+
+    private int markUnknown(LocalDateTime cutoff) {
+        List<Long> stale = transactionRepository.findPendingIdsCreatedBefore(cutoff).stream()
+                .filter(id -> !transactionWriteBehind.isQueued(id))
+                .toList();
+        if (stale.isEmpty()) {
+            return 0;
+        }
+        return transactionRepository.markPendingUnknown(stale, RECONCILED_MESSAGE);
+    }
+}
@@ -0,0 +1,330 @@
+package co.proxydemo.service;
+
+import co.proxydemo.dto.PaymentRequest;
+import co.proxydemo.dto.PaymentResponse;
+import co.proxydemo.util.Bulkhead;
+import co.proxydemo.util.CircuitBreaker;
+import io.micrometer.observation.Observation;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+@Component
+public class ProviderCallExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProviderCallExecutor.class);
+
+    private static final String ERROR_PROVIDER = "processing_error";
+    private static final String ERROR_UNAVAILABLE = "provider_unavailable";
+
+    private final PaymentProviderRegistry providerRegistry;
+    private final ProviderHealthTracker healthTracker;
+    private final ProviderResilience resilience;
+    private final PaymentMetrics paymentMetrics;
+    private final ScheduledExecutorService providerScheduler;
+    private final boolean hedgingEnabled;
+    private final double hedgePercentile;
+    private final Duration hedgeMinDelay;
+    private final Duration hedgeMaxDelay;
+
+    private final Counter hedgesFired;
+    private final Counter hedgesWon;
+    private final Counter duplicateSuccesses;
+
+    @Autowired
+    public ProviderCallExecutor(
+            PaymentProviderRegistry providerRegistry,
+            ProviderHealthTracker healthTracker,
+            ProviderResilience resilience,
+            PaymentMetrics paymentMetrics,
+            @Qualifier("providerScheduler") ScheduledExecutorService providerScheduler,
+            MeterRegistry meterRegistry,
+            @Value("${payment.routing.hedging.enabled:false}") boolean hedgingEnabled,
+            @Value("${payment.routing.hedging.percentile:0.95}") double hedgePercentile,
+            @Value("${payment.routing.hedging.min-delay:50ms}") Duration hedgeMinDelay,
+            @Value("${payment.routing.hedging.max-delay:2s}") Duration hedgeMaxDelay
+    ) {
+        this.providerRegistry = providerRegistry;
+        this.healthTracker = healthTracker;
+        this.resilience = resilience;
+        this.paymentMetrics = paymentMetrics;
+        this.providerScheduler = providerScheduler;
+        this.hedgingEnabled = hedgingEnabled;
+        this.hedgePercentile = hedgePercentile;
+        this.hedgeMinDelay = hedgeMinDelay;
+        this.hedgeMaxDelay = hedgeMaxDelay;
+        this.hedgesFired = Counter.builder("provider.hedge.fired").register(meterRegistry);
+        this.hedgesWon = Counter.builder("provider.hedge.won").register(meterRegistry);
+        this.duplicateSuccesses = Counter.builder("provider.hedge.duplicate_success").register(meterRegistry);
+    }
+
+    public PaymentResponse call(PaymentRequest request) {
+        PaymentProviderRegistry.ProviderRoute route = providerRegistry.route(request);
+        List<PaymentProvider> hedgeable = hedgeable(route);
+        if (hedgeable.size() > 1) {
+            return hedge(hedgeable, request, paymentMetrics.currentObservation()).join();
+        }
+
+        for (PaymentProvider provider : route.candidates()) {
+            ProviderResilience.Guard guard = resilience.guardFor(provider.getProviderKey());
+            long permit = guard.breaker().tryAcquire();
+            if (permit < 0) {
+                logger.warn("Circuit for {} is open; trying the next provider", provider.getProviderKey());
+                continue;
+            }
+            if (!awaitBulkhead(guard)) {
+                guard.breaker().release(permit);
+                logger.warn("Bulkhead for {} is full; trying the next provider", provider.getProviderKey());
+                continue;
+            }
+
+            logger.debug("Forwarding payment to {} service", provider.getProviderKey());
+            Observation observation = paymentMetrics.startProviderCall(provider.getProviderKey(), null);
+            long started = System.nanoTime();
+            PaymentResponse response = null;
+            Throwable failure = null;
+            try (Observation.Scope ignored = observation.openScope()) {
+                response = provider.processPayment(request);
+                return response;
+            } catch (RuntimeException | Error e) {
+                failure = e;
+                throw e;
+            } finally {
+                long elapsed = System.nanoTime() - started;
+                guard.bulkhead().release();
+                guard.breaker().onResult(permit, elapsed, ProviderHealthTracker.isProviderError(response));
+                healthTracker.record(provider.getProviderKey(), elapsed, response);
+                paymentMetrics.finishProviderCall(observation, response, failure);
+            }
+        }
+        return unavailable(route);
+    }
+
+    public CompletableFuture<PaymentResponse> callAsync(PaymentRequest request) {
+        PaymentProviderRegistry.ProviderRoute route = providerRegistry.route(request);
+        List<PaymentProvider> hedgeable = hedgeable(route);
+        Observation parent = paymentMetrics.currentObservation();
+        if (hedgeable.size() > 1) {
+            return hedge(hedgeable, request, parent);
+        }
+        return attempt(route.candidates(), 0, request, parent)
+                .thenApply(response -> response != null ? response : unavailable(route));
+    }
+
+    private List<PaymentProvider> hedgeable(PaymentProviderRegistry.ProviderRoute route) {
+        if (!hedgingEnabled || !route.adaptive() || route.candidates().size() < 2) {
+            return List.of();
+        }
+        return route.candidates().stream()
+                .filter(provider -> resilience.guardFor(provider.getProviderKey()).breaker().isCallPermitted())
+                .toList();
+    }
+
+    /**
+     * Calls the first candidate whose circuit and bulkhead admit the call, and completes with {@code null} when every
+     * candidate rejects it. A provider that was actually called is never retried elsewhere, so a failure after the
+     * request left the proxy cannot turn into a second charge.
+     */
+    private CompletableFuture<PaymentResponse> attempt(List<PaymentProvider> candidates, int index, PaymentRequest request,
+                                                       Observation parent) {
+        if (index >= candidates.size()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        PaymentProvider provider = candidates.get(index);
+        ProviderResilience.Guard guard = resilience.guardFor(provider.getProviderKey());
+        CircuitBreaker breaker = guard.breaker();
+        long permit = breaker.tryAcquire();
+        if (permit < 0) {
+            logger.warn("Circuit for {} is open; trying the next provider", provider.getProviderKey());
+            return attempt(candidates, index + 1, request, parent);
+        }
+
+        Bulkhead bulkhead = guard.bulkhead();
+        return bulkhead.acquire()
+                .orTimeout(guard.maxWait().toMillis(), TimeUnit.MILLISECONDS)
+                .handle((ignored, error) -> error == null)
+                .thenCompose(admitted -> {
+                    if (!admitted) {
+                        breaker.release(permit);
+                        logger.warn("Bulkhead for {} is full; trying the next provider", provider.getProviderKey());
+                        return attempt(candidates, index + 1, request, parent);
+                    }
+                    long started = System.nanoTime();
+                    return invoke(provider, request, parent).whenComplete((response, error) -> {
+                        bulkhead.release();
+                        breaker.onResult(permit, System.nanoTime() - started, ProviderHealthTracker.isProviderError(response));
+                    });
+                });
+    }
+
+    private boolean awaitBulkhead(ProviderResilience.Guard guard) {
+        CompletableFuture<Void> waiter = guard.bulkhead().acquire();
+        try {
+            waiter.get(guard.maxWait().toMillis(), TimeUnit.MILLISECONDS);
+            return true;
+        } catch (TimeoutException e) {
+            // Losing this race means a permit was handed over just as the wait expired; keep it.
+            return !waiter.completeExceptionally(e);
+        } catch (ExecutionException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (!waiter.completeExceptionally(e)) {
+                guard.bulkhead().release();
+            }
+            return false;
+        }
+    }
+
+    private PaymentResponse unavailable(PaymentProviderRegistry.ProviderRoute route) {
+        logger.error("No provider admitted the payment; tried {}",
+                route.candidates().stream().map(PaymentProvider::getProviderKey).toList());
+        return new PaymentResponse(false, null, "Payment provider temporarily unavailable", ERROR_UNAVAILABLE,
+                LocalDateTime.now());
+    }
+
+    private CompletableFuture<PaymentResponse> invoke(PaymentProvider provider, PaymentRequest request, Observation parent) {
+        logger.debug("Forwarding payment to {} service asynchronously", provider.getProviderKey());
+        Observation observation = paymentMetrics.startProviderCall(provider.getProviderKey(), parent);
+        long started = System.nanoTime();
+        CompletableFuture<PaymentResponse> call;
+        try {
+            call = provider.processPaymentAsync(request);
+        } catch (RuntimeException e) {
+            call = CompletableFuture.failedFuture(e);
+        }
+        return call.handle((response, error) -> {
+            long elapsed = System.nanoTime() - started;
+            healthTracker.record(provider.getProviderKey(), elapsed, error == null ? response : null);
+            paymentMetrics.finishProviderCall(observation, error == null ? response : null, error);
+            if (error != null) {
+                logger.error("Provider {} call failed", provider.getProviderKey(), error);
+                return new PaymentResponse(false, null, "Payment provider call failed", ERROR_PROVIDER, LocalDateTime.now());
+            }
+            return response;
+        });
+    }
+
+    private CompletableFuture<PaymentResponse> hedge(List<PaymentProvider> candidates, PaymentRequest request,
+                                                     Observation parent) {
+        return new HedgedCall(candidates.get(0), candidates.get(1), request, parent).start();
+    }
+
+    private long hedgeDelayMillis(PaymentProvider primary) {
+        long percentile = healthTracker.percentileMillis(primary.getProviderKey(), hedgePercentile);
+        if (percentile < 0) {
+            return hedgeMaxDelay.toMillis();
+        }
+        return Math.max(hedgeMinDelay.toMillis(), Math.min(hedgeMaxDelay.toMillis(), percentile));
+    }
+
+    /**
+     * Races a backup attempt against a slow primary. The first successful response wins. A second success is voided
+     * with its provider, so at most one charge is kept and recorded. When nothing succeeds, the first failure is
+     * returned.
+     */
+    private final class HedgedCall {
+        private final PaymentProvider primary;
+        private final PaymentProvider secondary;
+        private final PaymentRequest request;
+        private final Observation parent;
+        private final CompletableFuture<PaymentResponse> result = new CompletableFuture<>();
+        private final AtomicInteger outstanding = new AtomicInteger(1);
+        private final AtomicBoolean hedgeDecided = new AtomicBoolean();
+        private final AtomicReference<PaymentResponse> firstFailure = new AtomicReference<>();
+        private volatile ScheduledFuture<?> hedgeTimer;
+
+        private HedgedCall(PaymentProvider primary, PaymentProvider secondary, PaymentRequest request,
+                           Observation parent) {
+            this.primary = primary;
+            this.secondary = secondary;
+            this.request = request;
+            this.parent = parent;
+        }
+
+        private CompletableFuture<PaymentResponse> start() {
+            try {
+                hedgeTimer = providerScheduler.schedule(this::launchHedge, hedgeDelayMillis(primary), TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                hedgeDecided.set(true);
+            }
+            guardedInvoke(primary).thenAccept(response -> {
+                hedgeDecided.set(true);
+                ScheduledFuture<?> timer = hedgeTimer;
+                if (timer != null) {
+                    timer.cancel(false);
+                }
+                finish(primary, response);
+            });
+            return result;
+        }
+
+        private void launchHedge() {
+            outstanding.incrementAndGet();
+            if (!hedgeDecided.compareAndSet(false, true) || result.isDone()) {
+                finish(null, null);
+                return;
+            }
+            hedgesFired.increment();
+            logger.info("Hedging payment to {} after {} was slower than its p{} latency",
+                    secondary.getProviderKey(), primary.getProviderKey(), Math.round(hedgePercentile * 100));
+            guardedInvoke(secondary).thenAccept(response -> finish(secondary, response));
+        }
+
+        private CompletableFuture<PaymentResponse> guardedInvoke(PaymentProvider provider) {
+            return attempt(List.of(provider), 0, request, parent).thenApply(response -> response != null ? response
+                    : new PaymentResponse(false, null, "Payment provider temporarily unavailable", ERROR_UNAVAILABLE,
+                    LocalDateTime.now()));
+        }
+
+        private void finish(PaymentProvider provider, PaymentResponse response) {
+            if (response != null) {
+                if (response.isSuccess()) {
+                    if (result.complete(response)) {
+                        if (provider == secondary) {
+                            hedgesWon.increment();
+                        }
+                    } else {
+                        voidDuplicate(provider, response);
+                    }
+                } else {
+                    firstFailure.compareAndSet(null, response);
+                }
+            }
+            if (outstanding.decrementAndGet() == 0) {
+                result.complete(firstFailure.get());
+            }
+        }
+
+        private void voidDuplicate(PaymentProvider provider, PaymentResponse response) {
+            duplicateSuccesses.increment();
+            logger.warn("Hedged payment also succeeded at {} ({}); voiding the duplicate charge",
+                    provider.getProviderKey(), response.getTransactionId());
+            provider.voidPaymentAsync(response.getTransactionId()).whenComplete((voided, error) -> {
+                if (error != null || !Boolean.TRUE.equals(voided)) {
+                    logger.error("Could not void duplicate charge {} at {}; manual reconciliation required",
+                            response.getTransactionId(), provider.getProviderKey(), error);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package co.proxydemo.service;
+
+import co.proxydemo.dto.PaymentResponse;
+import co.proxydemo.util.LatencyHistogram;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component
+public class ProviderHealthTracker {
+
+    private static final Set<String> PROVIDER_ERROR_CODES = Set.of("network_error", "processing_error");
+
+    private final MeterRegistry meterRegistry;
+    private final double ewmaAlpha;
+    private final double maxErrorRate;
+    private final long minSamples;
+    private final double exploreRatio;
+    private final Duration window;
+    private final ConcurrentMap<String, ProviderStats> stats = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ProviderHealthTracker(
+            MeterRegistry meterRegistry,
+            @Value("${payment.routing.adaptive.ewma-alpha:0.2}") double ewmaAlpha,
+            @Value("${payment.routing.adaptive.max-error-rate:0.25}") double maxErrorRate,
+            @Value("${payment.routing.adaptive.min-samples:20}") long minSamples,
+            @Value("${payment.routing.adaptive.explore-ratio:0.05}") double exploreRatio,
+            @Value("${payment.routing.adaptive.window:60s}") Duration window
+    ) {
+        this.meterRegistry = meterRegistry;
+        this.ewmaAlpha = ewmaAlpha;
+        this.maxErrorRate = maxErrorRate;
+        this.minSamples = minSamples;
+        this.exploreRatio = exploreRatio;
+        this.window = window;
+    }
+
+    public void record(String providerKey, long latencyNanos, PaymentResponse response) {
+        statsFor(providerKey).record(latencyNanos, isProviderError(response));
+    }
+
+    static boolean isProviderError(PaymentResponse response) {
+        return response == null || (!response.isSuccess() && PROVIDER_ERROR_CODES.contains(response.getErrorCode()));
+    }
+
+    public boolean isHealthy(String providerKey) {
+        ProviderStats providerStats = statsFor(providerKey);
+        return providerStats.latency.count() < minSamples || providerStats.errorRate() <= maxErrorRate;
+    }
+
+    public double ewmaLatencyMillis(String providerKey) {
+        return statsFor(providerKey).ewmaLatencyMillis();
+    }
+
+    public long percentileMillis(String providerKey, double quantile) {
+        long micros = statsFor(providerKey).latency.percentileMicros(quantile);
+        return micros < 0 ? -1 : TimeUnit.MICROSECONDS.toMillis(micros);
+    }
+
+    /**
+     * Orders candidates fastest-first by EWMA latency, healthy providers ahead of unhealthy ones. A small share of
+     * calls promotes a random candidate so a provider that recovered gets fresh samples.
+     */
+    public List<PaymentProvider> rank(List<PaymentProvider> candidates) {
+        List<PaymentProvider> ranked = new ArrayList<>(candidates);
+        ranked.sort(Comparator
+                .comparing((PaymentProvider provider) -> !isHealthy(provider.getProviderKey()))
+                .thenComparingDouble(provider -> ewmaLatencyMillis(provider.getProviderKey())));
+        if (ranked.size() > 1 && ThreadLocalRandom.current().nextDouble() < exploreRatio) {
+            PaymentProvider explored = ranked.remove(1 + ThreadLocalRandom.current().nextInt(ranked.size() - 1));
+            ranked.add(0, explored);
+        }
+        return ranked;
+    }
+
+    private ProviderStats statsFor(String providerKey) {
+        return stats.computeIfAbsent(providerKey, this::register);
+    }
+
+    private ProviderStats register(String providerKey) {
+        ProviderStats providerStats = new ProviderStats(window);
+        Gauge.builder("provider.latency.ewma", providerStats, ProviderStats::ewmaLatencyMillis)
+                .tag("provider", providerKey)
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        Gauge.builder("provider.latency.p99", providerStats, s -> s.latency.percentileMicros(0.99) / 1000.0)
+                .tag("provider", providerKey)
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        Gauge.builder("provider.error.rate", providerStats, ProviderStats::errorRate)
+                .tag("provider", providerKey)
+                .register(meterRegistry);
+        return providerStats;
+    }
+
+    private final class ProviderStats {
+        private final LatencyHistogram latency;
+        private final AtomicLong ewmaLatencyBits = new AtomicLong(Double.doubleToLongBits(Double.NaN));
+        private final AtomicLong errorRateBits = new AtomicLong(Double.doubleToLongBits(0.0));
+
+        private ProviderStats(Duration window) {
+            this.latency = new LatencyHistogram(window.toMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        private void record(long latencyNanos, boolean providerError) {
+            latency.record(latencyNanos, TimeUnit.NANOSECONDS);
+            update(ewmaLatencyBits, latencyNanos / 1_000_000.0);
+            update(errorRateBits, providerError ? 1.0 : 0.0);
+        }
+
+        private double ewmaLatencyMillis() {
+            double value = Double.longBitsToDouble(ewmaLatencyBits.get());
+            return Double.isNaN(value) ? 0.0 : value;
+        }
+
+        private double errorRate() {
+            return Double.longBitsToDouble(errorRateBits.get());
+        }
+
+        private void update(AtomicLong bits, double sample) {
+            long current;
+            long next;
+            do {
+                current = bits.get();
+                double value = Double.longBitsToDouble(current);
+                double updated = Double.isNaN(value) ? sample : value + ewmaAlpha * (sample - value);
+                next = Double.doubleToLongBits(updated);
+            } while (!bits.compareAndSet(current, next));
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package co.proxydemo.service;
+
+import co.proxydemo.util.Bulkhead;
+import co.proxydemo.util.CircuitBreaker;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+@Component
+public class ProviderResilience {
+
+    private static final String BULKHEAD_PREFIX = "payment.resilience.bulkhead.";
+
+    private final MeterRegistry meterRegistry;
+    private final Environment environment;
+    private final int windowSize;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final double slowCallRateThreshold;
+    private final Duration slowCallDuration;
+    private final Duration openDuration;
+    private final int halfOpenCalls;
+    private final int maxConcurrent;
+    private final int queueCapacity;
+    private final Duration maxWait;
+    private final ConcurrentMap<String, Guard> guards = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ProviderResilience(
+            MeterRegistry meterRegistry,
+            Environment environment,
+            @Value("${payment.resilience.circuit.window-size:50}") int windowSize,
+            @Value("${payment.resilience.circuit.minimum-calls:20}") int minimumCalls,
+            @Value("${payment.resilience.circuit.failure-rate-threshold:0.5}") double failureRateThreshold,
+            @Value("${payment.resilience.circuit.slow-call-rate-threshold:0.8}") double slowCallRateThreshold,
+            @Value("${payment.resilience.circuit.slow-call-duration:2s}") Duration slowCallDuration,
+            @Value("${payment.resilience.circuit.open-duration:30s}") Duration openDuration,
+            @Value("${payment.resilience.circuit.half-open-calls:5}") int halfOpenCalls,
+            @Value("${payment.resilience.bulkhead.max-concurrent:100}") int maxConcurrent,
+            @Value("${payment.resilience.bulkhead.queue-capacity:200}") int queueCapacity,
+            @Value("${payment.resilience.bulkhead.max-wait:500ms}") Duration maxWait
+    ) {
+        this.meterRegistry = meterRegistry;
+        this.environment = environment;
+        this.windowSize = windowSize;
+        this.minimumCalls = minimumCalls;
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.slowCallDuration = slowCallDuration;
+        this.openDuration = openDuration;
+        this.halfOpenCalls = halfOpenCalls;
+        this.maxConcurrent = maxConcurrent;
+        this.queueCapacity = queueCapacity;
+        this.maxWait = maxWait;
+    }
+
+    public Guard guardFor(String providerKey) {
+        return guards.computeIfAbsent(providerKey, this::register);
+    }
+
+    public Map<String, Guard> getGuards() {
+        return new TreeMap<>(guards);
+    }
+
+    private Guard register(String providerKey) {
+        CircuitBreaker breaker = new CircuitBreaker(windowSize, minimumCalls, failureRateThreshold,
+                slowCallRateThreshold, slowCallDuration, openDuration, halfOpenCalls);
+        Bulkhead bulkhead = new Bulkhead(
+                environment.getProperty(BULKHEAD_PREFIX + providerKey + ".max-concurrent", Integer.class, maxConcurrent),
+                environment.getProperty(BULKHEAD_PREFIX + providerKey + ".queue-capacity", Integer.class, queueCapacity));
+        Duration wait = environment.getProperty(BULKHEAD_PREFIX + providerKey + ".max-wait", Duration.class, maxWait);
+
+        Gauge.builder("provider.circuit.state", breaker, b -> b.getState().ordinal())
+                .tag("provider", providerKey)
+                .description("0 = closed, 1 = open, 2 = half-open")
+                .register(meterRegistry);
+        Gauge.builder("provider.circuit.failure.rate", breaker, CircuitBreaker::getFailureRate)
+                .tag("provider", providerKey)
+                .register(meterRegistry);
+        Gauge.builder("provider.circuit.slow.rate", breaker, CircuitBreaker::getSlowCallRate)
+                .tag("provider", providerKey)
+                .register(meterRegistry);
+        FunctionCounter.builder("provider.circuit.rejected", breaker, CircuitBreaker::getRejectedCount)
+                .tag("provider", providerKey)
+                .register(meterRegistry);
+        Gauge.builder("provider.bulkhead.in_flight", bulkhead, Bulkhead::getInFlight)
+                .tag("provider", providerKey)
+                .register(meterRegistry);
+        Gauge.builder("provider.bulkhead.queued", bulkhead, Bulkhead::getQueued)
+                .tag("provider", providerKey)
+                .register(meterRegistry);
+        FunctionCounter.builder("provider.bulkhead.rejected", bulkhead, Bulkhead::getRejectedCount)
+                .tag("provider", providerKey)
+                .register(meterRegistry);
+        return new Guard(breaker, bulkhead, wait);
+    }
+
+    public record Guard(CircuitBreaker breaker, Bulkhead bulkhead, Duration maxWait) {
+    }
+}
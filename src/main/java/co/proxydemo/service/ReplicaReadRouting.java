@@ -0,0 +1,90 @@
+package co.proxydemo.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Decides which read-only work may go to the replica. A client that wrote within the last {@code read-your-writes-window}
+ * has its reads sent to the primary, so it never reads a replica that has not caught up with its own payment. The
+ * window should exceed the replica lag you expect; writes are tracked per node.
+ * <p>
+ * The routing itself happens in {@code ReplicaRoutingDataSource}, which sends read-only transactions to the replica
+ * unless {@link #onPrimary} is in effect on the current thread. With routing disabled every method just runs the query.
+ */
+@Component
+public class ReplicaReadRouting {
+
+    private static final ThreadLocal<Boolean> PRIMARY_FORCED = new ThreadLocal<>();
+
+    private final boolean enabled;
+    private final Cache<Long, Boolean> recentWriters;
+    private final Counter forcedReads;
+
+    @Autowired
+    public ReplicaReadRouting(
+            MeterRegistry meterRegistry,
+            @Value("${payment.datasource.replica.enabled:false}") boolean enabled,
+            @Value("${payment.datasource.replica.read-your-writes-window:5s}") Duration readYourWritesWindow,
+            @Value("${payment.datasource.replica.max-tracked-clients:100000}") long maxTrackedClients
+    ) {
+        this.enabled = enabled;
+        this.recentWriters = Caffeine.newBuilder()
+                .maximumSize(maxTrackedClients)
+                .expireAfterWrite(readYourWritesWindow)
+                .build();
+        this.forcedReads = Counter.builder("datasource.replica.forced_primary")
+                .description("Read-only queries sent to the primary because the client wrote recently")
+                .register(meterRegistry);
+    }
+
+    public static boolean isPrimaryForced() {
+        return PRIMARY_FORCED.get() != null;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Starts, or restarts, the read-your-writes window of {@code clientPk}.
+     */
+    public void recordWrite(Long clientPk) {
+        if (enabled && clientPk != null) {
+            recentWriters.put(clientPk, Boolean.TRUE);
+        }
+    }
+
+    /**
+     * Runs a read for {@code clientPk}: on the replica, unless the client is inside its read-your-writes window.
+     */
+    public <T> T read(Long clientPk, Supplier<T> query) {
+        if (enabled && clientPk != null && recentWriters.getIfPresent(clientPk) != null) {
+            forcedReads.increment();
+            return onPrimary(query);
+        }
+        return query.get();
+    }
+
+    /**
+     * Runs {@code query} with every connection taken from the primary, for reads that must see the latest state.
+     */
+    public <T> T onPrimary(Supplier<T> query) {
+        if (!enabled || isPrimaryForced()) {
+            return query.get();
+        }
+        PRIMARY_FORCED.set(Boolean.TRUE);
+        try {
+            return query.get();
+        } finally {
+            PRIMARY_FORCED.remove();
+        }
+    }
+}
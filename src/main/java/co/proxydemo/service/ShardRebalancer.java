@@ -0,0 +1,343 @@
+package co.proxydemo.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.context.WebServerGracefulShutdownLifecycle;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Keeps the shards consistent with the ring. Reference data (clients and their webhook subscriptions) is written on
+ * the home shard and copied to every other shard, since transactions and webhook events reference it. After a shard
+ * is added, {@link #rebalance()} moves each client whose owner changed: its rows are copied to the new owner and then
+ * deleted from the old one, in batches of {@code batch-size}. Ids are unique across shards, so a row already on the
+ * new owner is one an interrupted run copied, and the rebalance can simply be run again.
+ * <p>
+ * It starts ahead of the web server. At that point it finds every client with rows away from its owner and marks it
+ * as moving in {@link ShardRouter}, so no payment for that client is taken until its rows have moved. With
+ * {@code rebalance-on-startup} they are moved right away; otherwise they stay refused until {@link #rebalance()} runs.
+ * A moved row whose idempotency key the new owner already holds under another id is never merged: the client is left
+ * refused for someone to resolve by hand.
+ * <p>
+ * Every step runs in its own transaction on one shard, so this also works from an after-commit callback. Rows deleted
+ * on the home shard are not removed from the other shards.
+ */
+@Component
+public class ShardRebalancer implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardRebalancer.class);
+
+    /**
+     * Before the web server starts, which runs one step after the graceful shutdown phase.
+     */
+    private static final int PHASE = WebServerGracefulShutdownLifecycle.SMART_LIFECYCLE_PHASE - 2048;
+
+    private static final List<String> REFERENCE_TABLES = List.of("clients", "client_webhooks");
+    private static final List<String> SHARDED_TABLES = List.of("transactions", "webhook_events");
+
+    private final ShardRouter shardRouter;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate shardTransaction;
+    private final int batchSize;
+    private final boolean rebalanceOnStartup;
+    private volatile boolean running;
+
+    @Autowired
+    public ShardRebalancer(
+            ShardRouter shardRouter,
+            DataSource dataSource,
+            PlatformTransactionManager transactionManager,
+            @Value("${payment.sharding.rebalance.batch-size:500}") int batchSize,
+            @Value("${payment.sharding.rebalance-on-startup:false}") boolean rebalanceOnStartup
+    ) {
+        this.shardRouter = shardRouter;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.shardTransaction = new TransactionTemplate(transactionManager);
+        this.shardTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.batchSize = batchSize;
+        this.rebalanceOnStartup = rebalanceOnStartup;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        if (!shardRouter.isEnabled()) {
+            return;
+        }
+        if (rebalanceOnStartup) {
+            rebalance();
+        } else {
+            syncReferenceData();
+            int moving = findMisplacedClients().size();
+            if (moving > 0) {
+                logger.warn("{} client(s) have rows on a shard they no longer own; their payments are refused until "
+                        + "POST /actuator/shards moves them", moving);
+            }
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    /**
+     * Copies every client and webhook subscription from the home shard to the other shards.
+     */
+    public synchronized int syncReferenceData() {
+        int copied = 0;
+        for (int shard = 0; shard < shardRouter.shardCount(); shard++) {
+            if (shard == ShardRouter.HOME_SHARD) {
+                continue;
+            }
+            for (String table : REFERENCE_TABLES) {
+                List<Map<String, Object>> rows = inShard(ShardRouter.HOME_SHARD,
+                        status -> jdbcTemplate.queryForList("SELECT * FROM " + table));
+                copied += upsert(shard, table, rows);
+            }
+        }
+        logger.info("Copied {} reference row(s) to {} shard(s)", copied, shardRouter.shardCount() - 1);
+        return copied;
+    }
+
+    /**
+     * Copies one reference row from the home shard to the other shards.
+     */
+    public void replicate(String table, long id) {
+        if (!REFERENCE_TABLES.contains(table)) {
+            throw new IllegalArgumentException("Not a reference table: " + table);
+        }
+        List<Map<String, Object>> rows = inShard(ShardRouter.HOME_SHARD,
+                status -> jdbcTemplate.queryForList("SELECT * FROM " + table + " WHERE id = ?", id));
+        for (int shard = 0; shard < shardRouter.shardCount(); shard++) {
+            if (shard != ShardRouter.HOME_SHARD) {
+                upsert(shard, table, rows);
+            }
+        }
+    }
+
+    /**
+     * Finds every client with rows on a shard other than its owner and marks it as moving. Returns the shards each
+     * one has rows on.
+     */
+    public synchronized Map<Long, Set<Integer>> findMisplacedClients() {
+        return findMisplacedClients(owners());
+    }
+
+    private Map<Long, Set<Integer>> findMisplacedClients(Map<Long, Integer> owners) {
+        Map<Long, Set<Integer>> misplaced = new LinkedHashMap<>();
+        for (int source = 0; source < shardRouter.shardCount(); source++) {
+            List<Long> clientPks = inShard(source, status -> jdbcTemplate.queryForList(
+                    "SELECT client_id FROM transactions UNION SELECT client_id FROM webhook_events", Long.class));
+            for (Long clientPk : clientPks) {
+                Integer owner = owners.get(clientPk);
+                if (owner != null && owner != source) {
+                    misplaced.computeIfAbsent(clientPk, key -> new HashSet<>()).add(source);
+                    shardRouter.markMoving(clientPk);
+                }
+            }
+        }
+        return misplaced;
+    }
+
+    private Map<Long, Integer> owners() {
+        return inShard(ShardRouter.HOME_SHARD, status -> {
+            Map<Long, Integer> byPk = new HashMap<>();
+            jdbcTemplate.query("SELECT id, client_id FROM clients", rs -> {
+                byPk.put(rs.getLong("id"), shardRouter.shardOf(rs.getString("client_id")));
+            });
+            return byPk;
+        });
+    }
+
+    /**
+     * Syncs reference data, then moves every client found on a shard other than its owner. A client is released for
+     * payments once all of its rows are on the owner.
+     */
+    public synchronized RebalanceResult rebalance() {
+        syncReferenceData();
+        Map<Long, Integer> owners = owners();
+        Map<Long, Set<Integer>> misplaced = findMisplacedClients(owners);
+
+        int clients = 0;
+        int blocked = 0;
+        long transactions = 0;
+        long webhookEvents = 0;
+        for (Map.Entry<Long, Set<Integer>> client : misplaced.entrySet()) {
+            long clientPk = client.getKey();
+            int owner = owners.get(clientPk);
+            try {
+                for (int source : client.getValue()) {
+                    transactions += move(source, owner, "transactions", clientPk);
+                    webhookEvents += move(source, owner, "webhook_events", clientPk);
+                }
+            } catch (ConflictingRowException e) {
+                logger.error("Client {} stays refused: {}", clientPk, e.getMessage());
+                blocked++;
+                continue;
+            }
+            shardRouter.markMoved(clientPk);
+            clients++;
+        }
+        logger.info("Rebalanced {} client(s) across {} shard(s): moved {} transaction(s) and {} webhook event(s), "
+                + "{} client(s) blocked by conflicting rows", clients, shardRouter.shardCount(), transactions, webhookEvents, blocked);
+        return new RebalanceResult(clients, blocked, transactions, webhookEvents);
+    }
+
+    /**
+     * Counts the sharded rows on every shard.
+     */
+    public List<ShardStats> stats() {
+        List<ShardStats> stats = new ArrayList<>(shardRouter.shardCount());
+        List<Map<String, Long>> counts = shardRouter.scatter(shard -> inShard(shard, status -> {
+            Map<String, Long> byTable = new HashMap<>();
+            for (String table : SHARDED_TABLES) {
+                byTable.put(table, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Long.class));
+            }
+            return byTable;
+        }));
+        for (int shard = 0; shard < counts.size(); shard++) {
+            stats.add(new ShardStats(shard, counts.get(shard).get("transactions"), counts.get(shard).get("webhook_events")));
+        }
+        return stats;
+    }
+
+    private long move(int source, int target, String table, long clientPk) {
+        long moved = 0;
+        while (true) {
+            List<Map<String, Object>> rows = inShard(source, status -> jdbcTemplate.queryForList(
+                    "SELECT * FROM " + table + " WHERE client_id = ? ORDER BY id LIMIT ?", clientPk, batchSize));
+            if (rows.isEmpty()) {
+                return moved;
+            }
+            Object[] ids = rows.stream().map(row -> row.get("id")).toArray();
+            String in = placeholders(ids.length);
+            boolean transactions = "transactions".equals(table);
+
+            Set<Long> copied = inShard(target, status -> new HashSet<>(jdbcTemplate.queryForList(
+                    "SELECT id FROM " + table + " WHERE id IN (" + in + ")", Long.class, ids)));
+            List<Map<String, Object>> fresh = rows.stream()
+                    .filter(row -> !copied.contains(((Number) row.get("id")).longValue()))
+                    .toList();
+            if (transactions) {
+                checkIdempotencyKeys(target, clientPk, fresh);
+            }
+            Object[] freshIds = fresh.stream().map(row -> row.get("id")).toArray();
+            List<Map<String, Object>> metadata = transactions && freshIds.length > 0
+                    ? inShard(source, status -> jdbcTemplate.queryForList(
+                            "SELECT * FROM transaction_metadata WHERE transaction_id IN (" + placeholders(freshIds.length) + ")", freshIds))
+                    : List.of();
+
+            inShard(target, status -> {
+                insert(table, fresh);
+                insert("transaction_metadata", metadata);
+                return null;
+            });
+            inShard(source, status -> {
+                if (transactions) {
+                    jdbcTemplate.update("DELETE FROM transaction_metadata WHERE transaction_id IN (" + in + ")", ids);
+                }
+                return jdbcTemplate.update("DELETE FROM " + table + " WHERE id IN (" + in + ")", ids);
+            });
+            moved += rows.size();
+        }
+    }
+
+    private void checkIdempotencyKeys(int target, long clientPk, List<Map<String, Object>> rows) {
+        Object[] keys = rows.stream().map(row -> row.get("idempotency_key")).filter(Objects::nonNull).toArray();
+        if (keys.length == 0) {
+            return;
+        }
+        Object[] args = new Object[keys.length + 1];
+        args[0] = clientPk;
+        System.arraycopy(keys, 0, args, 1, keys.length);
+        List<String> taken = inShard(target, status -> jdbcTemplate.queryForList(
+                "SELECT idempotency_key FROM transactions WHERE client_id = ? AND idempotency_key IN ("
+                        + placeholders(keys.length) + ")", String.class, args));
+        if (!taken.isEmpty()) {
+            throw new ConflictingRowException("shard " + target + " already holds idempotency key(s) " + taken
+                    + " under other transaction ids");
+        }
+    }
+
+    private int upsert(int shard, String table, List<Map<String, Object>> rows) {
+        return inShard(shard, status -> upsert(table, rows));
+    }
+
+    private int upsert(String table, List<Map<String, Object>> rows) {
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        List<String> columns = new ArrayList<>(rows.get(0).keySet());
+        String sql = "INSERT INTO " + table + " (" + String.join(", ", columns) + ") VALUES ("
+                + placeholders(columns.size()) + ") ON DUPLICATE KEY UPDATE "
+                + String.join(", ", columns.stream()
+                .filter(column -> !"id".equalsIgnoreCase(column))
+                .map(column -> column + " = VALUES(" + column + ")")
+                .toList());
+        batchUpdate(sql, columns, rows);
+        return rows.size();
+    }
+
+    private void insert(String table, List<Map<String, Object>> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        List<String> columns = new ArrayList<>(rows.get(0).keySet());
+        batchUpdate("INSERT INTO " + table + " (" + String.join(", ", columns) + ") VALUES ("
+                + placeholders(columns.size()) + ")", columns, rows);
+    }
+
+    private void batchUpdate(String sql, List<String> columns, List<Map<String, Object>> rows) {
+        List<Object[]> args = rows.stream().map(row -> columns.stream().map(row::get).toArray()).toList();
+        jdbcTemplate.batchUpdate(sql, args);
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    private <T> T inShard(int shard, TransactionCallback<T> work) {
+        return shardRouter.onShard(shard, () -> shardTransaction.execute(work));
+    }
+
+    public record RebalanceResult(int clientsMoved, int clientsBlocked, long transactionsMoved, long webhookEventsMoved) {
+    }
+
+    public record ShardStats(int shard, long transactions, long webhookEvents) {
+    }
+
+    private static final class ConflictingRowException extends RuntimeException {
+        private ConflictingRowException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package co.proxydemo.service;
+
+import co.proxydemo.entity.Client;
+import co.proxydemo.entity.ClientWebhook;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+@Component
+public class ShardReferenceListener {
+
+    private final ShardRouter shardRouter;
+    private final ObjectProvider<ShardRebalancer> shardRebalancer;
+
+    /**
+     * The rebalancer is looked up on first use: it needs the transaction manager, which needs the entity manager
+     * factory that creates this listener.
+     */
+    @Autowired
+    public ShardReferenceListener(ShardRouter shardRouter, ObjectProvider<ShardRebalancer> shardRebalancer) {
+        this.shardRouter = shardRouter;
+        this.shardRebalancer = shardRebalancer;
+    }
+
+    /**
+     * Copies a client or webhook subscription to the other shards once the home shard has committed it.
+     */
+    @PostPersist
+    @PostUpdate
+    public void onReferenceWritten(Object entity) {
+        if (!shardRouter.isEnabled()) {
+            return;
+        }
+        if (entity instanceof Client client) {
+            replicateAfterCommit("clients", client.getId());
+        } else if (entity instanceof ClientWebhook webhook) {
+            replicateAfterCommit("client_webhooks", webhook.getId());
+        }
+    }
+
+    private void replicateAfterCommit(String table, Long id) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            shardRebalancer.getObject().replicate(table, id);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                shardRebalancer.getObject().replicate(table, id);
+            }
+        });
+    }
+}
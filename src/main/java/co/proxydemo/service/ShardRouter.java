@@ -0,0 +1,184 @@
+package co.proxydemo.service;
+
+import co.proxydemo.entity.Client;
+import co.proxydemo.repository.ClientRepository;
+import co.proxydemo.util.ConsistentHashRing;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Places each client's transactions and webhook events on one of {@code payment.sharding.urls}, chosen by a consistent
+ * hash of {@code Client.clientId}. Shard 0 is the home shard: clients and webhook subscriptions are written there and
+ * copied to the others by {@link ShardRebalancer}.
+ * <p>
+ * The routing itself happens in {@code ShardRoutingDataSource}, which takes connections from the shard set by
+ * {@link #onShard} on the current thread, or the home shard outside it. A transaction keeps the connection it started
+ * with, so {@code onShard} must wrap the transaction, not run inside it. With sharding disabled there is one shard and
+ * every method just runs the work.
+ * <p>
+ * A client whose rows {@link ShardRebalancer} found on a shard other than its owner is marked as moving until they
+ * have been moved. Payments for it are refused meanwhile, since its idempotency keys are not all on the owner yet.
+ */
+@Component
+public class ShardRouter {
+
+    public static final int HOME_SHARD = 0;
+
+    private static final ThreadLocal<Integer> CURRENT_SHARD = new ThreadLocal<>();
+
+    private final ClientRepository clientRepository;
+    private final boolean enabled;
+    private final ConsistentHashRing ring;
+    private final Cache<Long, Integer> shardByClientPk;
+    private final Set<Long> movingClientPks = ConcurrentHashMap.newKeySet();
+    private final ExecutorService scatterExecutor;
+
+    @Autowired
+    public ShardRouter(
+            ClientRepository clientRepository,
+            @Value("${payment.sharding.enabled:false}") boolean enabled,
+            @Value("${payment.sharding.urls:}") List<String> urls,
+            @Value("${payment.sharding.virtual-nodes:64}") int virtualNodes,
+            @Value("${payment.sharding.max-cached-clients:100000}") long maxCachedClients,
+            @Value("${payment.datasource.replica.enabled:false}") boolean replicaEnabled
+    ) {
+        if (enabled && urls.isEmpty()) {
+            throw new IllegalStateException("payment.sharding.urls must list at least one shard");
+        }
+        if (enabled && replicaEnabled) {
+            throw new IllegalStateException("payment.sharding.enabled and payment.datasource.replica.enabled cannot both be set");
+        }
+        this.clientRepository = clientRepository;
+        this.enabled = enabled;
+        this.ring = new ConsistentHashRing(enabled ? urls.size() : 1, virtualNodes);
+        this.shardByClientPk = Caffeine.newBuilder()
+                .maximumSize(maxCachedClients)
+                .build();
+        this.scatterExecutor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("shard-scatter-", 0).factory());
+    }
+
+    public static int currentShard() {
+        Integer shard = CURRENT_SHARD.get();
+        return shard != null ? shard : HOME_SHARD;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int shardCount() {
+        return ring.nodes();
+    }
+
+    public int shardOf(String clientId) {
+        return ring.nodeFor(clientId);
+    }
+
+    /**
+     * Resolves the shard of a client known only by primary key, looking its {@code clientId} up on the home shard once.
+     */
+    public int shardOfClient(long clientPk) {
+        if (!enabled) {
+            return HOME_SHARD;
+        }
+        return shardByClientPk.get(clientPk, pk -> onShard(HOME_SHARD, () -> clientRepository.findById(pk))
+                .map(Client::getClientId)
+                .map(this::shardOf)
+                .orElseThrow(() -> new IllegalStateException("Client " + pk + " not found on the home shard")));
+    }
+
+    public boolean isMoving(long clientPk) {
+        return !movingClientPks.isEmpty() && movingClientPks.contains(clientPk);
+    }
+
+    public int movingClients() {
+        return movingClientPks.size();
+    }
+
+    void markMoving(long clientPk) {
+        movingClientPks.add(clientPk);
+    }
+
+    void markMoved(long clientPk) {
+        movingClientPks.remove(clientPk);
+    }
+
+    /**
+     * Runs {@code work} with every new connection taken from {@code shard}.
+     */
+    public <T> T onShard(int shard, Supplier<T> work) {
+        if (!enabled) {
+            return work.get();
+        }
+        Integer previous = CURRENT_SHARD.get();
+        CURRENT_SHARD.set(shard);
+        try {
+            return work.get();
+        } finally {
+            if (previous != null) {
+                CURRENT_SHARD.set(previous);
+            } else {
+                CURRENT_SHARD.remove();
+            }
+        }
+    }
+
+    public void onShard(int shard, Runnable work) {
+        onShard(shard, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    /**
+     * Splits {@code items} by the shard of their client, keeping their order within each shard.
+     */
+    public <T> Map<Integer, List<T>> groupByShard(List<T> items, ToLongFunction<T> clientPk) {
+        if (!enabled) {
+            return Map.of(HOME_SHARD, items);
+        }
+        Map<Integer, List<T>> byShard = new LinkedHashMap<>();
+        for (T item : items) {
+            byShard.computeIfAbsent(shardOfClient(clientPk.applyAsLong(item)), key -> new ArrayList<>()).add(item);
+        }
+        return byShard;
+    }
+
+    /**
+     * Runs {@code query} on every shard at once and returns the results in shard order. A failure on any shard fails
+     * the whole call.
+     */
+    public <T> List<T> scatter(IntFunction<T> query) {
+        if (!enabled) {
+            return List.of(query.apply(HOME_SHARD));
+        }
+        List<CompletableFuture<T>> futures = new ArrayList<>(shardCount());
+        for (int shard = 0; shard < shardCount(); shard++) {
+            int target = shard;
+            futures.add(CompletableFuture.supplyAsync(() -> onShard(target, () -> query.apply(target)), scatterExecutor));
+        }
+        return futures.stream().map(CompletableFuture::join).toList();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scatterExecutor.shutdown();
+    }
+}
@@ -2,22 +2,29 @@ package co.proxydemo.service;
 
 import co.proxydemo.dto.PaymentRequest;
 import co.proxydemo.dto.PaymentResponse;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.UUID;
+import java.util.concurrent.ScheduledExecutorService;
 
 @Service
 public class StripePaymentService extends AbstractCardPaymentService {
 
-    @Override
-    public String getProviderKey() {
-        return "stripe";
+    public StripePaymentService(
+            @Qualifier("providerScheduler") ScheduledExecutorService providerScheduler,
+            @Value("${payment.providers.stripe.delay:800ms}") Duration delay,
+            @Value("${payment.providers.stripe.delay-jitter:0ms}") Duration delayJitter
+    ) {
+        super(providerScheduler, delay, delayJitter);
     }
 
     @Override
-    protected int getProcessingDelayMs() {
-        return 800;
+    public String getProviderKey() {
+        return "stripe";
     }
 
     @Override
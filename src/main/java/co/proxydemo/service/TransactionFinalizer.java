@@ -0,0 +1,188 @@
+package co.proxydemo.service;
+
+import co.proxydemo.dto.PaymentResponse;
+import co.proxydemo.dto.WebhookEvent;
+import co.proxydemo.entity.Transaction;
+import co.proxydemo.repository.TransactionRepository;
+import jakarta.transaction.Transactional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+@Service
+public class TransactionFinalizer {
+
+    private static final Logger logger = LoggerFactory.getLogger(TransactionFinalizer.class);
+
+    private static final String STATUS_SUCCESS = "SUCCESS";
+    private static final String STATUS_FAILED = "FAILED";
+    private static final String STATUS_PENDING = "PENDING";
+    private static final String STATUS_UNKNOWN = "UNKNOWN";
+    private static final String RECOVERED_FAILURE_MESSAGE = "Payment failed; outcome recovered from the payment journal";
+
+    private final TransactionRepository transactionRepository;
+    private final WebhookService webhookService;
+    private final PaymentMetrics paymentMetrics;
+    private final TransactionWriteListener transactionWriteListener;
+
+    @Autowired
+    public TransactionFinalizer(TransactionRepository transactionRepository, WebhookService webhookService,
+                                PaymentMetrics paymentMetrics, TransactionWriteListener transactionWriteListener) {
+        this.transactionRepository = transactionRepository;
+        this.webhookService = webhookService;
+        this.paymentMetrics = paymentMetrics;
+        this.transactionWriteListener = transactionWriteListener;
+    }
+
+    @Transactional
+    public boolean finalizeTransaction(Transaction pending, PaymentResponse response, String responseBody, WebhookEvent event) {
+        String status = response.isSuccess() ? STATUS_SUCCESS : STATUS_FAILED;
+        String errorMessage = response.isSuccess() ? null : response.getMessage();
+        int updated = paymentMetrics.observe(PaymentMetrics.Stage.SAVE_TRANSACTION, () -> transactionRepository.completePending(
+                pending.getId(), status, errorMessage, response.getTransactionId(), responseBody));
+        if (updated == 0) {
+            logger.error("Transaction {} was already final when finalized as {}", pending.getId(), status);
+            return false;
+        }
+        logger.debug("Transaction {} finalized as {}", pending.getId(), status);
+        transactionWriteListener.recordWrite(pending.getClient().getId());
+
+        paymentMetrics.observe(PaymentMetrics.Stage.SEND_WEBHOOK, () -> webhookService.sendWebhook(event, pending.getClient().getId()));
+        return true;
+    }
+
+    @Transactional
+    public boolean[] finalizeBatch(List<Transaction> pending, List<PaymentResponse> responses,
+                                   List<String> responseBodies, List<WebhookEvent> events) {
+        boolean[] finalized = new boolean[pending.size()];
+        if (pending.isEmpty()) {
+            return finalized;
+        }
+
+        Map<Long, Transaction> managed = new HashMap<>();
+        for (Transaction transaction : transactionRepository.findAllById(pending.stream().map(Transaction::getId).toList())) {
+            managed.put(transaction.getId(), transaction);
+        }
+
+        List<WebhookEvent> finalizedEvents = new ArrayList<>(pending.size());
+        for (int i = 0; i < pending.size(); i++) {
+            Transaction transaction = managed.get(pending.get(i).getId());
+            PaymentResponse response = responses.get(i);
+            if (transaction == null || !isOpen(transaction)) {
+                logger.error("Transaction {} was already final when finalized", pending.get(i).getId());
+                continue;
+            }
+            transaction.setStatus(response.isSuccess() ? STATUS_SUCCESS : STATUS_FAILED);
+            transaction.setErrorMessage(response.isSuccess() ? null : response.getMessage());
+            transaction.setProviderTransactionId(response.getTransactionId());
+            transaction.setResponseBody(responseBodies.get(i));
+            finalized[i] = true;
+            finalizedEvents.add(events.get(i));
+        }
+        logger.debug("Finalized {} of {} batch transaction(s)", finalizedEvents.size(), pending.size());
+
+        paymentMetrics.observe(PaymentMetrics.Stage.SEND_WEBHOOK,
+                () -> webhookService.sendWebhooks(finalizedEvents, pending.get(0).getClient().getId()));
+        return finalized;
+    }
+
+    /**
+     * Applies completions recorded by {@link TransactionWriteBehind} in one database transaction: one select, batched
+     * updates and one outbox insert batch per client. A completion whose row is already final is skipped, so replaying
+     * a completion is harmless. A row the reconciler marked UNKNOWN is still open and gets its real outcome.
+     */
+    @Transactional
+    public int applyCompletions(List<Completion> completions) {
+        Map<Long, Transaction> managed = new HashMap<>();
+        for (Transaction transaction : transactionRepository.findAllById(completions.stream().map(Completion::transactionId).toList())) {
+            managed.put(transaction.getId(), transaction);
+        }
+
+        Map<Long, List<WebhookEvent>> eventsByClient = new HashMap<>();
+        int applied = 0;
+        for (Completion completion : completions) {
+            Transaction transaction = managed.get(completion.transactionId());
+            if (transaction == null || !isOpen(transaction)) {
+                logger.warn("Skipping journaled completion of transaction {}: already final", completion.transactionId());
+                continue;
+            }
+            transaction.setStatus(completion.status());
+            transaction.setErrorMessage(completion.errorMessage());
+            transaction.setProviderTransactionId(completion.providerTransactionId());
+            transaction.setResponseBody(completion.responseBody());
+            eventsByClient.computeIfAbsent(completion.clientPk(), key -> new ArrayList<>()).add(completion.event());
+            applied++;
+        }
+
+        paymentMetrics.observe(PaymentMetrics.Stage.SEND_WEBHOOK,
+                () -> eventsByClient.forEach((clientPk, events) -> webhookService.sendWebhooks(events, clientPk)));
+        return applied;
+    }
+
+    /**
+     * Applies outcomes recorded by {@link PaymentJournal} to rows that are still PENDING or UNKNOWN, and queues their
+     * webhooks. The journal has no response body, so replays of a recovered row fall back to a rebuilt response. Nor
+     * does it have the request metadata or trace id, so the rebuilt webhook event carries no {@code productId},
+     * {@code description} or {@code traceId}. Rows already finalized are skipped.
+     */
+    @Transactional
+    public int applyJournalEntries(List<PaymentJournal.Entry> entries) {
+        Map<Long, Transaction> managed = new HashMap<>();
+        for (Transaction transaction : transactionRepository.findAllById(entries.stream().map(PaymentJournal.Entry::transactionId).toList())) {
+            managed.put(transaction.getId(), transaction);
+        }
+
+        Map<Long, List<WebhookEvent>> eventsByClient = new HashMap<>();
+        for (PaymentJournal.Entry entry : entries) {
+            Transaction transaction = managed.get(entry.transactionId());
+            if (transaction == null || !isOpen(transaction)) {
+                continue;
+            }
+            transaction.setStatus(entry.success() ? STATUS_SUCCESS : STATUS_FAILED);
+            transaction.setErrorMessage(entry.success() ? null : RECOVERED_FAILURE_MESSAGE);
+            transaction.setProviderTransactionId(entry.providerTransactionId());
+
+            WebhookEvent event = new WebhookEvent();
+            event.setEventId("evt_" + UUID.randomUUID());
+            event.setEventType(entry.success() ? "payment.success" : "payment.failed");
+            event.setTransactionId(entry.providerTransactionId());
+            event.setAmount(transaction.getAmount());
+            event.setTimestamp(LocalDateTime.ofInstant(Instant.ofEpochMilli(entry.recordedAtMillis()), ZoneId.systemDefault()));
+            eventsByClient.computeIfAbsent(entry.clientPk(), key -> new ArrayList<>()).add(event);
+        }
+
+        paymentMetrics.observe(PaymentMetrics.Stage.SEND_WEBHOOK,
+                () -> eventsByClient.forEach((clientPk, events) -> webhookService.sendWebhooks(events, clientPk)));
+        return eventsByClient.values().stream().mapToInt(List::size).sum();
+    }
+
+    private static boolean isOpen(Transaction transaction) {
+        return STATUS_PENDING.equals(transaction.getStatus()) || STATUS_UNKNOWN.equals(transaction.getStatus());
+    }
+
+    public static Completion completionOf(Transaction pending, PaymentResponse response, String responseBody, WebhookEvent event) {
+        return new Completion(
+                pending.getId(),
+                pending.getClient().getId(),
+                response.isSuccess() ? STATUS_SUCCESS : STATUS_FAILED,
+                response.isSuccess() ? null : response.getMessage(),
+                response.getTransactionId(),
+                responseBody,
+                event
+        );
+    }
+
+    public record Completion(long transactionId, long clientPk, String status, String errorMessage,
+                             String providerTransactionId, String responseBody, WebhookEvent event) {
+    }
+}
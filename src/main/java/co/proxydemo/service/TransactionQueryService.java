@@ -0,0 +1,200 @@
+package co.proxydemo.service;
+
+import co.proxydemo.dto.TransactionFilter;
+import co.proxydemo.dto.TransactionPage;
+import co.proxydemo.dto.TransactionSummary;
+import co.proxydemo.repository.TransactionSummaryRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+@Service
+public class TransactionQueryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TransactionQueryService.class);
+
+    private static final Comparator<TransactionSummary> KEYSET_ORDER = Comparator
+            .comparing(TransactionSummary::getCreatedAt, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(TransactionSummary::getId);
+
+    private final TransactionSummaryRepository transactionSummaryRepository;
+    private final ObjectMapper objectMapper;
+    private final ReplicaReadRouting replicaReadRouting;
+    private final ClientCredentialCache clientCredentialCache;
+    private final ShardRouter shardRouter;
+    private final int maxPageSize;
+    private final int flushEvery;
+    private final int mergeFetchSize;
+
+    @Autowired
+    public TransactionQueryService(
+            TransactionSummaryRepository transactionSummaryRepository,
+            ObjectMapper objectMapper,
+            ReplicaReadRouting replicaReadRouting,
+            ClientCredentialCache clientCredentialCache,
+            ShardRouter shardRouter,
+            @Value("${payment.export.max-page-size:1000}") int maxPageSize,
+            @Value("${payment.export.flush-every:500}") int flushEvery,
+            @Value("${payment.export.fetch-size:500}") int mergeFetchSize
+    ) {
+        this.transactionSummaryRepository = transactionSummaryRepository;
+        this.objectMapper = objectMapper;
+        this.replicaReadRouting = replicaReadRouting;
+        this.clientCredentialCache = clientCredentialCache;
+        this.shardRouter = shardRouter;
+        this.maxPageSize = maxPageSize;
+        this.flushEvery = flushEvery;
+        this.mergeFetchSize = mergeFetchSize;
+    }
+
+    public TransactionPage findPage(TransactionFilter filter, LocalDateTime afterCreatedAt, Long afterId, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, maxPageSize));
+        List<TransactionSummary> rows = isSingleShard(filter)
+                ? onFilteredShard(filter, () -> replicaReadRouting.read(clientPk(filter),
+                        () -> transactionSummaryRepository.findPage(filter, afterCreatedAt, afterId, pageSize + 1)))
+                : gatherPage(filter, afterCreatedAt, afterId, pageSize + 1);
+        boolean hasMore = rows.size() > pageSize;
+        return TransactionPage.of(hasMore ? rows.subList(0, pageSize) : rows, hasMore);
+    }
+
+    public void exportNdjson(TransactionFilter filter, OutputStream out) throws IOException {
+        long started = System.nanoTime();
+        long[] written = {0};
+        try (JsonGenerator generator = objectMapper.createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            try (SequenceWriter writer = objectMapper.writerFor(TransactionSummary.class)
+                    .withRootValueSeparator("\n")
+                    .writeValues(generator)) {
+                Consumer<TransactionSummary> sink = summary -> {
+                    try {
+                        writer.write(summary);
+                        if (++written[0] % flushEvery == 0) {
+                            writer.flush();
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                };
+                if (isSingleShard(filter)) {
+                    onFilteredShard(filter, () -> replicaReadRouting.read(clientPk(filter), () -> {
+                        transactionSummaryRepository.streamAll(filter, sink);
+                        return null;
+                    }));
+                } else {
+                    streamMerged(filter, sink);
+                }
+            }
+            if (written[0] > 0) {
+                out.write('\n');
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        logger.info("Exported {} transaction(s) in {} ms", written[0], (System.nanoTime() - started) / 1_000_000);
+    }
+
+    /**
+     * A client's transactions all live on its shard, so only unfiltered listings need every shard.
+     */
+    private boolean isSingleShard(TransactionFilter filter) {
+        return shardRouter.shardCount() == 1 || filter.getClientId() != null;
+    }
+
+    private <T> T onFilteredShard(TransactionFilter filter, Supplier<T> query) {
+        int shard = filter.getClientId() != null ? shardRouter.shardOf(filter.getClientId()) : ShardRouter.HOME_SHARD;
+        return shardRouter.onShard(shard, query);
+    }
+
+    /**
+     * Asks every shard for the first {@code limit} rows after the keyset and keeps the first {@code limit} overall:
+     * no row of the merged page can be missing from its own shard's page.
+     */
+    private List<TransactionSummary> gatherPage(TransactionFilter filter, LocalDateTime afterCreatedAt, Long afterId, int limit) {
+        List<TransactionSummary> rows = new ArrayList<>();
+        shardRouter.scatter(shard -> transactionSummaryRepository.findPage(filter, afterCreatedAt, afterId, limit))
+                .forEach(rows::addAll);
+        rows.sort(KEYSET_ORDER);
+        return rows.size() > limit ? rows.subList(0, limit) : rows;
+    }
+
+    /**
+     * Streams every shard in keyset order by merging per-shard keyset pages of {@code mergeFetchSize} rows, so at most
+     * one page per shard is held in memory.
+     */
+    private void streamMerged(TransactionFilter filter, Consumer<TransactionSummary> sink) {
+        List<List<TransactionSummary>> firstPages =
+                shardRouter.scatter(shard -> transactionSummaryRepository.findPage(filter, null, null, mergeFetchSize));
+        PriorityQueue<ShardCursor> cursors = new PriorityQueue<>(Comparator.comparing(ShardCursor::head, KEYSET_ORDER));
+        for (int shard = 0; shard < firstPages.size(); shard++) {
+            if (!firstPages.get(shard).isEmpty()) {
+                cursors.add(new ShardCursor(filter, shard, firstPages.get(shard)));
+            }
+        }
+        while (!cursors.isEmpty()) {
+            ShardCursor cursor = cursors.poll();
+            sink.accept(cursor.head());
+            if (cursor.advance()) {
+                cursors.add(cursor);
+            }
+        }
+    }
+
+    /**
+     * Reads filtered by client follow that client's read-your-writes window; unfiltered listings always use the
+     * replica.
+     */
+    private Long clientPk(TransactionFilter filter) {
+        if (!replicaReadRouting.isEnabled() || filter.getClientId() == null) {
+            return null;
+        }
+        return clientCredentialCache.findClientPk(filter.getClientId()).orElse(null);
+    }
+
+    private final class ShardCursor {
+
+        private final TransactionFilter filter;
+        private final int shard;
+        private List<TransactionSummary> page;
+        private int position;
+
+        private ShardCursor(TransactionFilter filter, int shard, List<TransactionSummary> page) {
+            this.filter = filter;
+            this.shard = shard;
+            this.page = page;
+        }
+
+        TransactionSummary head() {
+            return page.get(position);
+        }
+
+        boolean advance() {
+            if (++position < page.size()) {
+                return true;
+            }
+            TransactionSummary last = page.get(page.size() - 1);
+            if (page.size() < mergeFetchSize || last.getCreatedAt() == null) {
+                return false;
+            }
+            page = shardRouter.onShard(shard,
+                    () -> transactionSummaryRepository.findPage(filter, last.getCreatedAt(), last.getId(), mergeFetchSize));
+            position = 0;
+            return !page.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package co.proxydemo.service;
+
+import co.proxydemo.dto.PaymentResponse;
+import co.proxydemo.dto.WebhookEvent;
+import co.proxydemo.entity.Transaction;
+import co.proxydemo.util.AppendOnlyJournal;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Optional write-behind for finalizing payments. A completion is appended to a local journal and fsynced (concurrent
+ * payments share one fsync) before the client is answered; a single writer then applies queued completions to the
+ * database in batches of up to {@code batch-size}, or whatever arrived within {@code flush-interval}. Completions
+ * still in the journal at startup are applied before the application starts serving.
+ * <p>
+ * The PENDING reservation stays synchronous, since it is what makes idempotency keys unique. Until a completion is
+ * applied its row reads as PENDING, so {@link PendingTransactionReconciler} skips the ids in
+ * {@link #isQueued(long)}.
+ */
+@Component
+public class TransactionWriteBehind {
+
+    private static final Logger logger = LoggerFactory.getLogger(TransactionWriteBehind.class);
+
+    private final TransactionFinalizer transactionFinalizer;
+    private final ShardRouter shardRouter;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final Path journalPath;
+    private final DataSize journalSegmentSize;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final Duration retryBackoff;
+    private final Duration shutdownTimeout;
+    private final BlockingQueue<Queued> queue;
+    private final Set<Long> queuedTransactionIds = ConcurrentHashMap.newKeySet();
+
+    private AppendOnlyJournal journal;
+    private DistributionSummary batchSizes;
+    private Thread writer;
+    private volatile boolean running;
+
+    @Autowired
+    public TransactionWriteBehind(
+            TransactionFinalizer transactionFinalizer,
+            ShardRouter shardRouter,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${payment.write-behind.enabled:false}") boolean enabled,
+            @Value("${payment.write-behind.journal.path:data/transaction-journal.log}") Path journalPath,
+            @Value("${payment.write-behind.journal.segment-size:64MB}") DataSize journalSegmentSize,
+            @Value("${payment.write-behind.queue-capacity:10000}") int queueCapacity,
+            @Value("${payment.write-behind.batch-size:200}") int batchSize,
+            @Value("${payment.write-behind.flush-interval:20ms}") Duration flushInterval,
+            @Value("${payment.write-behind.retry-backoff:1s}") Duration retryBackoff,
+            @Value("${payment.write-behind.shutdown-timeout:30s}") Duration shutdownTimeout
+    ) {
+        this.transactionFinalizer = transactionFinalizer;
+        this.shardRouter = shardRouter;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.journalPath = journalPath;
+        this.journalSegmentSize = journalSegmentSize;
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.retryBackoff = retryBackoff;
+        this.shutdownTimeout = shutdownTimeout;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        journal = new AppendOnlyJournal(journalPath, journalSegmentSize.toBytes());
+        replay();
+
+        Gauge.builder("transaction.write_behind.queued", queue, BlockingQueue::size)
+                .register(meterRegistry);
+        Gauge.builder("transaction.write_behind.journal.bytes", journal, AppendOnlyJournal::sizeBytes)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("transaction.write_behind.journal.segments", journal, AppendOnlyJournal::segmentCount)
+                .register(meterRegistry);
+        batchSizes = DistributionSummary.builder("transaction.write_behind.batch.size")
+                .register(meterRegistry);
+
+        running = true;
+        writer = Thread.ofPlatform().name("transaction-writer").start(this::runWriter);
+        logger.info("Transaction write-behind enabled, journal at {}", journalPath.toAbsolutePath());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Makes the completion durable in the journal and queues it for the writer. Returns once the client can be
+     * answered. If the journal cannot be written, or the caller is interrupted while waiting for room in the queue,
+     * the transaction is finalized synchronously instead.
+     */
+    public boolean submit(Transaction pending, PaymentResponse response, String responseBody, WebhookEvent event) {
+        TransactionFinalizer.Completion completion = TransactionFinalizer.completionOf(pending, response, responseBody, event);
+        long seq = 0;
+        try {
+            seq = journal.append(objectMapper.writeValueAsBytes(completion));
+            journal.sync(seq);
+        } catch (IOException e) {
+            logger.error("Could not journal transaction {}; finalizing it synchronously", pending.getId(), e);
+            if (seq > 0) {
+                journal.release(seq);
+            }
+            return transactionFinalizer.finalizeTransaction(pending, response, responseBody, event);
+        }
+        queuedTransactionIds.add(completion.transactionId());
+        try {
+            queue.put(new Queued(completion, seq));
+            return true;
+        } catch (InterruptedException e) {
+            logger.warn("Interrupted while queueing transaction {}; finalizing it synchronously", pending.getId());
+            try {
+                return transactionFinalizer.finalizeTransaction(pending, response, responseBody, event);
+            } finally {
+                queuedTransactionIds.remove(completion.transactionId());
+                journal.release(seq);
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Whether a completion for the transaction is journaled but not yet applied.
+     */
+    public boolean isQueued(long transactionId) {
+        return queuedTransactionIds.contains(transactionId);
+    }
+
+    private void replay() throws IOException {
+        List<AppendOnlyJournal.Record> records = journal.recover();
+        if (records.isEmpty()) {
+            return;
+        }
+        List<Queued> completions = new ArrayList<>(records.size());
+        for (AppendOnlyJournal.Record record : records) {
+            try {
+                completions.add(new Queued(objectMapper.readValue(record.payload(), TransactionFinalizer.Completion.class), record.seq()));
+            } catch (IOException e) {
+                logger.error("Skipping unreadable journal record of {} bytes", record.payload().length, e);
+                journal.release(record.seq());
+            }
+        }
+        int applied = 0;
+        for (int from = 0; from < completions.size(); from += batchSize) {
+            List<Queued> batch = completions.subList(from, Math.min(from + batchSize, completions.size()));
+            applied += apply(batch);
+            batch.forEach(queued -> journal.release(queued.journalSeq()));
+        }
+        logger.info("Replayed {} journaled completion(s), {} applied", completions.size(), applied);
+    }
+
+    private void runWriter() {
+        List<Queued> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Queued first = queue.poll(flushIntervalNanos, TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + flushIntervalNanos;
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+                    Queued next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                flush(batch);
+                batch.clear();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void flush(List<Queued> batch) throws InterruptedException {
+        while (true) {
+            try {
+                apply(batch);
+                for (Queued queued : batch) {
+                    journal.release(queued.journalSeq());
+                    queuedTransactionIds.remove(queued.completion().transactionId());
+                }
+                batchSizes.record(batch.size());
+                return;
+            } catch (RuntimeException e) {
+                if (!running) {
+                    logger.error("Could not apply {} completion(s) during shutdown; they stay in the journal", batch.size(), e);
+                    return;
+                }
+                logger.error("Could not apply {} completion(s); retrying in {}", batch.size(), retryBackoff, e);
+                Thread.sleep(retryBackoff.toMillis());
+            }
+        }
+    }
+
+    /**
+     * Applies the batch one shard at a time. A retry after a partial failure re-applies the shards that succeeded,
+     * which skips their rows as no longer PENDING.
+     */
+    private int apply(List<Queued> batch) {
+        int applied = 0;
+        List<TransactionFinalizer.Completion> completions = batch.stream().map(Queued::completion).toList();
+        Map<Integer, List<TransactionFinalizer.Completion>> byShard = shardRouter.groupByShard(completions, TransactionFinalizer.Completion::clientPk);
+        for (Map.Entry<Integer, List<TransactionFinalizer.Completion>> group : byShard.entrySet()) {
+            applied += shardRouter.onShard(group.getKey(), () -> transactionFinalizer.applyCompletions(group.getValue()));
+        }
+        return applied;
+    }
+
+    @PreDestroy
+    public void stop() throws IOException, InterruptedException {
+        if (writer == null) {
+            return;
+        }
+        running = false;
+        if (!writer.join(shutdownTimeout)) {
+            logger.warn("Transaction writer did not drain within {}; {} completion(s) stay in the journal",
+                    shutdownTimeout, queue.size());
+            writer.interrupt();
+        }
+        journal.close();
+    }
+
+    /**
+     * A journaled completion and the journal sequence number to release once it is applied.
+     */
+    private record Queued(TransactionFinalizer.Completion completion, long journalSeq) {
+    }
+}
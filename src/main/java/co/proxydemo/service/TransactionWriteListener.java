@@ -0,0 +1,45 @@
+package co.proxydemo.service;
+
+import co.proxydemo.entity.Transaction;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+@Component
+public class TransactionWriteListener {
+
+    private final ReplicaReadRouting replicaReadRouting;
+
+    @Autowired
+    public TransactionWriteListener(ReplicaReadRouting replicaReadRouting) {
+        this.replicaReadRouting = replicaReadRouting;
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void onTransactionWritten(Transaction transaction) {
+        if (!replicaReadRouting.isEnabled() || transaction.getClient() == null) {
+            return;
+        }
+        recordWrite(transaction.getClient().getId());
+    }
+
+    /**
+     * Starts the client's read-your-writes window now and again once the surrounding transaction commits, so the
+     * window is measured from the moment the write becomes visible.
+     */
+    public void recordWrite(Long clientPk) {
+        replicaReadRouting.recordWrite(clientPk);
+        if (replicaReadRouting.isEnabled() && TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    replicaReadRouting.recordWrite(clientPk);
+                }
+            });
+        }
+    }
+}
@@ -2,22 +2,29 @@ package co.proxydemo.service;
 
 import co.proxydemo.dto.PaymentRequest;
 import co.proxydemo.dto.PaymentResponse;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.UUID;
+import java.util.concurrent.ScheduledExecutorService;
 
 @Service
 public class VisaPaymentService extends AbstractCardPaymentService {
 
-    @Override
-    public String getProviderKey() {
-        return "visa";
+    public VisaPaymentService(
+            @Qualifier("providerScheduler") ScheduledExecutorService providerScheduler,
+            @Value("${payment.providers.visa.delay:600ms}") Duration delay,
+            @Value("${payment.providers.visa.delay-jitter:0ms}") Duration delayJitter
+    ) {
+        super(providerScheduler, delay, delayJitter);
     }
 
     @Override
-    protected int getProcessingDelayMs() {
-        return 600;
+    public String getProviderKey() {
+        return "visa";
     }
 
     @Override
@@ -27,16 +34,16 @@ public class VisaPaymentService extends AbstractCardPaymentService {
         if ("4111111111111111".equals(cardNumber)) {
             return new PaymentResponse(false, null, "Your card was declined", ERROR_CARD_DECLINED, LocalDateTime.now());
         }
-        if ("4111111111111112".equals(cardNumber)) {
+        if ("4111111111111129".equals(cardNumber)) {
             return new PaymentResponse(false, null, "Your card has expired", ERROR_EXPIRED_CARD, LocalDateTime.now());
         }
-        if ("4111111111111113".equals(cardNumber)) {
+        if ("4111111111111137".equals(cardNumber)) {
             return new PaymentResponse(false, null, "Your card's security code is incorrect", ERROR_INCORRECT_CVC, LocalDateTime.now());
         }
-        if ("4111111111111114".equals(cardNumber)) {
+        if ("4111111111111145".equals(cardNumber)) {
             return new PaymentResponse(false, null, "An error occurred while processing your card", ERROR_PROCESSING_ERROR, LocalDateTime.now());
         }
-        if ("4111111111111115".equals(cardNumber)) {
+        if ("4111111111111152".equals(cardNumber)) {
             return new PaymentResponse(false, null, "Your card has insufficient funds", ERROR_INSUFFICIENT_FUNDS, LocalDateTime.now());
         }
 
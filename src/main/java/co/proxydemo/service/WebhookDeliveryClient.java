@@ -0,0 +1,75 @@
+package co.proxydemo.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+@Component
+public class WebhookDeliveryClient {
+
+    private final HttpClient httpClient;
+    private final Duration requestTimeout;
+
+    @Autowired
+    public WebhookDeliveryClient(
+            @Value("${payment.webhooks.delivery.connect-timeout:2s}") Duration connectTimeout,
+            @Value("${payment.webhooks.delivery.request-timeout:5s}") Duration requestTimeout
+    ) {
+        this(HttpClient.newBuilder()
+                .connectTimeout(connectTimeout)
+                .version(HttpClient.Version.HTTP_1_1)
+                .build(), requestTimeout);
+    }
+
+    WebhookDeliveryClient(HttpClient httpClient, Duration requestTimeout) {
+        this.httpClient = httpClient;
+        this.requestTimeout = requestTimeout;
+    }
+
+    public CompletableFuture<DeliveryResult> deliver(String url, String eventId, int attempt, String payload) {
+        HttpRequest request;
+        try {
+            request = HttpRequest.newBuilder(URI.create(url))
+                    .timeout(requestTimeout)
+                    .header("Content-Type", "application/json")
+                    .header("X-Webhook-Event-Id", eventId)
+                    .header("X-Webhook-Attempt", Integer.toString(attempt))
+                    .POST(HttpRequest.BodyPublishers.ofString(payload == null ? "" : payload))
+                    .build();
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(DeliveryResult.failed(null, "Invalid webhook URL: " + url));
+        }
+
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .handle((response, error) -> {
+                    if (error != null) {
+                        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                        return DeliveryResult.failed(null, cause.getClass().getSimpleName() + ": " + cause.getMessage());
+                    }
+                    int statusCode = response.statusCode();
+                    if (statusCode >= 200 && statusCode < 300) {
+                        return DeliveryResult.delivered(statusCode);
+                    }
+                    return DeliveryResult.failed(statusCode, "HTTP " + statusCode);
+                });
+    }
+
+    public record DeliveryResult(boolean success, Integer statusCode, String error) {
+
+        static DeliveryResult delivered(int statusCode) {
+            return new DeliveryResult(true, statusCode, null);
+        }
+
+        static DeliveryResult failed(Integer statusCode, String error) {
+            return new DeliveryResult(false, statusCode, error);
+        }
+    }
+}
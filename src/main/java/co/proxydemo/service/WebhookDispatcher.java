@@ -0,0 +1,244 @@
+package co.proxydemo.service;
+
+import co.proxydemo.entity.WebhookEvent;
+import co.proxydemo.repository.WebhookEventRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component
+@ConditionalOnProperty(name = "payment.webhooks.dispatcher.enabled", havingValue = "true", matchIfMissing = true)
+public class WebhookDispatcher implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(WebhookDispatcher.class);
+
+    private static final String STATUS_PENDING = "PENDING";
+    private static final String STATUS_SENDING = "SENDING";
+    private static final String STATUS_FAILED = "FAILED";
+
+    private static final int MAX_ERROR_LENGTH = 255;
+
+    private final WebhookEventRepository webhookEventRepository;
+    private final WebhookDeliveryClient deliveryClient;
+    private final WebhookRetryPolicy retryPolicy;
+    private final TransactionTemplate transactionTemplate;
+    private final ShardRouter shardRouter;
+    private final int workers;
+    private final int batchSize;
+    private final int maxInFlight;
+    private final Duration pollInterval;
+    private final Duration lease;
+    private final Duration backlogRefresh;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong dueBacklog = new AtomicLong();
+    private volatile ScheduledExecutorService workerPool;
+
+    @Autowired
+    public WebhookDispatcher(
+            WebhookEventRepository webhookEventRepository,
+            WebhookDeliveryClient deliveryClient,
+            WebhookRetryPolicy retryPolicy,
+            TransactionTemplate transactionTemplate,
+            ShardRouter shardRouter,
+            MeterRegistry meterRegistry,
+            @Value("${payment.webhooks.dispatcher.workers:2}") int workers,
+            @Value("${payment.webhooks.dispatcher.batch-size:50}") int batchSize,
+            @Value("${payment.webhooks.dispatcher.max-in-flight:500}") int maxInFlight,
+            @Value("${payment.webhooks.dispatcher.poll-interval:500ms}") Duration pollInterval,
+            @Value("${payment.webhooks.dispatcher.lease:1m}") Duration lease,
+            @Value("${payment.webhooks.dispatcher.backlog-refresh:10s}") Duration backlogRefresh
+    ) {
+        this.webhookEventRepository = webhookEventRepository;
+        this.deliveryClient = deliveryClient;
+        this.retryPolicy = retryPolicy;
+        this.transactionTemplate = transactionTemplate;
+        this.shardRouter = shardRouter;
+        this.workers = workers;
+        this.batchSize = batchSize;
+        this.maxInFlight = maxInFlight;
+        this.pollInterval = pollInterval;
+        this.lease = lease;
+        this.backlogRefresh = backlogRefresh;
+        Gauge.builder("webhook.dispatcher.in_flight", inFlight, AtomicInteger::get)
+                .register(meterRegistry);
+        Gauge.builder("webhook.outbox.due", dueBacklog, AtomicLong::get)
+                .description("Undelivered webhook events that are due, refreshed every backlog-refresh")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void start() {
+        ScheduledExecutorService pool = Executors.newScheduledThreadPool(workers, new CustomizableThreadFactory("webhook-dispatcher-"));
+        long intervalMs = pollInterval.toMillis();
+        for (int i = 0; i < workers; i++) {
+            pool.scheduleWithFixedDelay(this::dispatchBatch, intervalMs * i / workers, intervalMs, TimeUnit.MILLISECONDS);
+        }
+        pool.scheduleWithFixedDelay(this::refreshBacklog, 0, backlogRefresh.toMillis(), TimeUnit.MILLISECONDS);
+        workerPool = pool;
+        logger.info("Webhook dispatcher started with {} worker(s)", workers);
+    }
+
+    @Override
+    public void stop() {
+        ScheduledExecutorService pool = workerPool;
+        workerPool = null;
+        if (pool == null) {
+            return;
+        }
+        pool.shutdown();
+        try {
+            if (!pool.awaitTermination(10, TimeUnit.SECONDS)) {
+                pool.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            pool.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return workerPool != null;
+    }
+
+    void dispatchBatch() {
+        ScheduledExecutorService pool = workerPool;
+        if (pool == null) {
+            return;
+        }
+        try {
+            for (int shard = 0; shard < shardRouter.shardCount(); shard++) {
+                int capacity = Math.min(batchSize, maxInFlight - inFlight.get());
+                if (capacity <= 0) {
+                    return;
+                }
+                int target = shard;
+                for (ClaimedDelivery delivery : shardRouter.onShard(shard, () -> claimBatch(target, capacity))) {
+                    inFlight.incrementAndGet();
+                    deliveryClient.deliver(delivery.url(), delivery.eventId(), delivery.attempt(), delivery.payload())
+                            .thenAcceptAsync(result -> shardRouter.onShard(delivery.shard(), () -> recordResult(delivery, result)), pool)
+                            .whenComplete((ignored, error) -> {
+                                inFlight.decrementAndGet();
+                                if (error != null) {
+                                    logger.error("Failed to record webhook delivery result for event {}", delivery.eventId(), error);
+                                }
+                            });
+                }
+            }
+        } catch (Exception e) {
+            logger.error("Webhook dispatch cycle failed", e);
+        }
+    }
+
+    private void refreshBacklog() {
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            long due = 0;
+            for (int shard = 0; shard < shardRouter.shardCount(); shard++) {
+                due += shardRouter.onShard(shard, () -> webhookEventRepository.countDue(now));
+            }
+            dueBacklog.set(due);
+        } catch (Exception e) {
+            logger.warn("Could not refresh the webhook outbox backlog", e);
+        }
+    }
+
+    private List<ClaimedDelivery> claimBatch(int shard, int limit) {
+        List<ClaimedDelivery> claimed = transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<Long> ids = webhookEventRepository.lockDueEventIds(now, limit);
+            if (ids.isEmpty()) {
+                return List.of();
+            }
+
+            // Truncated to the column's precision: the lease expiry is compared when the result is recorded.
+            LocalDateTime leaseExpiry = now.plus(lease).truncatedTo(ChronoUnit.MICROS);
+            List<ClaimedDelivery> deliveries = new ArrayList<>(ids.size());
+            for (WebhookEvent event : webhookEventRepository.findWithSubscriptionByIdIn(ids)) {
+                event.setStatus(STATUS_SENDING);
+                event.setNextAttemptAt(leaseExpiry);
+                deliveries.add(new ClaimedDelivery(
+                        shard,
+                        event.getId(),
+                        event.getEventId(),
+                        event.getClientWebhook().getUrl(),
+                        event.getPayload(),
+                        event.getAttempts() + 1,
+                        leaseExpiry
+                ));
+            }
+            return deliveries;
+        });
+        return claimed != null ? claimed : List.of();
+    }
+
+    /**
+     * Writes the result only while the claim's lease still holds. A delivery that outlived its lease may already have
+     * been claimed again; its result is dropped so it cannot overwrite the newer attempt.
+     */
+    private void recordResult(ClaimedDelivery delivery, WebhookDeliveryClient.DeliveryResult result) {
+        String responseCode = result.statusCode() != null ? result.statusCode().toString() : null;
+        String error = truncate(result.error());
+        if (result.success()) {
+            if (webhookEventRepository.markSent(delivery.id(), delivery.leaseExpiry(), responseCode, LocalDateTime.now()) == 0) {
+                leaseLost(delivery, "delivered");
+                return;
+            }
+            logger.debug("Webhook {} delivered (HTTP {})", delivery.eventId(), responseCode);
+            return;
+        }
+
+        if (retryPolicy.isExhausted(delivery.attempt())) {
+            if (webhookEventRepository.markAttemptFailed(delivery.id(), delivery.leaseExpiry(), STATUS_FAILED, responseCode, error, null) == 0) {
+                leaseLost(delivery, "failed");
+                return;
+            }
+            logger.warn("Webhook {} failed permanently after {} attempt(s): {}", delivery.eventId(), delivery.attempt(), error);
+            return;
+        }
+
+        Duration delay = retryPolicy.delayBeforeRetry(delivery.attempt());
+        if (webhookEventRepository.markAttemptFailed(delivery.id(), delivery.leaseExpiry(), STATUS_PENDING, responseCode, error,
+                LocalDateTime.now().plus(delay)) == 0) {
+            leaseLost(delivery, "failed");
+            return;
+        }
+        logger.info("Webhook {} attempt {} failed ({}); retrying in {} ms", delivery.eventId(), delivery.attempt(), error, delay.toMillis());
+    }
+
+    private void leaseLost(ClaimedDelivery delivery, String outcome) {
+        logger.warn("Webhook {} attempt {} {} after its lease expired; not recording it", delivery.eventId(),
+                delivery.attempt(), outcome);
+    }
+
+    private String truncate(String error) {
+        if (error == null || error.length() <= MAX_ERROR_LENGTH) {
+            return error;
+        }
+        return error.substring(0, MAX_ERROR_LENGTH);
+    }
+
+    private record ClaimedDelivery(int shard, Long id, String eventId, String url, String payload, int attempt,
+                                   LocalDateTime leaseExpiry) {
+    }
+}
@@ -0,0 +1,40 @@
+package co.proxydemo.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+@Component
+public class WebhookRetryPolicy {
+
+    private static final int MAX_SHIFT = 20;
+
+    private final int maxAttempts;
+    private final long baseDelayMs;
+    private final long maxDelayMs;
+
+    @Autowired
+    public WebhookRetryPolicy(
+            @Value("${payment.webhooks.retry.max-attempts:8}") int maxAttempts,
+            @Value("${payment.webhooks.retry.base-delay:1s}") Duration baseDelay,
+            @Value("${payment.webhooks.retry.max-delay:10m}") Duration maxDelay
+    ) {
+        this.maxAttempts = maxAttempts;
+        this.baseDelayMs = baseDelay.toMillis();
+        this.maxDelayMs = maxDelay.toMillis();
+    }
+
+    public boolean isExhausted(int attempt) {
+        return attempt >= maxAttempts;
+    }
+
+    public Duration delayBeforeRetry(int attempt) {
+        int shift = Math.min(Math.max(attempt - 1, 0), MAX_SHIFT);
+        long ceiling = Math.min(baseDelayMs << shift, maxDelayMs);
+        long half = ceiling / 2;
+        return Duration.ofMillis(half + ThreadLocalRandom.current().nextLong(ceiling - half + 1));
+    }
+}
@@ -1,31 +1,101 @@
 package co.proxydemo.service;
 
 import co.proxydemo.dto.WebhookEvent;
+import co.proxydemo.entity.Client;
+import co.proxydemo.entity.ClientWebhook;
+import co.proxydemo.repository.ClientRepository;
+import co.proxydemo.repository.ClientWebhookRepository;
+import co.proxydemo.repository.WebhookEventRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.transaction.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 public class WebhookService {
 
     private static final Logger logger = LoggerFactory.getLogger(WebhookService.class);
 
-    private final List<WebhookEvent> eventQueue = new ArrayList<>();
+    private final ClientRepository clientRepository;
+    private final ClientWebhookRepository clientWebhookRepository;
+    private final WebhookEventRepository webhookEventRepository;
+    private final ObjectMapper objectMapper;
 
-    public void sendWebhook(WebhookEvent event) {
-        logger.info("Sending webhook: {} (Event ID: {})", event.getEventType(), event.getEventId());
-        logger.debug(
-                "Webhook details - Transaction: {}, Product: {}",
-                event.getTransactionId(),
-                event.getProductId() != null ? event.getProductId() + " - " + event.getDescription() : "N/A"
-        );
-        eventQueue.add(event);
+    @Autowired
+    public WebhookService(
+            ClientRepository clientRepository,
+            ClientWebhookRepository clientWebhookRepository,
+            WebhookEventRepository webhookEventRepository,
+            ObjectMapper objectMapper
+    ) {
+        this.clientRepository = clientRepository;
+        this.clientWebhookRepository = clientWebhookRepository;
+        this.webhookEventRepository = webhookEventRepository;
+        this.objectMapper = objectMapper;
     }
 
-    public List<WebhookEvent> getEvents() {
-        return new ArrayList<>(eventQueue);
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void sendWebhook(WebhookEvent event, Long clientPk) {
+        sendWebhooks(List.of(event), clientPk);
+    }
+
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void sendWebhooks(List<WebhookEvent> events, Long clientPk) {
+        if (events.isEmpty()) {
+            return;
+        }
+
+        Map<String, List<ClientWebhook>> subscriptionsByType = new HashMap<>();
+        List<co.proxydemo.entity.WebhookEvent> outbox = new ArrayList<>();
+        Client client = clientRepository.getReferenceById(clientPk);
+        for (WebhookEvent event : events) {
+            logger.info("Sending webhook: {} (Event ID: {})", event.getEventType(), event.getEventId());
+            logger.debug(
+                    "Webhook details - Transaction: {}, Product: {}",
+                    event.getTransactionId(),
+                    event.getProductId() != null ? event.getProductId() + " - " + event.getDescription() : "N/A"
+            );
+
+            List<ClientWebhook> subscriptions = subscriptionsByType.computeIfAbsent(
+                    event.getEventType(), type -> clientWebhookRepository.findActiveSubscriptions(clientPk, type));
+            if (subscriptions.isEmpty()) {
+                logger.debug("No active webhook subscriptions for event type {}", event.getEventType());
+                continue;
+            }
+
+            String payload = toPayload(event);
+            for (ClientWebhook subscription : subscriptions) {
+                co.proxydemo.entity.WebhookEvent entity = new co.proxydemo.entity.WebhookEvent();
+                entity.setEventId(event.getEventId() + ":" + subscription.getId());
+                entity.setClient(client);
+                entity.setClientWebhook(subscription);
+                entity.setEventType(event.getEventType());
+                entity.setTransactionId(event.getTransactionId());
+                entity.setAmount(event.getAmount());
+                entity.setPayload(payload);
+                outbox.add(entity);
+            }
+        }
+
+        if (!outbox.isEmpty()) {
+            webhookEventRepository.saveAll(outbox);
+            logger.debug("Queued {} webhook delivery(ies) for {} event(s)", outbox.size(), events.size());
+        }
+    }
+
+    private String toPayload(WebhookEvent event) {
+        try {
+            return objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize webhook event " + event.getEventId(), e);
+        }
     }
 }
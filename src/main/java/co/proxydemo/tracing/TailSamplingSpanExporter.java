@@ -0,0 +1,131 @@
+package co.proxydemo.tracing;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Tail sampling in front of another exporter. The spans of a trace are buffered until its local root span ends, and
+ * then the whole trace is kept or dropped. A trace is always kept if any span failed or the payment failed, or if the
+ * root took at least {@code slowThreshold}. Other traces are kept with probability {@code sampleRatio}. Spans that end
+ * after the decision follow it.
+ * <p>
+ * A trace whose root never arrives within {@code maxTraceAge} is flushed if it contains a failure and dropped
+ * otherwise.
+ */
+public final class TailSamplingSpanExporter implements SpanExporter {
+
+    private static final Logger logger = LoggerFactory.getLogger(TailSamplingSpanExporter.class);
+
+    static final AttributeKey<String> PAYMENT_OUTCOME = AttributeKey.stringKey("payment.outcome");
+    private static final String FAILURE = "failure";
+
+    private final SpanExporter delegate;
+    private final long slowThresholdNanos;
+    private final double sampleRatio;
+    private final Cache<String, List<SpanData>> pending;
+    private final Cache<String, Boolean> decisions;
+
+    public TailSamplingSpanExporter(SpanExporter delegate, Duration slowThreshold, double sampleRatio,
+                                    Duration maxTraceAge, long maxPendingTraces) {
+        this.delegate = delegate;
+        this.slowThresholdNanos = slowThreshold.toNanos();
+        this.sampleRatio = sampleRatio;
+        this.pending = Caffeine.newBuilder()
+                .expireAfterWrite(maxTraceAge)
+                .maximumSize(maxPendingTraces)
+                .<String, List<SpanData>>evictionListener((traceId, spans, cause) -> flushOrphan(traceId, spans, cause))
+                .build();
+        this.decisions = Caffeine.newBuilder()
+                .expireAfterWrite(maxTraceAge)
+                .maximumSize(maxPendingTraces)
+                .build();
+    }
+
+    @Override
+    public CompletableResultCode export(Collection<SpanData> spans) {
+        List<SpanData> kept = new ArrayList<>();
+        for (SpanData span : spans) {
+            String traceId = span.getTraceId();
+            Boolean decision = decisions.getIfPresent(traceId);
+            if (decision != null) {
+                if (decision) {
+                    kept.add(span);
+                }
+                continue;
+            }
+            if (!isLocalRoot(span)) {
+                pending.asMap().compute(traceId, (key, buffered) -> {
+                    List<SpanData> trace = buffered != null ? buffered : new ArrayList<>();
+                    trace.add(span);
+                    return trace;
+                });
+                continue;
+            }
+
+            List<SpanData> trace = new ArrayList<>();
+            List<SpanData> buffered = pending.asMap().remove(traceId);
+            if (buffered != null) {
+                trace.addAll(buffered);
+            }
+            trace.add(span);
+            boolean keep = shouldKeep(span, trace);
+            decisions.put(traceId, keep);
+            if (keep) {
+                kept.addAll(trace);
+            }
+        }
+        return kept.isEmpty() ? CompletableResultCode.ofSuccess() : delegate.export(kept);
+    }
+
+    @Override
+    public CompletableResultCode flush() {
+        return delegate.flush();
+    }
+
+    @Override
+    public CompletableResultCode shutdown() {
+        pending.invalidateAll();
+        return delegate.shutdown();
+    }
+
+    private boolean shouldKeep(SpanData root, List<SpanData> trace) {
+        if (trace.stream().anyMatch(TailSamplingSpanExporter::isFailure)) {
+            return true;
+        }
+        if (root.getEndEpochNanos() - root.getStartEpochNanos() >= slowThresholdNanos) {
+            return true;
+        }
+        return ThreadLocalRandom.current().nextDouble() < sampleRatio;
+    }
+
+    private void flushOrphan(String traceId, List<SpanData> spans, RemovalCause cause) {
+        if (spans == null || spans.stream().noneMatch(TailSamplingSpanExporter::isFailure)) {
+            return;
+        }
+        logger.debug("Exporting {} span(s) of trace {} without its root ({})", spans.size(), traceId, cause);
+        delegate.export(spans);
+    }
+
+    private static boolean isFailure(SpanData span) {
+        return span.getStatus().getStatusCode() == StatusCode.ERROR
+                || FAILURE.equals(span.getAttributes().get(PAYMENT_OUTCOME));
+    }
+
+    private static boolean isLocalRoot(SpanData span) {
+        return !span.getParentSpanContext().isValid() || span.getParentSpanContext().isRemote();
+    }
+}
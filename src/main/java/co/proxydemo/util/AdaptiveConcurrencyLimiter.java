@@ -0,0 +1,119 @@
+package co.proxydemo.util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.LongSupplier;
+
+/**
+ * Lock-free AIMD concurrency limit. Calls that finish within the latency threshold raise the limit by about one per
+ * limit's worth of calls, but only while the limit is actually being used. A slow or dropped call cuts it by
+ * {@code backoffRatio}. Only calls that started after the previous cut can cut it again, so one burst of slow calls
+ * counts as a single congestion signal.
+ */
+public final class AdaptiveConcurrencyLimiter {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final long latencyThresholdNanos;
+    private final LongSupplier clock;
+    private final AtomicLong limitBits;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong lastDecreaseNanos;
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double backoffRatio,
+                                      long latencyThresholdNanos) {
+        this(initialLimit, minLimit, maxLimit, backoffRatio, latencyThresholdNanos, System::nanoTime);
+    }
+
+    AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double backoffRatio,
+                               long latencyThresholdNanos, LongSupplier clock) {
+        if (minLimit < 1 || maxLimit < minLimit || backoffRatio <= 0 || backoffRatio >= 1) {
+            throw new IllegalArgumentException("Invalid concurrency limit bounds or backoff ratio");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.latencyThresholdNanos = latencyThresholdNanos;
+        this.clock = clock;
+        this.limitBits = new AtomicLong(Double.doubleToLongBits(Math.max(minLimit, Math.min(maxLimit, initialLimit))));
+        this.lastDecreaseNanos = new AtomicLong(clock.getAsLong());
+    }
+
+    /**
+     * Returns a permit that must be released exactly once, or {@code null} when the limit is reached.
+     */
+    public Permit tryAcquire() {
+        return tryAcquire(1);
+    }
+
+    /**
+     * Like {@link #tryAcquire()}, but the call counts as {@code weight} calls in flight. A weight above the current
+     * limit is clamped to it, so a heavy call still gets through once the limiter is otherwise idle.
+     */
+    public Permit tryAcquire(int weight) {
+        if (weight < 1) {
+            throw new IllegalArgumentException("weight must be positive");
+        }
+        int limit = getLimit();
+        int taken = Math.min(weight, limit);
+        int current;
+        do {
+            current = inFlight.get();
+            if (current + taken > limit) {
+                return null;
+            }
+        } while (!inFlight.compareAndSet(current, current + taken));
+        return new Permit(clock.getAsLong(), taken);
+    }
+
+    private void release(long startedNanos, int weight, boolean dropped) {
+        int wasInFlight = inFlight.getAndAdd(-weight);
+        long now = clock.getAsLong();
+        if (dropped || now - startedNanos > latencyThresholdNanos) {
+            long lastDecrease = lastDecreaseNanos.get();
+            if (startedNanos - lastDecrease >= 0 && lastDecreaseNanos.compareAndSet(lastDecrease, now)) {
+                update(limit -> limit * backoffRatio);
+            }
+        } else if (wasInFlight * 2 >= getLimit()) {
+            update(limit -> limit + 1.0 / limit);
+        }
+    }
+
+    public int getLimit() {
+        return (int) Double.longBitsToDouble(limitBits.get());
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    private void update(DoubleUnaryOperator change) {
+        long current;
+        long next;
+        do {
+            current = limitBits.get();
+            double updated = change.applyAsDouble(Double.longBitsToDouble(current));
+            next = Double.doubleToLongBits(Math.max(minLimit, Math.min(maxLimit, updated)));
+        } while (!limitBits.compareAndSet(current, next));
+    }
+
+    public final class Permit {
+        private final long startedNanos;
+        private final int weight;
+
+        private Permit(long startedNanos, int weight) {
+            this.startedNanos = startedNanos;
+            this.weight = weight;
+        }
+
+        /**
+         * Ends the call. {@code dropped} marks a call that timed out or was shed downstream, which counts as congestion
+         * whatever its latency.
+         */
+        public void release(boolean dropped) {
+            AdaptiveConcurrencyLimiter.this.release(startedNanos, weight, dropped);
+        }
+    }
+}
@@ -0,0 +1,336 @@
+package co.proxydemo.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only journal of records framed as {@code [length][crc32c][payload]}, with group fsync. {@link #append} only
+ * writes; {@link #sync} makes everything appended so far durable, and concurrent callers share a single
+ * {@code force} instead of each issuing their own.
+ * <p>
+ * Records go to {@code file} until it grows past {@code segmentBytes}. It is then forced, renamed to
+ * {@code <file>.<n>} and a fresh {@code file} is started. Each record stays live until {@link #release} is called
+ * with its sequence number, and live records are counted per file: a renamed file is deleted once all its records
+ * are released, and {@code file} itself is truncated once it has none live and is past {@code segmentBytes}. With
+ * records released roughly in append order, the journal holds the unapplied backlog plus about one segment, however
+ * long the writer runs without catching up completely.
+ * <p>
+ * On open, {@link #recover()} returns the records in the retained files, oldest first. That can include records
+ * released shortly before the previous run stopped, so applying a record must be idempotent. In each file the scan
+ * stops at the first record whose length or checksum does not hold, and the rest of that file is cut off, so a
+ * record torn by a crash is never replayed.
+ */
+public final class AppendOnlyJournal implements Closeable {
+
+    private static final int HEADER_BYTES = 2 * Integer.BYTES;
+
+    private final Path file;
+    private final long segmentBytes;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private final LinkedList<Segment> segments = new LinkedList<>();
+    private final AtomicLong syncedSeq = new AtomicLong();
+
+    private FileChannel channel;
+    private long nextSegmentNumber;
+    private long appendedSeq;
+
+    public AppendOnlyJournal(Path file, long segmentBytes) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        this.file = file;
+        this.segmentBytes = segmentBytes;
+        this.channel = open(file);
+    }
+
+    /**
+     * Reads the records left by the previous run, deletes renamed files that held none, and positions the journal
+     * after the last complete record. Call once, before the first append; the recovered records count as live until
+     * released.
+     */
+    public List<Record> recover() throws IOException {
+        writeLock.lock();
+        try {
+            List<Record> records = new ArrayList<>();
+            for (Path sealed : sealedFiles()) {
+                nextSegmentNumber = Math.max(nextSegmentNumber, segmentNumber(sealed) + 1);
+                Segment segment = new Segment(sealed, appendedSeq + 1);
+                try (FileChannel sealedChannel = FileChannel.open(sealed, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                    scan(sealedChannel, segment, records);
+                }
+                if (segment.live == 0) {
+                    Files.delete(sealed);
+                } else {
+                    segments.add(segment);
+                }
+            }
+            Segment active = new Segment(file, appendedSeq + 1);
+            scan(channel, active, records);
+            segments.add(active);
+            syncedSeq.set(appendedSeq);
+            return records;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Appends a record and returns its sequence number for {@link #sync} and {@link #release}. The record is not
+     * durable yet.
+     */
+    public long append(byte[] record) throws IOException {
+        CRC32C crc = new CRC32C();
+        crc.update(record);
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + record.length);
+        buffer.putInt(record.length).putInt((int) crc.getValue()).put(record).flip();
+        writeLock.lock();
+        try {
+            Segment active = active();
+            if (active.bytes > segmentBytes) {
+                roll();
+                active = active();
+            }
+            long position = active.bytes;
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+            active.bytes = position;
+            active.live++;
+            active.lastSeq = ++appendedSeq;
+            return appendedSeq;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Blocks until the record with sequence {@code seq} is on disk. A caller that finds a force already running waits
+     * for it and usually finds its record covered.
+     */
+    public void sync(long seq) throws IOException {
+        if (syncedSeq.get() >= seq) {
+            return;
+        }
+        syncLock.lock();
+        try {
+            if (syncedSeq.get() >= seq) {
+                return;
+            }
+            long target;
+            FileChannel forced;
+            writeLock.lock();
+            try {
+                target = appendedSeq;
+                forced = channel;
+            } finally {
+                writeLock.unlock();
+            }
+            try {
+                forced.force(false);
+            } catch (ClosedChannelException e) {
+                if (!rolledPast(forced)) {
+                    throw e;
+                }
+                // A roll forced this file before closing it, which covered every record up to target.
+            }
+            syncedSeq.accumulateAndGet(target, Math::max);
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    /**
+     * Marks the record with sequence {@code seq} as applied. A renamed file with no live records left is deleted;
+     * {@code file} is truncated once it has none left and has grown past {@code segmentBytes}.
+     */
+    public void release(long seq) {
+        writeLock.lock();
+        try {
+            Iterator<Segment> iterator = segments.iterator();
+            while (iterator.hasNext()) {
+                Segment segment = iterator.next();
+                if (seq < segment.firstSeq || seq > segment.lastSeq) {
+                    continue;
+                }
+                if (--segment.live > 0) {
+                    return;
+                }
+                if (segment != active()) {
+                    Files.delete(segment.path);
+                    iterator.remove();
+                } else if (segment.bytes > segmentBytes) {
+                    channel.truncate(0);
+                    segment.bytes = 0;
+                    segment.firstSeq = appendedSeq + 1;
+                }
+                return;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public long liveRecords() {
+        writeLock.lock();
+        try {
+            return segments.stream().mapToLong(segment -> segment.live).sum();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public long sizeBytes() {
+        writeLock.lock();
+        try {
+            return segments.stream().mapToLong(segment -> segment.bytes).sum();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public int segmentCount() {
+        writeLock.lock();
+        try {
+            return segments.size();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        writeLock.lock();
+        try {
+            channel.close();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private Segment active() {
+        if (segments.isEmpty()) {
+            throw new IllegalStateException("recover() must be called before the journal is used");
+        }
+        return segments.getLast();
+    }
+
+    private void roll() throws IOException {
+        Segment active = active();
+        channel.force(false);
+        syncedSeq.accumulateAndGet(appendedSeq, Math::max);
+        channel.close();
+        Path sealed = file.resolveSibling(file.getFileName() + "." + nextSegmentNumber++);
+        Files.move(file, sealed, StandardCopyOption.ATOMIC_MOVE);
+        active.path = sealed;
+        channel = open(file);
+        segments.add(new Segment(file, appendedSeq + 1));
+    }
+
+    private boolean rolledPast(FileChannel forced) {
+        writeLock.lock();
+        try {
+            return forced != channel && channel.isOpen();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void scan(FileChannel from, Segment segment, List<Record> records) throws IOException {
+        long size = from.size();
+        long offset = 0;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        CRC32C crc = new CRC32C();
+        while (offset + HEADER_BYTES <= size) {
+            header.clear();
+            readFully(from, header, offset);
+            int length = header.flip().getInt();
+            int checksum = header.getInt();
+            if (length <= 0 || offset + HEADER_BYTES + length > size) {
+                break;
+            }
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            readFully(from, payload, offset + HEADER_BYTES);
+            crc.reset();
+            crc.update(payload.array());
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            records.add(new Record(++appendedSeq, payload.array()));
+            segment.live++;
+            offset += HEADER_BYTES + length;
+        }
+        if (offset < size) {
+            from.truncate(offset);
+        }
+        segment.bytes = offset;
+        segment.lastSeq = appendedSeq;
+    }
+
+    private static void readFully(FileChannel from, ByteBuffer buffer, long offset) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (from.read(buffer, offset + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of journal file");
+            }
+        }
+    }
+
+    private List<Path> sealedFiles() throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        String prefix = file.getFileName() + ".";
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().startsWith(prefix))
+                    .filter(path -> path.getFileName().toString().substring(prefix.length()).matches("\\d+"))
+                    .sorted((a, b) -> Long.compare(segmentNumber(a), segmentNumber(b)))
+                    .map(path -> file.resolveSibling(path.getFileName()))
+                    .toList();
+        }
+    }
+
+    private long segmentNumber(Path sealed) {
+        String name = sealed.getFileName().toString();
+        return Long.parseLong(name.substring(file.getFileName().toString().length() + 1));
+    }
+
+    private static FileChannel open(Path path) throws IOException {
+        return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * A record returned by {@link #recover()}, with the sequence number to {@link #release} it by.
+     */
+    public record Record(long seq, byte[] payload) {
+    }
+
+    private static final class Segment {
+        private Path path;
+        private long firstSeq;
+        private long lastSeq;
+        private long live;
+        private long bytes;
+
+        private Segment(Path path, long firstSeq) {
+            this.path = path;
+            this.firstSeq = firstSeq;
+            this.lastSeq = firstSeq - 1;
+        }
+    }
+}
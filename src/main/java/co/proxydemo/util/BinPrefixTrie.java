@@ -0,0 +1,166 @@
+package co.proxydemo.util;
+
+import java.util.Arrays;
+
+/**
+ * Immutable longest-prefix lookup over card number digits. Rules are BIN prefixes ({@code "4111"}) or equal-length
+ * ranges ({@code "510000-559999"}), which are expanded into the minimal set of covering prefixes when built. A lookup
+ * walks at most one node per digit, so its cost depends on the longest rule, not on how many rules exist.
+ */
+public final class BinPrefixTrie<T> {
+
+    private static final int RADIX = 10;
+
+    private final int[] children;
+    private final Object[] values;
+    private final int rules;
+
+    private BinPrefixTrie(int[] children, Object[] values, int rules) {
+        this.children = children;
+        this.values = values;
+        this.rules = rules;
+    }
+
+    public static <T> Builder<T> builder() {
+        return new Builder<>();
+    }
+
+    @SuppressWarnings("unchecked")
+    public T findLongestPrefix(CharSequence cardNumber) {
+        if (cardNumber == null) {
+            return null;
+        }
+        Object match = values[0];
+        int node = 0;
+        for (int i = 0; i < cardNumber.length(); i++) {
+            char c = cardNumber.charAt(i);
+            if (c == ' ' || c == '-') {
+                continue;
+            }
+            if (c < '0' || c > '9') {
+                break;
+            }
+            node = children[node * RADIX + (c - '0')];
+            if (node == 0) {
+                break;
+            }
+            if (values[node] != null) {
+                match = values[node];
+            }
+        }
+        return (T) match;
+    }
+
+    public int ruleCount() {
+        return rules;
+    }
+
+    public static final class Builder<T> {
+        private int[] children = new int[RADIX * 64];
+        private Object[] values = new Object[64];
+        private int nodes = 1;
+        private int rules;
+
+        private Builder() {
+        }
+
+        /**
+         * Adds a prefix or range rule and returns the number of prefixes that already mapped to a different value.
+         */
+        public int put(String rule, T value) {
+            if (rule == null || value == null) {
+                throw new IllegalArgumentException("Rule and value are required");
+            }
+            String trimmed = rule.trim();
+            int dash = trimmed.indexOf('-');
+            int conflicts;
+            if (dash < 0) {
+                requireDigits(trimmed, rule);
+                conflicts = insert(trimmed, value);
+            } else {
+                String low = trimmed.substring(0, dash).trim();
+                String high = trimmed.substring(dash + 1).trim();
+                requireDigits(low, rule);
+                requireDigits(high, rule);
+                if (low.length() != high.length() || low.compareTo(high) > 0) {
+                    throw new IllegalArgumentException("Invalid BIN range: " + rule);
+                }
+                conflicts = insertRange(low, high, value);
+            }
+            rules++;
+            return conflicts;
+        }
+
+        public BinPrefixTrie<T> build() {
+            return new BinPrefixTrie<>(Arrays.copyOf(children, nodes * RADIX), Arrays.copyOf(values, nodes), rules);
+        }
+
+        private int insertRange(String low, String high, T value) {
+            if (low.equals(high)) {
+                return insert(low, value);
+            }
+            int i = 0;
+            while (low.charAt(i) == high.charAt(i)) {
+                i++;
+            }
+            String prefix = low.substring(0, i);
+            String lowTail = low.substring(i + 1);
+            String highTail = high.substring(i + 1);
+            if (isAll(lowTail, '0') && isAll(highTail, '9') && low.charAt(i) == '0' && high.charAt(i) == '9') {
+                return insert(prefix, value);
+            }
+
+            int conflicts = 0;
+            char lowDigit = low.charAt(i);
+            char highDigit = high.charAt(i);
+            conflicts += insertRange(low, prefix + lowDigit + "9".repeat(lowTail.length()), value);
+            for (char d = (char) (lowDigit + 1); d < highDigit; d++) {
+                conflicts += insert(prefix + d, value);
+            }
+            conflicts += insertRange(prefix + highDigit + "0".repeat(highTail.length()), high, value);
+            return conflicts;
+        }
+
+        private int insert(String prefix, T value) {
+            int node = 0;
+            for (int i = 0; i < prefix.length(); i++) {
+                int slot = node * RADIX + (prefix.charAt(i) - '0');
+                if (children[slot] == 0) {
+                    children[slot] = allocate();
+                }
+                node = children[slot];
+            }
+            Object previous = values[node];
+            values[node] = value;
+            return previous != null && !previous.equals(value) ? 1 : 0;
+        }
+
+        private int allocate() {
+            if (nodes == values.length) {
+                values = Arrays.copyOf(values, nodes * 2);
+                children = Arrays.copyOf(children, nodes * 2 * RADIX);
+            }
+            return nodes++;
+        }
+
+        private static boolean isAll(String s, char c) {
+            for (int i = 0; i < s.length(); i++) {
+                if (s.charAt(i) != c) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static void requireDigits(String s, String rule) {
+            if (s.isEmpty()) {
+                throw new IllegalArgumentException("Empty BIN rule: " + rule);
+            }
+            for (int i = 0; i < s.length(); i++) {
+                if (s.charAt(i) < '0' || s.charAt(i) > '9') {
+                    throw new IllegalArgumentException("BIN rule must contain only digits: " + rule);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package co.proxydemo.util;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free concurrency limit with a bounded FIFO wait queue. {@link #acquire()} completes immediately when a permit
+ * is free. Otherwise it completes when a permit is handed over, and it fails with {@link BulkheadFullException} when
+ * the queue is full. Every successful acquire must be paired with exactly one {@link #release()}.
+ * <p>
+ * Callers that stop waiting should complete their future exceptionally (for example with {@code orTimeout}); a
+ * permit is never handed to a waiter that is already done.
+ */
+public final class Bulkhead {
+
+    private final int maxConcurrent;
+    private final int queueCapacity;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final ConcurrentLinkedQueue<CompletableFuture<Void>> waiters = new ConcurrentLinkedQueue<>();
+    private final AtomicLong rejected = new AtomicLong();
+
+    public Bulkhead(int maxConcurrent, int queueCapacity) {
+        if (maxConcurrent < 1 || queueCapacity < 0) {
+            throw new IllegalArgumentException("Bulkhead needs at least one permit and a non-negative queue");
+        }
+        this.maxConcurrent = maxConcurrent;
+        this.queueCapacity = queueCapacity;
+    }
+
+    public CompletableFuture<Void> acquire() {
+        if (tryAcquirePermit()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        if (queued.incrementAndGet() > queueCapacity) {
+            queued.decrementAndGet();
+            rejected.incrementAndGet();
+            return CompletableFuture.failedFuture(new BulkheadFullException(maxConcurrent, queueCapacity));
+        }
+        CompletableFuture<Void> waiter = new CompletableFuture<>();
+        waiters.add(waiter);
+        waiter.whenComplete((ignored, error) -> {
+            if (error != null && waiters.remove(waiter)) {
+                queued.decrementAndGet();
+            }
+        });
+        drain();
+        return waiter;
+    }
+
+    public void release() {
+        inFlight.decrementAndGet();
+        drain();
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public int getQueued() {
+        return queued.get();
+    }
+
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    private boolean tryAcquirePermit() {
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= maxConcurrent) {
+                return false;
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    private void drain() {
+        while (!waiters.isEmpty() && tryAcquirePermit()) {
+            CompletableFuture<Void> waiter = waiters.poll();
+            if (waiter == null) {
+                inFlight.decrementAndGet();
+                continue;
+            }
+            queued.decrementAndGet();
+            if (!waiter.complete(null)) {
+                inFlight.decrementAndGet();
+            }
+        }
+    }
+
+    public static final class BulkheadFullException extends RuntimeException {
+        public BulkheadFullException(int maxConcurrent, int queueCapacity) {
+            super("Bulkhead full: " + maxConcurrent + " in flight and " + queueCapacity + " queued");
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package co.proxydemo.util;
+
+/**
+ * Character-level card field checks. None of them allocate, so they can run on every request.
+ */
+public final class CardChecks {
+
+    private CardChecks() {
+    }
+
+    public static boolean isDigits(CharSequence value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Luhn checksum over a string of ASCII digits; callers check {@link #isDigits} first.
+     */
+    public static boolean isLuhnValid(CharSequence digits) {
+        int sum = 0;
+        boolean doubled = false;
+        for (int i = digits.length() - 1; i >= 0; i--) {
+            int digit = digits.charAt(i) - '0';
+            if (doubled) {
+                digit *= 2;
+                if (digit > 9) {
+                    digit -= 9;
+                }
+            }
+            sum += digit;
+            doubled = !doubled;
+        }
+        return sum % 10 == 0;
+    }
+
+    /**
+     * Parses an {@code MM/YY} expiry into a month index ({@code year * 12 + month - 1}, years taken as 20YY), or
+     * returns -1 when the value is not a valid {@code MM/YY}.
+     */
+    public static int parseExpiryMonth(CharSequence expiry) {
+        if (expiry == null || expiry.length() != 5 || expiry.charAt(2) != '/') {
+            return -1;
+        }
+        int m1 = digit(expiry.charAt(0));
+        int m2 = digit(expiry.charAt(1));
+        int y1 = digit(expiry.charAt(3));
+        int y2 = digit(expiry.charAt(4));
+        if ((m1 | m2 | y1 | y2) < 0) {
+            return -1;
+        }
+        int month = m1 * 10 + m2;
+        if (month < 1 || month > 12) {
+            return -1;
+        }
+        return (2000 + y1 * 10 + y2) * 12 + month - 1;
+    }
+
+    private static int digit(char c) {
+        return c >= '0' && c <= '9' ? c - '0' : -1;
+    }
+}
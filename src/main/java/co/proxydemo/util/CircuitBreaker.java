@@ -0,0 +1,204 @@
+package co.proxydemo.util;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+
+/**
+ * Lock-free circuit breaker over a count-based sliding window of the last {@code windowSize} calls.
+ * <p>
+ * {@link #tryAcquire()} returns a permit, the epoch of the state that admitted the call, or {@code -1} when the
+ * call is rejected. {@link #onResult(long, long, boolean)} reports the outcome against that permit. Outcomes from an
+ * earlier epoch are dropped, so calls admitted before a transition cannot flip the new state.
+ */
+public final class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private static final long EMPTY = 0;
+    private static final long RECORDED = 1;
+    private static final long FAILED = 2;
+    private static final long SLOW = 4;
+
+    private final int windowSize;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final double slowCallRateThreshold;
+    private final long slowCallNanos;
+    private final long openNanos;
+    private final int halfOpenCalls;
+    private final LongSupplier clock;
+
+    private final AtomicReference<Snapshot> snapshot;
+    private final AtomicLongArray window;
+    private final AtomicLong cursor = new AtomicLong();
+    private final AtomicInteger recorded = new AtomicInteger();
+    private final AtomicInteger failures = new AtomicInteger();
+    private final AtomicInteger slowCalls = new AtomicInteger();
+    private final AtomicLong rejected = new AtomicLong();
+
+    public CircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold, double slowCallRateThreshold,
+                          Duration slowCallDuration, Duration openDuration, int halfOpenCalls) {
+        this(windowSize, minimumCalls, failureRateThreshold, slowCallRateThreshold, slowCallDuration, openDuration,
+                halfOpenCalls, System::nanoTime);
+    }
+
+    CircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold, double slowCallRateThreshold,
+                   Duration slowCallDuration, Duration openDuration, int halfOpenCalls, LongSupplier clock) {
+        if (windowSize < 1 || halfOpenCalls < 1) {
+            throw new IllegalArgumentException("Window size and half-open calls must be positive");
+        }
+        this.windowSize = windowSize;
+        this.minimumCalls = Math.max(1, Math.min(minimumCalls, windowSize));
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.slowCallNanos = slowCallDuration.toNanos();
+        this.openNanos = openDuration.toNanos();
+        this.halfOpenCalls = halfOpenCalls;
+        this.clock = clock;
+        this.window = new AtomicLongArray(windowSize);
+        this.snapshot = new AtomicReference<>(new Snapshot(State.CLOSED, 0, clock.getAsLong(), 0));
+    }
+
+    public long tryAcquire() {
+        while (true) {
+            Snapshot current = snapshot.get();
+            switch (current.state) {
+                case CLOSED:
+                    return current.epoch;
+                case OPEN:
+                    if (clock.getAsLong() - current.since < openNanos) {
+                        rejected.incrementAndGet();
+                        return -1;
+                    }
+                    snapshot.compareAndSet(current, current.next(State.HALF_OPEN, clock.getAsLong(), halfOpenCalls));
+                    continue;
+                default:
+                    if (current.permits.getAndDecrement() > 0) {
+                        return current.epoch;
+                    }
+                    rejected.incrementAndGet();
+                    return -1;
+            }
+        }
+    }
+
+    /**
+     * Returns an unused permit, for calls that were admitted but never made.
+     */
+    public void release(long permit) {
+        Snapshot current = snapshot.get();
+        if (current.epoch == permit && current.state == State.HALF_OPEN) {
+            current.permits.incrementAndGet();
+        }
+    }
+
+    public void onResult(long permit, long durationNanos, boolean failed) {
+        Snapshot current = snapshot.get();
+        if (permit < 0 || current.epoch != permit) {
+            return;
+        }
+        boolean slow = durationNanos >= slowCallNanos;
+
+        if (current.state == State.HALF_OPEN) {
+            if (failed || slow) {
+                transition(current, State.OPEN);
+            } else if (current.successes.incrementAndGet() >= halfOpenCalls) {
+                transition(current, State.CLOSED);
+            }
+            return;
+        }
+        if (current.state != State.CLOSED) {
+            return;
+        }
+
+        long outcome = RECORDED | (failed ? FAILED : 0) | (slow ? SLOW : 0);
+        int slot = (int) (cursor.getAndIncrement() % windowSize);
+        long previous = window.getAndSet(slot, outcome);
+        if (previous == EMPTY) {
+            recorded.incrementAndGet();
+        }
+        failures.addAndGet(flag(outcome, FAILED) - flag(previous, FAILED));
+        slowCalls.addAndGet(flag(outcome, SLOW) - flag(previous, SLOW));
+
+        int calls = recorded.get();
+        if (calls >= minimumCalls
+                && (failures.get() >= failureRateThreshold * calls || slowCalls.get() >= slowCallRateThreshold * calls)) {
+            transition(current, State.OPEN);
+        }
+    }
+
+    public State getState() {
+        Snapshot current = snapshot.get();
+        if (current.state == State.OPEN && clock.getAsLong() - current.since >= openNanos) {
+            return State.HALF_OPEN;
+        }
+        return current.state;
+    }
+
+    public boolean isCallPermitted() {
+        return getState() != State.OPEN;
+    }
+
+    public double getFailureRate() {
+        int calls = recorded.get();
+        return calls == 0 ? 0.0 : (double) failures.get() / calls;
+    }
+
+    public double getSlowCallRate() {
+        int calls = recorded.get();
+        return calls == 0 ? 0.0 : (double) slowCalls.get() / calls;
+    }
+
+    public int getBufferedCalls() {
+        return recorded.get();
+    }
+
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    private void transition(Snapshot from, State to) {
+        Snapshot next = from.next(to, clock.getAsLong(), to == State.HALF_OPEN ? halfOpenCalls : 0);
+        if (snapshot.compareAndSet(from, next) && to != State.HALF_OPEN) {
+            resetWindow();
+        }
+    }
+
+    private void resetWindow() {
+        for (int i = 0; i < windowSize; i++) {
+            long previous = window.getAndSet(i, EMPTY);
+            if (previous != EMPTY) {
+                recorded.decrementAndGet();
+                failures.addAndGet(-flag(previous, FAILED));
+                slowCalls.addAndGet(-flag(previous, SLOW));
+            }
+        }
+    }
+
+    private static int flag(long outcome, long bit) {
+        return (outcome & bit) != 0 ? 1 : 0;
+    }
+
+    private static final class Snapshot {
+        private final State state;
+        private final long epoch;
+        private final long since;
+        private final AtomicInteger permits;
+        private final AtomicInteger successes = new AtomicInteger();
+
+        private Snapshot(State state, long epoch, long since, int permits) {
+            this.state = state;
+            this.epoch = epoch;
+            this.since = since;
+            this.permits = new AtomicInteger(permits);
+        }
+
+        private Snapshot next(State state, long since, int permits) {
+            return new Snapshot(state, epoch + 1, since, permits);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package co.proxydemo.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+
+/**
+ * Runs an asynchronous call per item with at most {@code maxConcurrency} calls in flight, preserving input order
+ * in the result list. Each finished call starts the next one, so no thread waits for a permit.
+ */
+public final class ConcurrencyLimitedFanOut<T, R> {
+
+    private final List<T> items;
+    private final Function<T, CompletableFuture<R>> call;
+    private final Function<Throwable, R> onFailure;
+    private final AtomicReferenceArray<R> results;
+    private final AtomicInteger next = new AtomicInteger();
+    private final AtomicInteger remaining;
+    private final CompletableFuture<List<R>> done = new CompletableFuture<>();
+
+    private ConcurrencyLimitedFanOut(List<T> items, Function<T, CompletableFuture<R>> call, Function<Throwable, R> onFailure) {
+        this.items = items;
+        this.call = call;
+        this.onFailure = onFailure;
+        this.results = new AtomicReferenceArray<>(items.size());
+        this.remaining = new AtomicInteger(items.size());
+    }
+
+    public static <T, R> CompletableFuture<List<R>> map(
+            List<T> items,
+            int maxConcurrency,
+            Function<T, CompletableFuture<R>> call,
+            Function<Throwable, R> onFailure
+    ) {
+        if (items.isEmpty()) {
+            return CompletableFuture.completedFuture(List.of());
+        }
+        ConcurrencyLimitedFanOut<T, R> fanOut = new ConcurrencyLimitedFanOut<>(items, call, onFailure);
+        int lanes = Math.max(1, Math.min(maxConcurrency, items.size()));
+        for (int i = 0; i < lanes; i++) {
+            fanOut.runLane();
+        }
+        return fanOut.done;
+    }
+
+    private void runLane() {
+        for (;;) {
+            int index = next.getAndIncrement();
+            if (index >= items.size()) {
+                return;
+            }
+
+            CompletableFuture<R> future;
+            try {
+                future = call.apply(items.get(index));
+            } catch (RuntimeException e) {
+                future = CompletableFuture.failedFuture(e);
+            }
+
+            if (future.isDone()) {
+                record(index, future);
+                continue;
+            }
+            CompletableFuture<R> pending = future;
+            pending.whenComplete((result, error) -> {
+                record(index, pending);
+                runLane();
+            });
+            return;
+        }
+    }
+
+    private void record(int index, CompletableFuture<R> future) {
+        R result;
+        try {
+            result = future.join();
+        } catch (CompletionException e) {
+            result = onFailure.apply(e.getCause() != null ? e.getCause() : e);
+        } catch (RuntimeException e) {
+            result = onFailure.apply(e);
+        }
+        results.set(index, result);
+
+        if (remaining.decrementAndGet() == 0) {
+            List<R> ordered = new ArrayList<>(items.size());
+            for (int i = 0; i < items.size(); i++) {
+                ordered.add(results.get(i));
+            }
+            done.complete(ordered);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package co.proxydemo.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Consistent hash ring over nodes {@code 0..nodes-1}, each placed at {@code virtualNodes} points. Adding a node moves
+ * only the keys that now land on one of its points, about {@code 1/(nodes+1)} of them; nothing moves between the
+ * existing nodes. Placement depends only on the node count and {@code virtualNodes}, so every instance computes the
+ * same ring. Lookups are a binary search over a sorted array and do not allocate beyond the key's bytes.
+ */
+public final class ConsistentHashRing {
+
+    private final int nodes;
+    private final long[] points;
+    private final int[] owners;
+
+    public ConsistentHashRing(int nodes, int virtualNodes) {
+        if (nodes < 1 || virtualNodes < 1) {
+            throw new IllegalArgumentException("nodes and virtualNodes must be positive");
+        }
+        this.nodes = nodes;
+        int size = nodes * virtualNodes;
+        long[][] placed = new long[size][];
+        for (int node = 0; node < nodes; node++) {
+            for (int v = 0; v < virtualNodes; v++) {
+                placed[node * virtualNodes + v] = new long[]{hash("node-" + node + "#" + v), node};
+            }
+        }
+        Arrays.sort(placed, (a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+        this.points = new long[size];
+        this.owners = new int[size];
+        for (int i = 0; i < size; i++) {
+            points[i] = placed[i][0];
+            owners[i] = (int) placed[i][1];
+        }
+    }
+
+    public int nodes() {
+        return nodes;
+    }
+
+    /**
+     * Returns the node owning {@code key}: the first point at or after the key's hash, wrapping around.
+     */
+    public int nodeFor(String key) {
+        if (nodes == 1) {
+            return 0;
+        }
+        int index = Arrays.binarySearch(points, hash(key));
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return owners[index == points.length ? 0 : index];
+    }
+
+    /**
+     * 64-bit FNV-1a over the UTF-8 bytes, finished with the MurmurHash3 mixer so that similar keys spread evenly.
+     */
+    static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,95 @@
+package co.proxydemo.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free log-linear latency histogram (16 linear sub-buckets per power of two, so about 6% relative error)
+ * over a sliding window. Samples land in the current half-window; percentiles read both halves, and the older half
+ * is cleared when the window rolls over.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = SUB_BUCKETS * (Long.SIZE - SUB_BUCKET_BITS + 1);
+
+    private final AtomicLongArray[] halves = {new AtomicLongArray(BUCKETS), new AtomicLongArray(BUCKETS)};
+    private final AtomicLong[] counts = {new AtomicLong(), new AtomicLong()};
+    private final AtomicInteger current = new AtomicInteger();
+    private final AtomicLong halfStartedAt;
+    private final long halfWindowNanos;
+
+    public LatencyHistogram(long window, TimeUnit unit) {
+        this.halfWindowNanos = Math.max(1, unit.toNanos(window) / 2);
+        this.halfStartedAt = new AtomicLong(System.nanoTime());
+    }
+
+    public void record(long latency, TimeUnit unit) {
+        roll();
+        long micros = Math.max(0, unit.toMicros(latency));
+        int half = current.get();
+        halves[half].incrementAndGet(bucketOf(micros));
+        counts[half].incrementAndGet();
+    }
+
+    public long count() {
+        roll();
+        return counts[0].get() + counts[1].get();
+    }
+
+    /**
+     * Returns the upper bound, in microseconds, of the bucket holding the given quantile, or -1 without samples.
+     */
+    public long percentileMicros(double quantile) {
+        roll();
+        long total = counts[0].get() + counts[1].get();
+        if (total == 0) {
+            return -1;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += halves[0].get(bucket) + halves[1].get(bucket);
+            if (seen >= rank) {
+                return upperBoundOf(bucket);
+            }
+        }
+        return upperBoundOf(BUCKETS - 1);
+    }
+
+    private void roll() {
+        long startedAt = halfStartedAt.get();
+        long now = System.nanoTime();
+        if (now - startedAt < halfWindowNanos || !halfStartedAt.compareAndSet(startedAt, now)) {
+            return;
+        }
+        int next = 1 - current.get();
+        AtomicLongArray stale = halves[next];
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            stale.set(bucket, 0);
+        }
+        counts[next].set(0);
+        current.set(next);
+    }
+
+    static int bucketOf(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+        int shift = (Long.SIZE - 1 - Long.numberOfLeadingZeros(micros)) - SUB_BUCKET_BITS;
+        int mantissa = (int) (micros >>> shift);
+        return (shift + 1) * SUB_BUCKETS + (mantissa - SUB_BUCKETS);
+    }
+
+    static long upperBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long mantissa = bucket % SUB_BUCKETS + SUB_BUCKETS;
+        return ((mantissa + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,335 @@
+package co.proxydemo.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only journal of records in memory-mapped segment files. Each record is framed as {@code [length][crc32c]
+ * [payload]}; a segment holds records until the next one does not fit, then a new segment is started. Segment files
+ * are named after the index of their first record, so a record's index is stable across restarts and compaction.
+ * <p>
+ * Appends are copies into the mapped segment and survive a process crash as soon as they return. {@link #sync()}
+ * forces them to disk, which is what survives an OS crash. On open only the last segment is scanned: everything
+ * after its last record with a valid checksum is cut off, so recovery time does not grow with the journal.
+ * <p>
+ * {@link #read} maps segments read-only and hands each payload to the visitor without copying. It can run
+ * concurrently with appends and sees every record appended before it started. A record that fails its checksum is
+ * skipped and reported to {@link RecordVisitor#skipped}. If its length is implausible too, the rest of its segment
+ * cannot be framed and is skipped with it. The segment file is first copied aside as {@code <segment>.corrupt}, so
+ * the bytes survive compaction.
+ */
+public final class MappedSegmentJournal implements Closeable {
+
+    private static final int HEADER_BYTES = 2 * Integer.BYTES;
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String QUARANTINE_SUFFIX = ".corrupt";
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final CRC32C writeCrc = new CRC32C();
+    private final List<Segment> segments = new ArrayList<>();
+
+    private FileChannel activeChannel;
+    private MappedByteBuffer active;
+    private int syncedPosition;
+    private volatile long nextIndex;
+
+    public MappedSegmentJournal(Path directory, int segmentBytes) throws IOException {
+        if (segmentBytes <= HEADER_BYTES) {
+            throw new IllegalArgumentException("segmentBytes must exceed the " + HEADER_BYTES + "-byte record header");
+        }
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        Files.createDirectories(directory);
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(Path::getFileName)
+                    .map(Path::toString)
+                    .filter(name -> name.endsWith(SEGMENT_SUFFIX))
+                    .map(name -> new Segment(Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()))))
+                    .sorted((a, b) -> Long.compare(a.baseIndex, b.baseIndex))
+                    .forEach(segments::add);
+        }
+        if (segments.isEmpty()) {
+            openActive(new Segment(0), 0);
+        } else {
+            recoverActive(segments.remove(segments.size() - 1));
+        }
+    }
+
+    /**
+     * Appends the remaining bytes of {@code record} and returns its index. The record survives a process crash once
+     * this returns; call {@link #sync()} to make it survive an OS crash too.
+     */
+    public long append(ByteBuffer record) throws IOException {
+        int length = record.remaining();
+        if (length == 0 || HEADER_BYTES + length > segmentBytes) {
+            throw new IllegalArgumentException("Record of " + length + " bytes does not fit a " + segmentBytes + "-byte segment");
+        }
+        writeLock.lock();
+        try {
+            if (active.remaining() < HEADER_BYTES + length) {
+                roll();
+            }
+            writeCrc.reset();
+            writeCrc.update(record.duplicate());
+            int start = active.position();
+            active.position(start + HEADER_BYTES);
+            active.put(record);
+            active.putInt(start, length).putInt(start + Integer.BYTES, (int) writeCrc.getValue());
+            segments.get(segments.size() - 1).records++;
+            long index = nextIndex;
+            nextIndex = index + 1;
+            return index;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Forces everything appended so far to disk.
+     */
+    public void sync() {
+        writeLock.lock();
+        try {
+            int position = active.position();
+            if (position > syncedPosition) {
+                active.force(syncedPosition, position - syncedPosition);
+                syncedPosition = position;
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Reads records in index order, starting at {@code fromIndex} (or the oldest retained record, if that is later),
+     * until the visitor returns {@code false} or the records appended before the call are exhausted. The payload
+     * buffer is only valid during the visit. Returns the index after the last record visited.
+     */
+    public long read(long fromIndex, RecordVisitor visitor) throws IOException {
+        long endIndex = nextIndex;
+        List<Segment> snapshot;
+        writeLock.lock();
+        try {
+            snapshot = List.copyOf(segments);
+        } finally {
+            writeLock.unlock();
+        }
+
+        long index = Math.max(fromIndex, snapshot.get(0).baseIndex);
+        for (int s = 0; s < snapshot.size() && index < endIndex; s++) {
+            Segment segment = snapshot.get(s);
+            long segmentEnd = s + 1 < snapshot.size() ? snapshot.get(s + 1).baseIndex : endIndex;
+            if (index >= segmentEnd) {
+                continue;
+            }
+            ByteBuffer buffer = mapReadOnly(segment);
+            CRC32C crc = new CRC32C();
+            int position = 0;
+            for (long i = segment.baseIndex; i < segmentEnd; i++) {
+                int length = position + HEADER_BYTES <= buffer.limit() ? buffer.getInt(position) : -1;
+                if (length <= 0 || position + HEADER_BYTES + (long) length > buffer.limit()) {
+                    if (index < segmentEnd) {
+                        quarantine(segment);
+                        visitor.skipped(index, segmentEnd);
+                        index = segmentEnd;
+                    }
+                    break;
+                }
+                ByteBuffer payload = buffer.slice(position + HEADER_BYTES, length);
+                position += HEADER_BYTES + length;
+                if (i < index) {
+                    continue;
+                }
+                index = i + 1;
+                crc.reset();
+                crc.update(payload.duplicate());
+                if ((int) crc.getValue() != buffer.getInt(position - length - Integer.BYTES)) {
+                    quarantine(segment);
+                    visitor.skipped(i, i + 1);
+                    continue;
+                }
+                if (!visitor.visit(i, payload)) {
+                    return index;
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Deletes sealed segments whose records all have an index below {@code index}. The active segment is kept.
+     * Returns the number of segments deleted.
+     */
+    public int deleteBefore(long index) throws IOException {
+        List<Segment> deleted = new ArrayList<>();
+        writeLock.lock();
+        try {
+            while (segments.size() > 1 && segments.get(1).baseIndex <= index) {
+                deleted.add(segments.remove(0));
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        for (Segment segment : deleted) {
+            Files.deleteIfExists(segment.path(directory));
+        }
+        return deleted.size();
+    }
+
+    /**
+     * Index of the oldest retained record.
+     */
+    public long firstIndex() {
+        writeLock.lock();
+        try {
+            return segments.get(0).baseIndex;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Index the next appended record will get.
+     */
+    public long nextIndex() {
+        return nextIndex;
+    }
+
+    public int segmentCount() {
+        writeLock.lock();
+        try {
+            return segments.size();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public long sizeBytes() {
+        writeLock.lock();
+        try {
+            return (long) (segments.size() - 1) * segmentBytes + active.position();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        writeLock.lock();
+        try {
+            sync();
+            activeChannel.close();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void roll() throws IOException {
+        active.force();
+        int used = active.position();
+        activeChannel.truncate(used);
+        activeChannel.close();
+        openActive(new Segment(nextIndex), 0);
+    }
+
+    private void recoverActive(Segment segment) throws IOException {
+        Path path = segment.path(directory);
+        int end = 0;
+        long records = 0;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > 0) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                CRC32C crc = new CRC32C();
+                while (end + HEADER_BYTES <= size) {
+                    int length = buffer.getInt(end);
+                    if (length <= 0 || end + HEADER_BYTES + (long) length > size) {
+                        break;
+                    }
+                    crc.reset();
+                    crc.update(buffer.slice(end + HEADER_BYTES, length));
+                    if ((int) crc.getValue() != buffer.getInt(end + Integer.BYTES)) {
+                        break;
+                    }
+                    end += HEADER_BYTES + length;
+                    records++;
+                }
+            }
+        }
+        segment.records = records;
+        openActive(segment, end);
+    }
+
+    /**
+     * Maps {@code segment} as the active one, positioned at {@code end}. Anything in the file past {@code end} (a
+     * torn record, or pages flushed out of order before a crash) is truncated away, so the remapped tail reads as
+     * zeros.
+     */
+    private void openActive(Segment segment, int end) throws IOException {
+        FileChannel channel = FileChannel.open(segment.path(directory),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (channel.size() > end) {
+            channel.truncate(end);
+        }
+        active = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(segmentBytes, end));
+        active.position(end);
+        activeChannel = channel;
+        syncedPosition = end;
+        segments.add(segment);
+        nextIndex = segment.baseIndex + segment.records;
+    }
+
+    private void quarantine(Segment segment) throws IOException {
+        Path copy = directory.resolve(segment.path(directory).getFileName() + QUARANTINE_SUFFIX);
+        if (Files.notExists(copy)) {
+            Files.copy(segment.path(directory), copy);
+        }
+    }
+
+    private ByteBuffer mapReadOnly(Segment segment) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment.path(directory), StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    @FunctionalInterface
+    public interface RecordVisitor {
+        /**
+         * Returns {@code false} to stop reading after this record.
+         */
+        boolean visit(long index, ByteBuffer payload) throws IOException;
+
+        /**
+         * Called for records {@code fromIndex} (inclusive) to {@code toIndex} (exclusive) that failed their checksum
+         * and were not visited.
+         */
+        default void skipped(long fromIndex, long toIndex) throws IOException {
+        }
+    }
+
+    private static final class Segment {
+        private final long baseIndex;
+        private long records;
+
+        private Segment(long baseIndex) {
+            this.baseIndex = baseIndex;
+        }
+
+        private Path path(Path directory) {
+            return directory.resolve(String.format("%020d%s", baseIndex, SEGMENT_SUFFIX));
+        }
+    }
+}
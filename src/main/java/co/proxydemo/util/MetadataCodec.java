@@ -0,0 +1,48 @@
+package co.proxydemo.util;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Encodes transaction metadata as one compact JSON object, e.g. {@code {"productId":"prod_1","quantity":"2"}}. An
+ * empty or missing map is stored as {@code null}, so payments without metadata cost nothing.
+ */
+public final class MetadataCodec {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final TypeReference<LinkedHashMap<String, String>> MAP_TYPE = new TypeReference<>() {
+    };
+
+    private MetadataCodec() {
+    }
+
+    public static String encode(Map<String, String> metadata) {
+        if (metadata == null || metadata.isEmpty()) {
+            return null;
+        }
+        try {
+            return MAPPER.writeValueAsString(metadata);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Metadata cannot be encoded", e);
+        }
+    }
+
+    /**
+     * Returns an unmodifiable map; a {@code null} column decodes to an empty map.
+     */
+    public static Map<String, String> decode(String json) {
+        if (json == null || json.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        try {
+            return Collections.unmodifiableMap(MAPPER.readValue(json, MAP_TYPE));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Stored metadata is not a JSON object of strings", e);
+        }
+    }
+}
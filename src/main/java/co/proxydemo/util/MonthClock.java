@@ -0,0 +1,46 @@
+package co.proxydemo.util;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneId;
+
+/**
+ * The current month as a month index ({@code year * 12 + month - 1}), cached until the next month starts. Reading it
+ * costs a clock read and a compare; date objects are only built on rollover.
+ */
+public final class MonthClock {
+
+    private static final MonthClock SYSTEM = new MonthClock(Clock.systemDefaultZone());
+
+    private final Clock clock;
+    private volatile Snapshot snapshot;
+
+    public MonthClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    public static MonthClock system() {
+        return SYSTEM;
+    }
+
+    public int currentMonth() {
+        long now = clock.millis();
+        Snapshot current = snapshot;
+        if (current == null || now < current.startMillis() || now >= current.endMillis()) {
+            current = snapshotAt(now, clock.getZone());
+            snapshot = current;
+        }
+        return current.month();
+    }
+
+    private static Snapshot snapshotAt(long nowMillis, ZoneId zone) {
+        YearMonth month = YearMonth.from(Instant.ofEpochMilli(nowMillis).atZone(zone));
+        long start = month.atDay(1).atStartOfDay(zone).toInstant().toEpochMilli();
+        long end = month.plusMonths(1).atDay(1).atStartOfDay(zone).toInstant().toEpochMilli();
+        return new Snapshot(month.getYear() * 12 + month.getMonthValue() - 1, start, end);
+    }
+
+    private record Snapshot(int month, long startMillis, long endMillis) {
+    }
+}
@@ -0,0 +1,56 @@
+package co.proxydemo.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket in its GCRA form. The whole bucket is a single "theoretical arrival time", so admitting a
+ * request is one compare-and-set and an idle bucket costs nothing to refill.
+ */
+public final class TokenBucket {
+
+    private final double permitsPerSecond;
+    private final int burst;
+    private final long emissionIntervalNanos;
+    private final long toleranceNanos;
+    private final AtomicLong theoreticalArrival;
+
+    public TokenBucket(double permitsPerSecond, int burst, long nowNanos) {
+        if (permitsPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("Rate must be positive and burst at least 1");
+        }
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = burst;
+        this.emissionIntervalNanos = Math.max(1, Math.round(TimeUnit.SECONDS.toNanos(1) / permitsPerSecond));
+        this.toleranceNanos = emissionIntervalNanos * (burst - 1);
+        this.theoreticalArrival = new AtomicLong(nowNanos);
+    }
+
+    /**
+     * Takes {@code permits} tokens if the bucket holds at least one at {@code nowNanos}. Returns 0 when admitted,
+     * otherwise how many nanoseconds to wait before retrying. A request for more tokens than are available overdraws
+     * the bucket, so a large batch is admitted once and the calls that follow wait until the debt is repaid.
+     */
+    public long tryAcquire(int permits, long nowNanos) {
+        long increment = emissionIntervalNanos * Math.max(1, permits);
+        while (true) {
+            long current = theoreticalArrival.get();
+            long base = Math.max(current, nowNanos);
+            long allowAt = base - toleranceNanos;
+            if (nowNanos < allowAt) {
+                return allowAt - nowNanos;
+            }
+            if (theoreticalArrival.compareAndSet(current, base + increment)) {
+                return 0;
+            }
+        }
+    }
+
+    public double getPermitsPerSecond() {
+        return permitsPerSecond;
+    }
+
+    public int getBurst() {
+        return burst;
+    }
+}
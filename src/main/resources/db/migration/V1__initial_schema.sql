@@ -0,0 +1,78 @@
+CREATE TABLE clients (
+    id            BIGINT       NOT NULL AUTO_INCREMENT,
+    active        BIT          NOT NULL,
+    client_id     VARCHAR(255) NOT NULL,
+    client_secret VARCHAR(255) NOT NULL,
+    created_at    DATETIME(6)  NOT NULL,
+    description   VARCHAR(255),
+    name          VARCHAR(255) NOT NULL,
+    updated_at    DATETIME(6),
+    PRIMARY KEY (id),
+    CONSTRAINT uk_clients_client_id UNIQUE (client_id)
+) ENGINE = InnoDB;
+
+CREATE TABLE client_webhooks (
+    id         BIGINT       NOT NULL AUTO_INCREMENT,
+    active     BIT          NOT NULL,
+    created_at DATETIME(6)  NOT NULL,
+    event_type VARCHAR(255) NOT NULL,
+    updated_at DATETIME(6),
+    url        VARCHAR(255) NOT NULL,
+    client_id  BIGINT       NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT fk_client_webhooks_client FOREIGN KEY (client_id) REFERENCES clients (id)
+) ENGINE = InnoDB;
+
+CREATE TABLE transactions (
+    id                      BIGINT       NOT NULL,
+    amount                  FLOAT(53),
+    card_last4              VARCHAR(255),
+    created_at              DATETIME(6),
+    error_message           VARCHAR(255),
+    idempotency_key         VARCHAR(255),
+    provider_transaction_id VARCHAR(255),
+    status                  VARCHAR(255),
+    client_id               BIGINT       NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT fk_transactions_client FOREIGN KEY (client_id) REFERENCES clients (id)
+) ENGINE = InnoDB;
+
+CREATE TABLE transaction_metadata (
+    transaction_id BIGINT       NOT NULL,
+    metadata_value VARCHAR(255),
+    metadata_key   VARCHAR(255) NOT NULL,
+    PRIMARY KEY (transaction_id, metadata_key),
+    CONSTRAINT fk_transaction_metadata_transaction FOREIGN KEY (transaction_id) REFERENCES transactions (id)
+) ENGINE = InnoDB;
+
+CREATE TABLE webhook_events (
+    id                BIGINT       NOT NULL,
+    amount            FLOAT(53),
+    attempts          INTEGER,
+    created_at        DATETIME(6)  NOT NULL,
+    error_message     VARCHAR(255),
+    event_id          VARCHAR(255) NOT NULL,
+    event_type        VARCHAR(255) NOT NULL,
+    next_attempt_at   DATETIME(6),
+    payload           TEXT,
+    response_code     VARCHAR(255),
+    sent_at           DATETIME(6),
+    status            VARCHAR(255) NOT NULL,
+    transaction_id    VARCHAR(255),
+    client_id         BIGINT       NOT NULL,
+    client_webhook_id BIGINT,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_webhook_events_event_id UNIQUE (event_id),
+    CONSTRAINT fk_webhook_events_client FOREIGN KEY (client_id) REFERENCES clients (id),
+    CONSTRAINT fk_webhook_events_client_webhook FOREIGN KEY (client_webhook_id) REFERENCES client_webhooks (id)
+) ENGINE = InnoDB;
+
+CREATE TABLE transactions_seq (
+    next_val BIGINT
+) ENGINE = InnoDB;
+INSERT INTO transactions_seq VALUES (1);
+
+CREATE TABLE webhook_events_seq (
+    next_val BIGINT
+) ENGINE = InnoDB;
+INSERT INTO webhook_events_seq VALUES (1);
@@ -0,0 +1,28 @@
+-- Databases created by ddl-auto may hold duplicate keys; keep the key on the earliest row only.
+UPDATE transactions t
+    JOIN (SELECT client_id, idempotency_key, MIN(id) AS keep_id
+          FROM transactions
+          WHERE idempotency_key IS NOT NULL
+          GROUP BY client_id, idempotency_key
+          HAVING COUNT(*) > 1) d
+    ON d.client_id = t.client_id AND d.idempotency_key = t.idempotency_key AND t.id <> d.keep_id
+SET t.idempotency_key = NULL;
+
+CREATE UNIQUE INDEX uk_transactions_client_idempotency_key ON transactions (client_id, idempotency_key);
+CREATE INDEX idx_transactions_client_created_at ON transactions (client_id, created_at);
+CREATE INDEX idx_transactions_created_at ON transactions (created_at);
+CREATE INDEX idx_transactions_provider_transaction_id ON transactions (provider_transaction_id);
+CREATE INDEX idx_webhook_events_status_next_attempt_at ON webhook_events (status, next_attempt_at);
+
+-- Baselined databases may have ids allocated by IDENTITY before the pooled sequences existed.
+CREATE TABLE IF NOT EXISTS transactions_seq (
+    next_val BIGINT
+) ENGINE = InnoDB;
+INSERT INTO transactions_seq SELECT 1 FROM DUAL WHERE NOT EXISTS (SELECT * FROM transactions_seq);
+UPDATE transactions_seq SET next_val = GREATEST(next_val, (SELECT COALESCE(MAX(id), 0) + 1 FROM transactions));
+
+CREATE TABLE IF NOT EXISTS webhook_events_seq (
+    next_val BIGINT
+) ENGINE = InnoDB;
+INSERT INTO webhook_events_seq SELECT 1 FROM DUAL WHERE NOT EXISTS (SELECT * FROM webhook_events_seq);
+UPDATE webhook_events_seq SET next_val = GREATEST(next_val, (SELECT COALESCE(MAX(id), 0) + 1 FROM webhook_events));
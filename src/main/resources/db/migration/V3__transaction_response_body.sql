@@ -0,0 +1 @@
+ALTER TABLE transactions ADD COLUMN response_body TEXT;
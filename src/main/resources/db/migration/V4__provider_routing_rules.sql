@@ -0,0 +1,12 @@
+CREATE TABLE provider_routing_rules (
+    id           BIGINT       NOT NULL AUTO_INCREMENT,
+    bin_rule     VARCHAR(64)  NOT NULL,
+    provider_key VARCHAR(64)  NOT NULL,
+    active       BIT          NOT NULL,
+    created_at   DATETIME(6)  NOT NULL,
+    updated_at   DATETIME(6),
+    PRIMARY KEY (id)
+) ENGINE = InnoDB;
+
+INSERT INTO provider_routing_rules (bin_rule, provider_key, active, created_at, updated_at)
+VALUES ('4111', 'visa', 1, NOW(6), NOW(6));
@@ -0,0 +1,3 @@
+ALTER TABLE clients
+    ADD COLUMN rate_limit_per_second DOUBLE NULL,
+    ADD COLUMN rate_limit_burst INT NULL;
@@ -0,0 +1,10 @@
+ALTER TABLE transactions ADD COLUMN metadata TEXT NULL;
+
+-- Copy existing rows into the column. transaction_metadata is left in place, so the previous build can still be
+-- rolled back to; it is no longer written and can be dropped once that is no longer needed.
+UPDATE transactions t
+    JOIN (SELECT transaction_id, JSON_OBJECTAGG(metadata_key, metadata_value) AS metadata
+          FROM transaction_metadata
+          GROUP BY transaction_id) m
+    ON m.transaction_id = t.id
+SET t.metadata = m.metadata;
@@ -0,0 +1,85 @@
+package co.proxydemo;
+
+import co.proxydemo.entity.Client;
+import co.proxydemo.repository.ClientRepository;
+import co.proxydemo.service.ClientCacheInvalidationListener;
+import co.proxydemo.service.ClientCredentialCache;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Changes clients through {@link ClientRepository} on the {@code loadtest} profile (in-memory H2) and checks that
+ * {@link ClientCacheInvalidationListener} keeps {@link ClientCredentialCache} from serving the old row.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("loadtest")
+class ClientCacheInvalidationTest {
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url",
+                () -> "jdbc:h2:mem:client-cache-" + UUID.randomUUID() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+    }
+
+    @Autowired
+    private ClientRepository clientRepository;
+
+    @Autowired
+    private ClientCredentialCache clientCredentialCache;
+
+    @Test
+    void should_verify_the_new_secret_and_refuse_the_old_one_after_a_secret_change() {
+        Client client = save("rotating-client", "old-secret");
+        assertThat(verify("rotating-client", "old-secret")).isTrue();
+        assertThat(verify("rotating-client", "new-secret")).isFalse();
+
+        client.setClientSecret("new-secret");
+        clientRepository.save(client);
+
+        assertThat(verify("rotating-client", "old-secret")).isFalse();
+        assertThat(verify("rotating-client", "new-secret")).isTrue();
+    }
+
+    @Test
+    void should_see_a_deactivated_client_on_the_next_get() {
+        Client client = save("deactivated-client", "secret");
+        assertThat(clientCredentialCache.get("deactivated-client")).hasValueSatisfying(cached -> assertThat(cached.active()).isTrue());
+
+        client.setActive(false);
+        clientRepository.save(client);
+
+        assertThat(clientCredentialCache.get("deactivated-client")).hasValueSatisfying(cached -> assertThat(cached.active()).isFalse());
+    }
+
+    @Test
+    void should_find_a_client_created_after_its_id_was_looked_up() {
+        assertThat(clientCredentialCache.get("late-client")).isEmpty();
+
+        save("late-client", "secret");
+
+        assertThat(clientCredentialCache.get("late-client")).isPresent();
+        assertThat(verify("late-client", "secret")).isTrue();
+    }
+
+    private boolean verify(String clientId, String secret) {
+        ClientCredentialCache.CachedClient client = clientCredentialCache.get(clientId).orElseThrow();
+        return clientCredentialCache.verifySecret(clientId, client, secret);
+    }
+
+    private Client save(String clientId, String secret) {
+        Client client = new Client();
+        client.setClientId(clientId);
+        client.setClientSecret(secret);
+        client.setName(clientId);
+        client.setActive(true);
+        return clientRepository.save(client);
+    }
+}
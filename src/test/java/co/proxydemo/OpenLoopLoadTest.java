@@ -0,0 +1,233 @@
+package co.proxydemo;
+
+import co.proxydemo.entity.Client;
+import co.proxydemo.entity.ProviderRoutingRule;
+import co.proxydemo.repository.ClientRepository;
+import co.proxydemo.repository.ProviderRoutingRuleRepository;
+import co.proxydemo.service.PaymentProviderRegistry;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Open-loop load test against the app running on the {@code loadtest} profile (in-memory H2, stub providers), so it
+ * needs neither Docker nor MySQL. Requests are sent on a fixed schedule whether or not earlier ones have returned, and
+ * latency is measured from each request's scheduled send time, so a stalled server shows up in the percentiles
+ * instead of silently lowering the offered load (coordinated omission).
+ * <p>
+ * {@code ./gradlew loadTest --tests '*OpenLoopLoadTest' -Dloadtest.rate=200 -Dloadtest.duration-seconds=60}
+ */
+@Tag("loadtest")
+class OpenLoopLoadTest {
+
+    private static final double RATE = Double.parseDouble(System.getProperty("loadtest.rate", "100"));
+    private static final int DURATION_SECONDS = Integer.getInteger("loadtest.duration-seconds", 30);
+    private static final int WARMUP_SECONDS = Integer.getInteger("loadtest.warmup-seconds", 5);
+    private static final int CLIENTS = Integer.getInteger("loadtest.clients", 5);
+    private static final double RETRY_RATIO = Double.parseDouble(System.getProperty("loadtest.retry-ratio", "0.10"));
+    private static final double DECLINE_RATIO = Double.parseDouble(System.getProperty("loadtest.decline-ratio", "0.05"));
+    private static final double MAX_ERROR_RATE = Double.parseDouble(System.getProperty("loadtest.max-error-rate", "0.01"));
+    private static final Path REPORT = Path.of(System.getProperty("loadtest.report", "build/reports/loadtest/open-loop.txt"));
+
+    private static final String APPROVED_CARD = "4242424242424242";
+    private static final String DECLINED_CARD = "4111111111111111";
+    private static final int RECENT_KEYS = 64;
+    private static final long MAX_LATENCY_NANOS = TimeUnit.MINUTES.toNanos(2);
+
+    private static final int OK = 0;
+    private static final int DECLINED = 1;
+    private static final int SHED = 2;
+    private static final int TIMED_OUT = 3;
+    private static final int ERROR = 4;
+    private static final String[] OUTCOMES = {"ok (200)", "declined (402)", "shed (429)", "timed out (504)", "errors"};
+
+    @Test
+    void drive_open_loop_traffic_and_report() throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(ProxyDemoApplication.class)
+                .profiles("loadtest")
+                .properties("server.port=0")
+                .run()) {
+            seed(context);
+            int port = Integer.parseInt(context.getEnvironment().getProperty("local.server.port"));
+            URI uri = URI.create("http://localhost:" + port + "/api/v1/payments");
+
+            drive(uri, WARMUP_SECONDS, "warmup");
+            Result result = drive(uri, DURATION_SECONDS, "run");
+            String report = result.report();
+            System.out.println(report);
+            Files.createDirectories(REPORT.getParent());
+            Files.writeString(REPORT, report);
+
+            assertThat(result.completed()).isEqualTo(result.sent());
+            assertThat(result.errorRate()).isLessThanOrEqualTo(MAX_ERROR_RATE);
+        }
+    }
+
+    private void seed(ConfigurableApplicationContext context) {
+        ClientRepository clientRepository = context.getBean(ClientRepository.class);
+        for (int i = 0; i < CLIENTS; i++) {
+            Client client = new Client();
+            client.setClientId(clientId(i));
+            client.setClientSecret(clientSecret(i));
+            client.setName("Load client " + i);
+            client.setActive(true);
+            clientRepository.save(client);
+        }
+        ProviderRoutingRule rule = new ProviderRoutingRule();
+        rule.setBinRule("4111");
+        rule.setProviderKey("visa");
+        rule.setActive(true);
+        context.getBean(ProviderRoutingRuleRepository.class).save(rule);
+        context.getBean(PaymentProviderRegistry.class).reload();
+    }
+
+    private Result drive(URI uri, int seconds, String phase) throws IOException {
+        HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+        ConcurrentHistogram corrected = new ConcurrentHistogram(MAX_LATENCY_NANOS, 3);
+        ConcurrentHistogram uncorrected = new ConcurrentHistogram(MAX_LATENCY_NANOS, 3);
+        AtomicLongArray outcomes = new AtomicLongArray(OUTCOMES.length);
+        Random random = new Random(42);
+        String[][] recentKeys = new String[CLIENTS][RECENT_KEYS];
+        String[][] recentCards = new String[CLIENTS][RECENT_KEYS];
+        int[] issued = new int[CLIENTS];
+        int retries = 0;
+
+        int total = (int) Math.round(RATE * seconds);
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / RATE);
+        List<CompletableFuture<?>> calls = new ArrayList<>(total);
+        long started = System.nanoTime();
+        for (int i = 0; i < total; i++) {
+            int client = i % CLIENTS;
+            String key;
+            String card;
+            double roll = random.nextDouble();
+            if (roll < RETRY_RATIO && issued[client] > 0) {
+                int slot = random.nextInt(Math.min(issued[client], RECENT_KEYS));
+                key = recentKeys[client][slot];
+                card = recentCards[client][slot];
+                retries++;
+            } else {
+                key = phase + "-" + client + "-" + issued[client];
+                card = roll < RETRY_RATIO + DECLINE_RATIO ? DECLINED_CARD : APPROVED_CARD;
+                recentKeys[client][issued[client] % RECENT_KEYS] = key;
+                recentCards[client][issued[client] % RECENT_KEYS] = card;
+                issued[client]++;
+            }
+            HttpRequest request = HttpRequest.newBuilder(uri)
+                    .timeout(Duration.ofSeconds(60))
+                    .header("Content-Type", "application/json")
+                    .header("X-Client-Id", clientId(client))
+                    .header("X-Client-Secret", clientSecret(client))
+                    .POST(HttpRequest.BodyPublishers.ofString("""
+                            {"amount": 10.00, "cardNumber": "%s", "cvv": "123",
+                             "expiryDate": "12/30", "idempotencyKey": "%s"}
+                            """.formatted(card, key)))
+                    .build();
+
+            long intended = started + i * intervalNanos;
+            long now;
+            while ((now = System.nanoTime()) < intended) {
+                LockSupport.parkNanos(intended - now);
+            }
+            long sent = now;
+            calls.add(httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> {
+                        long finished = System.nanoTime();
+                        corrected.recordValue(Math.min(finished - intended, MAX_LATENCY_NANOS));
+                        uncorrected.recordValue(Math.min(finished - sent, MAX_LATENCY_NANOS));
+                        outcomes.incrementAndGet(error != null ? ERROR : outcomeOf(response.statusCode()));
+                    }));
+        }
+        long sendingNanos = System.nanoTime() - started;
+        CompletableFuture.allOf(calls.toArray(CompletableFuture[]::new)).exceptionally(ex -> null).join();
+        long elapsedNanos = System.nanoTime() - started;
+        return new Result(total, retries, sendingNanos, elapsedNanos, corrected, uncorrected, outcomes);
+    }
+
+    private static int outcomeOf(int status) {
+        return switch (status) {
+            case 200 -> OK;
+            case 402 -> DECLINED;
+            case 429 -> SHED;
+            case 504 -> TIMED_OUT;
+            default -> ERROR;
+        };
+    }
+
+    private static String clientId(int index) {
+        return "load-client-" + index;
+    }
+
+    private static String clientSecret(int index) {
+        return "load-secret-" + index;
+    }
+
+    private record Result(int sent, int retries, long sendingNanos, long elapsedNanos, Histogram corrected,
+                          Histogram uncorrected, AtomicLongArray outcomes) {
+
+        long completed() {
+            long completed = 0;
+            for (int i = 0; i < outcomes.length(); i++) {
+                completed += outcomes.get(i);
+            }
+            return completed;
+        }
+
+        double errorRate() {
+            return sent == 0 ? 0 : (double) outcomes.get(ERROR) / sent;
+        }
+
+        String report() {
+            StringBuilder report = new StringBuilder();
+            report.append(String.format("%nOpen-loop load test: %.1f req/s for %ds over %d client(s), %.0f%% retries, %.0f%% declines%n",
+                    RATE, DURATION_SECONDS, CLIENTS, RETRY_RATIO * 100, DECLINE_RATIO * 100));
+            report.append(String.format("%-16s %10d (%d idempotent retries, offered %.1f req/s)%n",
+                    "sent", sent, retries, sent / seconds(sendingNanos)));
+            report.append(String.format("%-16s %10d (%.1f req/s)%n", "completed", completed(), completed() / seconds(elapsedNanos)));
+            for (int i = 0; i < OUTCOMES.length; i++) {
+                report.append(String.format("%-16s %10d %9.2f%%%n", OUTCOMES[i], outcomes.get(i),
+                        sent == 0 ? 0 : 100.0 * outcomes.get(i) / sent));
+            }
+            report.append(String.format("%n%-16s %10s %10s %10s %10s %10s%n", "latency ms", "p50", "p90", "p99", "p99.9", "max"));
+            appendLatencies(report, "corrected", corrected);
+            appendLatencies(report, "uncorrected", uncorrected);
+            return report.toString();
+        }
+
+        private static void appendLatencies(StringBuilder report, String label, Histogram histogram) {
+            report.append(String.format("%-16s %10.1f %10.1f %10.1f %10.1f %10.1f%n", label,
+                    millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(90)),
+                    millis(histogram.getValueAtPercentile(99)), millis(histogram.getValueAtPercentile(99.9)),
+                    millis(histogram.getMaxValue())));
+        }
+
+        private static double seconds(long nanos) {
+            return nanos / 1_000_000_000.0;
+        }
+
+        private static double millis(long nanos) {
+            return nanos / 1_000_000.0;
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package co.proxydemo;
+
+import co.proxydemo.dto.PaymentRequest;
+import co.proxydemo.dto.PaymentResponse;
+import co.proxydemo.entity.Client;
+import co.proxydemo.entity.Transaction;
+import co.proxydemo.repository.ClientRepository;
+import co.proxydemo.repository.TransactionRepository;
+import co.proxydemo.service.PaymentJournal;
+import co.proxydemo.service.PaymentMetrics;
+import co.proxydemo.service.PaymentProviderRegistry;
+import co.proxydemo.service.PaymentServiceProxy;
+import co.proxydemo.service.ProviderCallExecutor;
+import co.proxydemo.service.ProviderHealthTracker;
+import co.proxydemo.service.ProviderResilience;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs {@link PaymentServiceProxy}'s async path on the {@code loadtest} profile (in-memory H2) with a completion
+ * executor and a provider call executor that the test can make reject their work.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("loadtest")
+class PaymentCompletionRejectionTest {
+
+    private static final String CLIENT_ID = "rejection-client";
+    private static final String SECRET = "rejection-secret";
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) throws IOException {
+        registry.add("spring.datasource.url",
+                () -> "jdbc:h2:mem:rejection-" + UUID.randomUUID() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        registry.add("payment.providers.stripe.delay", () -> "10ms");
+        registry.add("payment.providers.stripe.delay-jitter", () -> "0ms");
+        registry.add("payment.providers.visa.delay", () -> "10ms");
+        registry.add("payment.providers.visa.delay-jitter", () -> "0ms");
+        registry.add("payment.journal.enabled", () -> "true");
+        registry.add("payment.journal.directory", Files.createTempDirectory("payment-journal")::toString);
+        registry.add("payment.journal.segment-size", () -> "1MB");
+    }
+
+    @Autowired
+    private PaymentServiceProxy paymentService;
+
+    @Autowired
+    private ClientRepository clientRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private PaymentJournal paymentJournal;
+
+    @Autowired
+    private SwitchableExecutor completionExecutor;
+
+    @Autowired
+    private RejectingProviderCallExecutor providerCallExecutor;
+
+    private Long clientPk;
+
+    @BeforeEach
+    void setUp() {
+        Client client = clientRepository.findByClientId(CLIENT_ID).orElseGet(() -> {
+            Client created = new Client();
+            created.setClientId(CLIENT_ID);
+            created.setClientSecret(SECRET);
+            created.setName("Rejection Client");
+            created.setActive(true);
+            return clientRepository.save(created);
+        });
+        clientPk = client.getId();
+    }
+
+    @AfterEach
+    void tearDown() {
+        completionExecutor.rejecting = false;
+        completionExecutor.rejected.set(0);
+        providerCallExecutor.rejecting = false;
+    }
+
+    @Test
+    void should_leave_the_row_pending_and_journal_the_outcome_when_the_completion_is_rejected() throws Exception {
+        completionExecutor.rejecting = true;
+
+        PaymentResponse response = pay("completion-rejected");
+
+        assertThat(response.getErrorCode()).isEqualTo("payment_in_progress");
+        assertThat(completionExecutor.rejected).hasValue(1);
+        Transaction row = row("completion-rejected");
+        assertThat(row.getStatus()).isEqualTo("PENDING");
+        assertThat(response.getTransactionId()).isEqualTo(row.getId().toString());
+        assertThat(journaledTransactionIds()).contains(row.getId());
+
+        completionExecutor.rejecting = false;
+        PaymentResponse retry = pay("completion-rejected");
+
+        assertThat(retry.getErrorCode()).isEqualTo("payment_in_progress");
+        assertThat(row("completion-rejected").getStatus()).isEqualTo("PENDING");
+    }
+
+    @Test
+    void should_leave_every_forwarded_batch_item_pending_when_the_batch_completion_is_rejected() throws Exception {
+        completionExecutor.rejecting = true;
+
+        List<PaymentResponse> responses = paymentService.processBatchAsync(
+                        List.of(request("batch-rejected-1"), request("batch-rejected-2"), request("batch-rejected-1")),
+                        CLIENT_ID, SECRET)
+                .get(10, TimeUnit.SECONDS);
+
+        assertThat(responses).extracting(PaymentResponse::getErrorCode).containsOnly("payment_in_progress");
+        assertThat(responses.get(2)).isSameAs(responses.get(0));
+        assertThat(row("batch-rejected-1").getStatus()).isEqualTo("PENDING");
+        assertThat(row("batch-rejected-2").getStatus()).isEqualTo("PENDING");
+        assertThat(journaledTransactionIds()).contains(row("batch-rejected-1").getId(), row("batch-rejected-2").getId());
+    }
+
+    @Test
+    void should_finalize_the_reservation_as_failed_when_the_provider_call_is_rejected() throws Exception {
+        providerCallExecutor.rejecting = true;
+
+        PaymentResponse response = pay("call-rejected");
+
+        assertThat(response.isSuccess()).isFalse();
+        assertThat(response.getErrorCode()).isEqualTo("provider_unavailable");
+        assertThat(row("call-rejected").getStatus()).isEqualTo("FAILED");
+
+        providerCallExecutor.rejecting = false;
+        PaymentResponse retry = pay("call-rejected");
+
+        assertThat(retry.getErrorCode()).isEqualTo("provider_unavailable");
+    }
+
+    @Test
+    void should_finalize_on_the_completion_executor_when_nothing_rejects() throws Exception {
+        PaymentResponse response = pay("accepted");
+
+        assertThat(response.isSuccess()).isTrue();
+        assertThat(row("accepted").getStatus()).isEqualTo("SUCCESS");
+        assertThat(completionExecutor.rejected).hasValue(0);
+    }
+
+    private PaymentResponse pay(String idempotencyKey) throws Exception {
+        return paymentService.processPaymentAsync(request(idempotencyKey), CLIENT_ID, SECRET).get(10, TimeUnit.SECONDS);
+    }
+
+    private Transaction row(String idempotencyKey) {
+        return transactionRepository.findByClientAndIdempotencyKey(clientPk, idempotencyKey).orElseThrow();
+    }
+
+    private List<Long> journaledTransactionIds() throws IOException {
+        List<Long> ids = new ArrayList<>();
+        paymentJournal.read(paymentJournal.firstIndex(), entry -> ids.add(entry.transactionId()));
+        return ids;
+    }
+
+    private static PaymentRequest request(String idempotencyKey) {
+        PaymentRequest request = new PaymentRequest();
+        request.setAmount(25.0);
+        request.setCardNumber("4242424242424242");
+        request.setCvv("123");
+        request.setExpiryDate("12/30");
+        request.setProvider("visa");
+        request.setIdempotencyKey(idempotencyKey);
+        return request;
+    }
+
+    @TestConfiguration
+    static class RejectingExecutors {
+
+        @Bean
+        @Primary
+        @Qualifier("paymentCompletionExecutor")
+        SwitchableExecutor switchableCompletionExecutor() {
+            return new SwitchableExecutor();
+        }
+
+        @Bean
+        @Primary
+        RejectingProviderCallExecutor rejectingProviderCallExecutor(
+                PaymentProviderRegistry providerRegistry,
+                ProviderHealthTracker healthTracker,
+                ProviderResilience resilience,
+                PaymentMetrics paymentMetrics,
+                @Qualifier("providerScheduler") ScheduledExecutorService providerScheduler,
+                MeterRegistry meterRegistry
+        ) {
+            return new RejectingProviderCallExecutor(providerRegistry, healthTracker, resilience, paymentMetrics,
+                    providerScheduler, meterRegistry);
+        }
+    }
+
+    /**
+     * Runs completions on the common pool, or rejects them like a saturated pool while {@link #rejecting} is set.
+     */
+    static class SwitchableExecutor implements Executor {
+
+        volatile boolean rejecting;
+        final AtomicInteger rejected = new AtomicInteger();
+
+        @Override
+        public void execute(Runnable task) {
+            if (rejecting) {
+                rejected.incrementAndGet();
+                throw new RejectedExecutionException("Completion queue is full");
+            }
+            ForkJoinPool.commonPool().execute(task);
+        }
+    }
+
+    /**
+     * Fails every call with a {@link RejectedExecutionException} while {@link #rejecting} is set.
+     */
+    static class RejectingProviderCallExecutor extends ProviderCallExecutor {
+
+        volatile boolean rejecting;
+
+        RejectingProviderCallExecutor(PaymentProviderRegistry providerRegistry, ProviderHealthTracker healthTracker,
+                                      ProviderResilience resilience, PaymentMetrics paymentMetrics,
+                                      ScheduledExecutorService providerScheduler, MeterRegistry meterRegistry) {
+            super(providerRegistry, healthTracker, resilience, paymentMetrics, providerScheduler, meterRegistry,
+                    false, 0.95, Duration.ofMillis(50), Duration.ofSeconds(2));
+        }
+
+        @Override
+        public CompletableFuture<PaymentResponse> callAsync(PaymentRequest request) {
+            if (rejecting) {
+                return CompletableFuture.failedFuture(new RejectedExecutionException("Provider scheduler is shut down"));
+            }
+            return super.callAsync(request);
+        }
+    }
+}
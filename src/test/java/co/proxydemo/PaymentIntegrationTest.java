@@ -1,7 +1,9 @@
 package co.proxydemo;
 
+import co.proxydemo.dto.BatchPaymentResponse;
 import co.proxydemo.dto.PaymentRequest;
 import co.proxydemo.dto.PaymentResponse;
+import co.proxydemo.dto.ValidationError;
 import co.proxydemo.entity.Client;
 import co.proxydemo.entity.Transaction;
 import co.proxydemo.repository.ClientRepository;
@@ -174,4 +176,34 @@ public class PaymentIntegrationTest {
         Client persistedClient = clientRepository.findById(tx.getClient().getId()).orElseThrow();
         assertThat(persistedClient.getClientId()).isEqualTo("client-123");
     }
+
+    @Test
+    void should_reject_a_null_batch_item_without_failing_the_rest_of_the_batch() {
+        String body = """
+                {"payments": [
+                  {"amount": 15.0, "cardNumber": "4111222233334448", "cvv": "123", "expiryDate": "12/30",
+                   "provider": "visa", "idempotencyKey": "idem-batch-3001"},
+                  null
+                ]}
+                """;
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.set("X-Client-Id", "client-123");
+        headers.set("X-Client-Secret", "secret-abc");
+
+        ResponseEntity<BatchPaymentResponse> response = restTemplate.postForEntity(baseUrl() + "/batch",
+                new HttpEntity<>(body, headers), BatchPaymentResponse.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        BatchPaymentResponse batch = response.getBody();
+        assertThat(batch).isNotNull();
+        assertThat(batch.getTotal()).isEqualTo(2);
+        assertThat(batch.getResults().get(0).isSuccess()).isTrue();
+        PaymentResponse rejected = batch.getResults().get(1);
+        assertThat(rejected.isSuccess()).isFalse();
+        assertThat(rejected.getErrorCode()).isEqualTo("validation_error");
+        assertThat(rejected.getValidationError()).isEqualTo(new ValidationError("payment", "required"));
+        assertThat(transactionRepository.findAll()).hasSize(1);
+    }
 }
@@ -0,0 +1,169 @@
+package co.proxydemo;
+
+import co.proxydemo.dto.PaymentRequest;
+import co.proxydemo.dto.PaymentResponse;
+import co.proxydemo.entity.Client;
+import co.proxydemo.repository.ClientRepository;
+import co.proxydemo.service.PaymentService;
+import co.proxydemo.service.PaymentServiceProxy;
+import co.proxydemo.service.ShardRebalancer;
+import co.proxydemo.service.ShardRouter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs payments through {@link PaymentServiceProxy} against two MySQL shards.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@Testcontainers
+class ShardedPaymentIntegrationTest {
+
+    private static final String SECRET = "secret-abc";
+
+    @Container
+    private static final MySQLContainer<?> SHARD_0 = new MySQLContainer<>("mysql:8.0")
+            .withDatabaseName("proxy_db")
+            .withUsername("test")
+            .withPassword("test");
+
+    @Container
+    private static final MySQLContainer<?> SHARD_1 = new MySQLContainer<>("mysql:8.0")
+            .withDatabaseName("proxy_db")
+            .withUsername("test")
+            .withPassword("test");
+
+    @DynamicPropertySource
+    static void shards(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", SHARD_0::getJdbcUrl);
+        registry.add("spring.datasource.username", () -> "test");
+        registry.add("spring.datasource.password", () -> "test");
+        registry.add("payment.sharding.enabled", () -> "true");
+        registry.add("payment.sharding.urls", () -> SHARD_0.getJdbcUrl() + "," + SHARD_1.getJdbcUrl());
+        registry.add("payment.sharding.rebalance-on-startup", () -> "false");
+    }
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private ClientRepository clientRepository;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private ShardRebalancer shardRebalancer;
+
+    private List<JdbcTemplate> shards;
+
+    @BeforeEach
+    void setUp() {
+        shards = List.of(jdbc(SHARD_0), jdbc(SHARD_1));
+    }
+
+    @Test
+    void should_reserve_and_replay_a_payment_on_the_clients_own_shard() {
+        String clientId = clientOnShard(1);
+        PaymentRequest request = request("idem-" + UUID.randomUUID());
+
+        PaymentResponse first = paymentService.processPayment(request, clientId, SECRET);
+        PaymentResponse replay = paymentService.processPayment(request, clientId, SECRET);
+
+        assertThat(first.isSuccess()).isTrue();
+        assertThat(replay.getTransactionId()).isEqualTo(first.getTransactionId());
+        assertThat(awaitStatus(1, request.getIdempotencyKey())).isEqualTo("SUCCESS");
+        assertThat(countByKey(0, request.getIdempotencyKey())).isZero();
+        assertThat(countByKey(1, request.getIdempotencyKey())).isEqualTo(1);
+    }
+
+    @Test
+    void should_refuse_a_moving_client_and_replay_its_payment_once_moved() {
+        String clientId = clientOnShard(1);
+        long clientPk = clientRepository.findByClientId(clientId).orElseThrow().getId();
+        String idempotencyKey = "idem-" + UUID.randomUUID();
+        shards.get(0).update("INSERT INTO transactions (id, amount, card_last4, created_at, idempotency_key, "
+                        + "provider_transaction_id, status, client_id) VALUES (?, 25.0, '4448', NOW(6), ?, ?, 'SUCCESS', ?)",
+                1L << 39, idempotencyKey, "visa-before-move", clientPk);
+
+        shardRebalancer.findMisplacedClients();
+        PaymentResponse refused = paymentService.processPayment(request(idempotencyKey), clientId, SECRET);
+
+        assertThat(shardRouter.isMoving(clientPk)).isTrue();
+        assertThat(refused.isSuccess()).isFalse();
+        assertThat(refused.getErrorCode()).isEqualTo(PaymentServiceProxy.ERROR_CLIENT_MOVING);
+        assertThat(countByKey(1, idempotencyKey)).isZero();
+
+        shardRebalancer.rebalance();
+        PaymentResponse replay = paymentService.processPayment(request(idempotencyKey), clientId, SECRET);
+
+        assertThat(shardRouter.isMoving(clientPk)).isFalse();
+        assertThat(replay.isSuccess()).isTrue();
+        assertThat(replay.getTransactionId()).isEqualTo("visa-before-move");
+        assertThat(countByKey(0, idempotencyKey)).isZero();
+        assertThat(countByKey(1, idempotencyKey)).isEqualTo(1);
+    }
+
+    private String clientOnShard(int shard) {
+        String clientId;
+        do {
+            clientId = "merchant-" + UUID.randomUUID();
+        } while (shardRouter.shardOf(clientId) != shard);
+        Client client = new Client();
+        client.setClientId(clientId);
+        client.setClientSecret(SECRET);
+        client.setName("Sharded Client");
+        client.setActive(true);
+        clientRepository.save(client);
+        return clientId;
+    }
+
+    private static PaymentRequest request(String idempotencyKey) {
+        PaymentRequest request = new PaymentRequest();
+        request.setAmount(25.0);
+        request.setCardNumber("4111222233334448");
+        request.setCvv("123");
+        request.setExpiryDate("12/30");
+        request.setProvider("visa");
+        request.setIdempotencyKey(idempotencyKey);
+        return request;
+    }
+
+    private String awaitStatus(int shard, String idempotencyKey) {
+        String status = null;
+        for (int i = 0; i < 50 && !"SUCCESS".equals(status); i++) {
+            List<String> statuses = shards.get(shard).queryForList(
+                    "SELECT status FROM transactions WHERE idempotency_key = ?", String.class, idempotencyKey);
+            status = statuses.isEmpty() ? null : statuses.get(0);
+            if (!"SUCCESS".equals(status)) {
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException ignored) {
+                }
+            }
+        }
+        return status;
+    }
+
+    private int countByKey(int shard, String idempotencyKey) {
+        return shards.get(shard).queryForObject("SELECT COUNT(*) FROM transactions WHERE idempotency_key = ?",
+                Integer.class, idempotencyKey);
+    }
+
+    private static JdbcTemplate jdbc(MySQLContainer<?> container) {
+        return new JdbcTemplate(new DriverManagerDataSource(container.getJdbcUrl(), "test", "test"));
+    }
+}
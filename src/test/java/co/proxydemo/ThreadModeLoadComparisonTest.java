@@ -0,0 +1,139 @@
+package co.proxydemo;
+
+import co.proxydemo.entity.Client;
+import co.proxydemo.repository.ClientRepository;
+import co.proxydemo.repository.TransactionRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Tag("loadtest")
+@Testcontainers
+class ThreadModeLoadComparisonTest {
+
+    private static final int REQUESTS = Integer.getInteger("loadtest.requests", 500);
+    private static final int CONCURRENCY = Integer.getInteger("loadtest.concurrency", 100);
+
+    @Container
+    private static final MySQLContainer<?> MYSQL = new MySQLContainer<>("mysql:8.0")
+            .withDatabaseName("proxy_db")
+            .withUsername("test")
+            .withPassword("test");
+
+    @Test
+    void compare_platform_and_virtual_thread_modes() throws Exception {
+        ModeResult platform = run("platform", false);
+        ModeResult virtual = run("virtual", true);
+
+        System.out.printf("%n%-10s %10s %10s %10s %8s%n", "mode", "req/s", "p50 ms", "p99 ms", "errors");
+        for (ModeResult result : new ModeResult[]{platform, virtual}) {
+            System.out.printf("%-10s %10.1f %10d %10d %8d%n",
+                    result.mode(), result.throughput(), result.p50Ms(), result.p99Ms(), result.errors());
+        }
+
+        // Every request uses a valid card with its own idempotency key and admission control is off, so any non-200
+        // is a regression rather than load shedding.
+        assertThat(platform.errors()).as("platform mode errors, first: %s", platform.firstError()).isZero();
+        assertThat(virtual.errors()).as("virtual mode errors, first: %s", virtual.firstError()).isZero();
+    }
+
+    private ModeResult run(String mode, boolean virtualThreads) throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(ProxyDemoApplication.class)
+                .properties(
+                        "server.port=0",
+                        "spring.datasource.url=" + MYSQL.getJdbcUrl(),
+                        "spring.datasource.username=" + MYSQL.getUsername(),
+                        "spring.datasource.password=" + MYSQL.getPassword(),
+                        "spring.jpa.show-sql=false",
+                        "spring.docker.compose.enabled=false",
+                        "payment.admission.rate-limit.enabled=false",
+                        "payment.admission.concurrency.enabled=false",
+                        "spring.threads.virtual.enabled=" + virtualThreads
+                )
+                .run()) {
+            String clientId = "load-" + mode;
+            ClientRepository clientRepository = context.getBean(ClientRepository.class);
+            if (clientRepository.findByClientId(clientId).isEmpty()) {
+                Client client = new Client();
+                client.setClientId(clientId);
+                client.setClientSecret("load-secret");
+                client.setName("Load " + mode);
+                client.setActive(true);
+                clientRepository.save(client);
+            }
+
+            int port = Integer.parseInt(context.getEnvironment().getProperty("local.server.port"));
+            ModeResult result = drive(mode, URI.create("http://localhost:" + port + "/api/v1/payments"), clientId);
+            context.getBean(TransactionRepository.class).deleteAll();
+            return result;
+        }
+    }
+
+    private ModeResult drive(String mode, URI uri, String clientId) throws Exception {
+        HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+        Semaphore inFlight = new Semaphore(CONCURRENCY);
+        AtomicInteger errors = new AtomicInteger();
+        AtomicReference<String> firstError = new AtomicReference<>();
+        long[] latencies = new long[REQUESTS];
+        CompletableFuture<?>[] calls = new CompletableFuture<?>[REQUESTS];
+
+        long started = System.nanoTime();
+        for (int i = 0; i < REQUESTS; i++) {
+            inFlight.acquire();
+            int index = i;
+            String body = """
+                    {"amount": 10.00, "cardNumber": "4242424242424242", "cvv": "123",
+                     "expiryDate": "12/30", "idempotencyKey": "%s-%d"}
+                    """.formatted(mode, i);
+            HttpRequest request = HttpRequest.newBuilder(uri)
+                    .timeout(Duration.ofSeconds(60))
+                    .header("Content-Type", "application/json")
+                    .header("X-Client-Id", clientId)
+                    .header("X-Client-Secret", "load-secret")
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+            long sent = System.nanoTime();
+            calls[i] = httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> {
+                        latencies[index] = System.nanoTime() - sent;
+                        if (error != null || response.statusCode() != 200) {
+                            errors.incrementAndGet();
+                            firstError.compareAndSet(null, error != null ? error.toString() : "HTTP " + response.statusCode());
+                        }
+                        inFlight.release();
+                    });
+        }
+        CompletableFuture.allOf(calls).exceptionally(ex -> null).join();
+        long elapsed = System.nanoTime() - started;
+
+        Arrays.sort(latencies);
+        return new ModeResult(
+                mode,
+                REQUESTS / (elapsed / 1_000_000_000.0),
+                latencies[REQUESTS / 2] / 1_000_000,
+                latencies[(int) (REQUESTS * 0.99)] / 1_000_000,
+                errors.get(),
+                firstError.get()
+        );
+    }
+
+    private record ModeResult(String mode, double throughput, long p50Ms, long p99Ms, int errors, String firstError) {
+    }
+}
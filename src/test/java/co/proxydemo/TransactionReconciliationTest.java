@@ -0,0 +1,178 @@
+package co.proxydemo;
+
+import co.proxydemo.dto.PaymentResponse;
+import co.proxydemo.dto.WebhookEvent;
+import co.proxydemo.entity.Client;
+import co.proxydemo.entity.Transaction;
+import co.proxydemo.repository.ClientRepository;
+import co.proxydemo.repository.TransactionRepository;
+import co.proxydemo.service.PaymentJournalCompactor;
+import co.proxydemo.service.PendingTransactionReconciler;
+import co.proxydemo.service.ShardRouter;
+import co.proxydemo.service.TransactionFinalizer;
+import co.proxydemo.service.TransactionWriteBehind;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs {@link TransactionFinalizer} and {@link PendingTransactionReconciler} against the {@code loadtest} profile's
+ * in-memory H2 schema. The scheduled reconciliation is pushed out of the way so only the test moves rows.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("loadtest")
+class TransactionReconciliationTest {
+
+    private static final Duration STALE_AFTER = Duration.ofMinutes(5);
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url",
+                () -> "jdbc:h2:mem:reconciliation-" + UUID.randomUUID() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        registry.add("payment.reconciliation.initial-delay-ms", () -> "3600000");
+        registry.add("payment.reconciliation.stale-after", () -> "5m");
+    }
+
+    @Autowired
+    private ClientRepository clientRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private TransactionFinalizer transactionFinalizer;
+
+    @Autowired
+    private PendingTransactionReconciler reconciler;
+
+    @Autowired
+    private PaymentJournalCompactor paymentJournalCompactor;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    private Client client;
+
+    @BeforeEach
+    void setUp() {
+        client = clientRepository.findByClientId("reconciliation-client").orElseGet(() -> {
+            Client created = new Client();
+            created.setClientId("reconciliation-client");
+            created.setClientSecret("reconciliation-secret");
+            created.setName("Reconciliation Client");
+            created.setActive(true);
+            return clientRepository.save(created);
+        });
+    }
+
+    @Test
+    void should_finalize_only_a_pending_or_unknown_row() {
+        Transaction pending = row("PENDING", LocalDateTime.now());
+        Transaction unknown = row("UNKNOWN", LocalDateTime.now().minusHours(1));
+        Transaction failed = row("FAILED", LocalDateTime.now());
+
+        assertThat(transactionFinalizer.finalizeTransaction(pending, success(), "{\"pending\":true}", event())).isTrue();
+        assertThat(transactionFinalizer.finalizeTransaction(unknown, success(), "{\"unknown\":true}", event())).isTrue();
+        assertThat(transactionFinalizer.finalizeTransaction(failed, success(), "{\"failed\":true}", event())).isFalse();
+        assertThat(transactionFinalizer.finalizeTransaction(pending, failure(), "{\"again\":true}", event())).isFalse();
+
+        Transaction finalized = reload(pending);
+        assertThat(finalized.getStatus()).isEqualTo("SUCCESS");
+        assertThat(finalized.getProviderTransactionId()).isEqualTo("visa-1");
+        assertThat(finalized.getResponseBody()).isEqualTo("{\"pending\":true}");
+        assertThat(reload(unknown).getStatus()).isEqualTo("SUCCESS");
+        assertThat(reload(failed).getStatus()).isEqualTo("FAILED");
+        assertThat(reload(failed).getResponseBody()).isNull();
+    }
+
+    @Test
+    void should_mark_a_pending_row_older_than_stale_after_as_unknown() {
+        Transaction stale = row("PENDING", LocalDateTime.now().minus(STALE_AFTER).minusMinutes(1));
+        Transaction fresh = row("PENDING", LocalDateTime.now().minus(STALE_AFTER).plusMinutes(1));
+        Transaction oldFinal = row("SUCCESS", LocalDateTime.now().minusHours(1));
+
+        reconciler.reconcile();
+
+        Transaction reconciled = reload(stale);
+        assertThat(reconciled.getStatus()).isEqualTo("UNKNOWN");
+        assertThat(reconciled.getErrorMessage()).contains("needs review");
+        assertThat(reload(fresh).getStatus()).isEqualTo("PENDING");
+        assertThat(reload(oldFinal).getStatus()).isEqualTo("SUCCESS");
+
+        assertThat(transactionFinalizer.finalizeTransaction(stale, success(), "{}", event())).isTrue();
+        assertThat(reload(stale).getStatus()).isEqualTo("SUCCESS");
+    }
+
+    @Test
+    void should_leave_a_stale_row_alone_while_its_completion_is_queued_in_the_write_behind() {
+        Transaction queued = row("PENDING", LocalDateTime.now().minusHours(1));
+        Transaction abandoned = row("PENDING", LocalDateTime.now().minusHours(1));
+        PendingTransactionReconciler reconciler = new PendingTransactionReconciler(transactionRepository,
+                paymentJournalCompactor, shardRouter, new QueuedWriteBehind(Set.of(queued.getId())), STALE_AFTER);
+
+        reconciler.reconcile();
+
+        assertThat(reload(queued).getStatus()).isEqualTo("PENDING");
+        assertThat(reload(abandoned).getStatus()).isEqualTo("UNKNOWN");
+    }
+
+    private Transaction row(String status, LocalDateTime createdAt) {
+        Transaction transaction = new Transaction();
+        transaction.setClient(client);
+        transaction.setAmount(25.0);
+        transaction.setCardLast4("4242");
+        transaction.setStatus(status);
+        transaction.setCreatedAt(createdAt);
+        transaction.setIdempotencyKey(UUID.randomUUID().toString());
+        return transactionRepository.save(transaction);
+    }
+
+    private Transaction reload(Transaction transaction) {
+        return transactionRepository.findById(transaction.getId()).orElseThrow();
+    }
+
+    private static PaymentResponse success() {
+        return new PaymentResponse(true, "visa-1", "Payment processed successfully", null, LocalDateTime.now());
+    }
+
+    private static PaymentResponse failure() {
+        return new PaymentResponse(false, null, "Card declined", "card_declined", LocalDateTime.now());
+    }
+
+    private static WebhookEvent event() {
+        return new WebhookEvent(UUID.randomUUID().toString(), "payment.succeeded", "visa-1", 25.0, LocalDateTime.now(),
+                null, null, null);
+    }
+
+    /**
+     * A disabled write-behind that reports a fixed set of transactions as queued.
+     */
+    private static class QueuedWriteBehind extends TransactionWriteBehind {
+
+        private final Set<Long> queued;
+
+        QueuedWriteBehind(Set<Long> queued) {
+            super(null, null, null, null, false, Path.of("unused"), DataSize.ofBytes(0), 1, 1, Duration.ofMillis(10),
+                    Duration.ofMillis(10), Duration.ofSeconds(1));
+            this.queued = queued;
+        }
+
+        @Override
+        public boolean isQueued(long transactionId) {
+            return queued.contains(transactionId);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package co.proxydemo.config;
+
+import co.proxydemo.service.ReplicaReadRouting;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReplicaRoutingDataSourceTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate writeTransaction;
+    private TransactionTemplate readOnlyTransaction;
+    private ReplicaReadRouting routing;
+
+    @BeforeEach
+    void setUp() {
+        String suffix = UUID.randomUUID().toString();
+        DataSource primary = database("primary-" + suffix, "primary");
+        DataSource replica = database("replica-" + suffix, "replica");
+        ReplicaRoutingDataSource routingDataSource = new ReplicaRoutingDataSource(primary, replica);
+        routingDataSource.afterPropertiesSet();
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routingDataSource);
+
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        writeTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+        routing = new ReplicaReadRouting(new SimpleMeterRegistry(), true, Duration.ofMinutes(1), 1000);
+    }
+
+    @Test
+    void should_send_read_only_transactions_to_the_replica_and_writes_to_the_primary() {
+        assertThat(readOnlyTransaction.execute(status -> whichDatabase())).isEqualTo("replica");
+        assertThat(writeTransaction.execute(status -> whichDatabase())).isEqualTo("primary");
+        assertThat(whichDatabase()).isEqualTo("primary");
+    }
+
+    @Test
+    void should_read_from_the_primary_inside_a_clients_read_your_writes_window() {
+        routing.recordWrite(1L);
+
+        assertThat(routing.read(1L, () -> readOnlyTransaction.execute(status -> whichDatabase()))).isEqualTo("primary");
+        assertThat(routing.read(2L, () -> readOnlyTransaction.execute(status -> whichDatabase()))).isEqualTo("replica");
+    }
+
+    @Test
+    void should_read_from_the_replica_once_the_window_has_passed() throws InterruptedException {
+        routing = new ReplicaReadRouting(new SimpleMeterRegistry(), true, Duration.ofMillis(50), 1000);
+        routing.recordWrite(1L);
+        Thread.sleep(100);
+
+        assertThat(routing.read(1L, () -> readOnlyTransaction.execute(status -> whichDatabase()))).isEqualTo("replica");
+    }
+
+    @Test
+    void should_force_the_primary_for_reads_that_must_be_current() {
+        assertThat(routing.onPrimary(() -> readOnlyTransaction.execute(status -> whichDatabase()))).isEqualTo("primary");
+        assertThat(readOnlyTransaction.execute(status -> whichDatabase())).isEqualTo("replica");
+    }
+
+    @Test
+    void should_not_force_the_primary_when_routing_is_disabled() {
+        ReplicaReadRouting disabled = new ReplicaReadRouting(new SimpleMeterRegistry(), false, Duration.ofMinutes(1), 1000);
+        disabled.recordWrite(1L);
+
+        assertThat(disabled.read(1L, () -> readOnlyTransaction.execute(status -> whichDatabase()))).isEqualTo("replica");
+    }
+
+    private String whichDatabase() {
+        return jdbcTemplate.queryForObject("SELECT name FROM instance", String.class);
+    }
+
+    private static DataSource database(String name, String label) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate setup = new JdbcTemplate(dataSource);
+        setup.execute("CREATE TABLE instance (name VARCHAR(16))");
+        setup.update("INSERT INTO instance VALUES (?)", label);
+        return dataSource;
+    }
+}
@@ -0,0 +1,97 @@
+package co.proxydemo.config;
+
+import co.proxydemo.service.ShardRouter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ShardRoutingDataSourceTest {
+
+    private static final int SHARDS = 3;
+
+    private List<DataSource> shards;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private ShardRouter router;
+
+    @BeforeEach
+    void setUp() {
+        String suffix = UUID.randomUUID().toString();
+        shards = new ArrayList<>();
+        for (int shard = 0; shard < SHARDS; shard++) {
+            shards.add(database("shard-" + shard + "-" + suffix, "shard-" + shard));
+        }
+        ShardRoutingDataSource routingDataSource = new ShardRoutingDataSource(shards);
+        routingDataSource.afterPropertiesSet();
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routingDataSource);
+
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        router = new ShardRouter(null, true, List.of("a", "b", "c"), 64, 1000, false);
+    }
+
+    @Test
+    void should_use_the_home_shard_outside_a_shard_scope() {
+        assertThat(whichDatabase()).isEqualTo("shard-0");
+    }
+
+    @Test
+    void should_run_transactions_on_the_selected_shard() {
+        assertThat(router.onShard(2, () -> transactionTemplate.execute(status -> whichDatabase()))).isEqualTo("shard-2");
+        assertThat(router.onShard(1, () -> router.onShard(2, this::whichDatabase) + "," + whichDatabase()))
+                .isEqualTo("shard-2,shard-1");
+    }
+
+    @Test
+    void should_query_every_shard_when_scattering() {
+        assertThat(router.scatter(shard -> whichDatabase())).containsExactly("shard-0", "shard-1", "shard-2");
+    }
+
+    @Test
+    void should_start_each_shards_sequences_in_its_own_id_range() {
+        for (int shard = 0; shard < SHARDS; shard++) {
+            ShardingConfig.offsetSequences(shards.get(shard), shard);
+        }
+
+        for (int shard = 0; shard < SHARDS; shard++) {
+            Long nextVal = new JdbcTemplate(shards.get(shard)).queryForObject("SELECT next_val FROM transactions_seq", Long.class);
+            assertThat(nextVal).isEqualTo(shard == 0 ? 1L : (long) shard << ShardingConfig.SHARD_ID_BITS);
+        }
+    }
+
+    @Test
+    void should_route_everything_to_one_shard_when_disabled() {
+        ShardRouter disabled = new ShardRouter(null, false, List.of(), 64, 1000, false);
+
+        assertThat(disabled.shardCount()).isEqualTo(1);
+        assertThat(disabled.shardOf("merchant-1")).isZero();
+        assertThat(disabled.onShard(2, this::whichDatabase)).isEqualTo("shard-0");
+    }
+
+    private String whichDatabase() {
+        return jdbcTemplate.queryForObject("SELECT name FROM instance", String.class);
+    }
+
+    private static DataSource database(String name, String label) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + name + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate setup = new JdbcTemplate(dataSource);
+        setup.execute("CREATE TABLE instance (name VARCHAR(16))");
+        setup.update("INSERT INTO instance VALUES (?)", label);
+        setup.execute("CREATE TABLE transactions_seq (next_val BIGINT)");
+        setup.execute("CREATE TABLE webhook_events_seq (next_val BIGINT)");
+        setup.update("INSERT INTO transactions_seq VALUES (1)");
+        setup.update("INSERT INTO webhook_events_seq VALUES (1)");
+        return dataSource;
+    }
+}
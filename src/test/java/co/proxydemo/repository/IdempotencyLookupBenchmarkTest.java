@@ -0,0 +1,126 @@
+package co.proxydemo.repository;
+
+import co.proxydemo.ProxyDemoApplication;
+import co.proxydemo.entity.Client;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.MySQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Tag("loadtest")
+@Testcontainers
+class IdempotencyLookupBenchmarkTest {
+
+    private static final String SIZES = System.getProperty("loadtest.lookup.sizes", "10000,100000,1000000,10000000");
+    private static final int LOOKUPS = Integer.getInteger("loadtest.lookup.samples", 2000);
+    private static final int SEED_BATCH = 10_000;
+
+    @Container
+    private static final MySQLContainer<?> MYSQL = new MySQLContainer<>("mysql:8.0")
+            .withDatabaseName("proxy_db")
+            .withUsername("test")
+            .withPassword("test");
+
+    @Test
+    void lookup_latency_stays_flat_as_table_grows() {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(ProxyDemoApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=" + MYSQL.getJdbcUrl(),
+                        "spring.datasource.username=" + MYSQL.getUsername(),
+                        "spring.datasource.password=" + MYSQL.getPassword(),
+                        "spring.jpa.show-sql=false",
+                        "spring.docker.compose.enabled=false",
+                        "payment.webhooks.dispatcher.enabled=false"
+                )
+                .run()) {
+            JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+            TransactionRepository transactionRepository = context.getBean(TransactionRepository.class);
+
+            Client client = new Client();
+            client.setClientId("lookup-bench");
+            client.setClientSecret("lookup-secret");
+            client.setName("Lookup benchmark");
+            client.setActive(true);
+            Long clientPk = context.getBean(ClientRepository.class).save(client).getId();
+
+            List<LookupResult> results = new ArrayList<>();
+            long rows = 0;
+            for (String size : SIZES.split(",")) {
+                long target = Long.parseLong(size.trim());
+                rows = grow(jdbcTemplate, clientPk, rows, target);
+                jdbcTemplate.execute("ANALYZE TABLE transactions");
+
+                Map<String, Object> plan = jdbcTemplate.queryForMap(
+                        "EXPLAIN SELECT id FROM transactions WHERE client_id = ? AND idempotency_key = ?", clientPk, "key-1");
+                assertThat(plan.get("key")).isEqualTo("uk_transactions_client_idempotency_key");
+
+                results.add(measure(transactionRepository, clientPk, rows));
+            }
+
+            System.out.printf("%n%12s %10s %10s%n", "rows", "p50 us", "p99 us");
+            for (LookupResult result : results) {
+                System.out.printf("%12d %10d %10d%n", result.rows(), result.p50Micros(), result.p99Micros());
+            }
+
+            LookupResult smallest = results.get(0);
+            LookupResult largest = results.get(results.size() - 1);
+            assertThat(largest.p50Micros()).isLessThan(smallest.p50Micros() * 3 + 1_000);
+        }
+    }
+
+    private long grow(JdbcTemplate jdbcTemplate, Long clientPk, long rows, long target) {
+        if (rows == 0) {
+            List<Object[]> batch = new ArrayList<>(SEED_BATCH);
+            for (long id = 1; id <= Math.min(SEED_BATCH, target); id++) {
+                batch.add(new Object[]{id, clientPk, "key-" + id});
+            }
+            jdbcTemplate.batchUpdate(
+                    "INSERT INTO transactions (id, client_id, amount, card_last4, status, created_at, idempotency_key) "
+                            + "VALUES (?, ?, 10.0, '4242', 'SUCCESS', NOW(6), ?)", batch);
+            rows = batch.size();
+        }
+        while (rows < target) {
+            long copy = Math.min(rows, target - rows);
+            jdbcTemplate.update(
+                    "INSERT INTO transactions (id, client_id, amount, card_last4, status, created_at, idempotency_key) "
+                            + "SELECT id + ?, client_id, amount, card_last4, status, created_at, CONCAT('key-', id + ?) "
+                            + "FROM transactions WHERE id <= ?", rows, rows, copy);
+            rows += copy;
+        }
+        return rows;
+    }
+
+    private LookupResult measure(TransactionRepository transactionRepository, Long clientPk, long rows) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < LOOKUPS / 4; i++) {
+            transactionRepository.findByClientAndIdempotencyKey(clientPk, "key-" + random.nextLong(1, rows + 1));
+        }
+
+        long[] latencies = new long[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            String key = "key-" + random.nextLong(1, rows + 1);
+            long started = System.nanoTime();
+            assertThat(transactionRepository.findByClientAndIdempotencyKey(clientPk, key)).isPresent();
+            latencies[i] = System.nanoTime() - started;
+        }
+        Arrays.sort(latencies);
+        return new LookupResult(rows, latencies[LOOKUPS / 2] / 1_000, latencies[(int) (LOOKUPS * 0.99)] / 1_000);
+    }
+
+    private record LookupResult(long rows, long p50Micros, long p99Micros) {
+    }
+}
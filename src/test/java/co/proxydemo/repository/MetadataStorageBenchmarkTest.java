@@ -0,0 +1,152 @@
+package co.proxydemo.repository;
+
+import co.proxydemo.util.MetadataCodec;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the metadata column with the previous {@code transaction_metadata} collection table on an embedded H2
+ * database: inserting payments with metadata, and reading listing pages that touch every row's metadata (one extra
+ * select per row, as the lazy collection did).
+ */
+@Tag("loadtest")
+class MetadataStorageBenchmarkTest {
+
+    private static final int PAYMENTS = Integer.getInteger("loadtest.metadata.payments", 100_000);
+    private static final int PAGES = Integer.getInteger("loadtest.metadata.pages", 200);
+    private static final int PAGE_SIZE = 100;
+    private static final int INSERT_BATCH = 500;
+
+    @Test
+    void column_storage_inserts_and_reads_faster_than_the_collection_table() throws SQLException {
+        try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:metadata_bench;MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "")) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("CREATE TABLE legacy_transactions (id BIGINT PRIMARY KEY, amount DOUBLE, status VARCHAR(255))");
+                statement.execute("CREATE TABLE legacy_metadata (transaction_id BIGINT NOT NULL, metadata_key VARCHAR(255) NOT NULL, "
+                        + "metadata_value VARCHAR(255), PRIMARY KEY (transaction_id, metadata_key))");
+                statement.execute("CREATE TABLE column_transactions (id BIGINT PRIMARY KEY, amount DOUBLE, status VARCHAR(255), metadata TEXT)");
+            }
+            connection.setAutoCommit(false);
+
+            long legacyInsert = insertLegacy(connection);
+            long columnInsert = insertColumn(connection);
+            long legacyRead = readLegacy(connection);
+            long columnRead = readColumn(connection);
+
+            System.out.printf("%n%-12s %16s %16s%n", "storage", "insert us/pay", "read us/page");
+            System.out.printf("%-12s %16.2f %16.1f%n", "collection", legacyInsert / 1e3 / PAYMENTS, legacyRead / 1e3 / PAGES);
+            System.out.printf("%-12s %16.2f %16.1f%n", "column", columnInsert / 1e3 / PAYMENTS, columnRead / 1e3 / PAGES);
+
+            assertThat(columnInsert).isLessThan(legacyInsert);
+            assertThat(columnRead).isLessThan(legacyRead);
+        }
+    }
+
+    private long insertLegacy(Connection connection) throws SQLException {
+        long started = System.nanoTime();
+        try (PreparedStatement transactions = connection.prepareStatement("INSERT INTO legacy_transactions VALUES (?, ?, 'SUCCESS')");
+             PreparedStatement metadata = connection.prepareStatement("INSERT INTO legacy_metadata VALUES (?, ?, ?)")) {
+            for (long id = 1; id <= PAYMENTS; id++) {
+                transactions.setLong(1, id);
+                transactions.setDouble(2, 125.50);
+                transactions.addBatch();
+                for (Map.Entry<String, String> entry : metadata(id).entrySet()) {
+                    metadata.setLong(1, id);
+                    metadata.setString(2, entry.getKey());
+                    metadata.setString(3, entry.getValue());
+                    metadata.addBatch();
+                }
+                if (id % INSERT_BATCH == 0) {
+                    transactions.executeBatch();
+                    metadata.executeBatch();
+                    connection.commit();
+                }
+            }
+            transactions.executeBatch();
+            metadata.executeBatch();
+            connection.commit();
+        }
+        return System.nanoTime() - started;
+    }
+
+    private long insertColumn(Connection connection) throws SQLException {
+        long started = System.nanoTime();
+        try (PreparedStatement transactions = connection.prepareStatement("INSERT INTO column_transactions VALUES (?, ?, 'SUCCESS', ?)")) {
+            for (long id = 1; id <= PAYMENTS; id++) {
+                transactions.setLong(1, id);
+                transactions.setDouble(2, 125.50);
+                transactions.setString(3, MetadataCodec.encode(metadata(id)));
+                transactions.addBatch();
+                if (id % INSERT_BATCH == 0) {
+                    transactions.executeBatch();
+                    connection.commit();
+                }
+            }
+            transactions.executeBatch();
+            connection.commit();
+        }
+        return System.nanoTime() - started;
+    }
+
+    private long readLegacy(Connection connection) throws SQLException {
+        long started = System.nanoTime();
+        long keys = 0;
+        try (PreparedStatement page = connection.prepareStatement("SELECT id, amount, status FROM legacy_transactions WHERE id > ? ORDER BY id LIMIT " + PAGE_SIZE);
+             PreparedStatement metadata = connection.prepareStatement("SELECT metadata_key, metadata_value FROM legacy_metadata WHERE transaction_id = ?")) {
+            for (int p = 0; p < PAGES; p++) {
+                page.setLong(1, (long) p * PAGE_SIZE % PAYMENTS);
+                try (ResultSet rows = page.executeQuery()) {
+                    while (rows.next()) {
+                        metadata.setLong(1, rows.getLong(1));
+                        Map<String, String> values = new HashMap<>();
+                        try (ResultSet entries = metadata.executeQuery()) {
+                            while (entries.next()) {
+                                values.put(entries.getString(1), entries.getString(2));
+                            }
+                        }
+                        keys += values.size();
+                    }
+                }
+            }
+        }
+        assertThat(keys).isPositive();
+        return System.nanoTime() - started;
+    }
+
+    private long readColumn(Connection connection) throws SQLException {
+        long started = System.nanoTime();
+        long keys = 0;
+        try (PreparedStatement page = connection.prepareStatement("SELECT id, amount, status, metadata FROM column_transactions WHERE id > ? ORDER BY id LIMIT " + PAGE_SIZE)) {
+            for (int p = 0; p < PAGES; p++) {
+                page.setLong(1, (long) p * PAGE_SIZE % PAYMENTS);
+                try (ResultSet rows = page.executeQuery()) {
+                    while (rows.next()) {
+                        keys += MetadataCodec.decode(rows.getString(4)).size();
+                    }
+                }
+            }
+        }
+        assertThat(keys).isPositive();
+        return System.nanoTime() - started;
+    }
+
+    private static Map<String, String> metadata(long id) {
+        return Map.of(
+                "productId", "prod_" + id % 1000,
+                "description", "Annual plan",
+                "quantity", Long.toString(1 + id % 5),
+                "orderId", "ORD-" + id
+        );
+    }
+}
@@ -0,0 +1,133 @@
+package co.proxydemo.service;
+
+import co.proxydemo.entity.Client;
+import co.proxydemo.repository.ClientRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ClientCredentialCacheTest {
+
+    private static final String CLIENT_ID = "merchant-1";
+    private static final String SECRET = "correct-secret";
+
+    private final PaymentAdmissionControlTest.CountingHasher hasher = new PaymentAdmissionControlTest.CountingHasher();
+    private final ClientSecretHashingListener hashingListener = new ClientSecretHashingListener(hasher);
+    private final Map<String, Client> clients = new HashMap<>();
+    private final AtomicInteger lookups = new AtomicInteger();
+    private final ClientCredentialCache cache = new ClientCredentialCache(repository(), hasher, new SimpleMeterRegistry(),
+            100, Duration.ofMinutes(5), Duration.ofMinutes(1), Duration.ofMinutes(1));
+
+    @Test
+    void should_hash_a_plaintext_secret_on_persist_and_update_but_leave_a_hash_alone() {
+        Client client = client(SECRET);
+
+        assertThat(hasher.isHashed(client.getClientSecret())).isTrue();
+        assertThat(hasher.matches(SECRET, client.getClientSecret())).isTrue();
+
+        String hash = client.getClientSecret();
+        hashingListener.hashSecret(client);
+        assertThat(client.getClientSecret()).isEqualTo(hash);
+
+        client.setClientSecret("rotated-secret");
+        hashingListener.hashSecret(client);
+        assertThat(hasher.isHashed(client.getClientSecret())).isTrue();
+        assertThat(hasher.matches("rotated-secret", client.getClientSecret())).isTrue();
+        assertThat(hasher.matches(SECRET, client.getClientSecret())).isFalse();
+    }
+
+    @Test
+    void should_not_accept_a_plaintext_value_as_a_stored_secret() {
+        assertThat(hasher.isHashed(SECRET)).isFalse();
+        assertThat(hasher.matches(SECRET, SECRET)).isFalse();
+        assertThat(hasher.matches(SECRET, null)).isFalse();
+    }
+
+    @Test
+    void should_run_bcrypt_once_for_a_repeated_correct_secret() {
+        client(SECRET);
+        hasher.matches.set(0);
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(verify(SECRET)).isTrue();
+        }
+
+        assertThat(hasher.matches).hasValue(1);
+        assertThat(lookups).hasValue(1);
+        assertThat(cache.isVerified(CLIENT_ID, SECRET)).isTrue();
+    }
+
+    @Test
+    void should_reject_a_wrong_secret_after_a_correct_one_was_cached() {
+        client(SECRET);
+        assertThat(verify(SECRET)).isTrue();
+
+        assertThat(verify("wrong-secret")).isFalse();
+        assertThat(verify("wrong-secret")).isFalse();
+
+        assertThat(cache.isVerified(CLIENT_ID, "wrong-secret")).isFalse();
+        assertThat(verify(SECRET)).isTrue();
+    }
+
+    @Test
+    void should_see_a_changed_secret_after_invalidation() {
+        Client client = client(SECRET);
+        assertThat(verify(SECRET)).isTrue();
+        assertThat(verify("rotated-secret")).isFalse();
+
+        client.setClientSecret("rotated-secret");
+        hashingListener.hashSecret(client);
+        cache.invalidate(CLIENT_ID);
+
+        assertThat(cache.isVerified(CLIENT_ID, SECRET)).isFalse();
+        assertThat(verify(SECRET)).isFalse();
+        assertThat(verify("rotated-secret")).isTrue();
+        assertThat(lookups).hasValue(2);
+    }
+
+    @Test
+    void should_find_a_client_created_after_its_id_was_remembered_as_unknown() {
+        assertThat(cache.get(CLIENT_ID)).isEmpty();
+        assertThat(cache.get(CLIENT_ID)).isEmpty();
+        assertThat(lookups).hasValue(1);
+
+        client(SECRET);
+        cache.invalidate(CLIENT_ID);
+
+        assertThat(cache.get(CLIENT_ID)).isPresent();
+    }
+
+    private boolean verify(String secret) {
+        return cache.verifySecret(CLIENT_ID, cache.get(CLIENT_ID).orElseThrow(), secret);
+    }
+
+    private Client client(String secret) {
+        Client client = new Client();
+        client.setId(1L);
+        client.setClientId(CLIENT_ID);
+        client.setClientSecret(secret);
+        client.setActive(true);
+        hashingListener.hashSecret(client);
+        clients.put(CLIENT_ID, client);
+        return client;
+    }
+
+    private ClientRepository repository() {
+        return (ClientRepository) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{ClientRepository.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("findByClientId")) {
+                        lookups.incrementAndGet();
+                        return Optional.ofNullable(clients.get((String) args[0]));
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
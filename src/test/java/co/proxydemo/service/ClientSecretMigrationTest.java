@@ -0,0 +1,63 @@
+package co.proxydemo.service;
+
+import co.proxydemo.entity.Client;
+import co.proxydemo.repository.ClientRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.context.WebServerGracefulShutdownLifecycle;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ClientSecretMigrationTest {
+
+    private final ClientSecretHasher hasher = new ClientSecretHasher(4);
+    private final List<Client> clients = new ArrayList<>();
+    private final List<Client> saved = new ArrayList<>();
+    private final ClientSecretMigration migration = new ClientSecretMigration(repository(), hasher);
+
+    @Test
+    void should_hash_only_plaintext_secrets_before_it_reports_running() {
+        Client legacy = client("legacy", "legacy-secret");
+        Client hashed = client("hashed", hasher.hash("hashed-secret"));
+        String hash = hashed.getClientSecret();
+
+        migration.start();
+
+        assertThat(migration.isRunning()).isTrue();
+        assertThat(saved).containsExactly(legacy);
+        assertThat(hasher.matches("legacy-secret", legacy.getClientSecret())).isTrue();
+        assertThat(hashed.getClientSecret()).isEqualTo(hash);
+        assertThat(migration.migrate()).isZero();
+    }
+
+    @Test
+    void should_start_before_the_shard_rebalancer_and_the_web_server() {
+        assertThat(migration.getPhase())
+                .isLessThan(WebServerGracefulShutdownLifecycle.SMART_LIFECYCLE_PHASE - 2048)
+                .isLessThan(WebServerGracefulShutdownLifecycle.SMART_LIFECYCLE_PHASE - 1024);
+    }
+
+    private Client client(String clientId, String secret) {
+        Client client = new Client();
+        client.setClientId(clientId);
+        client.setClientSecret(secret);
+        clients.add(client);
+        return client;
+    }
+
+    @SuppressWarnings("unchecked")
+    private ClientRepository repository() {
+        return (ClientRepository) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{ClientRepository.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "findAll" -> new ArrayList<>(clients);
+                    case "saveAll" -> {
+                        saved.addAll((List<Client>) args[0]);
+                        yield args[0];
+                    }
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
@@ -0,0 +1,64 @@
+package co.proxydemo.service;
+
+import co.proxydemo.dto.PaymentResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IdempotencyStoreTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final IdempotencyStore store = new IdempotencyStore(objectMapper, meterRegistry, 100, Duration.ofMinutes(5));
+
+    @Test
+    void should_coalesce_duplicates_onto_the_first_claim() {
+        IdempotencyStore.Claim first = store.claim(1L, "key-1");
+        IdempotencyStore.Claim duplicate = store.claim(1L, "key-1");
+        IdempotencyStore.Claim otherClient = store.claim(2L, "key-1");
+
+        assertThat(first.isOwner()).isTrue();
+        assertThat(duplicate.isOwner()).isFalse();
+        assertThat(otherClient.isOwner()).isTrue();
+
+        PaymentResponse response = new PaymentResponse(true, "txn_1", "ok", null, LocalDateTime.now());
+        first.complete(response, store.serialize(response));
+
+        assertThat(duplicate.response().join()).isSameAs(response);
+        assertThat(store.claim(1L, "key-1").isOwner()).isTrue();
+        assertThat(meterRegistry.counter("idempotency.coalesced").count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void should_replay_the_stored_response_unchanged() throws Exception {
+        PaymentResponse response = new PaymentResponse(false, null, "Card declined", "card_declined", LocalDateTime.now());
+        String body = store.serialize(response);
+        store.claim(1L, "key-2").complete(response, body);
+
+        PaymentResponse replay = store.findCached(1L, "key-2").orElseThrow();
+
+        assertThat(replay).isEqualTo(response);
+        assertThat(objectMapper.writeValueAsString(replay)).isEqualTo(body);
+    }
+
+    @Test
+    void should_release_the_key_when_the_owner_fails() {
+        IdempotencyStore.Claim first = store.claim(1L, "key-3");
+        IdempotencyStore.Claim duplicate = store.claim(1L, "key-3");
+
+        first.fail(new IllegalStateException("boom"));
+
+        assertThat(duplicate.response()).isCompletedExceptionally();
+        assertThat(store.findCached(1L, "key-3")).isEmpty();
+        assertThat(store.claim(1L, "key-3").isOwner()).isTrue();
+    }
+}
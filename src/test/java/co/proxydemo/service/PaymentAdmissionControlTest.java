@@ -0,0 +1,126 @@
+package co.proxydemo.service;
+
+import co.proxydemo.entity.Client;
+import co.proxydemo.repository.ClientRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PaymentAdmissionControlTest {
+
+    private static final String CLIENT_ID = "merchant-1";
+    private static final String SECRET = "correct-secret";
+
+    private final CountingHasher hasher = new CountingHasher();
+    private final Map<String, Client> clients = new HashMap<>();
+    private final AtomicInteger lookups = new AtomicInteger();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ClientCredentialCache cache = new ClientCredentialCache(repository(), hasher, meterRegistry,
+            100, Duration.ofMinutes(5), Duration.ofMinutes(1), Duration.ofMinutes(1));
+
+    PaymentAdmissionControlTest() {
+        Client client = new Client();
+        client.setId(1L);
+        client.setClientId(CLIENT_ID);
+        client.setClientSecret(hasher.hash(SECRET));
+        client.setActive(true);
+        clients.put(CLIENT_ID, client);
+    }
+
+    @Test
+    void should_throttle_failed_checks_per_client_id_before_running_bcrypt() {
+        PaymentAdmissionControl admission = admission(0.001, 3);
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(admission.admit(CLIENT_ID, "wrong-" + i, 1).admitted()).isTrue();
+        }
+        int bcryptRounds = hasher.matches.get();
+        PaymentAdmissionControl.Admission throttled = admission.admit(CLIENT_ID, "wrong-3", 1);
+
+        assertThat(throttled.admitted()).isFalse();
+        assertThat(throttled.errorCode()).isEqualTo(PaymentAdmissionControl.ERROR_RATE_LIMITED);
+        assertThat(hasher.matches).hasValue(bcryptRounds);
+        assertThat(meterRegistry.counter("payment.admission.rejected", "reason", "auth_failures").count()).isEqualTo(1);
+        assertThat(admission.admit("merchant-2", SECRET, 1).admitted()).isTrue();
+    }
+
+    @Test
+    void should_keep_admitting_a_recently_verified_secret_while_its_failure_bucket_is_empty() {
+        PaymentAdmissionControl admission = admission(0.001, 2);
+        assertThat(admission.admit(CLIENT_ID, SECRET, 1).client()).isNotNull();
+
+        for (int i = 0; i < 5; i++) {
+            admission.admit(CLIENT_ID, "wrong-" + i, 1);
+        }
+
+        PaymentAdmissionControl.Admission admitted = admission.admit(CLIENT_ID, SECRET, 1);
+        assertThat(admitted.admitted()).isTrue();
+        assertThat(admitted.client()).isNotNull();
+    }
+
+    @Test
+    void should_not_run_bcrypt_or_query_again_for_a_repeated_wrong_secret_or_unknown_client() {
+        PaymentAdmissionControl admission = admission(0, 1);
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(admission.admit(CLIENT_ID, "wrong", 1).client()).isNull();
+            assertThat(admission.admit("unknown", "secret", 1).client()).isNull();
+        }
+
+        assertThat(hasher.matches).hasValue(1);
+        assertThat(lookups).hasValue(2);
+    }
+
+    @Test
+    void should_hand_over_the_client_only_when_its_secret_verified() {
+        PaymentAdmissionControl admission = admission(1, 10);
+
+        assertThat(admission.admit(CLIENT_ID, SECRET, 1).client()).extracting(ClientCredentialCache.CachedClient::id).isEqualTo(1L);
+        assertThat(admission.admit(CLIENT_ID, "wrong", 1).client()).isNull();
+        assertThat(admission.admit(CLIENT_ID, " ", 1).client()).isNull();
+        assertThat(admission.admit(null, SECRET, 1).client()).isNull();
+    }
+
+    private PaymentAdmissionControl admission(double authFailuresPerSecond, int authFailuresBurst) {
+        return new PaymentAdmissionControl(cache, meterRegistry, true, 0, 100, Duration.ofMinutes(10),
+                authFailuresPerSecond, authFailuresBurst, 1000,
+                false, 200, 20, 1000, 0.9, Duration.ofSeconds(2), 32);
+    }
+
+    private ClientRepository repository() {
+        return (ClientRepository) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{ClientRepository.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("findByClientId")) {
+                        lookups.incrementAndGet();
+                        return Optional.ofNullable(clients.get((String) args[0]));
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    /**
+     * Counts BCrypt checks; strength 4 keeps them cheap.
+     */
+    static class CountingHasher extends ClientSecretHasher {
+
+        final AtomicInteger matches = new AtomicInteger();
+
+        CountingHasher() {
+            super(4);
+        }
+
+        @Override
+        public boolean matches(String rawSecret, String hashedSecret) {
+            matches.incrementAndGet();
+            return super.matches(rawSecret, hashedSecret);
+        }
+    }
+}
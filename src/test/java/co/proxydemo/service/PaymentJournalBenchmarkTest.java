@@ -0,0 +1,82 @@
+package co.proxydemo.service;
+
+import co.proxydemo.util.MappedSegmentJournal;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Tag("loadtest")
+class PaymentJournalBenchmarkTest {
+
+    private static final String SIZES = System.getProperty("loadtest.journal.records", "1000000,5000000");
+    private static final int SEGMENT_BYTES = Integer.getInteger("loadtest.journal.segment-bytes", 64 * 1024 * 1024);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void append_recovery_and_replay_at_millions_of_records() throws IOException {
+        List<JournalResult> results = new ArrayList<>();
+        for (String size : SIZES.split(",")) {
+            results.add(measure(dir.resolve("journal-" + size.trim()), Long.parseLong(size.trim())));
+        }
+
+        System.out.printf("%n%12s %14s %12s %12s %14s %8s%n",
+                "records", "append/s", "append ns", "recover ms", "replay rec/s", "MB");
+        for (JournalResult result : results) {
+            System.out.printf("%12d %14.0f %12.0f %12.1f %14.0f %8d%n",
+                    result.records(), result.records() * 1e9 / result.appendNanos(),
+                    (double) result.appendNanos() / result.records(), result.recoverNanos() / 1e6,
+                    result.records() * 1e9 / result.replayNanos(), result.bytes() / (1024 * 1024));
+        }
+
+        JournalResult smallest = results.get(0);
+        JournalResult largest = results.get(results.size() - 1);
+        assertThat(largest.recoverNanos()).isLessThan(smallest.recoverNanos() * 3 + 200_000_000L);
+    }
+
+    private JournalResult measure(Path directory, long records) throws IOException {
+        long bytes;
+        long started = System.nanoTime();
+        try (MappedSegmentJournal journal = new MappedSegmentJournal(directory, SEGMENT_BYTES)) {
+            for (long i = 0; i < records; i++) {
+                journal.append(entry(i).encode());
+            }
+            bytes = journal.sizeBytes();
+        }
+        long appendNanos = System.nanoTime() - started;
+
+        started = System.nanoTime();
+        try (MappedSegmentJournal journal = new MappedSegmentJournal(directory, SEGMENT_BYTES)) {
+            long recoverNanos = System.nanoTime() - started;
+            assertThat(journal.nextIndex()).isEqualTo(records);
+
+            long[] replayed = {0};
+            started = System.nanoTime();
+            journal.read(0, (index, payload) -> {
+                PaymentJournal.Entry entry = PaymentJournal.Entry.decode(index, payload);
+                replayed[0] += entry.transactionId() == index ? 1 : 0;
+                return true;
+            });
+            long replayNanos = System.nanoTime() - started;
+            assertThat(replayed[0]).isEqualTo(records);
+            return new JournalResult(records, bytes, appendNanos, recoverNanos, replayNanos);
+        }
+    }
+
+    private static PaymentJournal.Entry entry(long id) {
+        return new PaymentJournal.Entry(id, 1 + id % 100, System.currentTimeMillis(), 125.50,
+                id % 20 == 0 ? PaymentJournal.Entry.STATUS_FAILED : PaymentJournal.Entry.STATUS_SUCCESS,
+                "4242", "idem-" + id, "txn_" + Long.toHexString(id));
+    }
+
+    private record JournalResult(long records, long bytes, long appendNanos, long recoverNanos, long replayNanos) {
+    }
+}
@@ -0,0 +1,102 @@
+package co.proxydemo.service;
+
+import co.proxydemo.dto.PaymentResponse;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.observation.DefaultMeterObservationHandler;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PaymentMetricsTest {
+
+    private final PrometheusMeterRegistry meterRegistry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+    private final ObservationRegistry observationRegistry = ObservationRegistry.create();
+    private final PaymentMetrics metrics;
+
+    PaymentMetricsTest() {
+        meterRegistry.config().meterFilter(new MeterFilter() {
+            @Override
+            public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                return id.getName().equals("payment.stage")
+                        ? DistributionStatisticConfig.builder().percentilesHistogram(true).build().merge(config)
+                        : config;
+            }
+        });
+        observationRegistry.observationConfig().observationHandler(new DefaultMeterObservationHandler(meterRegistry));
+        metrics = new PaymentMetrics(meterRegistry, observationRegistry);
+    }
+
+    @Test
+    void should_publish_stage_histograms_and_results_by_error_code() {
+        PaymentResponse declined = new PaymentResponse(false, null, "Card declined", "card_declined", LocalDateTime.now());
+
+        Observation payment = metrics.startPayment();
+        try (Observation.Scope ignored = payment.openScope()) {
+            metrics.observe(PaymentMetrics.Stage.VALIDATE_CLIENT, () -> { });
+            Observation call = metrics.startProviderCall("visa", null);
+            metrics.finishProviderCall(call, declined, null);
+        }
+        metrics.finishPayment(payment, declined, null);
+        metrics.recordResult(new PaymentResponse(true, "txn_1", "ok", null, LocalDateTime.now()));
+        metrics.recordResult(declined);
+
+        String scrape = meterRegistry.scrape();
+
+        assertThat(scrape).contains("payment_stage_seconds_bucket{error=\"none\",stage=\"validate_client\"");
+        assertThat(scrape).containsPattern(
+                "payment_provider_call_seconds_count\\{error=\"none\",payment_error_code=\"card_declined\","
+                        + "payment_outcome=\"failure\",provider=\"visa\"} 1(\\.0)?\\n");
+        assertThat(scrape).containsPattern(
+                "payment_process_seconds_count\\{error=\"none\",payment_error_code=\"card_declined\","
+                        + "payment_outcome=\"failure\"} 1(\\.0)?\\n");
+        assertThat(scrape).containsPattern(
+                "payment_results_total\\{error_code=\"card_declined\",outcome=\"failure\"} 2(\\.0)?\\n");
+        assertThat(scrape).containsPattern("payment_results_total\\{error_code=\"none\",outcome=\"success\"} 1(\\.0)?\\n");
+    }
+
+    @Test
+    void should_tag_stage_with_the_exception_it_threw() {
+        try {
+            metrics.observe(PaymentMetrics.Stage.VALIDATE_REQUEST, (Runnable) () -> {
+                throw new IllegalStateException("boom");
+            });
+        } catch (IllegalStateException expected) {
+            // recorded below
+        }
+
+        assertThat(meterRegistry.scrape()).containsPattern(
+                "payment_stage_seconds_count\\{error=\"IllegalStateException\",stage=\"validate_request\"} 1(\\.0)?\\n");
+    }
+
+    /**
+     * Records the cost of one stage observation without a tracer. A payment observes about eight stages, so even a few
+     * microseconds each would add under 0.01% to an 800 ms provider round trip.
+     */
+    @Test
+    @Tag("loadtest")
+    void should_keep_per_stage_overhead_within_a_few_microseconds() {
+        int iterations = 1_000_000;
+        Runnable work = () -> { };
+        for (int i = 0; i < iterations; i++) {
+            metrics.observe(PaymentMetrics.Stage.VALIDATE_REQUEST, work);
+        }
+
+        long started = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            metrics.observe(PaymentMetrics.Stage.VALIDATE_REQUEST, work);
+        }
+        double nanosPerSample = (double) (System.nanoTime() - started) / iterations;
+
+        System.out.printf("payment.stage observation: %.1f ns/sample%n", nanosPerSample);
+        assertThat(nanosPerSample).isLessThan(5_000);
+    }
+}
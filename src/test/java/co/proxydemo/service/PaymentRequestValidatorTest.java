@@ -0,0 +1,71 @@
+package co.proxydemo.service;
+
+import co.proxydemo.dto.PaymentRequest;
+import co.proxydemo.dto.ValidationError;
+import co.proxydemo.dto.ValidationResult;
+import co.proxydemo.util.MonthClock;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PaymentRequestValidatorTest {
+
+    private final PaymentRequestValidator validator = new PaymentRequestValidator(
+            new MonthClock(Clock.fixed(Instant.parse("2030-06-15T12:00:00Z"), ZoneOffset.UTC)), 999999, true);
+
+    @Test
+    void should_return_the_shared_valid_result_for_a_good_request() {
+        assertThat(validator.validate(request("4242424242424242", "123", "06/30"))).isSameAs(ValidationResult.VALID);
+    }
+
+    @Test
+    void should_report_which_field_failed_and_why() {
+        assertThat(details(request("4242424242424241", "123", "12/30"))).isEqualTo(new ValidationError("cardNumber", "failed_checksum"));
+        assertThat(details(request("4242-4242-4242-4242", "123", "12/30"))).isEqualTo(new ValidationError("cardNumber", "invalid_format"));
+        assertThat(details(request("4242424242424242", "12a", "12/30"))).isEqualTo(new ValidationError("cvv", "invalid_format"));
+        assertThat(details(request("4242424242424242", "123", "1230"))).isEqualTo(new ValidationError("expiryDate", "invalid_format"));
+        assertThat(details(request("4242424242424242", "123", "05/30"))).isEqualTo(new ValidationError("expiryDate", "expired"));
+
+        PaymentRequest noKey = request("4242424242424242", "123", "12/30");
+        noKey.setIdempotencyKey("  ");
+        assertThat(details(noKey)).isEqualTo(new ValidationError("idempotencyKey", "required"));
+
+        PaymentRequest tooLarge = request("4242424242424242", "123", "12/30");
+        tooLarge.setAmount(1_000_000.0);
+        assertThat(details(tooLarge)).isEqualTo(new ValidationError("amount", "exceeds_limit"));
+
+        PaymentRequest noAmount = request("4242424242424242", "123", "12/30");
+        noAmount.setAmount(null);
+        assertThat(details(noAmount)).isEqualTo(new ValidationError("amount", "required"));
+
+        assertThat(details(null)).isEqualTo(new ValidationError("payment", "required"));
+    }
+
+    @Test
+    void should_skip_the_checksum_when_disabled() {
+        PaymentRequestValidator lenient = new PaymentRequestValidator(
+                new MonthClock(Clock.fixed(Instant.parse("2030-06-15T12:00:00Z"), ZoneOffset.UTC)), 999999, false);
+
+        assertThat(lenient.validate(request("4111111111111112", "123", "12/30")).isValid()).isTrue();
+    }
+
+    private ValidationError details(PaymentRequest request) {
+        ValidationResult result = validator.validate(request);
+        assertThat(result.isValid()).isFalse();
+        return result.getDetails();
+    }
+
+    private static PaymentRequest request(String cardNumber, String cvv, String expiry) {
+        PaymentRequest request = new PaymentRequest();
+        request.setAmount(10.0);
+        request.setCardNumber(cardNumber);
+        request.setCvv(cvv);
+        request.setExpiryDate(expiry);
+        request.setIdempotencyKey("idem-1");
+        return request;
+    }
+}
@@ -0,0 +1,265 @@
+package co.proxydemo.service;
+
+import co.proxydemo.dto.PaymentRequest;
+import co.proxydemo.dto.PaymentResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProviderCallExecutorTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ManualScheduler scheduler = new ManualScheduler();
+    private final StubProvider primary = new StubProvider("primary");
+    private final StubProvider secondary = new StubProvider("secondary");
+    private final ProviderCallExecutor executor = executor();
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    void should_return_the_primary_and_not_hedge_when_the_timer_fires_after_it_answered() {
+        CompletableFuture<PaymentResponse> result = executor.callAsync(request());
+
+        primary.complete(0, success("primary-1"));
+        scheduler.fire();
+
+        assertThat(result).isCompletedWithValueMatching(response -> "primary-1".equals(response.getTransactionId()));
+        assertThat(scheduler.cancelled()).isTrue();
+        assertThat(secondary.calls).isEmpty();
+        assertThat(count("provider.hedge.fired")).isZero();
+    }
+
+    @Test
+    void should_keep_the_hedge_and_void_the_primary_when_the_hedge_succeeds_first() {
+        CompletableFuture<PaymentResponse> result = executor.callAsync(request());
+        scheduler.fire();
+
+        secondary.complete(0, success("secondary-1"));
+        assertThat(result).isCompletedWithValueMatching(response -> "secondary-1".equals(response.getTransactionId()));
+
+        primary.complete(0, success("primary-1"));
+
+        assertThat(primary.voided).containsExactly("primary-1");
+        assertThat(secondary.voided).isEmpty();
+        assertThat(count("provider.hedge.fired")).isEqualTo(1);
+        assertThat(count("provider.hedge.won")).isEqualTo(1);
+        assertThat(count("provider.hedge.duplicate_success")).isEqualTo(1);
+    }
+
+    @Test
+    void should_void_a_hedge_that_succeeds_after_the_primary_won() {
+        CompletableFuture<PaymentResponse> result = executor.callAsync(request());
+        scheduler.fire();
+
+        primary.complete(0, success("primary-1"));
+        secondary.complete(0, success("secondary-1"));
+
+        assertThat(result).isCompletedWithValueMatching(response -> "primary-1".equals(response.getTransactionId()));
+        assertThat(secondary.voided).containsExactly("secondary-1");
+        assertThat(primary.voided).isEmpty();
+        assertThat(count("provider.hedge.won")).isZero();
+    }
+
+    @Test
+    void should_count_a_duplicate_the_provider_could_not_void() {
+        secondary.voidResult = CompletableFuture.failedFuture(new IllegalStateException("void endpoint down"));
+        CompletableFuture<PaymentResponse> result = executor.callAsync(request());
+        scheduler.fire();
+
+        primary.complete(0, success("primary-1"));
+        secondary.complete(0, success("secondary-1"));
+
+        assertThat(result).isCompletedWithValueMatching(response -> "primary-1".equals(response.getTransactionId()));
+        assertThat(secondary.voided).containsExactly("secondary-1");
+        assertThat(count("provider.hedge.duplicate_success")).isEqualTo(1);
+    }
+
+    @Test
+    void should_wait_for_the_hedge_when_the_primary_fails() {
+        CompletableFuture<PaymentResponse> result = executor.callAsync(request());
+        scheduler.fire();
+
+        primary.complete(0, failure("card_declined"));
+        assertThat(result).isNotDone();
+
+        secondary.complete(0, success("secondary-1"));
+
+        assertThat(result).isCompletedWithValueMatching(response -> "secondary-1".equals(response.getTransactionId()));
+        assertThat(primary.voided).isEmpty();
+    }
+
+    @Test
+    void should_return_the_first_failure_when_both_fail() {
+        CompletableFuture<PaymentResponse> result = executor.callAsync(request());
+        scheduler.fire();
+
+        secondary.complete(0, failure("processing_error"));
+        primary.complete(0, failure("card_declined"));
+
+        assertThat(result).isCompletedWithValueMatching(response -> "processing_error".equals(response.getErrorCode()));
+        assertThat(primary.voided).isEmpty();
+        assertThat(secondary.voided).isEmpty();
+    }
+
+    @Test
+    void should_call_only_the_primary_when_the_scheduler_rejects_the_hedge_timer() {
+        scheduler.rejecting = true;
+        CompletableFuture<PaymentResponse> result = executor.callAsync(request());
+
+        primary.complete(0, failure("card_declined"));
+
+        assertThat(result).isCompletedWithValueMatching(response -> "card_declined".equals(response.getErrorCode()));
+        assertThat(secondary.calls).isEmpty();
+    }
+
+    @Test
+    void should_not_void_unless_the_provider_supports_it() {
+        PaymentProvider provider = new PaymentProvider() {
+            @Override
+            public String getProviderKey() {
+                return "legacy";
+            }
+
+            @Override
+            public CompletableFuture<PaymentResponse> processPaymentAsync(PaymentRequest request) {
+                return new CompletableFuture<>();
+            }
+
+            @Override
+            public PaymentResponse processPayment(PaymentRequest request) {
+                return null;
+            }
+        };
+        VisaPaymentService visa = new VisaPaymentService(null, Duration.ZERO, Duration.ZERO);
+
+        assertThat(provider.voidPaymentAsync("legacy-1")).isCompletedWithValue(false);
+        assertThat(visa.voidPaymentAsync("visa-1")).isCompletedWithValue(true);
+        assertThat(visa.voidPaymentAsync(null)).isCompletedWithValue(false);
+    }
+
+    private ProviderCallExecutor executor() {
+        ProviderHealthTracker healthTracker = new ProviderHealthTracker(meterRegistry, 0.2, 0.25, 20, 0.0, Duration.ofSeconds(60));
+        PaymentProviderRegistry registry = new PaymentProviderRegistry(List.of(primary, secondary), null, healthTracker,
+                "primary", true, List.of("primary", "secondary"), List.of());
+        ProviderResilience resilience = new ProviderResilience(meterRegistry, new StandardEnvironment(), 50, 20, 0.5, 0.8,
+                Duration.ofSeconds(2), Duration.ofSeconds(30), 5, 100, 200, Duration.ofMillis(500));
+        PaymentMetrics paymentMetrics = new PaymentMetrics(meterRegistry, ObservationRegistry.NOOP);
+        return new ProviderCallExecutor(registry, healthTracker, resilience, paymentMetrics, scheduler, meterRegistry,
+                true, 0.95, Duration.ZERO, Duration.ofHours(1));
+    }
+
+    private double count(String counter) {
+        return meterRegistry.get(counter).counter().count();
+    }
+
+    private static PaymentRequest request() {
+        PaymentRequest request = new PaymentRequest();
+        request.setAmount(25.0);
+        request.setCardNumber("4111111111111111");
+        request.setCvv("123");
+        request.setExpiryDate("12/30");
+        return request;
+    }
+
+    private static PaymentResponse success(String transactionId) {
+        return new PaymentResponse(true, transactionId, "Payment processed successfully", null, LocalDateTime.now());
+    }
+
+    private static PaymentResponse failure(String errorCode) {
+        return new PaymentResponse(false, null, "Payment failed", errorCode, LocalDateTime.now());
+    }
+
+    /**
+     * Answers each call only when the test completes it.
+     */
+    private static class StubProvider implements PaymentProvider {
+
+        final List<CompletableFuture<PaymentResponse>> calls = new CopyOnWriteArrayList<>();
+        final List<String> voided = new CopyOnWriteArrayList<>();
+        volatile CompletableFuture<Boolean> voidResult = CompletableFuture.completedFuture(true);
+        private final String providerKey;
+
+        StubProvider(String providerKey) {
+            this.providerKey = providerKey;
+        }
+
+        void complete(int call, PaymentResponse response) {
+            assertThat(calls).hasSizeGreaterThan(call);
+            calls.get(call).complete(response);
+        }
+
+        @Override
+        public String getProviderKey() {
+            return providerKey;
+        }
+
+        @Override
+        public CompletableFuture<PaymentResponse> processPaymentAsync(PaymentRequest request) {
+            CompletableFuture<PaymentResponse> call = new CompletableFuture<>();
+            calls.add(call);
+            return call;
+        }
+
+        @Override
+        public PaymentResponse processPayment(PaymentRequest request) {
+            return processPaymentAsync(request).join();
+        }
+
+        @Override
+        public CompletableFuture<Boolean> voidPaymentAsync(String providerTransactionId) {
+            voided.add(providerTransactionId);
+            return voidResult;
+        }
+    }
+
+    /**
+     * Holds the hedge timer until the test fires it. Firing a cancelled timer plays the race where the timer was
+     * already running when the primary answered.
+     */
+    private static class ManualScheduler extends ScheduledThreadPoolExecutor {
+
+        volatile boolean rejecting;
+        private Runnable timer;
+        private ScheduledFuture<?> timerFuture;
+
+        ManualScheduler() {
+            super(1);
+        }
+
+        @Override
+        public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+            if (rejecting) {
+                throw new RejectedExecutionException("scheduler is shut down");
+            }
+            timer = command;
+            timerFuture = super.schedule(() -> { }, 1, TimeUnit.HOURS);
+            return timerFuture;
+        }
+
+        void fire() {
+            assertThat(timer).isNotNull();
+            timer.run();
+        }
+
+        boolean cancelled() {
+            return timerFuture.isCancelled();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package co.proxydemo.service;
+
+import co.proxydemo.dto.PaymentRequest;
+import co.proxydemo.dto.PaymentResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProviderHealthTrackerTest {
+
+    private final PaymentProvider visa = provider("visa");
+    private final PaymentProvider stripe = provider("stripe");
+
+    @Test
+    void should_rank_the_fastest_provider_first() {
+        ProviderHealthTracker tracker = tracker(0.0);
+        record(tracker, "visa", 50, ok(), 5);
+        record(tracker, "stripe", 10, ok(), 5);
+
+        assertThat(tracker.rank(List.of(visa, stripe))).containsExactly(stripe, visa);
+    }
+
+    @Test
+    void should_rank_an_unhealthy_provider_last_however_fast_it_is() {
+        ProviderHealthTracker tracker = tracker(0.0);
+        record(tracker, "visa", 50, ok(), 5);
+        record(tracker, "stripe", 10, networkError(), 5);
+
+        assertThat(tracker.isHealthy("stripe")).isFalse();
+        assertThat(tracker.rank(List.of(stripe, visa))).containsExactly(visa, stripe);
+    }
+
+    @Test
+    void should_keep_the_given_order_until_there_are_samples() {
+        ProviderHealthTracker tracker = tracker(0.0);
+
+        assertThat(tracker.rank(List.of(visa, stripe))).containsExactly(visa, stripe);
+        assertThat(tracker.percentileMillis("visa", 0.95)).isNegative();
+    }
+
+    @Test
+    void should_promote_another_candidate_when_exploring() {
+        ProviderHealthTracker tracker = tracker(1.0);
+        record(tracker, "visa", 10, ok(), 5);
+        record(tracker, "stripe", 50, ok(), 5);
+
+        assertThat(tracker.rank(List.of(visa, stripe))).containsExactly(stripe, visa);
+    }
+
+    private static ProviderHealthTracker tracker(double exploreRatio) {
+        return new ProviderHealthTracker(new SimpleMeterRegistry(), 0.5, 0.25, 5, exploreRatio, Duration.ofSeconds(60));
+    }
+
+    private static void record(ProviderHealthTracker tracker, String providerKey, long latencyMillis,
+                               PaymentResponse response, int times) {
+        for (int i = 0; i < times; i++) {
+            tracker.record(providerKey, TimeUnit.MILLISECONDS.toNanos(latencyMillis), response);
+        }
+    }
+
+    private static PaymentResponse ok() {
+        return new PaymentResponse(true, "txn_1", "ok", null, LocalDateTime.now());
+    }
+
+    private static PaymentResponse networkError() {
+        return new PaymentResponse(false, null, "Network error", "network_error", LocalDateTime.now());
+    }
+
+    private static PaymentProvider provider(String providerKey) {
+        return new PaymentProvider() {
+            @Override
+            public String getProviderKey() {
+                return providerKey;
+            }
+
+            @Override
+            public CompletableFuture<PaymentResponse> processPaymentAsync(PaymentRequest request) {
+                return new CompletableFuture<>();
+            }
+
+            @Override
+            public PaymentResponse processPayment(PaymentRequest request) {
+                return null;
+            }
+        };
+    }
+}
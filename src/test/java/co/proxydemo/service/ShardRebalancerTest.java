@@ -0,0 +1,219 @@
+package co.proxydemo.service;
+
+import co.proxydemo.config.ShardRoutingDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ShardRebalancerTest {
+
+    private static final int CLIENTS = 40;
+    private static final int TRANSACTIONS_PER_CLIENT = 9;
+
+    private List<JdbcTemplate> shards;
+    private DataSource dataSource;
+
+    @BeforeEach
+    void setUp() {
+        String suffix = UUID.randomUUID().toString();
+        List<DataSource> databases = new ArrayList<>();
+        shards = new ArrayList<>();
+        for (int shard = 0; shard < 3; shard++) {
+            DataSource database = database("shard-" + shard + "-" + suffix);
+            databases.add(database);
+            shards.add(new JdbcTemplate(database));
+        }
+        ShardRoutingDataSource routingDataSource = new ShardRoutingDataSource(databases);
+        routingDataSource.afterPropertiesSet();
+        dataSource = new LazyConnectionDataSourceProxy(routingDataSource);
+
+        for (int i = 1; i <= CLIENTS; i++) {
+            shards.get(ShardRouter.HOME_SHARD).update("INSERT INTO clients VALUES (?, ?, ?)", i, "merchant-" + i, "Merchant " + i);
+            shards.get(ShardRouter.HOME_SHARD).update("INSERT INTO client_webhooks VALUES (?, ?, ?)", i, i, "https://merchant-" + i + ".test/hook");
+        }
+    }
+
+    @Test
+    void should_copy_reference_data_to_every_shard() {
+        rebalancer(router(3)).syncReferenceData();
+
+        for (JdbcTemplate shard : shards) {
+            assertThat(count(shard, "clients")).isEqualTo(CLIENTS);
+            assertThat(count(shard, "client_webhooks")).isEqualTo(CLIENTS);
+        }
+    }
+
+    @Test
+    void should_replicate_an_updated_client() {
+        ShardRebalancer rebalancer = rebalancer(router(3));
+        rebalancer.syncReferenceData();
+        shards.get(ShardRouter.HOME_SHARD).update("UPDATE clients SET name = 'Renamed' WHERE id = 7");
+
+        rebalancer.replicate("clients", 7);
+
+        assertThat(shards.get(2).queryForObject("SELECT name FROM clients WHERE id = 7", String.class)).isEqualTo("Renamed");
+    }
+
+    @Test
+    void should_move_only_the_clients_the_new_shard_takes_over() {
+        ShardRouter twoShards = router(2);
+        rebalancer(twoShards).syncReferenceData();
+        long id = 1;
+        for (int i = 1; i <= CLIENTS; i++) {
+            JdbcTemplate owner = shards.get(twoShards.shardOf("merchant-" + i));
+            for (int t = 0; t < TRANSACTIONS_PER_CLIENT; t++, id++) {
+                owner.update("INSERT INTO transactions VALUES (?, ?, ?, ?)", id, i, 10.0 * t, "key-" + t);
+            }
+            owner.update("INSERT INTO transaction_metadata VALUES (?, 'productId', ?)", id - 1, "prod-" + i);
+            owner.update("INSERT INTO webhook_events VALUES (?, ?, ?, ?)", i, i, i, "evt-" + i);
+        }
+
+        ShardRouter threeShards = router(3);
+        int expectedMoves = 0;
+        for (int i = 1; i <= CLIENTS; i++) {
+            if (twoShards.shardOf("merchant-" + i) != threeShards.shardOf("merchant-" + i)) {
+                assertThat(threeShards.shardOf("merchant-" + i)).isEqualTo(2);
+                expectedMoves++;
+            }
+        }
+        ShardRebalancer.RebalanceResult result = rebalancer(threeShards).rebalance();
+
+        assertThat(expectedMoves).isPositive();
+        assertThat(result.clientsMoved()).isEqualTo(expectedMoves);
+        assertThat(result.clientsBlocked()).isZero();
+        assertThat(threeShards.movingClients()).isZero();
+        assertThat(result.transactionsMoved()).isEqualTo((long) expectedMoves * TRANSACTIONS_PER_CLIENT);
+        assertThat(result.webhookEventsMoved()).isEqualTo(expectedMoves);
+        for (int shard = 0; shard < 3; shard++) {
+            for (Long clientPk : shards.get(shard).queryForList("SELECT client_id FROM transactions", Long.class)) {
+                assertThat(threeShards.shardOf("merchant-" + clientPk)).isEqualTo(shard);
+            }
+        }
+        assertThat(shards.stream().mapToInt(shard -> count(shard, "transactions")).sum()).isEqualTo(CLIENTS * TRANSACTIONS_PER_CLIENT);
+        assertThat(shards.stream().mapToInt(shard -> count(shard, "transaction_metadata")).sum()).isEqualTo(CLIENTS);
+        assertThat(shards.stream().mapToInt(shard -> count(shard, "webhook_events")).sum()).isEqualTo(CLIENTS);
+        assertThat(count(shards.get(2), "transactions")).isEqualTo(expectedMoves * TRANSACTIONS_PER_CLIENT);
+    }
+
+    @Test
+    void should_find_nothing_to_move_on_a_second_run() {
+        ShardRouter threeShards = router(3);
+        shards.get(1).update("INSERT INTO clients VALUES (1, 'merchant-1', 'Merchant 1')");
+        shards.get(1).update("INSERT INTO transactions VALUES (1, 1, 5.0, 'key-1')");
+        ShardRebalancer rebalancer = rebalancer(threeShards);
+
+        rebalancer.rebalance();
+        ShardRebalancer.RebalanceResult second = rebalancer.rebalance();
+
+        assertThat(second.clientsMoved()).isZero();
+        assertThat(count(shards.get(threeShards.shardOf("merchant-1")), "transactions")).isEqualTo(1);
+    }
+
+    @Test
+    void should_refuse_misplaced_clients_until_they_are_moved() {
+        ShardRouter threeShards = router(3);
+        ShardRebalancer rebalancer = rebalancer(threeShards);
+        rebalancer.syncReferenceData();
+        int owner = threeShards.shardOf("merchant-1");
+        shards.get((owner + 1) % 3).update("INSERT INTO transactions VALUES (1, 1, 5.0, 'key-1')");
+        shards.get(owner).update("INSERT INTO transactions VALUES (2, 2, 5.0, 'key-1')");
+
+        rebalancer.findMisplacedClients();
+
+        assertThat(threeShards.isMoving(1)).isTrue();
+        assertThat(threeShards.isMoving(2)).isEqualTo(threeShards.shardOf("merchant-2") != owner);
+
+        rebalancer.rebalance();
+
+        assertThat(threeShards.isMoving(1)).isFalse();
+        assertThat(threeShards.movingClients()).isZero();
+    }
+
+    @Test
+    void should_not_merge_a_row_whose_idempotency_key_the_owner_already_holds() {
+        ShardRouter threeShards = router(3);
+        ShardRebalancer rebalancer = rebalancer(threeShards);
+        rebalancer.syncReferenceData();
+        int owner = threeShards.shardOf("merchant-1");
+        JdbcTemplate previous = shards.get((owner + 1) % 3);
+        previous.update("INSERT INTO transactions VALUES (1, 1, 5.0, 'key-1')");
+        previous.update("INSERT INTO transactions VALUES (2, 1, 6.0, 'key-2')");
+        shards.get(owner).update("INSERT INTO transactions VALUES (3, 1, 7.0, 'key-1')");
+
+        ShardRebalancer.RebalanceResult result = rebalancer.rebalance();
+
+        assertThat(result.clientsBlocked()).isEqualTo(1);
+        assertThat(result.clientsMoved()).isZero();
+        assertThat(threeShards.isMoving(1)).isTrue();
+        assertThat(count(previous, "transactions")).isEqualTo(2);
+        assertThat(shards.get(owner).queryForObject("SELECT amount FROM transactions WHERE idempotency_key = 'key-1'", Double.class))
+                .isEqualTo(7.0);
+    }
+
+    @Test
+    void should_finish_a_move_that_was_interrupted_after_the_copy() {
+        ShardRouter threeShards = router(3);
+        ShardRebalancer rebalancer = rebalancer(threeShards);
+        rebalancer.syncReferenceData();
+        int owner = threeShards.shardOf("merchant-1");
+        JdbcTemplate previous = shards.get((owner + 1) % 3);
+        previous.update("INSERT INTO transactions VALUES (1, 1, 5.0, 'key-1')");
+        shards.get(owner).update("INSERT INTO transactions VALUES (1, 1, 5.0, 'key-1')");
+
+        ShardRebalancer.RebalanceResult result = rebalancer.rebalance();
+
+        assertThat(result.clientsMoved()).isEqualTo(1);
+        assertThat(count(previous, "transactions")).isZero();
+        assertThat(count(shards.get(owner), "transactions")).isEqualTo(1);
+    }
+
+    @Test
+    void should_count_rows_per_shard() {
+        ShardRebalancer rebalancer = rebalancer(router(3));
+        rebalancer.syncReferenceData();
+        shards.get(2).update("INSERT INTO transactions VALUES (1, 1, 5.0, 'key-1')");
+
+        assertThat(rebalancer.stats()).extracting(ShardRebalancer.ShardStats::transactions).containsExactly(0L, 0L, 1L);
+    }
+
+    private ShardRouter router(int shardCount) {
+        List<String> urls = new ArrayList<>();
+        for (int shard = 0; shard < shardCount; shard++) {
+            urls.add("shard-" + shard);
+        }
+        return new ShardRouter(null, true, urls, 64, 1000, false);
+    }
+
+    private ShardRebalancer rebalancer(ShardRouter router) {
+        return new ShardRebalancer(router, dataSource, new DataSourceTransactionManager(dataSource), 4, false);
+    }
+
+    private static int count(JdbcTemplate shard, String table) {
+        return shard.queryForObject("SELECT COUNT(*) FROM " + table, Integer.class);
+    }
+
+    private static DataSource database(String name) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + name + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate setup = new JdbcTemplate(dataSource);
+        setup.execute("CREATE TABLE clients (id BIGINT PRIMARY KEY, client_id VARCHAR(255) NOT NULL UNIQUE, name VARCHAR(255))");
+        setup.execute("CREATE TABLE client_webhooks (id BIGINT PRIMARY KEY, client_id BIGINT NOT NULL REFERENCES clients (id), "
+                + "url VARCHAR(255))");
+        setup.execute("CREATE TABLE transactions (id BIGINT PRIMARY KEY, client_id BIGINT NOT NULL REFERENCES clients (id), "
+                + "amount DOUBLE, idempotency_key VARCHAR(255), UNIQUE (client_id, idempotency_key))");
+        setup.execute("CREATE TABLE transaction_metadata (transaction_id BIGINT NOT NULL REFERENCES transactions (id), "
+                + "metadata_key VARCHAR(255) NOT NULL, metadata_value VARCHAR(255), PRIMARY KEY (transaction_id, metadata_key))");
+        setup.execute("CREATE TABLE webhook_events (id BIGINT PRIMARY KEY, client_id BIGINT NOT NULL REFERENCES clients (id), "
+                + "client_webhook_id BIGINT REFERENCES client_webhooks (id), event_id VARCHAR(255) NOT NULL UNIQUE)");
+        return dataSource;
+    }
+}
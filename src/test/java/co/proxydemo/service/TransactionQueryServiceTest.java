@@ -0,0 +1,206 @@
+package co.proxydemo.service;
+
+import co.proxydemo.config.ShardRoutingDataSource;
+import co.proxydemo.dto.TransactionFilter;
+import co.proxydemo.dto.TransactionPage;
+import co.proxydemo.dto.TransactionSummary;
+import co.proxydemo.repository.TransactionSummaryRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TransactionQueryServiceTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2026, 1, 1, 0, 0);
+    private static final Comparator<TransactionSummary> KEYSET = Comparator
+            .comparing(TransactionSummary::getCreatedAt)
+            .thenComparing(TransactionSummary::getId);
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @Test
+    void should_return_every_row_once_across_keyset_pages_with_equal_timestamps() {
+        JdbcTemplate database = new JdbcTemplate(database());
+        client(database, 1, "merchant-1");
+        for (long id = 1; id <= 25; id++) {
+            transaction(database, 26 - id, 1, "SUCCESS", START.plusSeconds(id / 3));
+        }
+        TransactionQueryService service = service(database.getDataSource(), router(1), 100, 500);
+
+        List<TransactionPage> pages = walk(service, new TransactionFilter(), 10);
+
+        assertThat(pages).extracting(page -> page.getItems().size()).containsExactly(10, 10, 5);
+        assertThat(pages.get(2).getNextAfterCreatedAt()).isNull();
+        assertThat(pages.get(2).getNextAfterId()).isNull();
+        List<TransactionSummary> rows = pages.stream().flatMap(page -> page.getItems().stream()).toList();
+        assertThat(rows).extracting(TransactionSummary::getId).doesNotHaveDuplicates().hasSize(25);
+        assertThat(rows).isSortedAccordingTo(KEYSET);
+    }
+
+    @Test
+    void should_cap_the_page_size_and_not_offer_a_next_page_when_rows_run_out_exactly() {
+        JdbcTemplate database = new JdbcTemplate(database());
+        client(database, 1, "merchant-1");
+        for (long id = 1; id <= 5; id++) {
+            transaction(database, id, 1, "SUCCESS", START.plusSeconds(id));
+        }
+        TransactionQueryService service = service(database.getDataSource(), router(1), 5, 500);
+
+        TransactionPage page = service.findPage(new TransactionFilter(), null, null, 1000);
+
+        assertThat(page.getItems()).hasSize(5);
+        assertThat(page.getNextAfterId()).isNull();
+        assertThat(service.findPage(new TransactionFilter(), null, null, 0).getItems()).hasSize(1);
+    }
+
+    @Test
+    void should_filter_by_client_status_and_created_range() {
+        JdbcTemplate database = new JdbcTemplate(database());
+        client(database, 1, "merchant-1");
+        client(database, 2, "merchant-2");
+        transaction(database, 1, 1, "SUCCESS", START);
+        transaction(database, 2, 1, "FAILED", START.plusMinutes(1));
+        transaction(database, 3, 1, "SUCCESS", START.plusMinutes(2));
+        transaction(database, 4, 2, "SUCCESS", START.plusMinutes(1));
+        transaction(database, 5, 1, "SUCCESS", START.plusMinutes(3));
+        TransactionQueryService service = service(database.getDataSource(), router(1), 100, 500);
+
+        TransactionFilter filter = new TransactionFilter("merchant-1", "SUCCESS", START.plusMinutes(1), START.plusMinutes(3));
+
+        assertThat(service.findPage(filter, null, null, 100).getItems()).extracting(TransactionSummary::getId).containsExactly(3L);
+        assertThat(service.findPage(new TransactionFilter("merchant-2", null, null, null), null, null, 100).getItems())
+                .extracting(TransactionSummary::getClientId).containsExactly("merchant-2");
+    }
+
+    @Test
+    void should_export_matching_rows_as_one_json_object_per_line() throws IOException {
+        JdbcTemplate database = new JdbcTemplate(database());
+        client(database, 1, "merchant-1");
+        for (long id = 1; id <= 7; id++) {
+            transaction(database, id, 1, id % 2 == 0 ? "FAILED" : "SUCCESS", START.plusSeconds(id));
+        }
+        TransactionQueryService service = service(database.getDataSource(), router(1), 100, 2);
+
+        List<TransactionSummary> exported = export(service, new TransactionFilter(null, "SUCCESS", null, null));
+
+        assertThat(exported).extracting(TransactionSummary::getId).containsExactly(1L, 3L, 5L, 7L);
+        assertThat(exported).extracting(TransactionSummary::getCardLast4).containsOnly("4242");
+        assertThat(exportText(service, new TransactionFilter(null, "UNKNOWN", null, null))).isEmpty();
+    }
+
+    @Test
+    void should_merge_pages_and_exports_from_every_shard_in_keyset_order() throws IOException {
+        List<JdbcTemplate> shards = List.of(new JdbcTemplate(database()), new JdbcTemplate(database()));
+        ShardRouter router = router(2);
+        List<DataSource> dataSources = shards.stream().map(JdbcTemplate::getDataSource).toList();
+        ShardRoutingDataSource routing = new ShardRoutingDataSource(dataSources);
+        routing.afterPropertiesSet();
+        long id = 1;
+        for (int client = 1; client <= 12; client++) {
+            String clientId = "merchant-" + client;
+            for (JdbcTemplate shard : shards) {
+                client(shard, client, clientId);
+            }
+            for (int t = 0; t < 2; t++, id++) {
+                transaction(shards.get(router.shardOf(clientId)), id, client, "SUCCESS", START.plusSeconds((id * 7) % 11));
+            }
+        }
+        assertThat(count(shards.get(0))).isPositive();
+        assertThat(count(shards.get(1))).isPositive();
+        TransactionQueryService service = service(new LazyConnectionDataSourceProxy(routing), router, 100, 3);
+
+        List<TransactionSummary> paged = walk(service, new TransactionFilter(), 5).stream()
+                .flatMap(page -> page.getItems().stream()).toList();
+        List<TransactionSummary> exported = export(service, new TransactionFilter());
+
+        assertThat(paged).hasSize(24).isSortedAccordingTo(KEYSET);
+        assertThat(paged).extracting(TransactionSummary::getId).doesNotHaveDuplicates();
+        assertThat(exported).isEqualTo(paged);
+        assertThat(service.findPage(new TransactionFilter("merchant-3", null, null, null), null, null, 100).getItems())
+                .hasSize(2).extracting(TransactionSummary::getClientId).containsOnly("merchant-3");
+    }
+
+    private static List<TransactionPage> walk(TransactionQueryService service, TransactionFilter filter, int limit) {
+        List<TransactionPage> pages = new ArrayList<>();
+        TransactionPage page = service.findPage(filter, null, null, limit);
+        pages.add(page);
+        while (page.getNextAfterId() != null) {
+            page = service.findPage(filter, page.getNextAfterCreatedAt(), page.getNextAfterId(), limit);
+            pages.add(page);
+        }
+        return pages;
+    }
+
+    private List<TransactionSummary> export(TransactionQueryService service, TransactionFilter filter) throws IOException {
+        String text = exportText(service, filter);
+        assertThat(text).endsWith("\n");
+        List<TransactionSummary> rows = new ArrayList<>();
+        for (String line : text.split("\n")) {
+            rows.add(objectMapper.readValue(line, TransactionSummary.class));
+        }
+        return rows;
+    }
+
+    private static String exportText(TransactionQueryService service, TransactionFilter filter) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.exportNdjson(filter, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private TransactionQueryService service(DataSource dataSource, ShardRouter router, int maxPageSize, int fetchSize) {
+        ReplicaReadRouting replicaReadRouting = new ReplicaReadRouting(new SimpleMeterRegistry(), false, Duration.ofSeconds(5), 1000);
+        return new TransactionQueryService(new TransactionSummaryRepository(dataSource, fetchSize), objectMapper,
+                replicaReadRouting, null, router, maxPageSize, 2, fetchSize);
+    }
+
+    private static ShardRouter router(int shardCount) {
+        if (shardCount == 1) {
+            return new ShardRouter(null, false, List.of(), 64, 1000, false);
+        }
+        List<String> urls = new ArrayList<>();
+        for (int shard = 0; shard < shardCount; shard++) {
+            urls.add("shard-" + shard);
+        }
+        return new ShardRouter(null, true, urls, 64, 1000, false);
+    }
+
+    private static void client(JdbcTemplate database, long id, String clientId) {
+        database.update("INSERT INTO clients VALUES (?, ?)", id, clientId);
+    }
+
+    private static void transaction(JdbcTemplate database, long id, long clientPk, String status, LocalDateTime createdAt) {
+        database.update("INSERT INTO transactions VALUES (?, ?, 10.0, '4242', ?, NULL, ?, ?)",
+                id, clientPk, status, createdAt, "txn_" + id);
+    }
+
+    private static int count(JdbcTemplate database) {
+        return database.queryForObject("SELECT COUNT(*) FROM transactions", Integer.class);
+    }
+
+    private static DataSource database() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:transactions-" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate setup = new JdbcTemplate(dataSource);
+        setup.execute("CREATE TABLE clients (id BIGINT PRIMARY KEY, client_id VARCHAR(255) NOT NULL UNIQUE)");
+        setup.execute("CREATE TABLE transactions (id BIGINT PRIMARY KEY, client_id BIGINT NOT NULL REFERENCES clients (id), "
+                + "amount DOUBLE, card_last4 VARCHAR(4), status VARCHAR(255), error_message VARCHAR(255), "
+                + "created_at TIMESTAMP(6), provider_transaction_id VARCHAR(255))");
+        return dataSource;
+    }
+}
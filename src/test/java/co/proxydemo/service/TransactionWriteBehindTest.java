@@ -0,0 +1,209 @@
+package co.proxydemo.service;
+
+import co.proxydemo.dto.PaymentResponse;
+import co.proxydemo.dto.WebhookEvent;
+import co.proxydemo.entity.Client;
+import co.proxydemo.entity.Transaction;
+import co.proxydemo.util.AppendOnlyJournal;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TransactionWriteBehindTest {
+
+    @TempDir
+    Path dir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @Test
+    void should_apply_queued_completions_in_batches_of_at_most_batch_size() throws Exception {
+        RecordingFinalizer finalizer = new RecordingFinalizer();
+        TransactionWriteBehind writeBehind = writeBehind(finalizer, objectMapper, 100, 3, Duration.ofMillis(500));
+        writeBehind.start();
+
+        for (long id = 1; id <= 7; id++) {
+            assertThat(writeBehind.submit(pending(id), success(id), "{}", null)).isTrue();
+        }
+        writeBehind.stop();
+
+        assertThat(finalizer.batches).extracting(List::size).containsExactly(3, 3, 1);
+        assertThat(finalizer.batches.stream().flatMap(List::stream)).containsExactly(1L, 2L, 3L, 4L, 5L, 6L, 7L);
+        assertThat(finalizer.finalized).isEmpty();
+        assertThat(Files.size(journal())).isZero();
+    }
+
+    @Test
+    void should_report_a_completion_as_queued_until_it_is_applied() throws Exception {
+        RecordingFinalizer finalizer = new RecordingFinalizer();
+        finalizer.release = new CountDownLatch(1);
+        TransactionWriteBehind writeBehind = writeBehind(finalizer, objectMapper, 100, 1, Duration.ofMillis(10));
+        writeBehind.start();
+
+        writeBehind.submit(pending(1), success(1), "{}", null);
+        assertThat(finalizer.applying.await(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(writeBehind.isQueued(1)).isTrue();
+        assertThat(writeBehind.isQueued(2)).isFalse();
+
+        finalizer.release.countDown();
+        writeBehind.stop();
+
+        assertThat(writeBehind.isQueued(1)).isFalse();
+    }
+
+    @Test
+    void should_apply_completions_left_in_the_journal_before_starting() throws Exception {
+        try (AppendOnlyJournal journal = new AppendOnlyJournal(journal(), 0)) {
+            journal.recover();
+            journal.append(objectMapper.writeValueAsBytes(TransactionFinalizer.completionOf(pending(11), success(11), "{}", null)));
+            journal.sync(journal.append(objectMapper.writeValueAsBytes(TransactionFinalizer.completionOf(pending(12), failure(), "{}", null))));
+        }
+        RecordingFinalizer finalizer = new RecordingFinalizer();
+        TransactionWriteBehind writeBehind = writeBehind(finalizer, objectMapper, 100, 200, Duration.ofMillis(10));
+
+        writeBehind.start();
+
+        assertThat(finalizer.batches).containsExactly(List.of(11L, 12L));
+        assertThat(finalizer.statuses).containsExactly("SUCCESS", "FAILED");
+        assertThat(Files.size(journal())).isZero();
+        writeBehind.stop();
+    }
+
+    @Test
+    void should_finalize_synchronously_when_the_journal_cannot_be_written() throws Exception {
+        ObjectMapper failing = new ObjectMapper() {
+            @Override
+            public byte[] writeValueAsBytes(Object value) throws JsonProcessingException {
+                throw new JsonMappingException(null, "cannot serialize");
+            }
+        };
+        RecordingFinalizer finalizer = new RecordingFinalizer();
+        TransactionWriteBehind writeBehind = writeBehind(finalizer, failing, 100, 200, Duration.ofMillis(10));
+        writeBehind.start();
+
+        boolean finalized = writeBehind.submit(pending(21), success(21), "{}", null);
+        writeBehind.stop();
+
+        assertThat(finalized).isTrue();
+        assertThat(finalizer.finalized).containsExactly(21L);
+        assertThat(finalizer.batches).isEmpty();
+        assertThat(writeBehind.isQueued(21)).isFalse();
+    }
+
+    @Test
+    void should_finalize_synchronously_and_release_the_record_when_interrupted_while_queueing() throws Exception {
+        RecordingFinalizer finalizer = new RecordingFinalizer();
+        finalizer.release = new CountDownLatch(1);
+        TransactionWriteBehind writeBehind = writeBehind(finalizer, objectMapper, 1, 1, Duration.ofMillis(10));
+        writeBehind.start();
+        writeBehind.submit(pending(31), success(31), "{}", null);
+        assertThat(finalizer.applying.await(5, TimeUnit.SECONDS)).isTrue();
+        writeBehind.submit(pending(32), success(32), "{}", null);
+
+        AtomicBoolean finalized = new AtomicBoolean();
+        AtomicBoolean interrupted = new AtomicBoolean();
+        Thread blocked = Thread.ofPlatform().start(() -> {
+            finalized.set(writeBehind.submit(pending(33), success(33), "{}", null));
+            interrupted.set(Thread.currentThread().isInterrupted());
+        });
+        while (blocked.getState() != Thread.State.WAITING) {
+            Thread.onSpinWait();
+        }
+        blocked.interrupt();
+        blocked.join();
+
+        assertThat(finalized).isTrue();
+        assertThat(interrupted).isTrue();
+        assertThat(finalizer.finalized).containsExactly(33L);
+        assertThat(writeBehind.isQueued(33)).isFalse();
+
+        finalizer.release.countDown();
+        writeBehind.stop();
+
+        assertThat(finalizer.batches).containsExactly(List.of(31L), List.of(32L));
+        assertThat(Files.size(journal())).isZero();
+    }
+
+    private TransactionWriteBehind writeBehind(TransactionFinalizer finalizer, ObjectMapper mapper, int queueCapacity,
+                                               int batchSize, Duration flushInterval) {
+        return new TransactionWriteBehind(finalizer, new ShardRouter(null, false, List.of(), 64, 1000, false), mapper,
+                new SimpleMeterRegistry(), true, journal(), DataSize.ofBytes(0), queueCapacity, batchSize, flushInterval,
+                Duration.ofMillis(10), Duration.ofSeconds(5));
+    }
+
+    private Path journal() {
+        return dir.resolve("transaction-journal.log");
+    }
+
+    private static Transaction pending(long id) {
+        Client client = new Client();
+        client.setId(1L);
+        Transaction transaction = new Transaction();
+        transaction.setId(id);
+        transaction.setClient(client);
+        transaction.setStatus("PENDING");
+        return transaction;
+    }
+
+    private static PaymentResponse success(long id) {
+        return new PaymentResponse(true, "visa-" + id, "Payment processed successfully", null, LocalDateTime.now());
+    }
+
+    private static PaymentResponse failure() {
+        return new PaymentResponse(false, null, "Card declined", "card_declined", LocalDateTime.now());
+    }
+
+    /**
+     * Records what the write-behind hands to the database instead of writing it.
+     */
+    private static class RecordingFinalizer extends TransactionFinalizer {
+
+        final List<List<Long>> batches = new CopyOnWriteArrayList<>();
+        final List<String> statuses = new CopyOnWriteArrayList<>();
+        final List<Long> finalized = new CopyOnWriteArrayList<>();
+        final CountDownLatch applying = new CountDownLatch(1);
+        volatile CountDownLatch release;
+
+        RecordingFinalizer() {
+            super(null, null, null, null);
+        }
+
+        @Override
+        public int applyCompletions(List<Completion> completions) {
+            applying.countDown();
+            if (release != null) {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            batches.add(completions.stream().map(Completion::transactionId).toList());
+            completions.forEach(completion -> statuses.add(completion.status()));
+            return completions.size();
+        }
+
+        @Override
+        public boolean finalizeTransaction(Transaction pending, PaymentResponse response, String responseBody, WebhookEvent event) {
+            finalized.add(pending.getId());
+            return true;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package co.proxydemo.service;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WebhookDeliveryClientTest {
+
+    private HttpServer server;
+    private final List<String> receivedBodies = new CopyOnWriteArrayList<>();
+    private final List<String> receivedEventIds = new CopyOnWriteArrayList<>();
+
+    private final WebhookDeliveryClient client = new WebhookDeliveryClient(Duration.ofSeconds(1), Duration.ofSeconds(2));
+
+    @BeforeEach
+    void startStubServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/ok", exchange -> {
+            receivedBodies.add(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            receivedEventIds.add(exchange.getRequestHeaders().getFirst("X-Webhook-Event-Id"));
+            exchange.sendResponseHeaders(204, -1);
+            exchange.close();
+        });
+        server.createContext("/fail", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            exchange.sendResponseHeaders(503, -1);
+            exchange.close();
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void stopStubServer() {
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    private String url(String path) {
+        return "http://localhost:" + server.getAddress().getPort() + path;
+    }
+
+    @Test
+    void should_post_payload_and_report_success_for_2xx() {
+        WebhookDeliveryClient.DeliveryResult result =
+                client.deliver(url("/ok"), "evt_1:7", 1, "{\"eventType\":\"payment.success\"}").join();
+
+        assertThat(result.success()).isTrue();
+        assertThat(result.statusCode()).isEqualTo(204);
+        assertThat(receivedBodies).containsExactly("{\"eventType\":\"payment.success\"}");
+        assertThat(receivedEventIds).containsExactly("evt_1:7");
+    }
+
+    @Test
+    void should_report_failure_for_non_2xx() {
+        WebhookDeliveryClient.DeliveryResult result = client.deliver(url("/fail"), "evt_2:7", 3, "{}").join();
+
+        assertThat(result.success()).isFalse();
+        assertThat(result.statusCode()).isEqualTo(503);
+        assertThat(result.error()).isEqualTo("HTTP 503");
+    }
+
+    @Test
+    void should_report_failure_when_endpoint_is_unreachable() {
+        int port = server.getAddress().getPort();
+        server.stop(0);
+        server = null;
+
+        WebhookDeliveryClient.DeliveryResult result =
+                client.deliver("http://localhost:" + port + "/ok", "evt_3:7", 1, "{}").join();
+
+        assertThat(result.success()).isFalse();
+        assertThat(result.statusCode()).isNull();
+        assertThat(result.error()).isNotBlank();
+    }
+}
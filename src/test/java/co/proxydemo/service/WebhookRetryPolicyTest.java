@@ -0,0 +1,36 @@
+package co.proxydemo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WebhookRetryPolicyTest {
+
+    private final WebhookRetryPolicy policy = new WebhookRetryPolicy(5, Duration.ofSeconds(1), Duration.ofSeconds(10));
+
+    @Test
+    void should_back_off_exponentially_with_jitter_up_to_the_cap() {
+        for (int i = 0; i < 100; i++) {
+            assertThat(policy.delayBeforeRetry(1).toMillis()).isBetween(500L, 1000L);
+            assertThat(policy.delayBeforeRetry(3).toMillis()).isBetween(2000L, 4000L);
+            assertThat(policy.delayBeforeRetry(10).toMillis()).isBetween(5000L, 10000L);
+        }
+    }
+
+    @Test
+    void should_stay_within_the_cap_for_attempts_past_the_shift_limit() {
+        for (int i = 0; i < 100; i++) {
+            assertThat(policy.delayBeforeRetry(Integer.MAX_VALUE).toMillis()).isBetween(5000L, 10000L);
+            assertThat(policy.delayBeforeRetry(0).toMillis()).isBetween(500L, 1000L);
+        }
+    }
+
+    @Test
+    void should_be_exhausted_once_max_attempts_were_made() {
+        assertThat(policy.isExhausted(4)).isFalse();
+        assertThat(policy.isExhausted(5)).isTrue();
+        assertThat(policy.isExhausted(6)).isTrue();
+    }
+}
@@ -0,0 +1,77 @@
+package co.proxydemo.tracing;
+
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Scope;
+import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TailSamplingSpanExporterTest {
+
+    private final InMemorySpanExporter delegate = InMemorySpanExporter.create();
+    private final SdkTracerProvider tracerProvider = SdkTracerProvider.builder()
+            .addSpanProcessor(SimpleSpanProcessor.create(
+                    new TailSamplingSpanExporter(delegate, Duration.ofSeconds(2), 0.0, Duration.ofMinutes(1), 1000)))
+            .build();
+    private final Tracer tracer = tracerProvider.get("test");
+
+    @AfterEach
+    void close() {
+        tracerProvider.close();
+    }
+
+    @Test
+    void should_drop_fast_successful_traces_when_ratio_is_zero() {
+        runPayment("success", false, 0);
+
+        assertThat(delegate.getFinishedSpanItems()).isEmpty();
+    }
+
+    @Test
+    void should_keep_whole_trace_when_a_child_span_failed() {
+        runPayment("success", true, 0);
+
+        List<SpanData> spans = delegate.getFinishedSpanItems();
+        assertThat(spans).extracting(SpanData::getName).containsExactlyInAnyOrder("payment", "provider visa");
+        assertThat(spans).extracting(SpanData::getTraceId).containsOnly(spans.get(0).getTraceId());
+    }
+
+    @Test
+    void should_keep_traces_of_failed_payments() {
+        runPayment("failure", false, 0);
+
+        assertThat(delegate.getFinishedSpanItems()).hasSize(2);
+    }
+
+    @Test
+    void should_keep_slow_traces() {
+        runPayment("success", false, TimeUnit.SECONDS.toNanos(3));
+
+        assertThat(delegate.getFinishedSpanItems()).hasSize(2);
+    }
+
+    private void runPayment(String outcome, boolean providerError, long extraNanos) {
+        long start = System.nanoTime();
+        Span root = tracer.spanBuilder("payment").setStartTimestamp(start, TimeUnit.NANOSECONDS).startSpan();
+        try (Scope ignored = root.makeCurrent()) {
+            Span child = tracer.spanBuilder("provider visa").startSpan();
+            if (providerError) {
+                child.setStatus(StatusCode.ERROR);
+            }
+            child.end();
+        }
+        root.setAttribute(TailSamplingSpanExporter.PAYMENT_OUTCOME, outcome);
+        root.end(start + extraNanos + 1, TimeUnit.NANOSECONDS);
+    }
+}
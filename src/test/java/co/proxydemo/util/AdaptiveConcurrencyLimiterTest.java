@@ -0,0 +1,89 @@
+package co.proxydemo.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final long THRESHOLD = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final AtomicLong clock = new AtomicLong();
+    private final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 2, 20, 0.5, THRESHOLD, clock::get);
+
+    @Test
+    void should_reject_once_the_limit_is_in_flight() {
+        List<AdaptiveConcurrencyLimiter.Permit> permits = acquire(10);
+
+        assertThat(permits).doesNotContainNull();
+        assertThat(limiter.tryAcquire()).isNull();
+
+        permits.get(0).release(false);
+        assertThat(limiter.tryAcquire()).isNotNull();
+    }
+
+    @Test
+    void should_count_a_weighted_permit_as_that_many_calls() {
+        AdaptiveConcurrencyLimiter.Permit batch = limiter.tryAcquire(8);
+
+        assertThat(limiter.getInFlight()).isEqualTo(8);
+        assertThat(limiter.tryAcquire(3)).isNull();
+        assertThat(acquire(2)).doesNotContainNull();
+
+        batch.release(false);
+        assertThat(limiter.getInFlight()).isEqualTo(2);
+    }
+
+    @Test
+    void should_clamp_a_weight_above_the_limit() {
+        AdaptiveConcurrencyLimiter.Permit batch = limiter.tryAcquire(500);
+
+        assertThat(batch).isNotNull();
+        assertThat(limiter.getInFlight()).isEqualTo(10);
+        assertThat(limiter.tryAcquire()).isNull();
+
+        batch.release(false);
+        assertThat(limiter.getInFlight()).isZero();
+    }
+
+    @Test
+    void should_cut_the_limit_once_per_burst_of_slow_calls() {
+        List<AdaptiveConcurrencyLimiter.Permit> permits = acquire(10);
+        clock.addAndGet(THRESHOLD * 2);
+
+        permits.forEach(permit -> permit.release(false));
+
+        assertThat(limiter.getLimit()).isEqualTo(5);
+        assertThat(limiter.getInFlight()).isZero();
+    }
+
+    @Test
+    void should_grow_slowly_while_the_limit_is_used_and_calls_are_fast() {
+        for (int round = 0; round < 10; round++) {
+            acquire(10).forEach(permit -> permit.release(false));
+        }
+
+        assertThat(limiter.getLimit()).isBetween(11, 20);
+    }
+
+    @Test
+    void should_treat_dropped_calls_as_congestion() {
+        clock.addAndGet(1);
+        limiter.tryAcquire().release(true);
+
+        assertThat(limiter.getLimit()).isEqualTo(5);
+    }
+
+    private List<AdaptiveConcurrencyLimiter.Permit> acquire(int count) {
+        List<AdaptiveConcurrencyLimiter.Permit> permits = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            permits.add(limiter.tryAcquire());
+        }
+        return permits;
+    }
+}
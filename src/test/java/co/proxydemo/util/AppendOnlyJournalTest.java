@@ -0,0 +1,173 @@
+package co.proxydemo.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AppendOnlyJournalTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void should_recover_synced_records_and_drop_a_torn_tail() throws IOException {
+        Path file = dir.resolve("journal.log");
+        try (AppendOnlyJournal journal = new AppendOnlyJournal(file, 0)) {
+            assertThat(journal.recover()).isEmpty();
+            journal.append(bytes("first"));
+            journal.sync(journal.append(bytes("second")));
+        }
+        long complete = Files.size(file);
+        Files.write(file, ByteBuffer.allocate(6).putInt(100).put((byte) 1).put((byte) 2).array(), StandardOpenOption.APPEND);
+
+        try (AppendOnlyJournal journal = new AppendOnlyJournal(file, 0)) {
+            List<AppendOnlyJournal.Record> records = journal.recover();
+
+            assertThat(records).extracting(AppendOnlyJournalTest::text).containsExactly("first", "second");
+            assertThat(journal.liveRecords()).isEqualTo(2);
+            assertThat(Files.size(file)).isEqualTo(complete);
+        }
+    }
+
+    @Test
+    void should_delete_rolled_files_and_truncate_once_their_records_are_released() throws IOException {
+        Path file = dir.resolve("journal.log");
+        try (AppendOnlyJournal journal = new AppendOnlyJournal(file, 0)) {
+            journal.recover();
+            long a = journal.append(bytes("a"));
+            long b = journal.append(bytes("b"));
+            assertThat(journal.segmentCount()).isEqualTo(2);
+
+            journal.release(a);
+            assertThat(journal.segmentCount()).isEqualTo(1);
+            assertThat(journalFiles()).containsExactly(file);
+            assertThat(journal.sizeBytes()).isPositive();
+
+            journal.release(b);
+            assertThat(journal.sizeBytes()).isZero();
+            assertThat(Files.size(file)).isZero();
+
+            journal.sync(journal.append(bytes("c")));
+        }
+        try (AppendOnlyJournal journal = new AppendOnlyJournal(file, 0)) {
+            assertThat(journal.recover()).extracting(AppendOnlyJournalTest::text).containsExactly("c");
+        }
+    }
+
+    @Test
+    void should_stay_near_the_live_backlog_while_appends_never_stop() throws IOException {
+        Path file = dir.resolve("journal.log");
+        int segmentBytes = 256;
+        int backlog = 10;
+        int recordBytes = 8 + bytes("record-0000").length;
+        Deque<Long> live = new ArrayDeque<>();
+        long largest = 0;
+        try (AppendOnlyJournal journal = new AppendOnlyJournal(file, segmentBytes)) {
+            journal.recover();
+            for (int i = 0; i < 2000; i++) {
+                live.add(journal.append(bytes(String.format("record-%04d", i))));
+                if (live.size() > backlog) {
+                    journal.release(live.poll());
+                }
+                largest = Math.max(largest, journal.sizeBytes());
+            }
+
+            assertThat(largest).isLessThanOrEqualTo(2L * segmentBytes + (long) backlog * recordBytes);
+            assertThat(journalFiles().stream().mapToLong(AppendOnlyJournalTest::size).sum()).isEqualTo(journal.sizeBytes());
+            assertThat(journalFiles()).hasSizeLessThanOrEqualTo(3);
+        }
+        try (AppendOnlyJournal journal = new AppendOnlyJournal(file, segmentBytes)) {
+            List<AppendOnlyJournal.Record> records = journal.recover();
+
+            assertThat(records).extracting(AppendOnlyJournalTest::text).contains("record-1990").endsWith("record-1999");
+            assertThat((long) records.size() * recordBytes).isLessThanOrEqualTo(2L * segmentBytes + (long) backlog * recordBytes);
+        }
+    }
+
+    @Test
+    void should_stop_recovery_at_a_record_whose_checksum_does_not_match() throws IOException {
+        Path file = dir.resolve("journal.log");
+        try (AppendOnlyJournal journal = new AppendOnlyJournal(file, Long.MAX_VALUE)) {
+            journal.recover();
+            journal.append(bytes("first"));
+            journal.append(bytes("second"));
+            journal.sync(journal.append(bytes("third")));
+        }
+        long firstRecordBytes = 8 + bytes("first").length;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{'X'}), firstRecordBytes + 8);
+        }
+
+        try (AppendOnlyJournal journal = new AppendOnlyJournal(file, Long.MAX_VALUE)) {
+            assertThat(journal.recover()).extracting(AppendOnlyJournalTest::text).containsExactly("first");
+            assertThat(Files.size(file)).isEqualTo(firstRecordBytes);
+        }
+    }
+
+    @Test
+    void should_make_every_record_durable_under_concurrent_appends() throws Exception {
+        Path file = dir.resolve("journal.log");
+        int writers = 8;
+        int perWriter = 200;
+        try (AppendOnlyJournal journal = new AppendOnlyJournal(file, Long.MAX_VALUE);
+             ExecutorService executor = Executors.newFixedThreadPool(writers)) {
+            journal.recover();
+            List<Future<?>> futures = new ArrayList<>();
+            for (int w = 0; w < writers; w++) {
+                int writer = w;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < perWriter; i++) {
+                        journal.sync(journal.append(bytes(writer + "-" + i)));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        try (AppendOnlyJournal journal = new AppendOnlyJournal(file, 0)) {
+            assertThat(journal.recover()).hasSize(writers * perWriter);
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String text(AppendOnlyJournal.Record record) {
+        return new String(record.payload(), StandardCharsets.UTF_8);
+    }
+
+    private List<Path> journalFiles() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.sorted().toList();
+        }
+    }
+
+    private static long size(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
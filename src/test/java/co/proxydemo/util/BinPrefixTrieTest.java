@@ -0,0 +1,47 @@
+package co.proxydemo.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BinPrefixTrieTest {
+
+    @Test
+    void should_route_to_the_longest_matching_prefix() {
+        BinPrefixTrie.Builder<String> builder = BinPrefixTrie.builder();
+        builder.put("4", "network");
+        builder.put("4111", "visa");
+        BinPrefixTrie<String> trie = builder.build();
+
+        assertThat(trie.findLongestPrefix("4111 1111 1111 1111")).isEqualTo("visa");
+        assertThat(trie.findLongestPrefix("4242424242424242")).isEqualTo("network");
+        assertThat(trie.findLongestPrefix("5555555555554444")).isNull();
+        assertThat(trie.findLongestPrefix(null)).isNull();
+    }
+
+    @Test
+    void should_match_every_bin_inside_a_range_and_nothing_outside() {
+        BinPrefixTrie.Builder<String> builder = BinPrefixTrie.builder();
+        builder.put("222100-272099", "mastercard");
+        BinPrefixTrie<String> trie = builder.build();
+
+        for (int bin = 220000; bin < 280000; bin++) {
+            boolean inRange = bin >= 222100 && bin <= 272099;
+            assertThat(trie.findLongestPrefix(bin + "0000000000"))
+                    .as("BIN %d", bin)
+                    .isEqualTo(inRange ? "mastercard" : null);
+        }
+    }
+
+    @Test
+    void should_report_conflicting_rules_and_reject_malformed_ones() {
+        BinPrefixTrie.Builder<String> builder = BinPrefixTrie.builder();
+        assertThat(builder.put("5100", "a")).isZero();
+        assertThat(builder.put("5100", "b")).isEqualTo(1);
+
+        assertThatThrownBy(() -> builder.put("51x0", "a")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> builder.put("5199-5100", "a")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> builder.put("51-5100", "a")).isInstanceOf(IllegalArgumentException.class);
+    }
+}
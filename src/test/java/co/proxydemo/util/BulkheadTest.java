@@ -0,0 +1,77 @@
+package co.proxydemo.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BulkheadTest {
+
+    @Test
+    void should_queue_then_reject_once_permits_and_queue_are_exhausted() {
+        Bulkhead bulkhead = new Bulkhead(1, 1);
+
+        CompletableFuture<Void> first = bulkhead.acquire();
+        CompletableFuture<Void> second = bulkhead.acquire();
+        CompletableFuture<Void> third = bulkhead.acquire();
+
+        assertThat(first).isCompleted();
+        assertThat(second).isNotDone();
+        assertThat(third).isCompletedExceptionally();
+        assertThat(bulkhead.getRejectedCount()).isEqualTo(1);
+
+        bulkhead.release();
+        assertThat(second).isCompleted();
+        assertThat(bulkhead.getInFlight()).isEqualTo(1);
+        assertThat(bulkhead.getQueued()).isZero();
+    }
+
+    @Test
+    void should_not_hand_a_permit_to_a_waiter_that_gave_up() {
+        Bulkhead bulkhead = new Bulkhead(1, 2);
+        bulkhead.acquire();
+        CompletableFuture<Void> abandoned = bulkhead.acquire();
+        CompletableFuture<Void> waiting = bulkhead.acquire();
+
+        abandoned.completeExceptionally(new TimeoutException());
+        assertThat(bulkhead.getQueued()).isEqualTo(1);
+
+        bulkhead.release();
+        assertThat(waiting).isCompleted();
+        assertThat(bulkhead.getInFlight()).isEqualTo(1);
+    }
+
+    @Test
+    void should_never_exceed_the_limit_under_contention() throws Exception {
+        Bulkhead bulkhead = new Bulkhead(4, 10_000);
+        AtomicInteger concurrent = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        int calls = 2_000;
+        CountDownLatch done = new CountDownLatch(calls);
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            for (int i = 0; i < calls; i++) {
+                executor.execute(() -> bulkhead.acquire().thenRunAsync(() -> {
+                    peak.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+                    concurrent.decrementAndGet();
+                    bulkhead.release();
+                    done.countDown();
+                }, executor));
+            }
+            assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(peak.get()).isLessThanOrEqualTo(4);
+        assertThat(bulkhead.getInFlight()).isZero();
+        assertThat(bulkhead.getQueued()).isZero();
+    }
+}
@@ -0,0 +1,71 @@
+package co.proxydemo.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CardChecksTest {
+
+    @Test
+    void should_accept_luhn_valid_numbers_only() {
+        assertThat(CardChecks.isLuhnValid("4242424242424242")).isTrue();
+        assertThat(CardChecks.isLuhnValid("5555555555554444")).isTrue();
+        assertThat(CardChecks.isLuhnValid("4111111111111111")).isTrue();
+        assertThat(CardChecks.isLuhnValid("4242424242424241")).isFalse();
+        assertThat(CardChecks.isLuhnValid("4111111111111112")).isFalse();
+    }
+
+    @Test
+    void should_parse_mm_yy_into_a_month_index() {
+        assertThat(CardChecks.parseExpiryMonth("01/30")).isEqualTo(2030 * 12);
+        assertThat(CardChecks.parseExpiryMonth("12/30")).isEqualTo(2030 * 12 + 11);
+        assertThat(CardChecks.parseExpiryMonth("00/30")).isEqualTo(-1);
+        assertThat(CardChecks.parseExpiryMonth("13/30")).isEqualTo(-1);
+        assertThat(CardChecks.parseExpiryMonth("1/30")).isEqualTo(-1);
+        assertThat(CardChecks.parseExpiryMonth("12-30")).isEqualTo(-1);
+        assertThat(CardChecks.parseExpiryMonth("1a/30")).isEqualTo(-1);
+        assertThat(CardChecks.parseExpiryMonth(null)).isEqualTo(-1);
+    }
+
+    @Test
+    void should_move_to_the_next_month_on_rollover() {
+        MutableClock clock = new MutableClock(Instant.parse("2030-01-31T23:59:59Z"));
+        MonthClock months = new MonthClock(clock);
+
+        assertThat(months.currentMonth()).isEqualTo(CardChecks.parseExpiryMonth("01/30"));
+
+        clock.now = Instant.parse("2030-02-01T00:00:00Z");
+        assertThat(months.currentMonth()).isEqualTo(CardChecks.parseExpiryMonth("02/30"));
+
+        clock.now = Instant.parse("2029-12-15T00:00:00Z");
+        assertThat(months.currentMonth()).isEqualTo(CardChecks.parseExpiryMonth("12/29"));
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now;
+
+        private MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
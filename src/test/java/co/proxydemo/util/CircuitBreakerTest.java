@@ -0,0 +1,102 @@
+package co.proxydemo.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CircuitBreakerTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private CircuitBreaker breaker() {
+        return new CircuitBreaker(10, 4, 0.5, 0.8, Duration.ofMillis(100), Duration.ofSeconds(30), 2, clock::get);
+    }
+
+    private static void record(CircuitBreaker breaker, boolean failed, long durationNanos) {
+        long permit = breaker.tryAcquire();
+        assertThat(permit).isNotNegative();
+        breaker.onResult(permit, durationNanos, failed);
+    }
+
+    @Test
+    void should_open_once_the_failure_rate_crosses_the_threshold() {
+        CircuitBreaker breaker = breaker();
+        record(breaker, true, 0);
+        record(breaker, false, 0);
+        record(breaker, false, 0);
+        record(breaker, false, 0);
+        record(breaker, true, 0);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+
+        record(breaker, true, 0);
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(breaker.tryAcquire()).isNegative();
+        assertThat(breaker.getRejectedCount()).isEqualTo(1);
+    }
+
+    @Test
+    void should_open_on_slow_calls_even_when_they_succeed() {
+        CircuitBreaker breaker = breaker();
+        for (int i = 0; i < 4; i++) {
+            record(breaker, false, Duration.ofMillis(250).toNanos());
+        }
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void should_close_after_enough_successful_trial_calls() {
+        CircuitBreaker breaker = breaker();
+        for (int i = 0; i < 4; i++) {
+            record(breaker, true, 0);
+        }
+        clock.addAndGet(Duration.ofSeconds(31).toNanos());
+
+        long first = breaker.tryAcquire();
+        long second = breaker.tryAcquire();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        assertThat(breaker.tryAcquire()).isNegative();
+
+        breaker.onResult(first, 0, false);
+        breaker.onResult(second, 0, false);
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(breaker.getBufferedCalls()).isZero();
+    }
+
+    @Test
+    void should_reopen_when_a_trial_call_fails() {
+        CircuitBreaker breaker = breaker();
+        for (int i = 0; i < 4; i++) {
+            record(breaker, true, 0);
+        }
+        clock.addAndGet(Duration.ofSeconds(31).toNanos());
+
+        record(breaker, true, 0);
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(breaker.tryAcquire()).isNegative();
+    }
+
+    @Test
+    void should_ignore_results_from_calls_admitted_before_a_transition() {
+        CircuitBreaker breaker = breaker();
+        long stale = breaker.tryAcquire();
+        for (int i = 0; i < 4; i++) {
+            record(breaker, true, 0);
+        }
+        clock.addAndGet(Duration.ofSeconds(31).toNanos());
+        long trial = breaker.tryAcquire();
+
+        breaker.onResult(stale, 0, true);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+
+        breaker.onResult(trial, 0, false);
+        record(breaker, false, 0);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+}
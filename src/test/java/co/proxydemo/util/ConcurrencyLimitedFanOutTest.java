@@ -0,0 +1,68 @@
+package co.proxydemo.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConcurrencyLimitedFanOutTest {
+
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(4);
+
+    @AfterEach
+    void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    void should_cap_in_flight_calls_and_preserve_order() {
+        List<Integer> items = IntStream.range(0, 100).boxed().toList();
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+
+        List<String> results = ConcurrencyLimitedFanOut.map(items, 5, item -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            CompletableFuture<String> future = new CompletableFuture<>();
+            scheduler.schedule(() -> {
+                inFlight.decrementAndGet();
+                future.complete("r" + item);
+            }, 2, TimeUnit.MILLISECONDS);
+            return future;
+        }, error -> "failed").join();
+
+        assertThat(results).hasSize(100);
+        assertThat(results.get(0)).isEqualTo("r0");
+        assertThat(results.get(99)).isEqualTo("r99");
+        assertThat(maxInFlight.get()).isLessThanOrEqualTo(5);
+    }
+
+    @Test
+    void should_map_failures_and_synchronous_completions() {
+        List<Integer> items = IntStream.range(0, 10_000).boxed().toList();
+
+        List<String> results = ConcurrencyLimitedFanOut.map(items, 2, item -> {
+            if (item % 2 == 0) {
+                return CompletableFuture.completedFuture("ok");
+            }
+            return CompletableFuture.<String>failedFuture(new IllegalStateException("boom"));
+        }, error -> error.getMessage()).join();
+
+        assertThat(results).hasSize(10_000);
+        assertThat(results.get(0)).isEqualTo("ok");
+        assertThat(results.get(1)).isEqualTo("boom");
+    }
+
+    @Test
+    void should_complete_immediately_for_empty_input() {
+        assertThat(ConcurrencyLimitedFanOut.<Integer, String>map(List.of(), 4, item -> null, error -> null).join())
+                .isEmpty();
+    }
+}
@@ -0,0 +1,58 @@
+package co.proxydemo.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ConsistentHashRingTest {
+
+    private static final int KEYS = 20_000;
+
+    @Test
+    void should_spread_keys_roughly_evenly() {
+        ConsistentHashRing ring = new ConsistentHashRing(4, 128);
+        int[] counts = new int[4];
+        for (int i = 0; i < KEYS; i++) {
+            counts[ring.nodeFor("client-" + i)]++;
+        }
+
+        for (int count : counts) {
+            assertThat(count).isBetween(KEYS / 4 * 7 / 10, KEYS / 4 * 13 / 10);
+        }
+    }
+
+    @Test
+    void should_only_move_keys_to_the_added_node() {
+        ConsistentHashRing before = new ConsistentHashRing(3, 128);
+        ConsistentHashRing after = new ConsistentHashRing(4, 128);
+        int moved = 0;
+        for (int i = 0; i < KEYS; i++) {
+            String key = "client-" + i;
+            int from = before.nodeFor(key);
+            int to = after.nodeFor(key);
+            if (from != to) {
+                assertThat(to).isEqualTo(3);
+                moved++;
+            }
+        }
+
+        assertThat(moved).isBetween(KEYS / 4 * 7 / 10, KEYS / 4 * 13 / 10);
+    }
+
+    @Test
+    void should_place_a_key_the_same_way_on_every_ring_instance() {
+        assertThat(new ConsistentHashRing(5, 64).nodeFor("merchant-42"))
+                .isEqualTo(new ConsistentHashRing(5, 64).nodeFor("merchant-42"));
+    }
+
+    @Test
+    void should_send_everything_to_the_only_node() {
+        assertThat(new ConsistentHashRing(1, 16).nodeFor("anything")).isZero();
+    }
+
+    @Test
+    void should_reject_an_empty_ring() {
+        assertThatThrownBy(() -> new ConsistentHashRing(0, 16)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
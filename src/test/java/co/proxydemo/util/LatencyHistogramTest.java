@@ -0,0 +1,53 @@
+package co.proxydemo.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class LatencyHistogramTest {
+
+    @Test
+    void should_report_percentiles_within_bucket_precision() {
+        LatencyHistogram histogram = new LatencyHistogram(1, TimeUnit.MINUTES);
+        for (int millis = 1; millis <= 1000; millis++) {
+            histogram.record(millis, TimeUnit.MILLISECONDS);
+        }
+
+        assertThat(histogram.count()).isEqualTo(1000);
+        assertThat(histogram.percentileMicros(0.50)).isCloseTo(500_000L, within(35_000L));
+        assertThat(histogram.percentileMicros(0.95)).isCloseTo(950_000L, within(65_000L));
+        assertThat(histogram.percentileMicros(0.99)).isCloseTo(990_000L, within(65_000L));
+    }
+
+    @Test
+    void should_place_every_value_in_a_bucket_whose_bound_covers_it() {
+        for (long micros = 0; micros < 10_000_000; micros += micros < 1_000 ? 1 : 997) {
+            int bucket = LatencyHistogram.bucketOf(micros);
+            assertThat(LatencyHistogram.upperBoundOf(bucket)).isGreaterThanOrEqualTo(micros);
+            if (bucket > 0) {
+                assertThat(LatencyHistogram.upperBoundOf(bucket - 1)).isLessThan(micros);
+            }
+        }
+    }
+
+    @Test
+    void should_forget_samples_older_than_the_window() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram(40, TimeUnit.MILLISECONDS);
+        histogram.record(5, TimeUnit.SECONDS);
+
+        Thread.sleep(50);
+        histogram.record(1, TimeUnit.MILLISECONDS);
+        Thread.sleep(50);
+        histogram.record(1, TimeUnit.MILLISECONDS);
+
+        assertThat(histogram.percentileMicros(1.0)).isLessThan(2_000L);
+    }
+
+    @Test
+    void should_return_minus_one_without_samples() {
+        assertThat(new LatencyHistogram(1, TimeUnit.SECONDS).percentileMicros(0.99)).isEqualTo(-1);
+    }
+}
@@ -0,0 +1,186 @@
+package co.proxydemo.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MappedSegmentJournalTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void should_roll_segments_and_read_records_in_order_across_a_restart() throws IOException {
+        try (MappedSegmentJournal journal = new MappedSegmentJournal(dir, 64)) {
+            for (int i = 0; i < 10; i++) {
+                assertThat(journal.append(record("record-" + i))).isEqualTo(i);
+            }
+            assertThat(journal.segmentCount()).isGreaterThan(1);
+        }
+
+        try (MappedSegmentJournal journal = new MappedSegmentJournal(dir, 64)) {
+            assertThat(journal.nextIndex()).isEqualTo(10);
+            assertThat(readAll(journal, 3)).containsExactly(
+                    "record-3", "record-4", "record-5", "record-6", "record-7", "record-8", "record-9");
+            assertThat(journal.append(record("record-10"))).isEqualTo(10);
+        }
+    }
+
+    @Test
+    void should_cut_off_a_torn_record_on_recovery() throws IOException {
+        try (MappedSegmentJournal journal = new MappedSegmentJournal(dir, 1024)) {
+            journal.append(record("first"));
+            journal.append(record("second"));
+        }
+        Path segment = onlySegment();
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{'X'}), 8 + 5 + 8 + 2);
+        }
+
+        try (MappedSegmentJournal journal = new MappedSegmentJournal(dir, 1024)) {
+            assertThat(journal.nextIndex()).isEqualTo(1);
+            journal.append(record("third"));
+            assertThat(readAll(journal, 0)).containsExactly("first", "third");
+        }
+    }
+
+    @Test
+    void should_stop_when_the_visitor_declines_and_resume_from_the_returned_index() throws IOException {
+        try (MappedSegmentJournal journal = new MappedSegmentJournal(dir, 1024)) {
+            for (int i = 0; i < 5; i++) {
+                journal.append(record("r" + i));
+            }
+            List<String> seen = new ArrayList<>();
+            long next = journal.read(0, (index, payload) -> {
+                seen.add(text(payload));
+                return seen.size() < 2;
+            });
+
+            assertThat(seen).containsExactly("r0", "r1");
+            assertThat(next).isEqualTo(2);
+            assertThat(readAll(journal, next)).containsExactly("r2", "r3", "r4");
+        }
+    }
+
+    @Test
+    void should_delete_only_sealed_segments_below_the_index() throws IOException {
+        try (MappedSegmentJournal journal = new MappedSegmentJournal(dir, 64)) {
+            for (int i = 0; i < 10; i++) {
+                journal.append(record("record-" + i));
+            }
+            int segments = journal.segmentCount();
+
+            assertThat(journal.deleteBefore(Long.MAX_VALUE)).isEqualTo(segments - 1);
+            assertThat(journal.segmentCount()).isEqualTo(1);
+            assertThat(readAll(journal, 0)).last().isEqualTo("record-9");
+            assertThat(journal.firstIndex()).isPositive();
+        }
+    }
+
+    @Test
+    void should_skip_and_quarantine_a_record_that_fails_its_checksum() throws IOException {
+        writeRecords(10);
+        corrupt(8 + 16 + 2, new byte[]{'X'});
+
+        try (MappedSegmentJournal journal = new MappedSegmentJournal(dir, 64)) {
+            List<String> records = new ArrayList<>();
+            List<Long> skipped = new ArrayList<>();
+            journal.read(0, skippingVisitor(records, skipped));
+
+            assertThat(records).hasSize(9).doesNotContain("record-1");
+            assertThat(skipped).containsExactly(1L, 2L);
+            assertThat(dir.resolve(firstSegmentName() + ".corrupt")).exists();
+        }
+    }
+
+    @Test
+    void should_skip_the_rest_of_a_segment_whose_record_length_is_corrupt() throws IOException {
+        writeRecords(10);
+        corrupt(16, ByteBuffer.allocate(4).putInt(9999).array());
+
+        try (MappedSegmentJournal journal = new MappedSegmentJournal(dir, 64)) {
+            List<String> records = new ArrayList<>();
+            List<Long> skipped = new ArrayList<>();
+            journal.read(0, skippingVisitor(records, skipped));
+
+            assertThat(records).containsExactly("record-0", "record-4", "record-5", "record-6", "record-7", "record-8", "record-9");
+            assertThat(skipped).containsExactly(1L, 4L);
+        }
+    }
+
+    @Test
+    void should_reject_a_record_larger_than_a_segment() throws IOException {
+        try (MappedSegmentJournal journal = new MappedSegmentJournal(dir, 16)) {
+            assertThatThrownBy(() -> journal.append(record("longer than a segment")))
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    private void writeRecords(int count) throws IOException {
+        try (MappedSegmentJournal journal = new MappedSegmentJournal(dir, 64)) {
+            for (int i = 0; i < count; i++) {
+                journal.append(record("record-" + i));
+            }
+        }
+    }
+
+    private void corrupt(long offset, byte[] bytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(dir.resolve(firstSegmentName()), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(bytes), offset);
+        }
+    }
+
+    private static String firstSegmentName() {
+        return String.format("%020d.seg", 0);
+    }
+
+    private static MappedSegmentJournal.RecordVisitor skippingVisitor(List<String> records, List<Long> skipped) {
+        return new MappedSegmentJournal.RecordVisitor() {
+            @Override
+            public boolean visit(long index, ByteBuffer payload) {
+                return records.add(text(payload));
+            }
+
+            @Override
+            public void skipped(long fromIndex, long toIndex) {
+                skipped.add(fromIndex);
+                skipped.add(toIndex);
+            }
+        };
+    }
+
+    private Path onlySegment() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.findFirst().orElseThrow();
+        }
+    }
+
+    private static List<String> readAll(MappedSegmentJournal journal, long from) throws IOException {
+        List<String> records = new ArrayList<>();
+        journal.read(from, (index, payload) -> records.add(text(payload)));
+        return records;
+    }
+
+    private static ByteBuffer record(String value) {
+        return ByteBuffer.wrap(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String text(ByteBuffer payload) {
+        byte[] bytes = new byte[payload.remaining()];
+        payload.duplicate().get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,46 @@
+package co.proxydemo.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MetadataCodecTest {
+
+    @Test
+    void should_round_trip_metadata_through_one_json_object() {
+        Map<String, String> metadata = new LinkedHashMap<>();
+        metadata.put("productId", "prod_123");
+        metadata.put("description", "Line \"one\"\nline two");
+        metadata.put("note", null);
+
+        String json = MetadataCodec.encode(metadata);
+
+        assertThat(json).startsWith("{\"productId\":\"prod_123\"");
+        assertThat(MetadataCodec.decode(json)).isEqualTo(metadata);
+    }
+
+    @Test
+    void should_store_no_metadata_as_null_and_read_it_back_empty() {
+        assertThat(MetadataCodec.encode(null)).isNull();
+        assertThat(MetadataCodec.encode(Map.of())).isNull();
+        assertThat(MetadataCodec.decode(null)).isEmpty();
+    }
+
+    @Test
+    void should_decode_to_a_read_only_map() {
+        Map<String, String> decoded = MetadataCodec.decode("{\"quantity\":\"1\"}");
+
+        assertThatThrownBy(() -> decoded.put("quantity", "2")).isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    void should_read_the_format_written_by_the_column_migration() {
+        assertThat(MetadataCodec.decode("{\"orderId\": \"ORD-1001\", \"quantity\": \"2\"}"))
+                .containsEntry("orderId", "ORD-1001")
+                .containsEntry("quantity", "2");
+    }
+}
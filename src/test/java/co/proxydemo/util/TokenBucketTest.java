@@ -0,0 +1,47 @@
+package co.proxydemo.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenBucketTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void should_admit_a_full_burst_then_refill_at_the_configured_rate() {
+        TokenBucket bucket = new TokenBucket(10, 5, 0);
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(bucket.tryAcquire(1, 0)).isZero();
+        }
+        long wait = bucket.tryAcquire(1, 0);
+        assertThat(wait).isEqualTo(SECOND / 10);
+
+        assertThat(bucket.tryAcquire(1, wait)).isZero();
+        assertThat(bucket.tryAcquire(1, wait)).isPositive();
+    }
+
+    @Test
+    void should_let_a_large_request_overdraw_and_make_later_calls_wait() {
+        TokenBucket bucket = new TokenBucket(10, 5, 0);
+
+        assertThat(bucket.tryAcquire(20, 0)).isZero();
+        assertThat(bucket.tryAcquire(1, 0)).isEqualTo(SECOND * 16 / 10);
+        assertThat(bucket.tryAcquire(1, SECOND * 16 / 10)).isZero();
+    }
+
+    @Test
+    void should_not_accumulate_more_than_the_burst_while_idle() {
+        TokenBucket bucket = new TokenBucket(100, 3, 0);
+        long later = 60 * SECOND;
+
+        int admitted = 0;
+        while (bucket.tryAcquire(1, later) == 0) {
+            admitted++;
+        }
+        assertThat(admitted).isEqualTo(3);
+    }
+}